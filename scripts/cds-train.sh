@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Training run for an AppCDS archive.
+#
+#   mvn package            (or mvn -Paot package for an AOT-processed jar)
+#   scripts/cds-train.sh [app args...]
+#
+# Unpacks the boot jar into target/cds (the layout CDS needs), starts the app
+# once up to context refresh and dumps every class it loaded into
+# target/cds/ehr.jsa. The training run needs the same database settings as
+# production, passed as app args or SPRING_* environment variables. The
+# archive records the jar by relative path, so start nodes from target/cds:
+#
+#   cd target/cds && java -XX:SharedArchiveFile=ehr.jsa -jar ehr-0.0.1-SNAPSHOT.jar
+#
+# (add -Dspring.aot.enabled=true for an AOT build). Re-train after every build.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+JAR=target/ehr-0.0.1-SNAPSHOT.jar
+OUT=target/cds
+
+[ -f "$JAR" ] || { echo "$JAR not found, run mvn package first" >&2; exit 1; }
+
+rm -rf "$OUT"
+java -Djarmode=tools -jar "$JAR" extract --destination "$OUT"
+
+AOT=()
+if unzip -l "$JAR" | grep -q '__ApplicationContextInitializer'; then
+    AOT=(-Dspring.aot.enabled=true)
+fi
+
+cd "$OUT"
+java -XX:ArchiveClassesAtExit=ehr.jsa -Dspring.context.exit=onRefresh "${AOT[@]}" \
+    -jar "$(basename "$JAR")" "$@"
+
+echo "CDS archive: $OUT/ehr.jsa"
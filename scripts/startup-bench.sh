@@ -0,0 +1,63 @@
+#!/usr/bin/env bash
+# Time-to-first-request: launch the app, poll /login until it answers 200,
+# report milliseconds from launch. Each variant runs RUNS times (default 5).
+#
+#   scripts/startup-bench.sh [app args...]
+#
+# baseline  java -jar target/ehr-0.0.1-SNAPSHOT.jar
+# fast      profile "fast" + the CDS archive from scripts/cds-train.sh
+#           (+ AOT when the jar was built with -Paot)
+#
+# Point both at a migrated database; the fast profile does not migrate.
+set -uo pipefail
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-8099}
+JAR=target/ehr-0.0.1-SNAPSHOT.jar
+CDS_DIR=target/cds
+
+first_request_ms() {
+    local start pid code ms
+    start=$(date +%s%N)
+    ( cd "${RUN_DIR:-.}" && exec "$@" --server.port="$PORT" ) > /tmp/ehr-bench.log 2>&1 &
+    pid=$!
+    while :; do
+        code=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/login" || true)
+        [ "$code" = "200" ] && break
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "app exited, see /tmp/ehr-bench.log" >&2
+            return 1
+        fi
+        sleep 0.05
+    done
+    ms=$(( ($(date +%s%N) - start) / 1000000 ))
+    kill "$pid"; wait "$pid" 2>/dev/null
+    echo "$ms"
+}
+
+bench() {
+    local name=$1; shift
+    local times=()
+    for _ in $(seq "$RUNS"); do
+        times+=("$(first_request_ms "$@")") || return 1
+    done
+    local sorted
+    sorted=$(printf '%s\n' "${times[@]}" | sort -n)
+    printf '%-9s median %6s ms   runs: %s\n' "$name" \
+        "$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")" "$(echo "${times[@]}")"
+}
+
+bench baseline java -jar "$JAR" "$@"
+
+if [ -f "$CDS_DIR/ehr.jsa" ]; then
+    AOT=()
+    if unzip -l "$JAR" | grep -q '__ApplicationContextInitializer'; then
+        AOT=(-Dspring.aot.enabled=true)
+    fi
+    # The archive only maps when started from the directory it was trained in
+    RUN_DIR=$CDS_DIR bench fast java -XX:SharedArchiveFile=ehr.jsa "${AOT[@]}" \
+        -jar "$(basename "$JAR")" --spring.profiles.active=fast "$@"
+else
+    echo "fast: no $CDS_DIR/ehr.jsa, run scripts/cds-train.sh first" >&2
+fi
@@ -0,0 +1,94 @@
+// /src/build/java/StaticAssetCompressor.java
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build-time step (bound to process-classes in pom.xml, run as a single-file
+ * source program so it never ends up in the application jar) that writes .gz and
+ * .br siblings for every text asset under the compiled static directory.
+ * WebConfig's EncodedResourceResolver serves them when the client accepts
+ * the encoding, so nothing is compressed per request.
+ *
+ * Usage: StaticAssetCompressor &lt;static-dir&gt;
+ */
+public class StaticAssetCompressor {
+
+    private static final Set<String> EXTENSIONS = Set.of(".js", ".css", ".html", ".svg", ".json");
+
+    // Below this, headers cost more than compression saves
+    private static final int MIN_SIZE = 1024;
+
+    public static void main(String[] args) throws IOException {
+        Path root = Paths.get(args.length > 0 ? args[0] : "target/classes/static");
+        if (!Files.isDirectory(root)) {
+            System.out.println("[assets] nothing to compress in " + root);
+            return;
+        }
+
+        boolean brotli = Brotli4jLoader.isAvailable();
+        if (!brotli) {
+            System.out.println("[assets] brotli native library unavailable, writing gzip only");
+        }
+
+        List<Path> assets;
+        try (Stream<Path> files = Files.walk(root)) {
+            assets = files.filter(Files::isRegularFile)
+                    .filter(StaticAssetCompressor::isCompressible)
+                    .toList();
+        }
+
+        int written = 0;
+        for (Path asset : assets) {
+            byte[] raw = Files.readAllBytes(asset);
+            if (raw.length < MIN_SIZE) continue;
+
+            written += writeIfSmaller(sibling(asset, ".gz"), gzip(raw), raw.length);
+            if (brotli) {
+                written += writeIfSmaller(sibling(asset, ".br"), Encoder.compress(raw, new Encoder.Parameters().setQuality(11)), raw.length);
+            }
+        }
+
+        System.out.println("[assets] wrote " + written + " precompressed variants for " + assets.size() + " assets");
+    }
+
+    // ---------- helpers ----------
+
+    private static boolean isCompressible(Path p) {
+        String name = p.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && EXTENSIONS.contains(name.substring(dot));
+    }
+
+    private static Path sibling(Path asset, String suffix) {
+        return asset.resolveSibling(asset.getFileName() + suffix);
+    }
+
+    private static int writeIfSmaller(Path target, byte[] encoded, int rawLength) throws IOException {
+        if (encoded.length >= rawLength) {
+            Files.deleteIfExists(target);
+            return 0;
+        }
+        Files.write(target, encoded);
+        return 1;
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(raw.length / 3);
+        try (OutputStream out = new GZIPOutputStream(buf) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            out.write(raw);
+        }
+        return buf.toByteArray();
+    }
+}
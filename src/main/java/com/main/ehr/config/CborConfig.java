@@ -0,0 +1,34 @@
+package com.main.ehr.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Binary responses for integration clients.
+ *
+ * A request with "Accept: application/cbor" gets the same DTO records the
+ * JSON endpoints return, written by Jackson's CBOR generator instead of
+ * as text; CBOR request bodies are read the same way. The mapper comes
+ * from Boot's builder, so dates and inclusion rules match the JSON output.
+ * With string references (RFC 8746 tags 25/256) each repeated key or value
+ * is sent once per response and referenced by index afterwards; clients
+ * whose decoder lacks them can turn them off with ehr.api.cbor.string-refs.
+ */
+@Configuration
+public class CborConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            Jackson2ObjectMapperBuilder builder,
+            @Value("${ehr.api.cbor.string-refs:true}") boolean stringRefs) {
+        CBORFactory factory = CBORFactory.builder()
+                .configure(CBORGenerator.Feature.STRINGREF, stringRefs)
+                .build();
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(factory).build());
+    }
+}
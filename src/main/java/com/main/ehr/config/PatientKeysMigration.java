@@ -0,0 +1,56 @@
+package com.main.ehr.config;
+
+import com.main.ehr.service.dedup.DuplicatePatientService;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * V9: blocking keys (name_key, phone_key, email_key) for patients saved
+ * before V1_1 added the columns, so the duplicate check on create finds
+ * them without waiting for a sweep. The keys come from PatientKeys, which
+ * has no SQL equivalent, hence a Java migration; Spring Boot hands it to
+ * Flyway as a bean, and ShardingConfig runs it on every shard.
+ *
+ * Runs outside a migration transaction: each page commits on its own, and
+ * a run that stops halfway simply continues with the rows still unkeyed.
+ */
+@Component
+public class PatientKeysMigration implements JavaMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientKeysMigration.class);
+
+    private static final int PAGE_SIZE = 5000;
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("9");
+    }
+
+    @Override
+    public String getDescription() {
+        return "patient blocking keys";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        long keyed = DuplicatePatientService.backfillKeys(jdbc, PAGE_SIZE);
+        log.info("Blocking keys backfilled for {} patients", keyed);
+    }
+}
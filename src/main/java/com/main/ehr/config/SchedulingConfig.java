@@ -0,0 +1,10 @@
+package com.main.ehr.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables @Scheduled background jobs (stats rebuild, nightly batches)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,37 @@
+package com.main.ehr.config;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Schema is owned by the Flyway scripts in db/migration.
+ *
+ * ehr.schema.mode=migrate (default) applies pending migrations on boot;
+ * validate only checks that every migration has been applied unchanged and
+ * fails the boot otherwise, for nodes started after a separate migrate step.
+ */
+@Configuration
+public class SchemaConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaConfig.class);
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${ehr.schema.mode:migrate}") String mode) {
+        return flyway -> apply(flyway, mode);
+    }
+
+    /** Also used for the extra shards, which Spring Boot's Flyway doesn't know about. */
+    public static void apply(Flyway flyway, String mode) {
+        if ("validate".equalsIgnoreCase(mode)) {
+            flyway.validate();
+            log.info("Schema validated at version {}", flyway.info().current().getVersion());
+        } else {
+            flyway.migrate();
+        }
+    }
+}
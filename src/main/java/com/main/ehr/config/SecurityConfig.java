@@ -29,12 +29,15 @@ public class SecurityConfig {
                 // API access by role
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/staff/**").hasAnyRole("ADMIN", "STAFF")
+                .requestMatchers("/api/billing/**").hasAnyRole("ADMIN", "STAFF")
 
                 // Public resources + fragment loading
                 .requestMatchers(
                     "/css/**",
                     "/js/**",
+                    "/libs/**",
                     "/images/**",
+                    "/favicon.ico",
                     "/webjars/**",
                     "/login",
                     "/fragments/**"
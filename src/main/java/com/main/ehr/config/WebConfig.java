@@ -0,0 +1,67 @@
+package com.main.ehr.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Static asset pipeline.
+ *
+ * Templates link assets through @{...}, which ResourceUrlEncodingFilter
+ * rewrites to content-hashed names (app.js → app-&lt;md5&gt;.js). Hashed URLs
+ * are served with a one-year immutable Cache-Control; plain URLs must
+ * revalidate. Both prefer the .br / .gz variants written at build time by
+ * src/build/java/StaticAssetCompressor when the client accepts them.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // Directories under classpath:/static that get fingerprinted
+    private static final List<String> ASSET_DIRS = List.of("js", "css", "libs/fullcalendar");
+
+    // Matches the file names produced by the content version strategy (name-<32 hex>.ext).
+    // Path patterns reserve '{}' and '/', so the md5 length is spelled out instead of {32}.
+    private static final String HASHED_FILE = "{file:.+-" + "[0-9a-f]".repeat(32) + "\\.[a-z]+}";
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String dir : ASSET_DIRS) {
+            String location = "classpath:/static/" + dir + "/";
+
+            registry.addResourceHandler("/" + dir + "/" + HASHED_FILE)
+                    .addResourceLocations(location)
+                    .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(versionResolver());
+
+            registry.addResourceHandler("/" + dir + "/**")
+                    .addResourceLocations(location)
+                    .setCacheControl(CacheControl.noCache())
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(versionResolver());
+        }
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResourceUrlEncodingFilter> resourceUrlEncodingFilter() {
+        FilterRegistrationBean<ResourceUrlEncodingFilter> reg =
+                new FilterRegistrationBean<>(new ResourceUrlEncodingFilter());
+        reg.addUrlPatterns("/*");
+        return reg;
+    }
+
+    private static VersionResourceResolver versionResolver() {
+        return new VersionResourceResolver().addContentVersionStrategy("/**");
+    }
+}
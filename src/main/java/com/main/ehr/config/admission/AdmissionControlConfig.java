@@ -0,0 +1,36 @@
+package com.main.ehr.config.admission;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Admission control for /api/** when ehr.admission.enabled=true. Runs after
+ * Spring Security, so anonymous requests never take a slot, and after the
+ * read coalescer, so requests answered from a shared response never do either.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+@ConditionalOnProperty(prefix = "ehr.admission", name = "enabled", havingValue = "true")
+public class AdmissionControlConfig {
+
+    @Bean
+    public AdmissionControlFilter admissionControlFilter(AdmissionProperties props,
+                                                         ObjectProvider<HikariDataSource> pools) {
+        return new AdmissionControlFilter(props, pools);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilterRegistration(
+            AdmissionControlFilter filter) {
+        FilterRegistrationBean<AdmissionControlFilter> reg = new FilterRegistrationBean<>(filter);
+        reg.addUrlPatterns("/api/*");
+        reg.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 30);
+        return reg;
+    }
+}
@@ -0,0 +1,216 @@
+package com.main.ehr.config.admission;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Separate concurrency limits and queues per class of API traffic, so a
+ * burst of broad searches or a report cannot take every pooled connection
+ * while appointment saves and check-ins wait behind them.
+ *
+ * Each lane admits max-concurrent requests and queues up to max-queue more
+ * for at most queue-timeout; beyond that the request is turned away with
+ * 429 and Retry-After. Search and report requests are also turned away at
+ * once while threads are already waiting for a connection. Requests that
+ * fit no lane (single-record reads, the calendar feed) are not limited.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    public enum Lane { WRITES, TYPEAHEAD, SEARCH, REPORT }
+
+    private static final class Gate {
+        final AdmissionProperties.Lane config;
+        final Semaphore permits;
+        final AtomicInteger queued = new AtomicInteger();
+        final LongAdder admitted = new LongAdder();
+        final LongAdder rejectedQueueFull = new LongAdder();
+        final LongAdder rejectedTimeout = new LongAdder();
+        final LongAdder rejectedPoolPressure = new LongAdder();
+        final LongAdder waits = new LongAdder();
+        final LongAdder waitedNanos = new LongAdder();
+        volatile int maxQueued;
+
+        Gate(AdmissionProperties.Lane config) {
+            this.config = config;
+            this.permits = new Semaphore(config.getMaxConcurrent(), true);
+        }
+    }
+
+    private final AdmissionProperties props;
+    private final ObjectProvider<HikariDataSource> pools;
+    private final Map<Lane, Gate> gates = new EnumMap<>(Lane.class);
+    private volatile List<HikariDataSource> resolvedPools;
+
+    public AdmissionControlFilter(AdmissionProperties props, ObjectProvider<HikariDataSource> pools) {
+        this.props = props;
+        this.pools = pools;
+        gates.put(Lane.WRITES, new Gate(props.getWrites()));
+        gates.put(Lane.TYPEAHEAD, new Gate(props.getTypeahead()));
+        gates.put(Lane.SEARCH, new Gate(props.getSearch()));
+        gates.put(Lane.REPORT, new Gate(props.getReport()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        Lane lane = classify(request);
+        if (lane == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Gate gate = gates.get(lane);
+
+        if ((lane == Lane.SEARCH || lane == Lane.REPORT) && props.isShedOnPoolPressure() && poolUnderPressure()) {
+            gate.rejectedPoolPressure.increment();
+            reject(response, gate);
+            return;
+        }
+
+        if (!gate.permits.tryAcquire()) {
+            int depth = gate.queued.incrementAndGet();
+            try {
+                if (depth > gate.config.getMaxQueue()) {
+                    gate.rejectedQueueFull.increment();
+                    reject(response, gate);
+                    return;
+                }
+                if (depth > gate.maxQueued) gate.maxQueued = depth;
+
+                long start = System.nanoTime();
+                boolean acquired = gate.permits.tryAcquire(gate.config.getQueueTimeout().toNanos(), TimeUnit.NANOSECONDS);
+                gate.waits.increment();
+                gate.waitedNanos.add(System.nanoTime() - start);
+                if (!acquired) {
+                    gate.rejectedTimeout.increment();
+                    reject(response, gate);
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reject(response, gate);
+                return;
+            } finally {
+                gate.queued.decrementAndGet();
+            }
+        }
+
+        gate.admitted.increment();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            gate.permits.release();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> lanes = new LinkedHashMap<>();
+        gates.forEach((lane, g) -> {
+            long waits = g.waits.sum();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("maxConcurrent", g.config.getMaxConcurrent());
+            m.put("active", g.config.getMaxConcurrent() - g.permits.availablePermits());
+            m.put("queued", g.queued.get());
+            m.put("maxQueue", g.config.getMaxQueue());
+            m.put("maxQueuedSeen", g.maxQueued);
+            m.put("admitted", g.admitted.sum());
+            m.put("rejectedQueueFull", g.rejectedQueueFull.sum());
+            m.put("rejectedTimeout", g.rejectedTimeout.sum());
+            m.put("rejectedPoolPressure", g.rejectedPoolPressure.sum());
+            m.put("avgQueueWaitMs", waits == 0 ? 0.0 : g.waitedNanos.sum() / 1e6 / waits);
+            lanes.put(lane.name().toLowerCase(Locale.ROOT), m);
+        });
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("lanes", lanes);
+        Map<String, Object> poolStats = new LinkedHashMap<>();
+        for (HikariDataSource ds : pools()) {
+            HikariPoolMXBean mx = ds.getHikariPoolMXBean();
+            if (mx == null) continue;
+            poolStats.put(ds.getPoolName(), Map.of(
+                    "active", mx.getActiveConnections(),
+                    "idle", mx.getIdleConnections(),
+                    "total", mx.getTotalConnections(),
+                    "threadsAwaiting", mx.getThreadsAwaitingConnection()));
+        }
+        out.put("pools", poolStats);
+        return out;
+    }
+
+    // ---------- helpers ----------
+
+    private Lane classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+
+        if (path.startsWith("/api/reports/") || path.startsWith("/api/admin/reports/")
+                || path.startsWith("/api/admin/analytics/") || path.startsWith("/api/billing/claims/batches")
+                || path.equals("/api/eligibility/day")) {
+            return Lane.REPORT;
+        }
+        if (!"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method)) {
+            return Lane.WRITES;
+        }
+        if (path.endsWith("/search")) {
+            return isTypeahead(request) ? Lane.TYPEAHEAD : Lane.SEARCH;
+        }
+        if (path.endsWith("/duplicates")) {
+            return Lane.SEARCH;
+        }
+        return null;
+    }
+
+    private boolean isTypeahead(HttpServletRequest request) {
+        String size = request.getParameter("size");
+        if (size == null) return false;
+        try {
+            return Integer.parseInt(size.trim()) <= props.getTypeaheadMaxSize();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private boolean poolUnderPressure() {
+        for (HikariDataSource ds : pools()) {
+            HikariPoolMXBean mx = ds.getHikariPoolMXBean();
+            if (mx != null && mx.getThreadsAwaitingConnection() > 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The Hikari pool beans: the default pool, or the primary behind the
+     * read/write router or the shard router. The @Primary DataSource is a
+     * lazy proxy in front of those routers, not a pool.
+     */
+    private List<HikariDataSource> pools() {
+        List<HikariDataSource> found = resolvedPools;
+        if (found == null) {
+            found = pools.orderedStream().toList();
+            if (!found.isEmpty()) resolvedPools = found;
+        }
+        return found;
+    }
+
+    private static void reject(HttpServletResponse response, Gate gate) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(gate.config.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"success\":false,\"error\":\"Server busy, try again shortly\"}");
+    }
+}
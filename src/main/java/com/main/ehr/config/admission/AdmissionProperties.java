@@ -0,0 +1,47 @@
+package com.main.ehr.config.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Per-lane concurrency limits (ehr.admission.*). The read lanes together
+ * should stay below the connection pool size so saves always find a
+ * connection; the defaults leave 3 of Hikari's 10 for writes and plain reads.
+ */
+@Data
+@ConfigurationProperties(prefix = "ehr.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = false;
+
+    // Search requests with size= up to this are typeahead lookups
+    private int typeaheadMaxSize = 12;
+
+    // Shed search and report requests at once while threads wait for a pooled connection
+    private boolean shedOnPoolPressure = true;
+
+    private Lane writes = new Lane(20, 100, Duration.ofSeconds(5), 1);
+    private Lane typeahead = new Lane(3, 12, Duration.ofMillis(300), 1);
+    private Lane search = new Lane(3, 6, Duration.ofSeconds(1), 2);
+    private Lane report = new Lane(1, 2, Duration.ofSeconds(2), 10);
+
+    @Data
+    public static class Lane {
+        private int maxConcurrent;
+        private int maxQueue;
+        private Duration queueTimeout;
+        private int retryAfterSeconds;
+
+        public Lane() {
+        }
+
+        Lane(int maxConcurrent, int maxQueue, Duration queueTimeout, int retryAfterSeconds) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.queueTimeout = queueTimeout;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
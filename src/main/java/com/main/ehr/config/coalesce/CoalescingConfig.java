@@ -0,0 +1,37 @@
+package com.main.ehr.config.coalesce;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Shares one database call and one response body between identical
+ * concurrent reads of a provider's schedule, a patient or a provider when
+ * ehr.coalesce.enabled=true. Runs after Spring Security and the clinic
+ * filter, so every request is authorized on its own and the clinic is part
+ * of the key.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ehr.coalesce", name = "enabled", havingValue = "true")
+public class CoalescingConfig {
+
+    @Bean
+    public ReadCoalescingFilter readCoalescingFilter(
+            @Value("${ehr.coalesce.hold-window:100ms}") Duration holdWindow,
+            @Value("${ehr.coalesce.max-wait:10s}") Duration maxWait) {
+        return new ReadCoalescingFilter(holdWindow, maxWait);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadCoalescingFilter> readCoalescingFilterRegistration(ReadCoalescingFilter filter) {
+        FilterRegistrationBean<ReadCoalescingFilter> reg = new FilterRegistrationBean<>(filter);
+        reg.addUrlPatterns("/api/*");
+        reg.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 20);
+        return reg;
+    }
+}
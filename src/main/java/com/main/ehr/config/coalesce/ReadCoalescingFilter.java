@@ -0,0 +1,208 @@
+package com.main.ehr.config.coalesce;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Single-flight for hot reads.
+ *
+ * The first GET for a key (path, sorted query parameters, clinic, Accept)
+ * runs normally and its 200 response body is captured. Identical requests
+ * arriving while it runs, or up to hold-window after it finished, wait for
+ * that body and write the same bytes instead of running their own query.
+ * Anything else (an error status, an exception, a leader slower than
+ * max-wait) makes a waiting request run on its own.
+ *
+ * Writes passing through this node bump a generation; a request only joins
+ * a flight started after the last write completed, so nobody is handed a
+ * response read before their own save. Writes on other nodes are only
+ * bounded by the hold window.
+ */
+public class ReadCoalescingFilter extends OncePerRequestFilter {
+
+    static final String COALESCED_HEADER = "X-Coalesced";
+
+    // getSchedule, getPatient, getProvider
+    private static final List<Pattern> COALESCED_PATHS = List.of(
+            Pattern.compile("/api/schedule/provider/\\d+"),
+            Pattern.compile("/api/patients/\\d+"),
+            Pattern.compile("/api/providers/\\d+"));
+
+    private record Shared(String contentType, byte[] body) {}
+
+    private static final class Flight {
+        final long generation;
+        final CompletableFuture<Shared> result = new CompletableFuture<>();
+        volatile long finishedAt; // System.nanoTime(), 0 while running
+
+        Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private final long holdNanos;
+    private final long maxWaitMillis;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong writeGeneration = new AtomicLong();
+    private final ScheduledExecutorService expiry;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder joinedInFlight = new LongAdder();
+    private final LongAdder servedFromHold = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder bytesShared = new LongAdder();
+
+    public ReadCoalescingFilter(Duration holdWindow, Duration maxWait) {
+        this.holdNanos = holdWindow.toNanos();
+        this.maxWaitMillis = maxWait.toMillis();
+        this.expiry = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "coalesce-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiry.shutdownNow();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        String method = request.getMethod();
+        if (!"GET".equals(method)) {
+            if ("HEAD".equals(method) || "OPTIONS".equals(method)) {
+                chain.doFilter(request, response);
+                return;
+            }
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                writeGeneration.incrementAndGet();
+            }
+            return;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (COALESCED_PATHS.stream().noneMatch(p -> p.matcher(path).matches())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String key = key(request, path);
+        long generation = writeGeneration.get();
+        Flight mine = new Flight(generation);
+        Flight flight = flights.compute(key, (k, f) -> f != null && joinable(f, generation) ? f : mine);
+
+        if (flight == mine) {
+            lead(key, mine, request, response, chain);
+        } else {
+            follow(flight, request, response, chain);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long joined = joinedInFlight.sum();
+        long held = servedFromHold.sum();
+        long total = executed.sum() + joined + held + fallbacks.sum();
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("holdWindowMs", TimeUnit.NANOSECONDS.toMillis(holdNanos));
+        out.put("executed", executed.sum());
+        out.put("joinedInFlight", joined);
+        out.put("servedFromHold", held);
+        out.put("collapsed", joined + held);
+        out.put("fallbacks", fallbacks.sum());
+        out.put("collapseRatio", total == 0 ? 0.0 : (double) (joined + held) / total);
+        out.put("bytesShared", bytesShared.sum());
+        out.put("inFlightKeys", flights.size());
+        return out;
+    }
+
+    // ---------- helpers ----------
+
+    private void lead(String key, Flight flight, HttpServletRequest request, HttpServletResponse response,
+                      FilterChain chain) throws ServletException, IOException {
+        executed.increment();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean shared = false;
+        try {
+            chain.doFilter(request, wrapper);
+            if (wrapper.getStatus() == HttpStatus.OK.value()) {
+                flight.finishedAt = System.nanoTime();
+                flight.result.complete(new Shared(wrapper.getContentType(), wrapper.getContentAsByteArray()));
+                shared = true;
+            }
+            wrapper.copyBodyToResponse();
+        } finally {
+            if (!shared) {
+                flights.remove(key, flight);
+                flight.result.complete(null);
+            } else if (holdNanos > 0) {
+                expiry.schedule(() -> flights.remove(key, flight), holdNanos, TimeUnit.NANOSECONDS);
+            } else {
+                flights.remove(key, flight);
+            }
+        }
+    }
+
+    private void follow(Flight flight, HttpServletRequest request, HttpServletResponse response,
+                        FilterChain chain) throws ServletException, IOException {
+        boolean wasRunning = !flight.result.isDone();
+        Shared shared;
+        try {
+            shared = flight.result.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shared = null;
+        } catch (ExecutionException | TimeoutException e) {
+            shared = null;
+        }
+        if (shared == null) {
+            fallbacks.increment();
+            chain.doFilter(request, response);
+            return;
+        }
+
+        (wasRunning ? joinedInFlight : servedFromHold).increment();
+        bytesShared.add(shared.body().length);
+        response.setStatus(HttpStatus.OK.value());
+        if (shared.contentType() != null) response.setContentType(shared.contentType());
+        response.setContentLength(shared.body().length);
+        response.setHeader(COALESCED_HEADER, wasRunning ? "in-flight" : "hold");
+        response.getOutputStream().write(shared.body());
+    }
+
+    private boolean joinable(Flight f, long generation) {
+        if (f.generation != generation) return false;
+        long finishedAt = f.finishedAt;
+        return finishedAt == 0 || System.nanoTime() - finishedAt < holdNanos;
+    }
+
+    private static String key(HttpServletRequest request, String path) {
+        StringBuilder key = new StringBuilder(path).append('?');
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) ->
+                key.append(name).append('=').append(String.join(",", values)).append('&'));
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return key.append('|').append(ClinicContext.clinicOrDefault())
+                .append('|').append(accept == null ? "" : accept.replace(" ", "").toLowerCase(Locale.ROOT))
+                .toString();
+    }
+}
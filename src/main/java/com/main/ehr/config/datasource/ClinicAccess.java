@@ -0,0 +1,57 @@
+package com.main.ehr.config.datasource;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Which clinics the current user may work in. Admins may use every clinic;
+ * other users the clinics in user_clinics (CLINIC_&lt;id&gt; authorities), or
+ * only the default clinic when they have none. Anonymous requests are
+ * always bound to the default clinic.
+ */
+public final class ClinicAccess {
+
+    public static final String AUTHORITY_PREFIX = "CLINIC_";
+    private static final String ADMIN = "ROLE_ADMIN";
+
+    private final boolean all;
+    private final Set<String> clinics;
+
+    private ClinicAccess(boolean all, Set<String> clinics) {
+        this.all = all;
+        this.clinics = clinics;
+    }
+
+    public static ClinicAccess current(ShardDirectory directory) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return new ClinicAccess(false, Set.of(directory.defaultClinic()));
+        }
+        Set<String> clinics = new LinkedHashSet<>();
+        for (GrantedAuthority a : auth.getAuthorities()) {
+            String name = a.getAuthority();
+            if (ADMIN.equals(name)) return new ClinicAccess(true, directory.clinics().keySet());
+            if (name != null && name.startsWith(AUTHORITY_PREFIX)) clinics.add(name.substring(AUTHORITY_PREFIX.length()));
+        }
+        return new ClinicAccess(false, clinics.isEmpty() ? Set.of(directory.defaultClinic()) : clinics);
+    }
+
+    public boolean allows(String clinic) {
+        return all || clinics.contains(clinic);
+    }
+
+    /** Whether cross-clinic reads (fan-out over every shard) are allowed. */
+    public boolean allowsAll() {
+        return all;
+    }
+
+    /** Clinic for a request that did not pick one: the default clinic when allowed, else the first allowed. */
+    public String preferred(String defaultClinic) {
+        return allows(defaultClinic) || clinics.isEmpty() ? defaultClinic : clinics.iterator().next();
+    }
+}
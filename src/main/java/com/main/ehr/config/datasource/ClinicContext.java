@@ -0,0 +1,60 @@
+package com.main.ehr.config.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * The clinic the current thread works for, and optionally an explicit shard.
+ *
+ * Request threads get their clinic from ClinicContextFilter; ShardRoutingDataSource
+ * maps it to a shard when a connection is opened. Fan-out tasks and background jobs
+ * pin a shard directly, since they work per shard rather than per clinic.
+ */
+public final class ClinicContext {
+
+    private static final ThreadLocal<String> CLINIC = new ThreadLocal<>();
+    private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+
+    // Stamped onto new rows when no clinic is bound (set from ehr.sharding.default-clinic)
+    private static volatile String defaultClinic = "main";
+
+    private ClinicContext() {}
+
+    public static String clinic() {
+        return CLINIC.get();
+    }
+
+    /** Bound clinic, else the default clinic. */
+    public static String clinicOrDefault() {
+        String c = CLINIC.get();
+        return c != null ? c : defaultClinic;
+    }
+
+    public static String pinnedShard() {
+        return SHARD.get();
+    }
+
+    public static void setClinic(String clinic) {
+        if (clinic == null) CLINIC.remove();
+        else CLINIC.set(clinic);
+    }
+
+    public static void clear() {
+        CLINIC.remove();
+        SHARD.remove();
+    }
+
+    public static <T> T callOnShard(String shard, Supplier<T> work) {
+        String previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) SHARD.remove();
+            else SHARD.set(previous);
+        }
+    }
+
+    static void setDefaultClinic(String clinic) {
+        defaultClinic = clinic;
+    }
+}
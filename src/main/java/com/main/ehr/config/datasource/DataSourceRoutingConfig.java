@@ -0,0 +1,89 @@
+package com.main.ehr.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured DataSource with a primary/replica router when
+ * ehr.datasource.routing.enabled=true. With routing disabled (the default)
+ * Spring Boot's single spring.datasource.* pool is used unchanged.
+ */
+@Configuration
+@EnableConfigurationProperties(RoutingDataSourceProperties.class)
+@ConditionalOnProperty(prefix = "ehr.datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(RoutingDataSourceProperties routing) {
+        return new ReadYourWritesTracker(routing.getReadYourWritesWindow());
+    }
+
+    @Bean
+    public ReplicaHealthMonitor replicaHealthMonitor(DataSourceProperties primaryProps,
+                                                     RoutingDataSourceProperties routing) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<RoutingDataSourceProperties.Replica> configured = routing.getReplicas();
+
+        for (int i = 0; i < configured.size(); i++) {
+            RoutingDataSourceProperties.Replica r = configured.get(i);
+            String name = StringUtils.hasText(r.getName()) ? r.getName() : "replica-" + i;
+
+            HikariDataSource ds = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(r.getUrl())
+                    .username(StringUtils.hasText(r.getUsername()) ? r.getUsername() : primaryProps.getUsername())
+                    .password(r.getPassword() != null ? r.getPassword() : primaryProps.getPassword())
+                    .build();
+            ds.setPoolName("ehr-" + name);
+            ds.setMaximumPoolSize(r.getMaximumPoolSize());
+            ds.setConnectionTimeout(r.getConnectionTimeout().toMillis());
+            ds.setReadOnly(true);
+            // Don't block boot on a replica that is down; the monitor will notice
+            ds.setInitializationFailTimeout(-1);
+
+            replicas.put(name, ds);
+        }
+
+        return new ReplicaHealthMonitor(replicas,
+                routing.getHealthCheckInterval(),
+                routing.getHealthCheckTimeoutSeconds());
+    }
+
+    // spring.datasource.hikari.* applies here as it does to Boot's own pool
+    @Bean(destroyMethod = "close")
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties primaryProps) {
+        HikariDataSource primary = primaryProps.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("ehr-primary");
+        return primary;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 ReplicaHealthMonitor replicaHealthMonitor,
+                                 ReadYourWritesTracker readYourWritesTracker) {
+        ReadWriteRoutingDataSource router =
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaHealthMonitor, readYourWritesTracker);
+
+        // Defer the physical connection until the first statement so the
+        // transaction's read-only flag is visible when routing happens
+        return new LazyConnectionDataSourceProxy(router);
+    }
+}
@@ -0,0 +1,90 @@
+package com.main.ehr.config.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Sends @Transactional(readOnly = true) work to a healthy replica and
+ * everything else to the primary.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy: the read-only flag is
+ * only bound to the transaction after the transaction manager has begun,
+ * so the physical connection has to be fetched on first statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReplicaHealthMonitor replicas;
+    private final ReadYourWritesTracker tracker;
+
+    public ReadWriteRoutingDataSource(DataSource primary,
+                                      ReplicaHealthMonitor replicas,
+                                      ReadYourWritesTracker tracker) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWriteOnCommit();
+            return primary.getConnection();
+        }
+
+        String user = currentUser();
+        if (tracker.recentlyWrote(user)) {
+            return primary.getConnection();
+        }
+
+        Optional<String> replica = replicas.nextHealthy();
+        if (replica.isEmpty()) {
+            return primary.getConnection();
+        }
+
+        try {
+            return replicas.get(replica.get()).getConnection();
+        } catch (SQLException ex) {
+            // Replica died between health checks → fail over immediately
+            replicas.markDown(replica.get(), ex);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Per-call credentials only make sense against the primary
+        return primary.getConnection(username, password);
+    }
+
+    // ---------- helpers ----------
+
+    private void rememberWriteOnCommit() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        String user = currentUser();
+        if (user == null) return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tracker.markWrite(user);
+            }
+        });
+    }
+
+    private static String currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return (auth != null && auth.isAuthenticated()) ? auth.getName() : null;
+    }
+}
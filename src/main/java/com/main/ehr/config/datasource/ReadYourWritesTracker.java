@@ -0,0 +1,42 @@
+package com.main.ehr.config.datasource;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users committed a write recently so their next reads are
+ * served by the primary instead of a replica that may still be lagging.
+ */
+public class ReadYourWritesTracker {
+
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private final long windowNanos;
+    private final Map<String, Long> lastWrite = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    public void markWrite(String user) {
+        if (user == null || windowNanos <= 0) return;
+        lastWrite.put(user, System.nanoTime());
+        if (lastWrite.size() > PURGE_THRESHOLD) purgeExpired();
+    }
+
+    public boolean recentlyWrote(String user) {
+        if (user == null) return false;
+        Long at = lastWrite.get(user);
+        if (at == null) return false;
+        if (System.nanoTime() - at < windowNanos) return true;
+        lastWrite.remove(user, at);
+        return false;
+    }
+
+    // Drop expired entries so the map does not grow with every user who ever wrote
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        lastWrite.entrySet().removeIf(e -> now - e.getValue() >= windowNanos);
+    }
+}
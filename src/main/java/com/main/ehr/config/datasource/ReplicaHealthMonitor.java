@@ -0,0 +1,112 @@
+package com.main.ehr.config.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodically validates each replica and hands out healthy ones round-robin.
+ * When no replica is healthy, callers fall back to the primary.
+ */
+public class ReplicaHealthMonitor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaHealthMonitor.class);
+
+    private final Map<String, DataSource> replicas;
+    private final Set<String> healthy = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final int timeoutSeconds;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile List<String> healthyOrder = List.of();
+
+    public ReplicaHealthMonitor(Map<String, DataSource> replicas, Duration interval, int timeoutSeconds) {
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.timeoutSeconds = timeoutSeconds;
+
+        // Assume healthy until the first check says otherwise
+        healthy.addAll(this.replicas.keySet());
+        refreshOrder();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-health");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = Math.max(1000, interval.toMillis());
+        scheduler.scheduleWithFixedDelay(this::checkAll, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public DataSource get(String name) {
+        return replicas.get(name);
+    }
+
+    public Optional<String> nextHealthy() {
+        List<String> order = healthyOrder;
+        if (order.isEmpty()) return Optional.empty();
+        int i = Math.floorMod(cursor.getAndIncrement(), order.size());
+        return Optional.of(order.get(i));
+    }
+
+    // Called when a connection attempt fails between scheduled checks
+    public void markDown(String name, Exception cause) {
+        if (healthy.remove(name)) {
+            log.warn("Replica '{}' marked down: {}", name, cause.getMessage());
+            refreshOrder();
+        }
+    }
+
+    public Map<String, Boolean> status() {
+        Map<String, Boolean> out = new LinkedHashMap<>();
+        replicas.keySet().forEach(name -> out.put(name, healthy.contains(name)));
+        return out;
+    }
+
+    void checkAll() {
+        for (Map.Entry<String, DataSource> e : replicas.entrySet()) {
+            String name = e.getKey();
+            boolean ok;
+            try (Connection c = e.getValue().getConnection()) {
+                ok = c.isValid(timeoutSeconds);
+            } catch (Exception ex) {
+                ok = false;
+            }
+
+            if (ok && healthy.add(name)) {
+                log.info("Replica '{}' is back up", name);
+            } else if (!ok && healthy.remove(name)) {
+                log.warn("Replica '{}' failed health check", name);
+            }
+        }
+        refreshOrder();
+    }
+
+    private void refreshOrder() {
+        List<String> order = new ArrayList<>();
+        for (String name : replicas.keySet()) {
+            if (healthy.contains(name)) order.add(name);
+        }
+        healthyOrder = List.copyOf(order);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (DataSource ds : replicas.values()) {
+            if (ds instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception ignored) { }
+            }
+        }
+    }
+}
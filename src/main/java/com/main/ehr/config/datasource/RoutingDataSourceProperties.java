@@ -0,0 +1,38 @@
+package com.main.ehr.config.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for read/write splitting (ehr.datasource.routing.*).
+ * The primary is still configured through spring.datasource.*.
+ */
+@Data
+@ConfigurationProperties(prefix = "ehr.datasource.routing")
+public class RoutingDataSourceProperties {
+
+    private boolean enabled = false;
+
+    // Reads by a user who just committed a write stay on the primary this long
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+    private int healthCheckTimeoutSeconds = 2;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;   // falls back to spring.datasource.username
+        private String password;   // falls back to spring.datasource.password
+        private int maximumPoolSize = 10;
+        // Short so a replica that is down fails over to the primary quickly
+        private Duration connectionTimeout = Duration.ofSeconds(2);
+    }
+}
@@ -0,0 +1,82 @@
+package com.main.ehr.config.datasource;
+
+import java.util.*;
+
+/**
+ * Which shard holds which clinic. With sharding disabled there is only the
+ * primary shard and the default clinic lives there.
+ *
+ * Each shard holds exactly one clinic: queries do not filter by clinic_id,
+ * so the shard is the isolation boundary and a configuration that puts two
+ * clinics on one shard is rejected at startup.
+ */
+public class ShardDirectory {
+
+    public static final String PRIMARY = "primary";
+
+    private final String defaultClinic;
+    private final Map<String, String> shardByClinic = new LinkedHashMap<>();
+    private final List<String> shards = new ArrayList<>();
+
+    public ShardDirectory(ShardingProperties props) {
+        this.defaultClinic = props.getDefaultClinic();
+        shards.add(PRIMARY);
+        shardByClinic.put(defaultClinic, PRIMARY);
+        for (String clinic : props.getPrimaryClinics()) {
+            if (!clinic.equals(defaultClinic)) {
+                throw new IllegalStateException("Clinic " + clinic + " cannot share the primary shard with "
+                        + defaultClinic + ": clinics on one shard are not isolated; give it its own shard");
+            }
+        }
+
+        if (props.isEnabled()) {
+            for (ShardingProperties.Shard s : props.getShards()) {
+                if (shards.contains(s.getName())) {
+                    throw new IllegalStateException("Duplicate shard name " + s.getName());
+                }
+                shards.add(s.getName());
+                if (s.getClinics().size() != 1) {
+                    throw new IllegalStateException("Shard " + s.getName() + " must hold exactly one clinic, not "
+                            + s.getClinics() + ": clinics on one shard are not isolated");
+                }
+                for (String clinic : s.getClinics()) {
+                    String previous = shardByClinic.put(clinic, s.getName());
+                    if (previous != null && !previous.equals(PRIMARY)) {
+                        throw new IllegalStateException("Clinic " + clinic + " mapped to " + previous + " and " + s.getName());
+                    }
+                }
+            }
+        }
+        ClinicContext.setDefaultClinic(defaultClinic);
+    }
+
+    public String defaultClinic() {
+        return defaultClinic;
+    }
+
+    public boolean isKnown(String clinic) {
+        return shardByClinic.containsKey(clinic);
+    }
+
+    public String shardFor(String clinic) {
+        return clinic == null ? PRIMARY : shardByClinic.getOrDefault(clinic, PRIMARY);
+    }
+
+    /** Shard the current thread works on: the pinned shard, else its clinic's. */
+    public String currentShard() {
+        String pinned = ClinicContext.pinnedShard();
+        return pinned != null ? pinned : shardFor(ClinicContext.clinic());
+    }
+
+    public List<String> shards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public Map<String, String> clinics() {
+        return Collections.unmodifiableMap(shardByClinic);
+    }
+}
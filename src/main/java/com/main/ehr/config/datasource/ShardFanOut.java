@@ -0,0 +1,87 @@
+package com.main.ehr.config.datasource;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs the same read on every shard at once, each in its own read-only
+ * transaction on a pool thread pinned to that shard. A shard that fails or
+ * misses the deadline is reported in failedShards instead of failing the
+ * whole lookup. With a single shard the query runs inline.
+ */
+public class ShardFanOut {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardFanOut.class);
+
+    private final ShardDirectory directory;
+    private final TransactionTemplate readOnlyTx;
+    private final Duration timeout;
+    private final ExecutorService executor;
+
+    public ShardFanOut(ShardDirectory directory, PlatformTransactionManager transactionManager,
+                       Duration timeout, int parallelism) {
+        this.directory = directory;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.timeout = timeout;
+
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "shard-fanout-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public record Result<T>(Map<String, T> byShard, List<String> failedShards) {}
+
+    public <T> Result<T> query(Function<String, T> perShard) {
+        List<String> shards = directory.shards();
+        Map<String, T> out = new LinkedHashMap<>();
+
+        if (shards.size() == 1) {
+            String shard = shards.get(0);
+            out.put(shard, ClinicContext.callOnShard(shard, () -> readOnlyTx.execute(s -> perShard.apply(shard))));
+            return new Result<>(out, List.of());
+        }
+
+        Map<String, Future<T>> pending = new LinkedHashMap<>();
+        for (String shard : shards) {
+            pending.put(shard, executor.submit(() ->
+                    ClinicContext.callOnShard(shard, () -> readOnlyTx.execute(s -> perShard.apply(shard)))));
+        }
+
+        List<String> failed = new ArrayList<>();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Map.Entry<String, Future<T>> e : pending.entrySet()) {
+            try {
+                out.put(e.getKey(), e.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException ex) {
+                e.getValue().cancel(true);
+                log.warn("Shard {} timed out after {}", e.getKey(), timeout);
+                failed.add(e.getKey());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failed.add(e.getKey());
+            } catch (ExecutionException ex) {
+                log.warn("Shard {} query failed: {}", e.getKey(), ex.getCause().toString());
+                failed.add(e.getKey());
+            }
+        }
+        return new Result<>(out, failed);
+    }
+}
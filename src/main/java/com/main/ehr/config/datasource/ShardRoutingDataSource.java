@@ -0,0 +1,48 @@
+package com.main.ehr.config.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Hands out connections from the shard of the bound clinic (or the pinned
+ * shard during fan-out). Like ReadWriteRoutingDataSource it must sit
+ * behind a LazyConnectionDataSourceProxy, so the choice is made at the
+ * first statement of a transaction and the whole transaction stays on
+ * that shard.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+    private final Map<String, DataSource> shards;
+    private final ShardDirectory directory;
+
+    public ShardRoutingDataSource(Map<String, DataSource> shards, ShardDirectory directory) {
+        this.shards = Map.copyOf(shards);
+        this.directory = directory;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return current().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return current().getConnection(username, password);
+    }
+
+    public DataSource shard(String name) {
+        return shards.get(name);
+    }
+
+    private DataSource current() {
+        String shard = ClinicContext.pinnedShard();
+        if (shard == null) shard = directory.shardFor(ClinicContext.clinic());
+        DataSource ds = shards.get(shard);
+        if (ds == null) throw new IllegalStateException("No datasource for shard " + shard);
+        return ds;
+    }
+}
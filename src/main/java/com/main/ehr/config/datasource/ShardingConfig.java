@@ -0,0 +1,258 @@
+package com.main.ehr.config.datasource;
+
+import com.main.ehr.config.SchemaConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.*;
+
+/**
+ * Clinic-based sharding. Every request is bound to a clinic (X-Clinic
+ * header, ?clinic= parameter remembered in the session, else the default
+ * clinic) and its JDBC connections come from that clinic's shard. The
+ * clinic must be one the logged-in user may use (ClinicAccess), else 403.
+ *
+ * The directory, fan-out and request filter are always present, so code can
+ * use them unconditionally; the routing DataSource only replaces the
+ * spring.datasource.* pool when ehr.sharding.enabled=true. Not combinable
+ * with ehr.datasource.routing, which also replaces the DataSource.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    static final String CLINIC_HEADER = "X-Clinic";
+    static final String CLINIC_PARAM = "clinic";
+    static final String CLINIC_SESSION_ATTR = "ehr.clinic";
+
+    @Bean
+    public ShardDirectory shardDirectory(ShardingProperties props) {
+        return new ShardDirectory(props);
+    }
+
+    @Bean
+    public ShardFanOut shardFanOut(ShardDirectory shardDirectory, ShardingProperties props,
+                                   PlatformTransactionManager transactionManager) {
+        return new ShardFanOut(shardDirectory, transactionManager,
+                props.getFanOutTimeout(), props.getFanOutParallelism());
+    }
+
+    // After Spring Security, so login and the user lookup stay on the primary shard
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> clinicContextFilter(ShardDirectory shardDirectory) {
+        FilterRegistrationBean<OncePerRequestFilter> reg =
+                new FilterRegistrationBean<>(new ClinicContextFilter(shardDirectory));
+        reg.addUrlPatterns("/*");
+        reg.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 10);
+        return reg;
+    }
+
+    static class ClinicContextFilter extends OncePerRequestFilter {
+
+        private final ShardDirectory directory;
+
+        ClinicContextFilter(ShardDirectory directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                        FilterChain chain) throws ServletException, IOException {
+            String clinic = request.getHeader(CLINIC_HEADER);
+            String param = request.getParameter(CLINIC_PARAM);
+            if (!StringUtils.hasText(clinic)) clinic = param;
+
+            HttpSession session = request.getSession(false);
+            if (!StringUtils.hasText(clinic) && session != null) {
+                clinic = (String) session.getAttribute(CLINIC_SESSION_ATTR);
+            }
+            // Checked on every request, the remembered clinic included: access can change mid-session
+            ClinicAccess access = ClinicAccess.current(directory);
+            if (!StringUtils.hasText(clinic)) clinic = access.preferred(directory.defaultClinic());
+
+            if (!directory.isKnown(clinic)) {
+                reject(response, HttpStatus.BAD_REQUEST, "Unknown clinic");
+                return;
+            }
+            if (!access.allows(clinic)) {
+                reject(response, HttpStatus.FORBIDDEN, "No access to this clinic");
+                return;
+            }
+            // A clinic picked via ?clinic= sticks for the rest of the session
+            if (StringUtils.hasText(param) && clinic.equals(param)) {
+                request.getSession().setAttribute(CLINIC_SESSION_ATTR, clinic);
+            }
+
+            ClinicContext.setClinic(clinic);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                ClinicContext.clear();
+            }
+        }
+
+        private static void reject(HttpServletResponse response, HttpStatus status, String error) throws IOException {
+            response.setStatus(status.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"success\":false,\"error\":\"" + error + "\"}");
+        }
+    }
+
+    // ============================
+    // Routing DataSource (ehr.sharding.enabled=true)
+    // ============================
+    @Configuration
+    @ConditionalOnProperty(prefix = "ehr.sharding", name = "enabled", havingValue = "true")
+    static class Routing {
+
+        private static final Logger log = LoggerFactory.getLogger(Routing.class);
+
+        // Hibernate hands over the mapping model here; used to create tables on the other shards
+        private final MetadataCapture metadataCapture = new MetadataCapture();
+
+        @Bean(destroyMethod = "close")
+        public HikariDataSource primaryShardDataSource(DataSourceProperties primaryProps) {
+            HikariDataSource primary = primaryProps.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .build();
+            primary.setPoolName("ehr-shard-" + ShardDirectory.PRIMARY);
+            return primary;
+        }
+
+        @Bean
+        public ShardRoutingDataSource shardRoutingDataSource(HikariDataSource primaryShardDataSource,
+                                                             DataSourceProperties primaryProps,
+                                                             ShardingProperties props,
+                                                             ShardDirectory shardDirectory) {
+            Map<String, DataSource> shards = new LinkedHashMap<>();
+            shards.put(ShardDirectory.PRIMARY, primaryShardDataSource);
+
+            for (ShardingProperties.Shard s : props.getShards()) {
+                HikariDataSource ds = DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(s.getUrl())
+                        .username(StringUtils.hasText(s.getUsername()) ? s.getUsername() : primaryProps.getUsername())
+                        .password(s.getPassword() != null ? s.getPassword() : primaryProps.getPassword())
+                        .build();
+                ds.setPoolName("ehr-shard-" + s.getName());
+                ds.setMaximumPoolSize(s.getMaximumPoolSize());
+                shards.put(s.getName(), ds);
+            }
+            return new ShardRoutingDataSource(shards, shardDirectory);
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+            // Pick the shard at the first statement, once the filter has bound the clinic
+            return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+        }
+
+        /**
+         * Ids are only unique within a shard, so the shared second-level and
+         * query caches would mix up rows of different clinics.
+         */
+        @Bean
+        public HibernatePropertiesCustomizer shardingHibernateCustomizer() {
+            return hibernateProps -> {
+                hibernateProps.put("hibernate.cache.use_second_level_cache", "false");
+                hibernateProps.put("hibernate.cache.use_query_cache", "false");
+                hibernateProps.put("hibernate.integrator_provider",
+                        (IntegratorProvider) () -> List.of(metadataCapture));
+            };
+        }
+
+        // Flyway and Hibernate's ddl-auto only ran against the primary shard; repeat both on the others
+        @Bean
+        public SmartInitializingSingleton shardSchemaUpdater(ShardRoutingDataSource shardRoutingDataSource,
+                                                             ShardDirectory shardDirectory,
+                                                             ObjectProvider<Flyway> flyway,
+                                                             @Value("${ehr.schema.mode:migrate}") String schemaMode) {
+            return () -> {
+                Flyway primaryFlyway = flyway.getIfAvailable();
+                for (String shard : shardDirectory.shards()) {
+                    if (ShardDirectory.PRIMARY.equals(shard)) continue;
+                    DataSource ds = shardRoutingDataSource.shard(shard);
+                    if (primaryFlyway != null) {
+                        SchemaConfig.apply(Flyway.configure()
+                                .configuration(primaryFlyway.getConfiguration())
+                                .dataSource(ds)
+                                .load(), schemaMode);
+                    }
+                    applyHibernateSchemaAction(shard, ds);
+                }
+            };
+        }
+
+        private void applyHibernateSchemaAction(String shard, DataSource ds) {
+            if (metadataCapture.metadata == null) return;
+            Map<String, Object> settings = new HashMap<>(metadataCapture.sessionFactory.getProperties());
+            Object action = settings.get("hibernate.hbm2ddl.auto");
+            if (action == null || "none".equals(action)) return;
+
+            try (Connection c = ds.getConnection()) {
+                settings.put("jakarta.persistence.schema-generation-connection", c);
+                SchemaManagementToolCoordinator.process(metadataCapture.metadata,
+                        metadataCapture.sessionFactory.getServiceRegistry(), settings, a -> { });
+                log.info("Schema {} applied to shard {}", action, shard);
+            } catch (Exception e) {
+                throw new IllegalStateException("Schema " + action + " failed on shard " + shard, e);
+            }
+        }
+    }
+
+    static class MetadataCapture implements Integrator {
+        volatile Metadata metadata;
+        volatile SessionFactoryImplementor sessionFactory;
+
+        @Override
+        public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                              SessionFactoryImplementor sessionFactory) {
+            this.metadata = metadata;
+            this.sessionFactory = sessionFactory;
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory,
+                                 SessionFactoryServiceRegistry serviceRegistry) {
+            this.metadata = null;
+            this.sessionFactory = null;
+        }
+    }
+}
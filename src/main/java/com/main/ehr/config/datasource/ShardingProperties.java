@@ -0,0 +1,40 @@
+package com.main.ehr.config.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clinic-to-shard mapping (ehr.sharding.*). The spring.datasource.* pool is
+ * the "primary" shard and holds the default clinic; every other clinic needs
+ * a shard of its own (see ShardDirectory).
+ */
+@Data
+@ConfigurationProperties(prefix = "ehr.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    private String defaultClinic = "main";
+    // Only the default clinic may be listed: a second clinic on primary would see the first one's rows
+    private List<String> primaryClinics = new ArrayList<>();
+
+    // Cross-clinic queries: per-shard deadline and worker threads
+    private Duration fanOutTimeout = Duration.ofSeconds(10);
+    private int fanOutParallelism = 8;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String name;
+        private String url;
+        private String username;   // falls back to spring.datasource.username
+        private String password;   // falls back to spring.datasource.password
+        private int maximumPoolSize = 10;
+        private List<String> clinics = new ArrayList<>();
+    }
+}
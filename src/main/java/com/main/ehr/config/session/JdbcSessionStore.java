@@ -0,0 +1,77 @@
+package com.main.ehr.config.session;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * http_sessions table access. Sessions are global, so every call is pinned
+ * to the primary shard whatever clinic the request is bound to.
+ */
+public class JdbcSessionStore {
+
+    public record StoredSession(String id, long creationTime, long lastAccessTime,
+                                int maxInactiveSeconds, byte[] attributes) {}
+
+    private final JdbcTemplate jdbc;
+
+    public JdbcSessionStore(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public Optional<StoredSession> load(String id, long now) {
+        return primary(() -> {
+            List<StoredSession> rows = jdbc.query("""
+                    SELECT id, creation_time, last_access_time, max_inactive_seconds, attributes
+                    FROM http_sessions WHERE id = ? AND expiry_time > ?
+                    """, (rs, i) -> new StoredSession(rs.getString(1), rs.getLong(2), rs.getLong(3),
+                    rs.getInt(4), rs.getBytes(5)), id, now);
+            return rows.stream().findFirst();
+        });
+    }
+
+    public void insert(StoredSession s) {
+        primary(() -> jdbc.update("""
+                INSERT INTO http_sessions (id, creation_time, last_access_time, max_inactive_seconds, expiry_time, attributes)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, s.id(), s.creationTime(), s.lastAccessTime(), s.maxInactiveSeconds(),
+                expiry(s.lastAccessTime(), s.maxInactiveSeconds()), s.attributes()));
+    }
+
+    /** Rewrites an existing row; 0 when it is gone (logged out or expired elsewhere). */
+    public int update(StoredSession s) {
+        return primary(() -> jdbc.update("""
+                UPDATE http_sessions SET last_access_time = ?, max_inactive_seconds = ?, expiry_time = ?, attributes = ?
+                WHERE id = ?
+                """, s.lastAccessTime(), s.maxInactiveSeconds(),
+                expiry(s.lastAccessTime(), s.maxInactiveSeconds()), s.attributes(), s.id()));
+    }
+
+    // Last-access bump only; the attribute blob is unchanged. 0 when the row is gone
+    public int touch(String id, long lastAccessTime, int maxInactiveSeconds) {
+        return primary(() -> jdbc.update("UPDATE http_sessions SET last_access_time = ?, expiry_time = ? WHERE id = ?",
+                lastAccessTime, expiry(lastAccessTime, maxInactiveSeconds), id));
+    }
+
+    public int delete(String id) {
+        return primary(() -> jdbc.update("DELETE FROM http_sessions WHERE id = ?", id));
+    }
+
+    public int deleteExpired(long now) {
+        return primary(() -> jdbc.update("DELETE FROM http_sessions WHERE expiry_time <= ?", now));
+    }
+
+    // ---------- helpers ----------
+
+    private static long expiry(long lastAccessTime, int maxInactiveSeconds) {
+        return maxInactiveSeconds < 0 ? Long.MAX_VALUE : lastAccessTime + maxInactiveSeconds * 1000L;
+    }
+
+    private static <T> T primary(Supplier<T> work) {
+        return ClinicContext.callOnShard(ShardDirectory.PRIMARY, work);
+    }
+}
@@ -0,0 +1,33 @@
+package com.main.ehr.config.session;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import java.time.Duration;
+
+/**
+ * Replaces the servlet container's in-memory sessions with sessions in the
+ * shared database when ehr.session.shared=true, so any node can serve any
+ * workstation and a restart does not log anyone out. SecurityConfig is
+ * unchanged: Spring Session's filter wraps the request ahead of it.
+ */
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(prefix = "ehr.session", name = "shared", havingValue = "true")
+public class SessionConfig {
+
+    @Bean
+    public SharedSessionRepository sessionRepository(
+            JdbcTemplate jdbc,
+            @Value("${server.servlet.session.timeout:30m}") Duration timeout,
+            @Value("${ehr.session.near-cache-ttl:5s}") Duration nearCacheTtl,
+            @Value("${ehr.session.touch-interval:60s}") Duration touchInterval,
+            @Value("${ehr.session.near-cache-max-entries:10000}") int nearCacheMaxEntries) {
+        return new SharedSessionRepository(new JdbcSessionStore(jdbc), timeout,
+                nearCacheTtl, touchInterval, nearCacheMaxEntries);
+    }
+}
@@ -0,0 +1,236 @@
+package com.main.ehr.config.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSession;
+import org.springframework.session.SessionRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sessions kept in the shared store with a per-node near-cache.
+ *
+ * findById() serves a session from the near-cache while its entry is
+ * younger than nearCacheTtl, otherwise reloads it from the store. The cache
+ * holds the serialized attributes, so every request works on its own copy.
+ * save() runs once per request (when SessionRepositoryFilter commits) and
+ * writes only what changed: the attribute blob when it differs from the
+ * cached one, a last-access bump at most once per touchInterval, or nothing.
+ *
+ * Another node's changes become visible here within nearCacheTtl; logout and
+ * expiry remove the row, so a stale cache entry outlives them by at most that.
+ * Only sessions created on this node are inserted. Existing ones are
+ * updated in place, and an update that finds no row means the session was
+ * invalidated elsewhere: it is dropped, never written back.
+ */
+public class SharedSessionRepository implements SessionRepository<MapSession> {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedSessionRepository.class);
+
+    private static final long UNSAVED_TTL_NANOS = Duration.ofMinutes(10).toNanos();
+
+    private final JdbcSessionStore store;
+    private final Duration defaultMaxInactive;
+    private final long nearCacheTtlNanos;
+    private final long touchIntervalMillis;
+    private final int nearCacheMaxEntries;
+
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer =
+            new DeserializingConverter(SharedSessionRepository.class.getClassLoader());
+
+    private final Map<String, Cached> nearCache = new ConcurrentHashMap<>();
+
+    // Sessions from createSession() not yet stored, with their creation time (nanos)
+    private final Map<String, Long> unsaved = new ConcurrentHashMap<>();
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong storeLoads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong touches = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+
+    public SharedSessionRepository(JdbcSessionStore store, Duration defaultMaxInactive,
+                                   Duration nearCacheTtl, Duration touchInterval, int nearCacheMaxEntries) {
+        this.store = store;
+        this.defaultMaxInactive = defaultMaxInactive;
+        this.nearCacheTtlNanos = nearCacheTtl.toNanos();
+        this.touchIntervalMillis = touchInterval.toMillis();
+        this.nearCacheMaxEntries = nearCacheMaxEntries;
+    }
+
+    // What this node last read or wrote for a session
+    private record Cached(byte[] attributes, long creationTime, long lastAccessStored,
+                          int maxInactiveSeconds, long cachedAtNanos) {
+
+        Cached touched(long lastAccess) {
+            return new Cached(attributes, creationTime, lastAccess, maxInactiveSeconds, cachedAtNanos);
+        }
+    }
+
+    // ============================
+    // SessionRepository
+    // ============================
+
+    @Override
+    public MapSession createSession() {
+        MapSession session = new MapSession();
+        session.setMaxInactiveInterval(defaultMaxInactive);
+        unsaved.put(session.getId(), System.nanoTime());
+        return session;
+    }
+
+    @Override
+    public MapSession findById(String id) {
+        long nowNanos = System.nanoTime();
+        Cached c = nearCache.get(id);
+
+        if (c != null && nowNanos - c.cachedAtNanos() < nearCacheTtlNanos) {
+            cacheHits.incrementAndGet();
+        } else {
+            storeLoads.incrementAndGet();
+            c = store.load(id, System.currentTimeMillis())
+                    .map(s -> new Cached(s.attributes(), s.creationTime(), s.lastAccessTime(),
+                            s.maxInactiveSeconds(), nowNanos))
+                    .orElse(null);
+            if (c == null) {
+                nearCache.remove(id);
+                return null;
+            }
+            cache(id, c);
+        }
+
+        MapSession session = toSession(id, c);
+        if (session.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return session;
+    }
+
+    @Override
+    public void save(MapSession session) {
+        String id = session.getId();
+        String originalId = session.getOriginalId();
+        boolean renamed = !id.equals(originalId);
+
+        byte[] attributes = serialize(session);
+        long lastAccess = session.getLastAccessedTime().toEpochMilli();
+        int maxInactive = (int) session.getMaxInactiveInterval().getSeconds();
+        Cached prev = nearCache.get(originalId);
+        boolean isNew = unsaved.remove(originalId) != null;
+
+        if (!isNew && !renamed && prev != null && prev.maxInactiveSeconds() == maxInactive
+                && Arrays.equals(prev.attributes(), attributes)) {
+            if (lastAccess - prev.lastAccessStored() < touchIntervalMillis) {
+                skipped.incrementAndGet();
+                return;
+            }
+            if (store.touch(id, lastAccess, maxInactive) == 0) {
+                invalidated(id);
+                return;
+            }
+            nearCache.put(id, prev.touched(lastAccess));
+            touches.incrementAndGet();
+            return;
+        }
+
+        long created = session.getCreationTime().toEpochMilli();
+        JdbcSessionStore.StoredSession row =
+                new JdbcSessionStore.StoredSession(id, created, lastAccess, maxInactive, attributes);
+
+        if (renamed) {
+            // Login changes the id (session fixation protection): move the row, unless it is already gone
+            nearCache.remove(originalId);
+            if (store.delete(originalId) == 0 && !isNew) {
+                invalidated(id);
+                return;
+            }
+            store.insert(row);
+        } else if (isNew) {
+            store.insert(row);
+        } else if (store.update(row) == 0) {
+            invalidated(id);
+            return;
+        }
+        cache(id, new Cached(attributes, created, lastAccess, maxInactive, System.nanoTime()));
+        writes.incrementAndGet();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        unsaved.remove(id);
+        store.delete(id);
+        nearCache.remove(id);
+    }
+
+    // ============================
+    // Housekeeping
+    // ============================
+
+    @Scheduled(cron = "${ehr.session.cleanup-cron:0 * * * * *}")
+    public void cleanup() {
+        int removed = store.deleteExpired(System.currentTimeMillis());
+        long nowNanos = System.nanoTime();
+        nearCache.values().removeIf(c -> nowNanos - c.cachedAtNanos() >= nearCacheTtlNanos);
+        // Created but never committed (the request failed before SessionRepositoryFilter saved it)
+        unsaved.values().removeIf(t -> nowNanos - t >= UNSAVED_TTL_NANOS);
+        if (removed > 0) log.debug("Removed {} expired sessions", removed);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("nearCacheEntries", nearCache.size());
+        out.put("nearCacheHits", cacheHits.get());
+        out.put("storeLoads", storeLoads.get());
+        out.put("writes", writes.get());
+        out.put("touches", touches.get());
+        out.put("skippedWrites", skipped.get());
+        out.put("invalidatedWrites", invalidated.get());
+        return out;
+    }
+
+    // ---------- helpers ----------
+
+    // Deleted on another node (logout, expiry) while this one still had it cached: never write it back
+    private void invalidated(String id) {
+        nearCache.remove(id);
+        invalidated.incrementAndGet();
+    }
+
+    private void cache(String id, Cached c) {
+        if (nearCache.size() >= nearCacheMaxEntries) {
+            long nowNanos = System.nanoTime();
+            nearCache.values().removeIf(e -> nowNanos - e.cachedAtNanos() >= nearCacheTtlNanos);
+            if (nearCache.size() >= nearCacheMaxEntries) nearCache.clear();
+        }
+        nearCache.put(id, c);
+    }
+
+    // TreeMap so unchanged attributes serialize to the same bytes
+    private byte[] serialize(MapSession session) {
+        Map<String, Object> attributes = new TreeMap<>();
+        for (String name : session.getAttributeNames()) {
+            attributes.put(name, session.getAttribute(name));
+        }
+        return serializer.convert(attributes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private MapSession toSession(String id, Cached c) {
+        MapSession session = new MapSession(id);
+        session.setCreationTime(Instant.ofEpochMilli(c.creationTime()));
+        session.setLastAccessedTime(Instant.ofEpochMilli(c.lastAccessStored()));
+        session.setMaxInactiveInterval(Duration.ofSeconds(c.maxInactiveSeconds()));
+        ((Map<String, Object>) deserializer.convert(c.attributes())).forEach(session::setAttribute);
+        return session;
+    }
+}
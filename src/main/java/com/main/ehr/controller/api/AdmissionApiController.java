@@ -0,0 +1,32 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.config.admission.AdmissionControlFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/admin/admission")
+public class AdmissionApiController {
+
+    private final ObjectProvider<AdmissionControlFilter> admissionFilter;
+
+    public AdmissionApiController(ObjectProvider<AdmissionControlFilter> admissionFilter) {
+        this.admissionFilter = admissionFilter;
+    }
+
+    // ============================
+    // Per-lane active/queued counts, rejections and pool usage
+    // ============================
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        AdmissionControlFilter filter = admissionFilter.getIfAvailable();
+        if (filter == null) return Map.of("enabled", false);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", true);
+        out.putAll(filter.stats());
+        return out;
+    }
+}
@@ -0,0 +1,82 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.service.analytics.AppointmentAnalyticsService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@RestController
+@ConditionalOnProperty(name = "ehr.analytics.enabled", havingValue = "true")
+public class AnalyticsApiController {
+
+    private final AppointmentAnalyticsService analyticsService;
+
+    public AnalyticsApiController(AppointmentAnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    // ============================
+    // Reports served from the in-memory columnar snapshot
+    // ============================
+    @GetMapping("/api/reports/analytics/utilization")
+    public ResponseEntity<?> getUtilization(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false) Long providerId
+    ) {
+        try {
+            return ResponseEntity.ok(analyticsService.utilization(LocalDate.parse(start), LocalDate.parse(end), providerId));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/api/reports/analytics/no-show")
+    public ResponseEntity<?> getNoShowRates(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false) Long providerId
+    ) {
+        try {
+            return ResponseEntity.ok(analyticsService.noShowRates(LocalDate.parse(start), LocalDate.parse(end), providerId));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/api/reports/analytics/lead-time")
+    public ResponseEntity<?> getLeadTimes(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false) Long providerId,
+            @RequestParam(required = false) String appointmentType
+    ) {
+        try {
+            return ResponseEntity.ok(analyticsService.leadTimes(LocalDate.parse(start), LocalDate.parse(end),
+                    providerId, appointmentType));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ============================
+    // Snapshot status + forced reload
+    // ============================
+    @GetMapping("/api/admin/analytics/status")
+    public Map<String, Object> getStatus() {
+        return analyticsService.status();
+    }
+
+    @PostMapping("/api/admin/analytics/reload")
+    public Map<String, Object> reload() {
+        analyticsService.reload();
+        return analyticsService.status();
+    }
+
+    private static ResponseEntity<?> error(Exception e) {
+        return ResponseEntity.badRequest().body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
+}
@@ -0,0 +1,35 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.service.archive.AppointmentArchiveService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/appointments/archive")
+public class AppointmentArchiveApiController {
+
+    private final AppointmentArchiveService archiveService;
+
+    public AppointmentArchiveApiController(AppointmentArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    // ---------- Move appointments older than the horizon to the archive, in the background ----------
+    @PostMapping("/run")
+    public ResponseEntity<?> startRun() {
+        if (!archiveService.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("success", false, "error", "An archive run is already in progress"));
+        }
+        return ResponseEntity.accepted().body(Map.of("success", true));
+    }
+
+    // Current cutoff and the last run's per-shard counts
+    @GetMapping
+    public Map<String, Object> status() {
+        return archiveService.status();
+    }
+}
@@ -0,0 +1,58 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.service.history.AppointmentHistoryService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/staff/appointment-history")
+public class AppointmentHistoryApiController {
+
+    private final AppointmentHistoryService historyService;
+
+    public AppointmentHistoryApiController(AppointmentHistoryService historyService) {
+        this.historyService = historyService;
+    }
+
+    // ============================
+    // Change log of one appointment
+    // ============================
+    @GetMapping("/{id}")
+    public List<AppointmentHistoryService.Entry> getHistory(@PathVariable Long id) {
+        return historyService.history(id);
+    }
+
+    // ============================
+    // Point-in-time (at = ISO local date-time, e.g. 2026-11-02T08:30)
+    // ============================
+    @GetMapping("/{id}/as-of")
+    public ResponseEntity<?> getAsOf(@PathVariable Long id, @RequestParam String at) {
+        try {
+            return ResponseEntity.ok(historyService.asOf(id, LocalDateTime.parse(at)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/provider/{providerId}/day")
+    public ResponseEntity<?> getProviderDayAsOf(@PathVariable Long providerId,
+                                                @RequestParam String date,
+                                                @RequestParam String at) {
+        try {
+            return ResponseEntity.ok(historyService.providerDayAsOf(
+                    providerId, LocalDate.parse(date), LocalDateTime.parse(at)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private static ResponseEntity<?> error(Exception e) {
+        HttpStatus status = e instanceof NoSuchElementException ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
+}
@@ -0,0 +1,83 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.model.Claim;
+import com.main.ehr.model.ClaimBatch;
+import com.main.ehr.repository.ClaimBatchRepository;
+import com.main.ehr.repository.ClaimRepository;
+import com.main.ehr.service.claims.ClaimBatchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/billing/claims")
+public class BillingApiController {
+
+    private final ClaimBatchService claimBatchService;
+    private final ClaimBatchRepository batchRepository;
+    private final ClaimRepository claimRepository;
+
+    public BillingApiController(ClaimBatchService claimBatchService,
+                                ClaimBatchRepository batchRepository,
+                                ClaimRepository claimRepository) {
+        this.claimBatchService = claimBatchService;
+        this.batchRepository = batchRepository;
+        this.claimRepository = claimRepository;
+    }
+
+    // ---------- Start a claims run for a service-date period (runs in the background) ----------
+    @PostMapping("/batches")
+    public ResponseEntity<?> startBatch(@RequestParam String start, @RequestParam String end) {
+        try {
+            ClaimBatch batch = claimBatchService.start(LocalDate.parse(start), LocalDate.parse(end));
+            return ResponseEntity.accepted().body(Map.of("success", true, "batch", batch));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ---------- Continue a failed/interrupted run from its checkpoints ----------
+    @PostMapping("/batches/{id}/resume")
+    public ResponseEntity<?> resumeBatch(@PathVariable Long id) {
+        try {
+            return ResponseEntity.accepted().body(Map.of("success", true, "batch", claimBatchService.resume(id)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/batches")
+    public List<ClaimBatch> listBatches() {
+        return batchRepository.findTop20ByOrderByIdDesc();
+    }
+
+    @GetMapping("/batches/{id}")
+    public ResponseEntity<?> getBatch(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(Map.of(
+                    "batch", claimBatchService.get(id),
+                    "payers", claimBatchService.checkpoints(id)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ---------- Claims that failed validation, with reasons ----------
+    @GetMapping("/batches/{id}/rejections")
+    public List<Claim> getRejections(@PathVariable Long id) {
+        return claimRepository.findByBatchIdAndStatusOrderById(id, Claim.Status.REJECTED);
+    }
+
+    private static ResponseEntity<?> error(Exception e) {
+        HttpStatus status = e instanceof NoSuchElementException ? HttpStatus.NOT_FOUND
+                : e instanceof IllegalStateException ? HttpStatus.CONFLICT
+                : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status)
+                .body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
+}
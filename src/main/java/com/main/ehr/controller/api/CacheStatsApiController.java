@@ -0,0 +1,105 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.config.coalesce.ReadCoalescingFilter;
+import com.main.ehr.config.session.SharedSessionRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+public class CacheStatsApiController {
+
+    private final SessionFactory sessionFactory;
+    private final ObjectProvider<SharedSessionRepository> sessionRepository;
+    private final ObjectProvider<ReadCoalescingFilter> coalescingFilter;
+
+    public CacheStatsApiController(EntityManagerFactory entityManagerFactory,
+                                   ObjectProvider<SharedSessionRepository> sessionRepository,
+                                   ObjectProvider<ReadCoalescingFilter> coalescingFilter) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.sessionRepository = sessionRepository;
+        this.coalescingFilter = coalescingFilter;
+    }
+
+    // ============================
+    // Second-level + query cache hit/miss counters
+    // ============================
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        Statistics stats = sessionFactory.getStatistics();
+
+        List<Map<String, Object>> regions = new ArrayList<>();
+        for (String name : stats.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics r = stats.getDomainDataRegionStatistics(name);
+            if (r == null) continue;
+            regions.add(region(name, r));
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("statisticsEnabled", stats.isStatisticsEnabled());
+        out.put("secondLevelHits", stats.getSecondLevelCacheHitCount());
+        out.put("secondLevelMisses", stats.getSecondLevelCacheMissCount());
+        out.put("secondLevelPuts", stats.getSecondLevelCachePutCount());
+        out.put("queryCacheHits", stats.getQueryCacheHitCount());
+        out.put("queryCacheMisses", stats.getQueryCacheMissCount());
+        out.put("queryCachePuts", stats.getQueryCachePutCount());
+        out.put("entityLoads", stats.getEntityLoadCount());
+        out.put("entityFetches", stats.getEntityFetchCount());
+        out.put("regions", regions);
+        return out;
+    }
+
+    @PostMapping("/evict")
+    public Map<String, Object> evictAll() {
+        sessionFactory.getCache().evictAllRegions();
+        return Map.of("success", true);
+    }
+
+    // ============================
+    // Shared HTTP sessions: near-cache hits vs store round trips
+    // ============================
+    @GetMapping("/sessions")
+    public Map<String, Object> sessionStats() {
+        SharedSessionRepository repo = sessionRepository.getIfAvailable();
+        if (repo == null) return Map.of("shared", false);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("shared", true);
+        out.putAll(repo.stats());
+        return out;
+    }
+
+    // ============================
+    // Coalesced reads: requests served from another request's response
+    // ============================
+    @GetMapping("/coalescing")
+    public Map<String, Object> coalescingStats() {
+        ReadCoalescingFilter filter = coalescingFilter.getIfAvailable();
+        if (filter == null) return Map.of("enabled", false);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", true);
+        out.putAll(filter.stats());
+        return out;
+    }
+
+    private static Map<String, Object> region(String name, CacheRegionStatistics r) {
+        long hits = r.getHitCount();
+        long misses = r.getMissCount();
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("region", name);
+        m.put("hits", hits);
+        m.put("misses", misses);
+        m.put("puts", r.getPutCount());
+        m.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        m.put("elementsInMemory", r.getElementCountInMemory());
+        return m;
+    }
+}
@@ -0,0 +1,34 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/staff/clinics")
+public class ClinicApiController {
+
+    private final ShardDirectory shardDirectory;
+
+    public ClinicApiController(ShardDirectory shardDirectory) {
+        this.shardDirectory = shardDirectory;
+    }
+
+    // ============================
+    // Known clinics, the shard each lives on, and the one this request is bound to
+    // ============================
+    @GetMapping
+    public Map<String, Object> list() {
+        List<Map<String, Object>> clinics = new ArrayList<>();
+        shardDirectory.clinics().forEach((clinic, shard) -> clinics.add(Map.of("clinic", clinic, "shard", shard)));
+
+        return Map.of(
+                "current", ClinicContext.clinicOrDefault(),
+                "defaultClinic", shardDirectory.defaultClinic(),
+                "shards", shardDirectory.shards(),
+                "clinics", clinics
+        );
+    }
+}
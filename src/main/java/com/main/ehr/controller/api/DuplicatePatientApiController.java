@@ -0,0 +1,49 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.service.dedup.DuplicatePatientService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/patients/duplicates")
+public class DuplicatePatientApiController {
+
+    private final DuplicatePatientService duplicateService;
+
+    public DuplicatePatientApiController(DuplicatePatientService duplicateService) {
+        this.duplicateService = duplicateService;
+    }
+
+    // ============================
+    // Full-table sweep
+    // ============================
+    @PostMapping("/sweep")
+    public ResponseEntity<?> startSweep() {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(duplicateService.startSweep());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/sweep")
+    public Map<String, Object> getSweepStatus() {
+        return duplicateService.sweepStatus();
+    }
+
+    // Pairs found by the last sweep, best first
+    @GetMapping
+    public Map<String, Object> getDuplicates(
+            @RequestParam(defaultValue = "0") double minScore,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        return Map.of(
+                "sweep", duplicateService.sweepStatus(),
+                "pairs", duplicateService.sweepResults(minScore, limit)
+        );
+    }
+}
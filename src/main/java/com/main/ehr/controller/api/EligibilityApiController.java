@@ -0,0 +1,66 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.service.eligibility.EligibilityService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+@RestController
+public class EligibilityApiController {
+
+    private final EligibilityService eligibilityService;
+
+    public EligibilityApiController(EligibilityService eligibilityService) {
+        this.eligibilityService = eligibilityService;
+    }
+
+    // ---------- Check every policy behind a clinic day (defaults to tomorrow) ----------
+    @PostMapping("/api/eligibility/day")
+    public ResponseEntity<?> checkDay(
+            @RequestParam(required = false) String date,
+            @RequestParam(defaultValue = "false") boolean refresh
+    ) {
+        try {
+            LocalDate day = date != null ? LocalDate.parse(date) : LocalDate.now().plusDays(1);
+            return ResponseEntity.ok(eligibilityService.checkDay(day, refresh));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ---------- Cached coverage for the appointment modal; refresh=true re-checks now ----------
+    @GetMapping("/api/eligibility/patient/{patientId}")
+    public ResponseEntity<?> getPatientEligibility(
+            @PathVariable Long patientId,
+            @RequestParam(required = false) String date,
+            @RequestParam(defaultValue = "false") boolean refresh
+    ) {
+        try {
+            LocalDate day = date != null ? LocalDate.parse(date) : LocalDate.now();
+            return ResponseEntity.ok(eligibilityService.forPatient(patientId, day, refresh));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/api/admin/eligibility/cache")
+    public Map<String, Object> getCacheStats() {
+        return eligibilityService.cacheStats();
+    }
+
+    @PostMapping("/api/admin/eligibility/cache/evict")
+    public Map<String, Object> evictCache() {
+        eligibilityService.clearCache();
+        return Map.of("success", true);
+    }
+
+    private static ResponseEntity<?> error(Exception e) {
+        HttpStatus status = e instanceof NoSuchElementException ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status)
+                .body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
+}
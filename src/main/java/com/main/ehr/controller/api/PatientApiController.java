@@ -1,34 +1,57 @@
 package com.main.ehr.controller.api;
 
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.config.datasource.ClinicAccess;
+import com.main.ehr.config.datasource.ShardFanOut;
+import com.main.ehr.dto.PatientSearchRow;
 import com.main.ehr.mapper.PatientMapper;
+import com.main.ehr.mapper.SparseFields;
 import com.main.ehr.model.Patient;
 import com.main.ehr.repository.PatientRepository;
-import com.main.ehr.util.FormatUtils;
+import com.main.ehr.repository.SparseQueryRepository;
+import com.main.ehr.service.dedup.DuplicatePatientService;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.*;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/patients")
 public class PatientApiController {
 
     private final PatientRepository patientRepository;
+    private final DuplicatePatientService duplicateService;
+    private final ShardDirectory shardDirectory;
+    private final ShardFanOut shardFanOut;
+    private final SparseQueryRepository sparseQueries;
 
-    public PatientApiController(PatientRepository patientRepository) {
+    public PatientApiController(PatientRepository patientRepository,
+                                DuplicatePatientService duplicateService,
+                                ShardDirectory shardDirectory,
+                                ShardFanOut shardFanOut,
+                                SparseQueryRepository sparseQueries) {
         this.patientRepository = patientRepository;
+        this.duplicateService = duplicateService;
+        this.shardDirectory = shardDirectory;
+        this.shardFanOut = shardFanOut;
+        this.sparseQueries = sparseQueries;
     }
 
     // ============================
     // Search
     // ============================
+    // fields=id,lastName,... returns only those keys and selects only their columns
     @GetMapping("/search")
-    public Map<String, Object> searchPatients(
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> searchPatients(
             @RequestParam(required = false) String firstName,
             @RequestParam(required = false) String lastName,
             @RequestParam(required = false) String dob,
@@ -40,8 +63,16 @@ public class PatientApiController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "lastName") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean allClinics,
+            @RequestParam(required = false) String fields
     ) {
+        SparseFields sparse;
+        try {
+            sparse = SparseFields.parse(fields, PatientSearchRow.FIELDS);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        }
 
         LocalDate parsedDob = null;
         if (dob != null && !dob.isBlank()) {
@@ -68,43 +99,123 @@ public class PatientApiController {
                 ? Sort.by(sortBy).descending()
                 : Sort.by(sortBy).ascending();
 
-        Pageable pageable = PageRequest.of(page, size, sort);
-
-        Page<Patient> resultPage = patientRepository.searchPatients(
-                firstName, lastName, parsedDob, phone, email, city, state, zip, pageable
-        );
+        if (allClinics && shardDirectory.isSharded()) {
+            // The fan-out reads every clinic on every shard
+            if (!ClinicAccess.current(shardDirectory).allowsAll()) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("success", false, "error", "Searching all clinics needs access to every clinic"));
+            }
+            return ResponseEntity.ok(searchAllShards(firstName, lastName, parsedDob, phone, email,
+                    city, state, zip, page, size, sortBy, sort, sparse));
+        }
 
-        List<Map<String, Object>> patients = resultPage.getContent().stream()
-                .map(p -> {
-                    Map<String, Object> m = new HashMap<>();
-                    m.put("id", p.getId());
-                    m.put("firstName", safe(p.getFirstName()));
-                    m.put("lastName", safe(p.getLastName()));
-                    m.put("dob", FormatUtils.formatDob(p.getDob()));
-                    m.put("phone", safe(p.getPhonePrimary()));
-                    m.put("address", safe(p.getAddressLine1()));
-                    m.put("city", safe(p.getCity()));
-                    m.put("state", safe(p.getState()));
-                    m.put("zip", safe(p.getZip()));
-                    m.put("email", safe(p.getEmail()));
-                    return m;
-                })
-                .collect(Collectors.toList());
+        Pageable pageable = PageRequest.of(page, size, sort);
 
+        Page<?> resultPage;
+        if (sparse != null) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("firstName", firstName);
+            params.put("lastName", lastName);
+            params.put("dob", parsedDob);
+            params.put("phone", phone);
+            params.put("email", email);
+            params.put("city", city);
+            params.put("state", state);
+            params.put("zip", zip);
+            try {
+                resultPage = sparseQueries.page(sparse, PatientRepository.SEARCH_WHERE, params, pageable);
+            } catch (IllegalArgumentException e) {
+                return badRequest(e);
+            }
+        } else {
+            resultPage = patientRepository.searchPatients(
+                    firstName, lastName, parsedDob, phone, email, city, state, zip, pageable
+            ).map(PatientSearchRow::from);
+        }
 
-        return Map.of(
-                "patients", patients,
+        return ResponseEntity.ok(Map.of(
+                "patients", resultPage.getContent(),
                 "page", resultPage.getNumber(),
                 "totalPages", resultPage.getTotalPages(),
                 "totalElements", resultPage.getTotalElements()
+        ));
+    }
+
+    /**
+     * Same search on every shard in parallel. Each shard returns its first
+     * (page + 1) * size rows in the requested order, so the merged, re-sorted
+     * list holds the requested page; totals add up across shards. A fields=
+     * selection is applied to the merged page.
+     */
+    private Map<String, Object> searchAllShards(String firstName, String lastName, LocalDate dob,
+                                                String phone, String email, String city,
+                                                String state, String zip, int page, int size,
+                                                String sortBy, Sort sort, SparseFields sparse) {
+        Pageable top = PageRequest.of(0, (page + 1) * size, sort);
+
+        ShardFanOut.Result<Page<PatientSearchRow>> result = shardFanOut.query(shard ->
+                patientRepository.searchPatients(firstName, lastName, dob, phone, email, city, state, zip, top)
+                        .map(PatientSearchRow::from));
+
+        long total = 0;
+        List<PatientSearchRow> merged = new ArrayList<>();
+        for (Page<PatientSearchRow> p : result.byShard().values()) {
+            total += p.getTotalElements();
+            merged.addAll(p.getContent());
+        }
+        merged.sort(searchOrder(sortBy, sort.iterator().next().isDescending()));
+
+        int from = Math.min(page * size, merged.size());
+        int to = Math.min(from + size, merged.size());
+        List<PatientSearchRow> rows = merged.subList(from, to);
+
+        return Map.of(
+                "patients", sparse == null ? rows : rows.stream().map(sparse::filter).toList(),
+                "page", page,
+                "totalPages", size == 0 ? 0 : (int) ((total + size - 1) / size),
+                "totalElements", total,
+                "failedShards", result.failedShards()
         );
     }
 
+    // Mirrors the database order for the merge; unknown sort keys fall back to name
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<PatientSearchRow> searchOrder(String sortBy, boolean desc) {
+        Function<PatientSearchRow, Comparable> key = switch (sortBy) {
+            case "firstName" -> PatientSearchRow::firstName;
+            case "id" -> PatientSearchRow::id;
+            case "city" -> PatientSearchRow::city;
+            case "state" -> PatientSearchRow::state;
+            case "zip" -> PatientSearchRow::zip;
+            case "email" -> PatientSearchRow::email;
+            case "dob" -> PatientSearchRow::dobValue;
+            default -> PatientSearchRow::lastName;
+        };
+        Comparator<PatientSearchRow> c = Comparator.comparing(key, Comparator.nullsFirst(Comparator.naturalOrder()));
+        if (desc) c = c.reversed();
+        return c.thenComparing(r -> String.valueOf(r.clinicId()))
+                .thenComparing(PatientSearchRow::id);
+    }
+
     // ============================
     // Get single patient
     // ============================
     @GetMapping("/{id}")
-    public ResponseEntity<?> getPatient(@PathVariable Long id) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getPatient(@PathVariable Long id,
+                                        @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                SparseFields sparse = SparseFields.parse(fields, PatientMapper.FIELDS);
+                if (sparse != null) {
+                    return sparseQueries.findById(sparse, id)
+                            .<ResponseEntity<?>>map(ResponseEntity::ok)
+                            .orElseGet(() -> ResponseEntity.notFound().build());
+                }
+            } catch (IllegalArgumentException e) {
+                return badRequest(e);
+            }
+        }
         return patientRepository.findById(id)
                 .map(p -> ResponseEntity.ok(PatientMapper.from(p)))
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -121,8 +232,26 @@ public class PatientApiController {
             return ResponseEntity.badRequest().body("Missing required fields");
         }
 
+        // Warn, don't block: the front desk decides whether it is the same person
+        List<DuplicatePatientService.Match> duplicates = duplicateService.findPossibleDuplicates(p);
+
         Patient saved = patientRepository.save(p);
-        return ResponseEntity.ok(saved);   // ← RETURN CLEAN OBJECT
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "patient", PatientMapper.from(saved),
+                "possibleDuplicates", duplicates
+        ));
+    }
+
+    // ============================
+    // Possible duplicates of an existing patient
+    // ============================
+    @GetMapping("/{id}/duplicates")
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getPossibleDuplicates(@PathVariable Long id) {
+        return patientRepository.findById(id)
+                .map(p -> ResponseEntity.ok(duplicateService.findPossibleDuplicates(p)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     // ============================
@@ -150,18 +279,60 @@ public class PatientApiController {
                     existing.setState(payload.getState());
                     existing.setZip(payload.getZip());
 
-                    Patient saved = patientRepository.save(existing);
-                    return ResponseEntity.ok(saved);  // ← CLEAN OBJECT
+                    Patient saved = patientRepository.saveAndFlush(existing);
+                    return ResponseEntity.ok(PatientMapper.from(saved));
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // ============================
+    // Patch patient (only the fields sent)
+    // ============================
+    // Body: any subset of the demographic fields, plus optional "version".
+    // Answers {success, id, version}; "Prefer: return=representation" gets the DTO.
+    // No surrounding transaction: a stale flush must not leave one marked rollback-only
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchPatient(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> changes,
+            @RequestHeader(value = "Prefer", required = false) String prefer
+    ) {
+        Optional<Patient> found = patientRepository.findById(id);
+        if (found.isEmpty()) return ResponseEntity.notFound().build();
+        Patient p = found.get();
+
+        Object version = changes.get("version");
+        if (version != null && !(version instanceof Number n && n.longValue() == p.getVersion())) {
+            return conflict();
+        }
+
+        try {
+            PatientMapper.applyPatch(p, changes);
+            p = patientRepository.saveAndFlush(p);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict();
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+        }
+
+        if (prefer != null && prefer.contains("return=representation")) {
+            return ResponseEntity.ok(Map.of("success", true, "patient", PatientMapper.from(p)));
+        }
+        return ResponseEntity.ok(Map.of("success", true, "id", p.getId(), "version", p.getVersion()));
+    }
+
     // helpers
-    private static String normalize(String s) {
-        return (s == null || s.isBlank()) ? null : s.trim();
+    private static ResponseEntity<?> badRequest(Exception e) {
+        return ResponseEntity.badRequest().body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
+
+    private static ResponseEntity<?> conflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("success", false, "conflict", true,
+                        "error", "Patient was changed by someone else; reload and try again"));
     }
 
-    private static String safe(String s) {
-        return s == null ? "" : s;
+    private static String normalize(String s) {
+        return (s == null || s.isBlank()) ? null : s.trim();
     }
 }
@@ -1,30 +1,36 @@
 package com.main.ehr.controller.api;
 
 import com.main.ehr.dto.ProviderDTO;
-import com.main.ehr.model.Provider;
+import com.main.ehr.mapper.SparseFields;
 import com.main.ehr.repository.ProviderRepository;
+import com.main.ehr.repository.SparseQueryRepository;
 import org.springframework.data.domain.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/providers")
 public class ProviderApiController {
 
     private final ProviderRepository providerRepository;
+    private final SparseQueryRepository sparseQueries;
 
-    public ProviderApiController(ProviderRepository providerRepository) {
+    public ProviderApiController(ProviderRepository providerRepository,
+                                 SparseQueryRepository sparseQueries) {
         this.providerRepository = providerRepository;
+        this.sparseQueries = sparseQueries;
     }
 
     // ============================================================
     // 🔍 SEARCH — flexible, paginated provider search
+    // fields=id,displayName,... trims both the select list and the rows
     // ============================================================
     @GetMapping("/search")
-    public Map<String, Object> searchProviders(
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> searchProviders(
             @RequestParam(required = false) String firstName,
             @RequestParam(required = false) String lastName,
             @RequestParam(required = false) String specialty,
@@ -33,7 +39,8 @@ public class ProviderApiController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "lastName") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String fields
     ) {
         firstName = normalize(firstName);
         lastName  = normalize(lastName);
@@ -45,28 +52,53 @@ public class ProviderApiController {
 
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<Provider> result = providerRepository.searchProviders(
-                firstName, lastName, specialty, inPracticeOnly, activeOnly, pageable
-        );
+        Page<?> result;
+        try {
+            SparseFields sparse = SparseFields.parse(fields, ProviderDTO.FIELDS);
+            if (sparse != null) {
+                Map<String, Object> params = new HashMap<>();
+                params.put("firstName", firstName);
+                params.put("lastName", lastName);
+                params.put("specialty", specialty);
+                params.put("inPracticeOnly", inPracticeOnly);
+                params.put("activeOnly", activeOnly);
+                result = sparseQueries.page(sparse, ProviderRepository.SEARCH_WHERE, params, pageable);
+            } else {
+                result = providerRepository.searchProviders(
+                        firstName, lastName, specialty, inPracticeOnly, activeOnly, pageable
+                ).map(ProviderDTO::from);
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        }
 
-        List<ProviderDTO> providers = result.getContent()
-                .stream()
-                .map(ProviderDTO::from)
-                .collect(Collectors.toList());
-
-        return Map.of(
-                "providers", providers,
+        return ResponseEntity.ok(Map.of(
+                "providers", result.getContent(),
                 "page", result.getNumber(),
                 "totalPages", result.getTotalPages(),
                 "totalElements", result.getTotalElements()
-        );
+        ));
     }
 
     // ============================================================
     // 👤 SINGLE PROVIDER — by ID (used by scheduler + modals)
     // ============================================================
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProvider(@PathVariable Long id) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getProvider(@PathVariable Long id,
+                                         @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            try {
+                SparseFields sparse = SparseFields.parse(fields, ProviderDTO.FIELDS);
+                if (sparse != null) {
+                    return sparseQueries.findById(sparse, id)
+                            .<ResponseEntity<?>>map(ResponseEntity::ok)
+                            .orElseGet(() -> ResponseEntity.notFound().build());
+                }
+            } catch (IllegalArgumentException e) {
+                return badRequest(e);
+            }
+        }
         return providerRepository.findById(id)
                 .map(p -> ResponseEntity.ok(ProviderDTO.from(p)))
                 .orElse(ResponseEntity.notFound().build());
@@ -78,4 +110,8 @@ public class ProviderApiController {
     private static String normalize(String s) {
         return (s == null || s.isBlank()) ? null : s.trim();
     }
+
+    private static ResponseEntity<?> badRequest(Exception e) {
+        return ResponseEntity.badRequest().body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
 }
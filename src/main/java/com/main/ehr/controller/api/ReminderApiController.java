@@ -0,0 +1,60 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.model.ReminderDelivery;
+import com.main.ehr.model.ReminderRun;
+import com.main.ehr.service.reminders.ReminderService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/admin/reminders")
+public class ReminderApiController {
+
+    private final ReminderService reminderService;
+
+    public ReminderApiController(ReminderService reminderService) {
+        this.reminderService = reminderService;
+    }
+
+    // ---------- Run (or continue) the reminders for one appointment date, in the background ----------
+    @PostMapping("/runs")
+    public ResponseEntity<?> startRun(@RequestParam String date,
+                                      @RequestParam(defaultValue = "NEXT_DAY") String kind) {
+        try {
+            reminderService.start(LocalDate.parse(date), ReminderRun.Kind.valueOf(kind.toUpperCase()));
+            return ResponseEntity.accepted().body(Map.of("success", true));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // Recent runs, by shard
+    @GetMapping("/runs")
+    public Map<String, List<ReminderRun>> listRuns() {
+        return reminderService.recentRuns();
+    }
+
+    @GetMapping("/runs/{id}/failures")
+    public ResponseEntity<?> getFailures(@PathVariable Long id,
+                                         @RequestParam(defaultValue = ShardDirectory.PRIMARY) String shard) {
+        try {
+            List<ReminderDelivery> failed = reminderService.failures(shard, id);
+            return ResponseEntity.ok(failed);
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private static ResponseEntity<?> error(Exception e) {
+        HttpStatus status = e instanceof NoSuchElementException ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status)
+                .body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
+}
@@ -0,0 +1,99 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.model.ProviderDailyStat;
+import com.main.ehr.service.DailyScheduleStatsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+@RestController
+public class ReportApiController {
+
+    private final DailyScheduleStatsService statsService;
+
+    public ReportApiController(DailyScheduleStatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    // ============================
+    // Per provider/day/status/type rows from provider_daily_stats
+    // ============================
+    @GetMapping("/api/reports/provider-daily")
+    public ResponseEntity<?> getProviderDaily(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false) Long providerId
+    ) {
+        try {
+            return ResponseEntity.ok(statsService.findRange(providerId, LocalDate.parse(start), LocalDate.parse(end)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    // ============================
+    // One row per provider: totals, cancellations, minutes, by type
+    // ============================
+    @GetMapping("/api/reports/provider-summary")
+    public ResponseEntity<?> getProviderSummary(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false) Long providerId
+    ) {
+        try {
+            List<ProviderDailyStat> rows = statsService.findRange(providerId, LocalDate.parse(start), LocalDate.parse(end));
+
+            Map<Long, Map<String, Object>> byProvider = new LinkedHashMap<>();
+            for (ProviderDailyStat s : rows) {
+                Map<String, Object> p = byProvider.computeIfAbsent(s.getProviderId(), id -> {
+                    Map<String, Object> m = new LinkedHashMap<>();
+                    m.put("providerId", id);
+                    m.put("appointments", 0L);
+                    m.put("cancelled", 0L);
+                    m.put("bookedMinutes", 0L);
+                    m.put("byType", new TreeMap<String, Long>());
+                    m.put("byStatus", new TreeMap<String, Long>());
+                    return m;
+                });
+
+                boolean cancelled = s.getStatus().toLowerCase().startsWith("cancel");
+                p.merge("appointments", (long) s.getAppointmentCount(), (a, b) -> (Long) a + (Long) b);
+                if (cancelled) {
+                    p.merge("cancelled", (long) s.getAppointmentCount(), (a, b) -> (Long) a + (Long) b);
+                } else {
+                    // Cancelled slots are not booked time
+                    p.merge("bookedMinutes", s.getBookedMinutes(), (a, b) -> (Long) a + (Long) b);
+                }
+                bucket(p, "byType").merge(label(s.getAppointmentType()), (long) s.getAppointmentCount(), Long::sum);
+                bucket(p, "byStatus").merge(label(s.getStatus()), (long) s.getAppointmentCount(), Long::sum);
+            }
+            return ResponseEntity.ok(byProvider.values());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    // ============================
+    // Backfill / repair of the aggregate table
+    // ============================
+    @PostMapping("/api/admin/reports/rebuild")
+    public ResponseEntity<?> rebuild(@RequestParam String start, @RequestParam String end) {
+        try {
+            int rows = statsService.rebuild(LocalDate.parse(start), LocalDate.parse(end));
+            return ResponseEntity.ok(Map.of("success", true, "rows", rows));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> bucket(Map<String, Object> provider, String key) {
+        return (Map<String, Long>) provider.get(key);
+    }
+
+    private static String label(String value) {
+        return value == null || value.isEmpty() ? "unspecified" : value;
+    }
+}
@@ -0,0 +1,79 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.repository.RoomRepository;
+import com.main.ehr.service.rooms.RoomAssignmentService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/staff/rooms")
+public class RoomApiController {
+
+    private final RoomRepository roomRepository;
+    private final RoomAssignmentService roomAssignmentService;
+
+    public RoomApiController(RoomRepository roomRepository,
+                             RoomAssignmentService roomAssignmentService) {
+        this.roomRepository = roomRepository;
+        this.roomAssignmentService = roomAssignmentService;
+    }
+
+    // ============================
+    // Rooms
+    // ============================
+    @GetMapping
+    public List<Map<String, Object>> getRooms() {
+        return roomRepository.findAllByOrderByIdAsc().stream()
+                .map(r -> {
+                    Map<String, Object> m = new LinkedHashMap<>();
+                    m.put("id", r.getId());
+                    m.put("name", r.getName());
+                    m.put("floor", r.getFloor());
+                    return m;
+                })
+                .toList();
+    }
+
+    // ============================
+    // Day assignment
+    // ============================
+    @PostMapping("/assign")
+    public ResponseEntity<?> assignDay(@RequestParam String date) {
+        try {
+            return ResponseEntity.ok(roomAssignmentService.assignDay(LocalDate.parse(date)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/day")
+    public ResponseEntity<?> getDaySheet(@RequestParam String date) {
+        try {
+            return ResponseEntity.ok(roomAssignmentService.daySheet(LocalDate.parse(date)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ============================
+    // Provider room preferences (best first)
+    // ============================
+    @PutMapping("/preferences/{providerId}")
+    public ResponseEntity<?> setPreferences(@PathVariable Long providerId, @RequestBody List<Long> roomIds) {
+        try {
+            return ResponseEntity.ok(Map.of("success", true,
+                    "roomIds", roomAssignmentService.setPreferences(providerId, roomIds)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private static ResponseEntity<?> error(Exception e) {
+        HttpStatus status = e instanceof NoSuchElementException ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
+}
@@ -1,15 +1,35 @@
 package com.main.ehr.controller.api;
 
+import com.main.ehr.dto.AppointmentBatchRequest;
+import com.main.ehr.dto.AppointmentBatchResult;
 import com.main.ehr.dto.AppointmentRequest;
+import com.main.ehr.dto.CalendarEventDTO;
+import com.main.ehr.event.AppointmentChangedEvent;
+import com.main.ehr.event.AppointmentSnapshot;
 import com.main.ehr.mapper.AppointmentMapper;
+import com.main.ehr.mapper.SparseFields;
 import com.main.ehr.model.Appointment;
+import com.main.ehr.model.ArchivedAppointment;
 import com.main.ehr.model.Patient;
 import com.main.ehr.model.Provider;
 import com.main.ehr.repository.AppointmentRepository;
+import com.main.ehr.repository.ArchivedAppointmentRepository;
 import com.main.ehr.repository.PatientRepository;
 import com.main.ehr.repository.ProviderRepository;
+import com.main.ehr.repository.SparseQueryRepository;
+import com.main.ehr.service.AppointmentBatchService;
+import com.main.ehr.service.AppointmentSeriesService;
+import com.main.ehr.service.BookingLockService;
+import com.main.ehr.service.BookingLockService.ProviderDay;
+import com.main.ehr.service.ScheduleService;
+import com.main.ehr.service.archive.AppointmentArchiveHorizon;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.*;
@@ -22,61 +42,114 @@ public class ScheduleApiController {
     private final AppointmentRepository appointmentRepository;
     private final ProviderRepository providerRepository;
     private final PatientRepository patientRepository;
+    private final AppointmentBatchService appointmentBatchService;
+    private final ScheduleService scheduleService;
+    private final AppointmentSeriesService seriesService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookingLockService bookingLocks;
+    private final SparseQueryRepository sparseQueries;
+    private final ArchivedAppointmentRepository archivedAppointments;
+    private final AppointmentArchiveHorizon archiveHorizon;
 
     public ScheduleApiController(AppointmentRepository appointmentRepository,
                                  ProviderRepository providerRepository,
-                                 PatientRepository patientRepository) {
+                                 PatientRepository patientRepository,
+                                 AppointmentBatchService appointmentBatchService,
+                                 ScheduleService scheduleService,
+                                 AppointmentSeriesService seriesService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 BookingLockService bookingLocks,
+                                 SparseQueryRepository sparseQueries,
+                                 ArchivedAppointmentRepository archivedAppointments,
+                                 AppointmentArchiveHorizon archiveHorizon) {
         this.appointmentRepository = appointmentRepository;
         this.providerRepository = providerRepository;
         this.patientRepository = patientRepository;
+        this.appointmentBatchService = appointmentBatchService;
+        this.scheduleService = scheduleService;
+        this.seriesService = seriesService;
+        this.eventPublisher = eventPublisher;
+        this.bookingLocks = bookingLocks;
+        this.sparseQueries = sparseQueries;
+        this.archivedAppointments = archivedAppointments;
+        this.archiveHorizon = archiveHorizon;
     }
 
     // ---------- Provider schedule for FullCalendar ----------
+    // fields=id,start,end,... selects only those columns of the stored rows;
+    // generated series occurrences are trimmed to the same keys
     @GetMapping("/provider/{providerId}")
-    public List<Map<String, Object>> getSchedule(
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getSchedule(
             @PathVariable Long providerId,
             @RequestParam(required = false) String start,
-            @RequestParam(required = false) String end) {
+            @RequestParam(required = false) String end,
+            @RequestParam(required = false) String fields) {
 
         LocalDate startDate = start != null ? LocalDate.parse(start.substring(0, 10)) : LocalDate.now();
         LocalDate endDate   = end != null ? LocalDate.parse(end.substring(0, 10)) : LocalDate.now().plusDays(7);
 
-        List<Appointment> appts = appointmentRepository.findByProviderId(providerId);
-        List<Map<String, Object>> events = new ArrayList<>();
+        SparseFields sparse;
+        try {
+            sparse = SparseFields.parse(fields, CalendarEventDTO.FIELDS);
+        } catch (IllegalArgumentException e) {
+            return writeError(e);
+        }
 
-        for (Appointment a : appts) {
-            if (a.getDate().isBefore(startDate) || a.getDate().isAfter(endDate)) continue;
-
-            Map<String, Object> e = new HashMap<>();
-            e.put("id", a.getId());
-            e.put("title", a.getPatient() != null
-                    ? a.getPatient().getFirstName() + " " + a.getPatient().getLastName()
-                    : "(Unassigned)");
-            e.put("start", LocalDateTime.of(a.getDate(), a.getTimeStart()).toString());
-            e.put("end", LocalDateTime.of(a.getDate(), a.getTimeEnd()).toString());
-            e.put("status", a.getStatus());
-            e.put("appointmentType", a.getAppointmentType());
-            e.put("reason", a.getReason());
-            e.put("providerId", a.getProvider().getId());
-            events.add(e);
+        if (sparse == null) {
+            // Stored appointments in range + recurring occurrences expanded for this window only
+            return ResponseEntity.ok(scheduleService.findProviderSchedule(providerId, startDate, endDate).stream()
+                    .map(CalendarEventDTO::from)
+                    .toList());
         }
-        return events;
+
+        Map<String, Object> params = Map.of("providerId", providerId, "start", startDate, "end", endDate);
+        List<Map<String, Object>> events = new ArrayList<>();
+        if (archiveHorizon.reaches(startDate)) {
+            // Archived rows are older than anything still in the hot table, so they go first
+            events.addAll(sparseQueries.list(sparse, ArchivedAppointment.class.getSimpleName(),
+                    AppointmentRepository.PROVIDER_RANGE_WHERE, params, Sort.by("date", "timeStart")));
+        }
+        events.addAll(sparseQueries.list(sparse, AppointmentRepository.PROVIDER_RANGE_WHERE, params,
+                Sort.by("date", "timeStart")));
+        for (Appointment a : scheduleService.findSeriesOccurrences(providerId, startDate, endDate)) {
+            events.add(sparse.filter(CalendarEventDTO.from(a)));
+        }
+        return ResponseEntity.ok(events);
     }
 
     // ---------- Read single appointment (DTO) ----------
+    // fields= may name nested attributes, e.g. fields=date,timeStart,patient.lastName
     @GetMapping("/appointment/{id}")
-    public ResponseEntity<?> getAppointmentById(@PathVariable Long id) {
-        Optional<Appointment> opt = appointmentRepository.findById(id);
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getAppointmentById(@PathVariable Long id,
+                                                @RequestParam(required = false) String fields) {
+        Optional<?> found;
+        try {
+            SparseFields sparse = SparseFields.parse(fields, AppointmentMapper.FIELDS);
+            if (sparse != null) {
+                found = sparseQueries.findById(sparse, id)
+                        .or(() -> sparseQueries.findById(sparse, ArchivedAppointment.class.getSimpleName(), id));
+            } else {
+                // Archived appointments keep their ids, so links to old visits still resolve
+                found = appointmentRepository.findById(id)
+                        .or(() -> archivedAppointments.findById(id).map(ArchivedAppointment::toAppointment))
+                        .map(AppointmentMapper::toDto);
+            }
+        } catch (IllegalArgumentException e) {
+            return writeError(e);
+        }
 
-        if (opt.isEmpty()) {
+        if (found.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Appointment not found"));
         }
 
-        return ResponseEntity.ok(AppointmentMapper.toDto(opt.get()));
+        return ResponseEntity.ok(found.get());
     }
 
     // ---------- Create ----------
+    // Writes below run under BookingLockService, one provider-day at a time
     @PostMapping("")
     public ResponseEntity<?> createAppointment(@RequestBody Map<String, Object> body) {
         try {
@@ -91,33 +164,39 @@ public class ScheduleApiController {
                         .body(Map.of("success", false, "error", "Missing patient or provider ID"));
             }
 
-            Provider provider = providerRepository.findById(providerId)
-                    .orElseThrow(() -> new RuntimeException("Provider not found"));
+            LocalDate date = LocalDate.parse((String) body.get("date"));
+
+            Appointment a = bookingLocks.inProviderDays(List.of(new ProviderDay(providerId, date)), status -> {
+                Provider provider = providerRepository.findById(providerId)
+                        .orElseThrow(() -> new RuntimeException("Provider not found"));
 
-            Patient patient = patientRepository.findById(patientId)
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
+                Patient patient = patientRepository.findById(patientId)
+                        .orElseThrow(() -> new RuntimeException("Patient not found"));
 
-            Appointment a = new Appointment();
-            a.setProvider(provider);
-            a.setPatient(patient);
-            a.setDate(LocalDate.parse((String) body.get("date")));
-            a.setTimeStart(LocalTime.parse((String) body.get("timeStart")));
-            a.setTimeEnd(LocalTime.parse((String) body.get("timeEnd")));
+                Appointment created = new Appointment();
+                created.setProvider(provider);
+                created.setPatient(patient);
+                created.setDate(date);
+                created.setTimeStart(LocalTime.parse((String) body.get("timeStart")));
+                created.setTimeEnd(LocalTime.parse((String) body.get("timeEnd")));
 
-            Integer duration = (Integer) body.getOrDefault("duration", 15);
-            a.setDurationMinutes(duration);
+                Integer duration = (Integer) body.getOrDefault("duration", 15);
+                created.setDurationMinutes(duration);
 
-            a.setAppointmentType((String) body.get("appointmentType"));
-            a.setStatus((String) body.get("status"));
-            a.setReason((String) body.get("reason"));
+                created.setAppointmentType((String) body.get("appointmentType"));
+                created.setStatus((String) body.get("status"));
+                created.setReason((String) body.get("reason"));
 
-            appointmentRepository.save(a);
+                scheduleService.requireFree(created, null);
+                appointmentRepository.save(created);
+                eventPublisher.publishEvent(AppointmentChangedEvent.created(AppointmentSnapshot.of(created)));
+                return created;
+            });
 
-            return ResponseEntity.ok(Map.of("success", true, "id", a.getId()));
+            return ResponseEntity.ok(Map.of("success", true, "id", a.getId(), "version", a.getVersion()));
 
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("success", false, "error", e.getMessage()));
+            return writeError(e);
         }
     }
 
@@ -128,59 +207,120 @@ public class ScheduleApiController {
             @RequestBody AppointmentRequest req) {
 
         try {
-            Appointment a = appointmentRepository.findById(id)
+            // Lock both the provider-day it is in now and the one it moves to
+            Appointment current = appointmentRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Appointment not found"));
+            ProviderDay from = ProviderDay.of(current);
+            ProviderDay to = new ProviderDay(
+                    req.providerId() != null ? req.providerId() : from.providerId(),
+                    req.date() != null ? LocalDate.parse(req.date()) : from.date());
+
+            Appointment a = bookingLocks.inProviderDays(List.of(from, to), status -> {
+                Appointment locked = appointmentRepository.findById(id)
+                        .orElseThrow(() -> new RuntimeException("Appointment not found"));
+                // Moved by someone else between the read above and taking the locks
+                if (!from.equals(ProviderDay.of(locked))) {
+                    throw new ObjectOptimisticLockingFailureException(Appointment.class, id);
+                }
+                AppointmentMapper.checkVersion(locked, req);
+                AppointmentSnapshot before = AppointmentSnapshot.of(locked);
+
+                // ---- Provider ----
+                if (req.providerId() != null) {
+                    Provider provider = providerRepository.findById(req.providerId())
+                            .orElseThrow(() -> new RuntimeException("Provider not found"));
+                    locked.setProvider(provider);
+                }
+                // If null → keep existing provider automatically
+
+
+                // ---- Patient ----
+                if (req.patientId() != null) {
+                    Patient patient = patientRepository.findById(req.patientId())
+                            .orElseThrow(() -> new RuntimeException("Patient not found"));
+                    locked.setPatient(patient);
+                }
+
+                // ---- Basic fields ----
+                AppointmentMapper.applyPartial(locked, req);
+
+                // Rolls the changes above back with the transaction
+                scheduleService.requireFree(locked, before);
+
+                eventPublisher.publishEvent(AppointmentChangedEvent.updated(before, AppointmentSnapshot.of(locked)));
+                // Flush so the response carries the bumped version
+                return appointmentRepository.saveAndFlush(locked);
+            });
+
+            return ResponseEntity.ok(Map.of("success", true, "id", a.getId(), "version", a.getVersion()));
 
-            // ---- Provider ----
-            if (req.providerId() != null) {
-                Provider provider = providerRepository.findById(req.providerId())
-                        .orElseThrow(() -> new RuntimeException("Provider not found"));
-                a.setProvider(provider);
-            }
-            // If null → keep existing provider automatically
-
-
-            // ---- Patient ----
-            if (req.patientId() != null) {
-                Patient patient = patientRepository.findById(req.patientId())
-                        .orElseThrow(() -> new RuntimeException("Patient not found"));
-                a.setPatient(patient);
-            }
-
-            // ---- Basic fields ----
-            if (req.date() != null) a.setDate(LocalDate.parse(req.date()));
-            if (req.timeStart() != null) a.setTimeStart(LocalTime.parse(req.timeStart()));
-            if (req.timeEnd() != null) a.setTimeEnd(LocalTime.parse(req.timeEnd()));
-
-            if (req.duration() != null) a.setDurationMinutes(req.duration());
-            if (req.appointmentType() != null) a.setAppointmentType(req.appointmentType());
-            if (req.status() != null) a.setStatus(req.status());
-            if (req.reason() != null) a.setReason(req.reason());
+        } catch (Exception e) {
+            return writeError(e);
+        }
+    }
 
-            appointmentRepository.save(a);
 
-            return ResponseEntity.ok(Map.of("success", true, "id", a.getId()));
+    // ---------- Batch create / update / delete ----------
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(@RequestBody AppointmentBatchRequest req) {
+        int count = req.operations() == null ? 0 : req.operations().size();
+        if (count == 0 || count > AppointmentBatchService.MAX_OPERATIONS) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false,
+                            "error", "Batch must contain 1-" + AppointmentBatchService.MAX_OPERATIONS + " operations"));
+        }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("success", false, "error", e.getMessage()));
+        List<AppointmentBatchResult> results;
+        try {
+            results = appointmentBatchService.apply(req);
+        } catch (OptimisticLockingFailureException | IllegalStateException e) {
+            return writeError(e);
         }
-    }
+        boolean allOk = results.stream().allMatch(AppointmentBatchResult::success);
 
+        return ResponseEntity.ok(Map.of("success", allOk, "results", results));
+    }
 
     // ---------- Delete ----------
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteAppointment(@PathVariable Long id) {
+    public ResponseEntity<?> deleteAppointment(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long version) {
         try {
-            if (!appointmentRepository.existsById(id)) {
+            Optional<Appointment> existing = appointmentRepository.findById(id);
+            if (existing.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("success", false, "error", "Appointment not found"));
             }
-            appointmentRepository.deleteById(id);
+            ProviderDay day = ProviderDay.of(existing.get());
+
+            bookingLocks.inProviderDays(List.of(day), status -> {
+                Appointment locked = appointmentRepository.findById(id)
+                        .orElseThrow(() -> new ObjectOptimisticLockingFailureException(Appointment.class, id));
+                if (version != null && version != locked.getVersion()) {
+                    throw new ObjectOptimisticLockingFailureException(Appointment.class, id);
+                }
+                // A deleted series occurrence must not be regenerated by the rule
+                seriesService.onAppointmentDeleted(locked);
+                appointmentRepository.delete(locked);
+                eventPublisher.publishEvent(AppointmentChangedEvent.deleted(AppointmentSnapshot.of(locked)));
+                return null;
+            });
             return ResponseEntity.ok(Map.of("success", true));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("success", false, "error", e.getMessage()));
+            return writeError(e);
+        }
+    }
+
+    // Stale version, busy provider-day or a clashing appointment → 409 so the client reloads/retries
+    private static ResponseEntity<?> writeError(Exception e) {
+        if (e instanceof OptimisticLockingFailureException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("success", false, "conflict", true,
+                            "error", "Appointment was changed by someone else; reload and try again"));
         }
+        HttpStatus status = e instanceof IllegalStateException ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status)
+                .body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
     }
 }
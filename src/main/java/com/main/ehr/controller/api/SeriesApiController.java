@@ -0,0 +1,86 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.dto.AppointmentSeriesDTO;
+import com.main.ehr.dto.AppointmentSeriesRequest;
+import com.main.ehr.model.Appointment;
+import com.main.ehr.service.AppointmentSeriesService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/schedule/series")
+public class SeriesApiController {
+
+    private final AppointmentSeriesService seriesService;
+
+    public SeriesApiController(AppointmentSeriesService seriesService) {
+        this.seriesService = seriesService;
+    }
+
+    // ---------- Create a recurring series ----------
+    @PostMapping("")
+    public ResponseEntity<?> createSeries(@RequestBody AppointmentSeriesRequest req) {
+        try {
+            return ResponseEntity.ok(Map.of("success", true,
+                    "series", AppointmentSeriesDTO.from(seriesService.create(req))));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ---------- Read ----------
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getSeries(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(AppointmentSeriesDTO.from(seriesService.get(id)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ---------- Materialize one occurrence so it can be edited like a normal appointment ----------
+    @PostMapping("/{id}/occurrences/{date}")
+    public ResponseEntity<?> materializeOccurrence(@PathVariable Long id, @PathVariable String date) {
+        try {
+            Appointment a = seriesService.materialize(id, LocalDate.parse(date));
+            return ResponseEntity.ok(Map.of("success", true, "id", a.getId()));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ---------- Cancel a single occurrence ----------
+    @DeleteMapping("/{id}/occurrences/{date}")
+    public ResponseEntity<?> cancelOccurrence(@PathVariable Long id, @PathVariable String date) {
+        try {
+            seriesService.cancelOccurrence(id, LocalDate.parse(date));
+            return ResponseEntity.ok(Map.of("success", true));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ---------- End the series after a given date ----------
+    @PostMapping("/{id}/end")
+    public ResponseEntity<?> endSeries(@PathVariable Long id, @RequestParam String lastDate) {
+        try {
+            return ResponseEntity.ok(Map.of("success", true,
+                    "series", AppointmentSeriesDTO.from(seriesService.end(id, LocalDate.parse(lastDate)))));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private static ResponseEntity<?> error(Exception e) {
+        HttpStatus status = e instanceof NoSuchElementException ? HttpStatus.NOT_FOUND
+                : e instanceof IllegalStateException ? HttpStatus.CONFLICT
+                : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status)
+                .body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
+}
@@ -0,0 +1,112 @@
+package com.main.ehr.controller.api;
+
+import com.main.ehr.dto.WaitlistRequest;
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.WaitlistEntry;
+import com.main.ehr.service.waitlist.WaitlistService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/staff/waitlist")
+public class WaitlistApiController {
+
+    private final WaitlistService waitlistService;
+
+    public WaitlistApiController(WaitlistService waitlistService) {
+        this.waitlistService = waitlistService;
+    }
+
+    // ============================
+    // Waiting and offered entries
+    // ============================
+    @GetMapping
+    public List<Map<String, Object>> list() {
+        return waitlistService.active().stream().map(WaitlistApiController::toRow).toList();
+    }
+
+    @PostMapping
+    public ResponseEntity<?> add(@RequestBody WaitlistRequest req) {
+        try {
+            WaitlistEntry e = waitlistService.add(req);
+            return ResponseEntity.ok(Map.of("success", true, "id", e.getId()));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> remove(@PathVariable Long id) {
+        try {
+            waitlistService.remove(id);
+            return ResponseEntity.ok(Map.of("success", true));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // ============================
+    // Offers
+    // ============================
+    @PostMapping("/{id}/accept")
+    public ResponseEntity<?> accept(@PathVariable Long id) {
+        try {
+            Appointment a = waitlistService.accept(id);
+            return ResponseEntity.ok(Map.of("success", true, "appointmentId", a.getId()));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @PostMapping("/{id}/decline")
+    public ResponseEntity<?> decline(@PathVariable Long id) {
+        try {
+            waitlistService.decline(id);
+            return ResponseEntity.ok(Map.of("success", true));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return waitlistService.stats();
+    }
+
+    // ---------- helpers ----------
+
+    private static Map<String, Object> toRow(WaitlistEntry e) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", e.getId());
+        m.put("patientId", e.getPatient().getId());
+        m.put("patientName", e.getPatient().getFirstName() + " " + e.getPatient().getLastName());
+        m.put("providerId", e.getProvider() != null ? e.getProvider().getId() : null);
+        m.put("earliestDate", e.getEarliestDate());
+        m.put("latestDate", e.getLatestDate());
+        m.put("windowStart", e.getWindowStart());
+        m.put("windowEnd", e.getWindowEnd());
+        m.put("durationMinutes", e.getDurationMinutes());
+        m.put("urgency", e.getUrgency());
+        m.put("status", e.getStatus());
+        m.put("createdAt", e.getCreatedAt());
+        if (e.getStatus() == WaitlistEntry.Status.OFFERED) {
+            m.put("offer", Map.of(
+                    "providerId", e.getOfferProviderId(),
+                    "date", e.getOfferDate(),
+                    "timeStart", e.getOfferStart(),
+                    "timeEnd", e.getOfferEnd(),
+                    "expiresAt", e.getOfferExpiresAt()));
+        }
+        return m;
+    }
+
+    private static ResponseEntity<?> error(Exception e) {
+        HttpStatus status = e instanceof NoSuchElementException ? HttpStatus.NOT_FOUND
+                : e instanceof IllegalStateException ? HttpStatus.CONFLICT
+                : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(Map.of("success", false, "error", String.valueOf(e.getMessage())));
+    }
+}
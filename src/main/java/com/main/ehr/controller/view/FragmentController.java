@@ -1,24 +1,82 @@
 package com.main.ehr.controller.view;
 
+import com.main.ehr.service.FragmentCache;
+import com.main.ehr.service.FragmentCache.RenderedFragment;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+import java.util.List;
 
 @Controller
 public class FragmentController {
 
+    private static final MediaType HTML_UTF8 = MediaType.parseMediaType("text/html;charset=UTF-8");
+
+    private static final List<String> SECTIONS = List.of(
+            "scheduler", "appointment-details", "patient", "provider",
+            "billing", "reports", "demographics"
+    );
+
+    private final FragmentCache fragmentCache;
+
+    public FragmentController(FragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    // Fragments are static markup, so they are served from the pre-rendered
+    // cache; a matching If-None-Match gets a 304 from ResponseEntity handling
     @GetMapping("/fragments/{section}")
-    public String getFragment(@PathVariable String section) {
-        // Always return a fragment (:: content) except when a file is a full-page template
+    public ResponseEntity<byte[]> getFragment(
+            @PathVariable String section,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        RenderedFragment fragment = fragmentCache.get(templateFor(section));
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(HTML_UTF8)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        if (gzip) {
+            return response
+                    .eTag(gzipTag(fragment.etag()))
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(fragment.gzipBody());
+        }
+        return response.eTag(fragment.etag()).body(fragment.body());
+    }
+
+    // Render every fragment once at startup so the first user doesn't pay for it
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        SECTIONS.forEach(section -> fragmentCache.get(templateFor(section)));
+    }
+
+    private static String templateFor(String section) {
+        // Always return a fragment template except when a file is a full-page template
         return switch (section.toLowerCase()) {
-            case "scheduler" -> "fragments/scheduler :: content";
-            case "appointment-details" -> "fragments/appointment-details :: content";
-            case "patient" -> "fragments/patient :: content";
-            case "provider" -> "fragments/provider :: content";   // ✅ Added this line
-            case "billing" -> "fragments/billing :: content";
-            case "reports" -> "fragments/reports :: content";
-            case "demographics" -> "fragments/demographics :: content";
-            default -> "fragments/scheduler :: content";
+            case "scheduler" -> "fragments/scheduler";
+            case "appointment-details" -> "fragments/appointment-details";
+            case "patient" -> "fragments/patient";
+            case "provider" -> "fragments/provider";
+            case "billing" -> "fragments/billing";
+            case "reports" -> "fragments/reports";
+            case "demographics" -> "fragments/demographics";
+            default -> "fragments/scheduler";
         };
     }
+
+    // Distinct validator per encoding so caches never mix the two bodies
+    private static String gzipTag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
 }
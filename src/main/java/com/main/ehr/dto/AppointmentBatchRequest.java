@@ -0,0 +1,15 @@
+package com.main.ehr.dto;
+
+import java.util.List;
+
+public record AppointmentBatchRequest(
+        List<Operation> operations,
+        boolean allOrNothing        // true → write nothing if any item fails validation
+) {
+    public record Operation(
+            String op,              // create | update | delete
+            Long id,                // required for update / delete
+            String clientRef,       // echoed back so callers can match results
+            AppointmentRequest appointment
+    ) {}
+}
@@ -0,0 +1,18 @@
+package com.main.ehr.dto;
+
+public record AppointmentBatchResult(
+        int index,
+        String clientRef,
+        String op,
+        Long id,
+        boolean success,
+        String error
+) {
+    public static AppointmentBatchResult ok(int index, String clientRef, String op, Long id) {
+        return new AppointmentBatchResult(index, clientRef, op, id, true, null);
+    }
+
+    public static AppointmentBatchResult failed(int index, String clientRef, String op, Long id, String error) {
+        return new AppointmentBatchResult(index, clientRef, op, id, false, error);
+    }
+}
@@ -15,6 +15,9 @@ public record AppointmentDTO(
         Long providerId,   // ★ add
         Long patientId,    // ★ add
         ProviderDTO provider,
-        PatientDTO patient
+        PatientDTO patient,
+        Long roomId,
+        String roomName,
+        long version
 ) {}
 
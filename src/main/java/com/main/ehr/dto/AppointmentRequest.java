@@ -9,6 +9,7 @@ public record AppointmentRequest(
 	    String date,
 	    String timeStart,
 	    String timeEnd,
-	    Integer duration
+	    Integer duration,
+	    Long version       // when set, must match the stored version (409 otherwise)
 	) {}
 
@@ -0,0 +1,48 @@
+package com.main.ehr.dto;
+
+import com.main.ehr.model.AppointmentSeries;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+public record AppointmentSeriesDTO(
+        Long id,
+        Long providerId,
+        Long patientId,
+        String appointmentType,
+        String reason,
+        String status,
+        LocalTime timeStart,
+        LocalTime timeEnd,
+        Integer duration,
+        String frequency,
+        int interval,
+        List<DayOfWeek> daysOfWeek,
+        LocalDate startDate,
+        LocalDate untilDate,
+        List<LocalDate> excludedDates
+) {
+    public static AppointmentSeriesDTO from(AppointmentSeries s) {
+        if (s == null) return null;
+
+        return new AppointmentSeriesDTO(
+                s.getId(),
+                s.getProvider() != null ? s.getProvider().getId() : null,
+                s.getPatient() != null ? s.getPatient().getId() : null,
+                s.getAppointmentType(),
+                s.getReason(),
+                s.getStatus(),
+                s.getTimeStart(),
+                s.getTimeEnd(),
+                s.getDurationMinutes(),
+                s.getFrequency().name(),
+                s.getInterval(),
+                List.copyOf(s.getDaysOfWeek()),
+                s.getStartDate(),
+                s.getUntilDate(),
+                s.getExcludedDates().stream().sorted().toList()
+        );
+    }
+}
@@ -0,0 +1,20 @@
+package com.main.ehr.dto;
+
+import java.util.List;
+
+public record AppointmentSeriesRequest(
+        Long providerId,
+        Long patientId,
+        String appointmentType,
+        String reason,
+        String status,
+        String timeStart,
+        String timeEnd,
+        Integer duration,
+        String frequency,          // DAILY | WEEKLY
+        Integer interval,          // every N days / weeks, default 1
+        List<String> daysOfWeek,   // WEEKLY: MONDAY, TUESDAY, ...
+        String startDate,
+        String untilDate,          // inclusive, optional
+        Integer occurrences        // alternative to untilDate
+) {}
@@ -0,0 +1,67 @@
+package com.main.ehr.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.main.ehr.mapper.SparseFields;
+import com.main.ehr.model.Appointment;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * One FullCalendar event of GET /api/schedule/provider/{id}. Generated
+ * series occurrences have no database id, so theirs is "s&lt;seriesId&gt;-&lt;date&gt;"
+ * and they carry no version.
+ */
+public record CalendarEventDTO(
+        Object id,
+        String title,
+        String start,
+        String end,
+        String status,
+        String appointmentType,
+        String reason,
+        Long providerId,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Long version,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String room,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Long seriesId,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String occurrenceDate
+) {
+    // fields= attributes, with the same names and values as from()
+    public static final SparseFields.Catalog FIELDS = new SparseFields.Catalog("Appointment", "a")
+            .join("patient", "pa")
+            .join("room", "rm")
+            .field("id", "id")
+            .derived("title", List.of("pa.id", "pa.firstName", "pa.lastName"),
+                    v -> v[0] != null ? v[1] + " " + v[2] : "(Unassigned)")
+            .derived("start", List.of("date", "timeStart"), v -> LocalDateTime.of((LocalDate) v[0], (LocalTime) v[1]).toString())
+            .derived("end", List.of("date", "timeEnd"), v -> LocalDateTime.of((LocalDate) v[0], (LocalTime) v[1]).toString())
+            .field("status", "status")
+            .field("appointmentType", "appointmentType")
+            .field("reason", "reason")
+            .field("providerId", "provider.id")
+            .field("version", "version")
+            .field("room", "rm.name")
+            .field("seriesId", "series.id")
+            .field("occurrenceDate", "seriesOriginalDate", v -> v != null ? v.toString() : null);
+
+    public static CalendarEventDTO from(Appointment a) {
+        return new CalendarEventDTO(
+                a.getId() != null ? a.getId() : "s" + a.getSeries().getId() + "-" + a.getDate(),
+                a.getPatient() != null
+                        ? a.getPatient().getFirstName() + " " + a.getPatient().getLastName()
+                        : "(Unassigned)",
+                LocalDateTime.of(a.getDate(), a.getTimeStart()).toString(),
+                LocalDateTime.of(a.getDate(), a.getTimeEnd()).toString(),
+                a.getStatus(),
+                a.getAppointmentType(),
+                a.getReason(),
+                a.getProvider().getId(),
+                a.getId() != null ? a.getVersion() : null,
+                a.getRoom() != null ? a.getRoom().getName() : null,
+                a.getSeries() != null ? a.getSeries().getId() : null,
+                a.getSeries() != null ? a.getSeriesOriginalDate().toString() : null
+        );
+    }
+}
@@ -1,5 +1,7 @@
 package com.main.ehr.dto;
 
+import com.main.ehr.mapper.PatientMapper;
+import com.main.ehr.mapper.SparseFields;
 import com.main.ehr.model.Patient;
 import java.time.LocalDate;
 
@@ -18,8 +20,12 @@ public record PatientDTO(
         String addressLine2,
         String city,
         String state,
-        String zip
+        String zip,
+        long version
 ) {
+    // fields= attributes, with the same names and values as from()
+    public static final SparseFields.Catalog FIELDS = PatientMapper.catalog(v -> v == null ? "" : v);
+
     public static PatientDTO from(Patient p) {
         if (p == null) return null;
 
@@ -38,7 +44,8 @@ public record PatientDTO(
                 safe(p.getAddressLine2()),
                 safe(p.getCity()),
                 safe(p.getState()),
-                safe(p.getZip())
+                safe(p.getZip()),
+                p.getVersion()
         );
     }
 
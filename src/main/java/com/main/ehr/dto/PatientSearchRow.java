@@ -0,0 +1,59 @@
+package com.main.ehr.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.main.ehr.mapper.SparseFields;
+import com.main.ehr.model.Patient;
+import com.main.ehr.util.FormatUtils;
+
+import java.time.LocalDate;
+
+// One row of GET /api/patients/search
+public record PatientSearchRow(
+        Long id,
+        String clinicId,
+        String firstName,
+        String lastName,
+        String dob,
+        String phone,
+        String address,
+        String city,
+        String state,
+        String zip,
+        String email,
+        @JsonIgnore LocalDate dobValue // sort key for the all-clinics merge
+) {
+    // fields= attributes, with the same names and values as from()
+    public static final SparseFields.Catalog FIELDS = new SparseFields.Catalog("Patient", "p")
+            .field("id", "id")
+            .field("clinicId", "clinicId")
+            .field("firstName", "firstName", PatientSearchRow::safe)
+            .field("lastName", "lastName", PatientSearchRow::safe)
+            .field("dob", "dob", v -> FormatUtils.formatDob((LocalDate) v))
+            .field("phone", "phonePrimary", PatientSearchRow::safe)
+            .field("address", "addressLine1", PatientSearchRow::safe)
+            .field("city", "city", PatientSearchRow::safe)
+            .field("state", "state", PatientSearchRow::safe)
+            .field("zip", "zip", PatientSearchRow::safe)
+            .field("email", "email", PatientSearchRow::safe);
+
+    public static PatientSearchRow from(Patient p) {
+        return new PatientSearchRow(
+                p.getId(),
+                p.getClinicId(),
+                safe(p.getFirstName()),
+                safe(p.getLastName()),
+                FormatUtils.formatDob(p.getDob()),
+                safe(p.getPhonePrimary()),
+                safe(p.getAddressLine1()),
+                safe(p.getCity()),
+                safe(p.getState()),
+                safe(p.getZip()),
+                safe(p.getEmail()),
+                p.getDob()
+        );
+    }
+
+    private static String safe(Object s) {
+        return s == null ? "" : s.toString();
+    }
+}
@@ -1,7 +1,10 @@
 package com.main.ehr.dto;
 
+import com.main.ehr.mapper.SparseFields;
 import com.main.ehr.model.Provider;
 
+import java.util.List;
+
 public record ProviderDTO(
         Long id,
         String title,
@@ -14,6 +17,20 @@ public record ProviderDTO(
         boolean inPractice,
         String displayName
 ) {
+    // fields= attributes, with the same names and values as from()
+    public static final SparseFields.Catalog FIELDS = new SparseFields.Catalog("Provider", "p")
+            .field("id", "id")
+            .field("title", "title", ProviderDTO::safe)
+            .field("firstName", "firstName", ProviderDTO::safe)
+            .field("lastName", "lastName", ProviderDTO::safe)
+            .field("specialty", "specialty", ProviderDTO::safe)
+            .field("phone", "phone", ProviderDTO::safe)
+            .field("email", "email", ProviderDTO::safe)
+            .field("active", "active")
+            .field("inPractice", "inPractice")
+            .derived("displayName", List.of("title", "firstName", "lastName"),
+                    v -> (safe(v[0]) + " " + safe(v[1]) + " " + safe(v[2])).trim());
+
     public static ProviderDTO from(Provider p) {
         if (p == null) return null;
         String display = (safe(p.getTitle()) + " " +
@@ -33,7 +50,7 @@ public record ProviderDTO(
         );
     }
 
-    private static String safe(String s) {
-        return s == null ? "" : s;
+    private static String safe(Object s) {
+        return s == null ? "" : s.toString();
     }
 }
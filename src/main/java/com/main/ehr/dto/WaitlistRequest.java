@@ -0,0 +1,14 @@
+package com.main.ehr.dto;
+
+public record WaitlistRequest(
+        Long patientId,
+        Long providerId,        // null = any provider
+        String earliestDate,
+        String latestDate,
+        String windowStart,     // optional HH:mm, earliest start
+        String windowEnd,       // optional HH:mm, latest end
+        Integer durationMinutes,
+        Integer urgency,        // higher is offered first
+        String appointmentType,
+        String reason
+) {}
@@ -0,0 +1,30 @@
+package com.main.ehr.event;
+
+/**
+ * Published synchronously inside the writing transaction whenever an
+ * appointment row is created, updated or deleted. before is null for
+ * CREATED, after is null for DELETED.
+ */
+public record AppointmentChangedEvent(
+        Type type,
+        AppointmentSnapshot before,
+        AppointmentSnapshot after
+) {
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    public static AppointmentChangedEvent created(AppointmentSnapshot after) {
+        return new AppointmentChangedEvent(Type.CREATED, null, after);
+    }
+
+    public static AppointmentChangedEvent updated(AppointmentSnapshot before, AppointmentSnapshot after) {
+        return new AppointmentChangedEvent(Type.UPDATED, before, after);
+    }
+
+    public static AppointmentChangedEvent deleted(AppointmentSnapshot before) {
+        return new AppointmentChangedEvent(Type.DELETED, before, null);
+    }
+
+    public Long appointmentId() {
+        return after != null ? after.id() : before.id();
+    }
+}
@@ -0,0 +1,61 @@
+package com.main.ehr.event;
+
+import com.main.ehr.model.Appointment;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Immutable copy of the fields listeners care about, taken before and after
+ * a change (the entity itself is mutated in place).
+ */
+public record AppointmentSnapshot(
+        Long id,
+        Long providerId,
+        Long patientId,
+        Long roomId,
+        Long seriesId,
+        LocalDate date,
+        LocalTime timeStart,
+        LocalTime timeEnd,
+        int durationMinutes,
+        String appointmentType,
+        String status,
+        String reason
+) {
+    public static AppointmentSnapshot of(Appointment a) {
+        if (a == null) return null;
+
+        return new AppointmentSnapshot(
+                a.getId(),
+                a.getProvider() != null ? a.getProvider().getId() : null,
+                a.getPatient() != null ? a.getPatient().getId() : null,
+                a.getRoom() != null ? a.getRoom().getId() : null,
+                a.getSeries() != null ? a.getSeries().getId() : null,
+                a.getDate(),
+                a.getTimeStart(),
+                a.getTimeEnd(),
+                a.getDurationMinutes(),
+                a.getAppointmentType(),
+                a.getStatus(),
+                a.getReason()
+        );
+    }
+
+    // Minutes actually booked: the time range when present, else the stated duration
+    public int bookedMinutes() {
+        return bookedMinutes(timeStart, timeEnd, durationMinutes);
+    }
+
+    public static int bookedMinutes(LocalTime timeStart, LocalTime timeEnd, int durationMinutes) {
+        if (timeStart != null && timeEnd != null && timeEnd.isAfter(timeStart)) {
+            return (int) Duration.between(timeStart, timeEnd).toMinutes();
+        }
+        return Math.max(0, durationMinutes);
+    }
+
+    public boolean isCancelled() {
+        return status != null && status.toLowerCase().startsWith("cancel");
+    }
+}
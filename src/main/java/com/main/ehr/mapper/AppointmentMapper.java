@@ -3,11 +3,32 @@ package com.main.ehr.mapper;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
 import com.main.ehr.dto.*;
 import com.main.ehr.model.*;
 
 public class AppointmentMapper {
 
+    // fields= attributes of toDto(); provider.* and patient.* come through LEFT JOINs
+    public static final SparseFields.Catalog FIELDS = new SparseFields.Catalog("Appointment", "a")
+            .join("room", "rm")
+            .field("id", "id")
+            .field("date", "date")
+            .field("timeStart", "timeStart")
+            .field("timeEnd", "timeEnd")
+            .field("duration", "durationMinutes")
+            .field("appointmentType", "appointmentType")
+            .field("status", "status")
+            .field("reason", "reason")
+            .field("providerId", "provider.id")
+            .field("patientId", "patient.id")
+            .field("roomId", "room.id")
+            .field("roomName", "rm.name")
+            .field("version", "version")
+            .nested("provider", "provider", "pr", ProviderDTO.FIELDS)
+            .nested("patient", "patient", "pa", PatientDTO.FIELDS);
+
     public static AppointmentDTO toDto(Appointment a) {
         if (a == null) return null;
 
@@ -23,7 +44,10 @@ public class AppointmentMapper {
         	    a.getProvider() != null ? a.getProvider().getId() : null, // providerId
         	    a.getPatient() != null ? a.getPatient().getId() : null,   // patientId
         	    ProviderDTO.from(a.getProvider()),
-        	    PatientDTO.from(a.getPatient())
+        	    PatientDTO.from(a.getPatient()),
+        	    a.getRoom() != null ? a.getRoom().getId() : null,
+        	    a.getRoom() != null ? a.getRoom().getName() : null,
+        	    a.getVersion()
         	);
 
     }
@@ -44,4 +68,23 @@ public class AppointmentMapper {
         a.setStatus(req.status());
         a.setReason(req.reason());
     }
+
+    // Client edited an older copy than what is stored now
+    public static void checkVersion(Appointment a, AppointmentRequest req) {
+        if (req.version() != null && req.version() != a.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Appointment.class, a.getId());
+        }
+    }
+
+    // Copies only the non-null scalar fields; provider/patient are resolved by the caller
+    public static void applyPartial(Appointment a, AppointmentRequest req) {
+        if (req.date() != null) a.setDate(LocalDate.parse(req.date()));
+        if (req.timeStart() != null) a.setTimeStart(LocalTime.parse(req.timeStart()));
+        if (req.timeEnd() != null) a.setTimeEnd(LocalTime.parse(req.timeEnd()));
+
+        if (req.duration() != null) a.setDurationMinutes(req.duration());
+        if (req.appointmentType() != null) a.setAppointmentType(req.appointmentType());
+        if (req.status() != null) a.setStatus(req.status());
+        if (req.reason() != null) a.setReason(req.reason());
+    }
 }
@@ -3,8 +3,37 @@ package com.main.ehr.mapper;
 import com.main.ehr.model.Patient;
 import com.main.ehr.dto.PatientDTO;
 
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
 public class PatientMapper {
 
+    // fields= attributes of from()
+    public static final SparseFields.Catalog FIELDS = catalog(v -> v);
+
+    /** The PatientDTO attributes, with text run through the given conversion. */
+    public static SparseFields.Catalog catalog(Function<Object, Object> text) {
+        return new SparseFields.Catalog("Patient", "p")
+                .field("id", "id")
+                .field("title", "title", text)
+                .field("firstName", "firstName", text)
+                .field("middleName", "middleName", text)
+                .field("lastName", "lastName", text)
+                .field("gender", "gender", text)
+                .field("dob", "dob")
+                .field("phonePrimary", "phonePrimary", text)
+                .field("phoneSecondary", "phoneSecondary", text)
+                .field("email", "email", text)
+                .field("addressLine1", "addressLine1", text)
+                .field("addressLine2", "addressLine2", text)
+                .field("city", "city", text)
+                .field("state", "state", text)
+                .field("zip", "zip", text)
+                .field("version", "version");
+    }
+
     public static PatientDTO from(Patient p) {
         if (p == null) return null;
 
@@ -23,7 +52,53 @@ public class PatientMapper {
                 p.getAddressLine2(),
                 p.getCity(),
                 p.getState(),
-                p.getZip()
+                p.getZip(),
+                p.getVersion()
         );
     }
+
+    /**
+     * Applies a PATCH body: only keys present are touched, an explicit null
+     * clears the field. Unknown keys and blank required fields are rejected
+     * before anything is changed.
+     */
+    public static void applyPatch(Patient p, Map<String, Object> changes) {
+        for (Map.Entry<String, Object> e : changes.entrySet()) {
+            if (!PATCHABLE.contains(e.getKey()) && !"version".equals(e.getKey())) {
+                throw new IllegalArgumentException("Unknown field '" + e.getKey() + "'");
+            }
+            if (REQUIRED.contains(e.getKey()) && (e.getValue() == null || e.getValue().toString().isBlank())) {
+                throw new IllegalArgumentException(e.getKey() + " is required");
+            }
+        }
+        LocalDate dob = changes.containsKey("dob") ? LocalDate.parse(changes.get("dob").toString()) : null;
+
+        for (Map.Entry<String, Object> e : changes.entrySet()) {
+            String v = e.getValue() == null ? null : e.getValue().toString().trim();
+            switch (e.getKey()) {
+                case "title" -> p.setTitle(v);
+                case "gender" -> p.setGender(v);
+                case "firstName" -> p.setFirstName(v);
+                case "middleName" -> p.setMiddleName(v);
+                case "lastName" -> p.setLastName(v);
+                case "dob" -> p.setDob(dob);
+                case "phonePrimary" -> p.setPhonePrimary(v);
+                case "phoneSecondary" -> p.setPhoneSecondary(v);
+                case "email" -> p.setEmail(v);
+                case "addressLine1" -> p.setAddressLine1(v);
+                case "addressLine2" -> p.setAddressLine2(v);
+                case "city" -> p.setCity(v);
+                case "state" -> p.setState(v);
+                case "zip" -> p.setZip(v);
+                default -> { } // version: checked by the caller
+            }
+        }
+    }
+
+    private static final Set<String> PATCHABLE = Set.of(
+            "title", "gender", "firstName", "middleName", "lastName", "dob",
+            "phonePrimary", "phoneSecondary", "email",
+            "addressLine1", "addressLine2", "city", "state", "zip");
+
+    private static final Set<String> REQUIRED = Set.of("firstName", "lastName", "dob");
 }
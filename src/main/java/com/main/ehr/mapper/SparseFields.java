@@ -0,0 +1,220 @@
+package com.main.ehr.mapper;
+
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A fields= selection over one response shape.
+ *
+ * A Catalog lists the attributes a response can have, each with the JPQL
+ * expressions it is built from (e.g. displayName from title, firstName and
+ * lastName); joins are added only when a selected expression uses them.
+ * Nested shapes are added under a
+ * prefix, so "patient.lastName" selects one column through a LEFT JOIN
+ * and comes back as {"patient": {"lastName": ...}}. A parsed selection
+ * gives SparseQueryRepository its select list and turns each result row
+ * into the trimmed JSON map; the query and the payload shrink together.
+ */
+public final class SparseFields {
+
+    public record Field(String name, List<String> selects, Function<Object[], Object> value, String guard) {}
+
+    public static final class Catalog {
+        private final String entity;
+        private final String alias;
+        private final Map<String, String> joins = new LinkedHashMap<>();
+        private final Map<String, Field> fields = new LinkedHashMap<>();
+
+        public Catalog(String entity, String alias) {
+            this.entity = entity;
+            this.alias = alias;
+        }
+
+        public String entity() {
+            return entity;
+        }
+
+        public String alias() {
+            return alias;
+        }
+
+        /** Makes joinAlias usable in expressions, as "LEFT JOIN alias.association joinAlias". */
+        public Catalog join(String association, String joinAlias) {
+            joins.put(joinAlias, "LEFT JOIN " + alias + "." + association + " " + joinAlias);
+            return this;
+        }
+
+        // Attribute read straight from one column
+        public Catalog field(String name, String expression) {
+            return field(name, expression, v -> v);
+        }
+
+        public Catalog field(String name, String expression, Function<Object, Object> convert) {
+            fields.put(name, new Field(name, List.of(qualify(expression)), v -> convert.apply(v[0]), null));
+            return this;
+        }
+
+        // Attribute computed from several columns, in the order given
+        public Catalog derived(String name, List<String> expressions, Function<Object[], Object> value) {
+            fields.put(name, new Field(name, expressions.stream().map(this::qualify).toList(), value, null));
+            return this;
+        }
+
+        /** Adds every field of other under prefix; when the association is null the nested object is null. */
+        public Catalog nested(String prefix, String association, String joinAlias, Catalog other) {
+            join(association, joinAlias);
+            for (Field f : other.fields.values()) {
+                List<String> selects = f.selects().stream()
+                        .map(s -> joinAlias + s.substring(other.alias.length()))
+                        .toList();
+                fields.put(prefix + "." + f.name(), new Field(prefix + "." + f.name(), selects, f.value(), joinAlias + ".id"));
+            }
+            return this;
+        }
+
+        public Set<String> names() {
+            return Collections.unmodifiableSet(fields.keySet());
+        }
+
+        // "status" -> "a.status"; expressions starting with a join alias are kept
+        private String qualify(String expression) {
+            int dot = expression.indexOf('.');
+            return dot > 0 && joins.containsKey(expression.substring(0, dot)) ? expression : alias + "." + expression;
+        }
+
+        private String joinFor(String select) {
+            int dot = select.indexOf('.');
+            return dot > 0 ? joins.get(select.substring(0, dot)) : null;
+        }
+    }
+
+    private final Catalog catalog;
+    private final List<Field> selected;
+    private final List<String> selects = new ArrayList<>();
+    private final List<String> joins = new ArrayList<>();
+    private final int[][] positions;
+    private final int[] guards;
+
+    private SparseFields(Catalog catalog, List<Field> selected) {
+        this.catalog = catalog;
+        this.selected = selected;
+        this.positions = new int[selected.size()][];
+        this.guards = new int[selected.size()];
+
+        for (int i = 0; i < selected.size(); i++) {
+            Field f = selected.get(i);
+            positions[i] = f.selects().stream().mapToInt(this::position).toArray();
+            guards[i] = f.guard() != null ? position(f.guard()) : -1;
+        }
+    }
+
+    /**
+     * Parses a comma-separated list; a bare prefix such as "patient" means
+     * every field under it. Returns null for a missing or blank parameter
+     * (full response).
+     *
+     * @throws IllegalArgumentException for names the catalog does not have
+     */
+    public static SparseFields parse(String fields, Catalog catalog) {
+        if (fields == null || fields.isBlank()) return null;
+
+        LinkedHashSet<String> names = new LinkedHashSet<>();
+        for (String raw : fields.split(",")) {
+            String name = raw.trim();
+            if (name.isEmpty()) continue;
+            if (catalog.fields.containsKey(name)) {
+                names.add(name);
+                continue;
+            }
+            List<String> under = catalog.fields.keySet().stream().filter(n -> n.startsWith(name + ".")).toList();
+            if (under.isEmpty()) throw new IllegalArgumentException("Unknown field '" + name + "'");
+            names.addAll(under);
+        }
+        if (names.isEmpty()) return null;
+        return new SparseFields(catalog, names.stream().map(catalog.fields::get).toList());
+    }
+
+    public Catalog catalog() {
+        return catalog;
+    }
+
+    public String selectClause() {
+        return String.join(", ", selects);
+    }
+
+    public String joinClause() {
+        return String.join(" ", joins);
+    }
+
+    /** One query row (Object[] for several columns, the bare value for one) as nested JSON. */
+    public Map<String, Object> toJson(Object row) {
+        Object[] values = row instanceof Object[] a ? a : new Object[]{row};
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (int i = 0; i < selected.size(); i++) {
+            Field f = selected.get(i);
+            if (guards[i] >= 0 && values[guards[i]] == null) {
+                out.put(f.name().substring(0, f.name().indexOf('.')), null);
+                continue;
+            }
+            int[] pos = positions[i];
+            Object[] args = new Object[pos.length];
+            for (int k = 0; k < pos.length; k++) args[k] = values[pos[k]];
+            put(out, f.name(), f.value().apply(args));
+        }
+        return out;
+    }
+
+    /** The selected names picked out of an already built response map (one level of nesting). */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> filter(Map<String, Object> full) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Field f : selected) {
+            String name = f.name();
+            int dot = name.indexOf('.');
+            if (dot < 0) {
+                out.put(name, full.get(name));
+                continue;
+            }
+            Object parent = full.get(name.substring(0, dot));
+            if (parent instanceof Map<?, ?> m) put(out, name, ((Map<String, Object>) m).get(name.substring(dot + 1)));
+            else out.putIfAbsent(name.substring(0, dot), null);
+        }
+        return out;
+    }
+
+    /** Same for a DTO record, read through its component accessors. */
+    public Map<String, Object> filter(Record full) {
+        Map<String, Object> values = new HashMap<>();
+        for (RecordComponent c : full.getClass().getRecordComponents()) {
+            try {
+                values.put(c.getName(), c.getAccessor().invoke(full));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot read " + c.getName() + " of " + full.getClass().getSimpleName(), e);
+            }
+        }
+        return filter(values);
+    }
+
+    // ---------- helpers ----------
+
+    private int position(String select) {
+        int i = selects.indexOf(select);
+        if (i >= 0) return i;
+        selects.add(select);
+        String join = catalog.joinFor(select);
+        if (join != null && !joins.contains(join)) joins.add(join);
+        return selects.size() - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> out, String name, Object value) {
+        int dot = name.indexOf('.');
+        if (dot < 0) {
+            out.put(name, value);
+            return;
+        }
+        Object child = out.computeIfAbsent(name.substring(0, dot), k -> new LinkedHashMap<String, Object>());
+        if (child instanceof Map<?, ?> m) put((Map<String, Object>) m, name.substring(dot + 1), value);
+    }
+}
@@ -5,13 +5,25 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "appointments")
-public class Appointment extends Auditable{
+@EntityListeners(ClinicStampListener.class)
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appt_clinic", columnList = "clinic_id"),
+        @Index(name = "idx_appt_provider_date", columnList = "provider_id, date"),
+        @Index(name = "idx_appt_updated_at", columnList = "updated_at")
+}, uniqueConstraints = {
+        // One materialized row per series occurrence (AppointmentSeriesService.materialize)
+        @UniqueConstraint(name = "uk_appt_series_original", columnNames = {"series_id", "series_original_date"})
+})
+public class Appointment extends Auditable implements ClinicScoped {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Owning clinic; selects the database shard (set on insert)
+    @Column(name = "clinic_id", length = 32)
+    private String clinicId;
+
     private LocalDate date;
     private LocalTime timeStart;
     private LocalTime timeEnd;
@@ -36,6 +48,20 @@ public class Appointment extends Auditable{
     @JoinColumn(name = "notes_id")
     private MedicalNote notes;
 
+    // Set when this row is a materialized occurrence of a recurring series
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "series_id")
+    private AppointmentSeries series;
+
+    // The occurrence date this row replaces (may differ from date if moved)
+    @Column(name = "series_original_date")
+    private LocalDate seriesOriginalDate;
+
+    // Optimistic lock; stale writes fail instead of overwriting each other
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+    private long version;
+
     // --- Constructors ---
     public Appointment() {}
 
@@ -60,6 +86,8 @@ public class Appointment extends Auditable{
     // --- Getters and Setters ---
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+    public String getClinicId() { return clinicId; }
+    public void setClinicId(String clinicId) { this.clinicId = clinicId; }
 
     public LocalDate getDate() { return date; }
     public void setDate(LocalDate date) { this.date = date; }
@@ -88,12 +116,20 @@ public class Appointment extends Auditable{
     public Provider getProvider() { return provider; }
     public void setProvider(Provider provider) { this.provider = provider; }
 
+    public long getVersion() { return version; }
+
     public Room getRoom() { return room; }
     public void setRoom(Room room) { this.room = room; }
 
     public MedicalNote getNotes() { return notes; }
     public void setNotes(MedicalNote notes) { this.notes = notes; }
 
+    public AppointmentSeries getSeries() { return series; }
+    public void setSeries(AppointmentSeries series) { this.series = series; }
+
+    public LocalDate getSeriesOriginalDate() { return seriesOriginalDate; }
+    public void setSeriesOriginalDate(LocalDate seriesOriginalDate) { this.seriesOriginalDate = seriesOriginalDate; }
+
     // --- toString() (optional for debugging/logging) ---
     @Override
     public String toString() {
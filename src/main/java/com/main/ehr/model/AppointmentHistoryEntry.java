@@ -0,0 +1,56 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only log of appointment changes, written and read through JDBC by
+ * AppointmentHistoryService. UPDATED rows hold only the fields that changed
+ * (JSON); CREATED, DELETED and SNAPSHOT rows hold the full state. depth
+ * counts UPDATED rows since the last full-state row.
+ */
+@Entity
+@Table(name = "appointment_history", indexes = {
+        @Index(name = "idx_history_appt_time", columnList = "appointment_id, changed_at"),
+        @Index(name = "idx_history_provider_day", columnList = "provider_id, appt_date, changed_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentHistoryEntry {
+
+    public enum Kind { CREATED, UPDATED, DELETED, SNAPSHOT }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Kind kind;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    @Column(name = "changed_by", length = 100)
+    private String changedBy;
+
+    // Provider and date the appointment had after this change, for day lookups
+    @Column(name = "provider_id")
+    private Long providerId;
+
+    @Column(name = "appt_date")
+    private LocalDate apptDate;
+
+    @Column(nullable = false)
+    private int depth;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String data;
+}
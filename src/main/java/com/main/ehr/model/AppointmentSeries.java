@@ -0,0 +1,103 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A standing appointment stored once as a recurrence rule. Occurrences are
+ * generated on read for the requested window only (see RecurrenceExpander).
+ *
+ * Individual occurrences are changed by materializing them as ordinary
+ * Appointment rows that point back here through series + seriesOriginalDate;
+ * cancelled occurrences are listed in excludedDates.
+ */
+@Entity
+@Table(name = "appointment_series", indexes = {
+        @Index(name = "idx_series_provider_range", columnList = "provider_id, start_date, until_date")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class AppointmentSeries extends Auditable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "patient_id")
+    private Patient patient;
+
+    @ManyToOne
+    @JoinColumn(name = "provider_id")
+    private Provider provider;
+
+    // Template for every generated occurrence
+    private LocalTime timeStart;
+    private LocalTime timeEnd;
+    private int durationMinutes;
+    private String appointmentType;
+    private String status;
+    private String reason;
+
+    // Rule
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RecurrenceFrequency frequency;
+
+    @Column(name = "interval_count", nullable = false)
+    private int interval = 1;          // every N days / weeks
+
+    private int daysOfWeekMask;        // WEEKLY only; bit (dayOfWeek - 1), Monday = bit 0
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "until_date")
+    private LocalDate untilDate;       // inclusive; null = open-ended
+
+    @ElementCollection
+    @CollectionTable(name = "appointment_series_exdates", joinColumns = @JoinColumn(name = "series_id"))
+    @Column(name = "excluded_date")
+    private Set<LocalDate> excludedDates = new HashSet<>();
+
+    // ---------- rule helpers ----------
+
+    public Set<DayOfWeek> getDaysOfWeek() {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek d : DayOfWeek.values()) {
+            if ((daysOfWeekMask & bit(d)) != 0) days.add(d);
+        }
+        return days;
+    }
+
+    public void setDaysOfWeek(Set<DayOfWeek> days) {
+        int mask = 0;
+        for (DayOfWeek d : days) mask |= bit(d);
+        this.daysOfWeekMask = mask;
+    }
+
+    public static int bit(DayOfWeek d) {
+        return 1 << (d.getValue() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "AppointmentSeries{" +
+                "id=" + id +
+                ", frequency=" + frequency +
+                ", interval=" + interval +
+                ", startDate=" + startDate +
+                ", untilDate=" + untilDate +
+                ", provider=" + (provider != null ? provider.getId() : null) +
+                ", patient=" + (patient != null ? patient.getId() : null) +
+                '}';
+    }
+}
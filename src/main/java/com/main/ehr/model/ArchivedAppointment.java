@@ -0,0 +1,98 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * An appointment moved to the cold tier (appointments_archive) by
+ * AppointmentArchiveService. Same columns and attribute names as
+ * Appointment, so the same JPQL runs against both; rows are never
+ * changed once archived. The table is partitioned by date and has no
+ * foreign keys, hence NO_CONSTRAINT on the joins.
+ */
+@Entity
+@Immutable
+@Table(name = "appointments_archive", indexes = {
+        @Index(name = "idx_appt_archive_provider_date", columnList = "provider_id, date"),
+        @Index(name = "idx_appt_archive_date", columnList = "date"),
+        @Index(name = "idx_appt_archive_series_original", columnList = "series_id, series_original_date")
+})
+@Getter
+@NoArgsConstructor
+public class ArchivedAppointment {
+
+    @Id
+    private Long id;
+
+    @Column(name = "clinic_id", length = 32)
+    private String clinicId;
+
+    @Column(nullable = false)
+    private LocalDate date;
+    private LocalTime timeStart;
+    private LocalTime timeEnd;
+    private int durationMinutes;
+    private String appointmentType;
+    private String status;
+    private String reason;
+
+    @ManyToOne
+    @JoinColumn(name = "patient_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Patient patient;
+
+    @ManyToOne
+    @JoinColumn(name = "provider_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Provider provider;
+
+    @ManyToOne
+    @JoinColumn(name = "room_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Room room;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "notes_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private MedicalNote notes;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "series_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private AppointmentSeries series;
+
+    @Column(name = "series_original_date")
+    private LocalDate seriesOriginalDate;
+
+    @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "created_by")
+    private String createdBy;
+
+    @Column(name = "updated_by")
+    private String updatedBy;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    /**
+     * Detached, read-only Appointment view for code that reads schedules.
+     * It is not managed; saving it would insert a new appointment.
+     */
+    public Appointment toAppointment() {
+        Appointment a = new Appointment(id, date, timeStart, timeEnd, durationMinutes, appointmentType,
+                status, reason, patient, provider, room, notes);
+        a.setClinicId(clinicId);
+        a.setSeries(series);
+        a.setSeriesOriginalDate(seriesOriginalDate);
+        return a;
+    }
+}
@@ -23,6 +23,8 @@ public abstract class Auditable {
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
+        // New rows count as modified too, so "changed since" queries see them
+        this.updatedAt = this.createdAt;
     }
 
     @PreUpdate
@@ -0,0 +1,34 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One row per provider-day that has ever been booked. Writers upsert their
+ * row inside the booking transaction, which holds its row lock until
+ * commit and so serializes bookings for that provider-day across nodes.
+ */
+@Entity
+@Table(name = "booking_locks",
+        uniqueConstraints = @UniqueConstraint(name = "uk_booking_locks", columnNames = {"provider_id", "lock_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingLock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "provider_id", nullable = false)
+    private Long providerId;
+
+    @Column(name = "lock_date", nullable = false)
+    private LocalDate lockDate;
+
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+}
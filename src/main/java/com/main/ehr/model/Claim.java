@@ -0,0 +1,50 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * A claim produced for one completed appointment. WRITTEN claims are in
+ * fileName and keep the appointment out of later batches; REJECTED ones
+ * record why and are retried by the next batch.
+ */
+@Entity
+@Table(name = "claims",
+        uniqueConstraints = @UniqueConstraint(name = "uk_claim_batch_appointment",
+                columnNames = {"batch_id", "appointment_id"}),
+        indexes = @Index(name = "idx_claim_appointment_status", columnList = "appointment_id, status"))
+@Data
+@NoArgsConstructor
+public class Claim {
+
+    public enum Status { WRITTEN, REJECTED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "batch_id", nullable = false)
+    private Long batchId;
+
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId;
+
+    private Long patientId;
+    private Long providerId;
+    private String payerName;
+    private LocalDate serviceDate;
+
+    @Column(length = 32)
+    private String claimNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(length = 500)
+    private String rejectReason;
+
+    private String fileName;
+}
@@ -0,0 +1,43 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One claims generation run over a service-date period. Work is tracked per
+ * payer in ClaimBatchCheckpoint so a failed run can be resumed.
+ */
+@Entity
+@Table(name = "claim_batches")
+@Data
+@NoArgsConstructor
+public class ClaimBatch {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate periodStart;
+
+    @Column(nullable = false)
+    private LocalDate periodEnd;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    private int claimsWritten;
+    private int claimsRejected;
+
+    @Column(length = 1000)
+    private String error;
+}
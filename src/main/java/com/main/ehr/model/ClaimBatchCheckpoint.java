@@ -0,0 +1,40 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Progress of one payer within a claims batch. Advanced in the same
+ * transaction that records the chunk's claims, so a restart continues
+ * after the last committed chunk.
+ */
+@Entity
+@Table(name = "claim_batch_checkpoints",
+        uniqueConstraints = @UniqueConstraint(name = "uk_claim_checkpoint_payer",
+                columnNames = {"batch_id", "payer_name"}))
+@Data
+@NoArgsConstructor
+public class ClaimBatchCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "batch_id", nullable = false)
+    private Long batchId;
+
+    // Insurance.providerName; null for appointments with no payer on file
+    @Column(name = "payer_name")
+    private String payerName;
+
+    private long lastAppointmentId;
+    private int chunksWritten;
+    private int claimsWritten;
+    private int claimsRejected;
+    private boolean done;
+
+    public ClaimBatchCheckpoint(Long batchId, String payerName) {
+        this.batchId = batchId;
+        this.payerName = payerName;
+    }
+}
@@ -0,0 +1,13 @@
+package com.main.ehr.model;
+
+/**
+ * Rows that belong to one clinic. The clinic decides which database shard
+ * the row lives on (see ShardDirectory); ClinicStampListener fills it in
+ * on insert.
+ */
+public interface ClinicScoped {
+
+    String getClinicId();
+
+    void setClinicId(String clinicId);
+}
@@ -0,0 +1,15 @@
+package com.main.ehr.model;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import jakarta.persistence.PrePersist;
+
+// New rows take the clinic of the request that created them
+public class ClinicStampListener {
+
+    @PrePersist
+    public void stamp(Object entity) {
+        if (entity instanceof ClinicScoped c && c.getClinicId() == null) {
+            c.setClinicId(ClinicContext.clinicOrDefault());
+        }
+    }
+}
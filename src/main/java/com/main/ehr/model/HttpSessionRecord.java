@@ -0,0 +1,37 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Shared HTTP session, read and written by SharedSessionRepository through
+ * JDBC; mapped here so ddl-auto creates the table. Times are epoch millis,
+ * attributes are the Java-serialized attribute map.
+ */
+@Entity
+@Table(name = "http_sessions", indexes = @Index(name = "idx_http_sessions_expiry", columnList = "expiry_time"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HttpSessionRecord {
+
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Column(name = "creation_time", nullable = false)
+    private long creationTime;
+
+    @Column(name = "last_access_time", nullable = false)
+    private long lastAccessTime;
+
+    @Column(name = "max_inactive_seconds", nullable = false)
+    private int maxInactiveSeconds;
+
+    @Column(name = "expiry_time", nullable = false)
+    private long expiryTime;
+
+    @Lob
+    @Column(nullable = false, length = 1_048_576)
+    private byte[] attributes;
+}
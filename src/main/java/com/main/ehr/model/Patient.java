@@ -1,17 +1,32 @@
 package com.main.ehr.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.main.ehr.util.PatientKeys;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDate;
 import java.util.List;
 
+// UPDATE statements list only the columns that actually changed
 @Entity
-@Table(name = "patients")
-public class Patient extends Auditable{
+@EntityListeners(ClinicStampListener.class)
+@DynamicUpdate
+@Table(name = "patients", indexes = {
+        @Index(name = "idx_patient_clinic", columnList = "clinic_id"),
+        @Index(name = "idx_patient_name_key", columnList = "name_key"),
+        @Index(name = "idx_patient_phone_key", columnList = "phone_key"),
+        @Index(name = "idx_patient_email_key", columnList = "email_key")
+})
+public class Patient extends Auditable implements ClinicScoped {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Owning clinic; selects the database shard (set on insert)
+    @Column(name = "clinic_id", length = 32)
+    private String clinicId;
+
     private String title;
     private String firstName;
     private String middleName;
@@ -37,6 +52,24 @@ public class Patient extends Auditable{
     @JoinColumn(name = "insurance_secondary_id")
     private Insurance insuranceSecondary;
 
+    // Optimistic lock; PATCH callers may send it back to detect stale edits
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    // Duplicate-detection blocking keys, derived from the fields above on save
+    @JsonIgnore
+    @Column(name = "name_key", length = 20)
+    private String nameKey;
+
+    @JsonIgnore
+    @Column(name = "phone_key", length = 10)
+    private String phoneKey;
+
+    @JsonIgnore
+    @Column(name = "email_key")
+    private String emailKey;
+
     @OneToMany(mappedBy = "patient")
     private List<Appointment> appointments;
 
@@ -70,9 +103,21 @@ public class Patient extends Auditable{
         this.zip = zip;
     }
 
+    @PrePersist
+    @PreUpdate
+    protected void computeBlockingKeys() {
+        this.nameKey = PatientKeys.nameKey(lastName, dob);
+        this.phoneKey = PatientKeys.phoneKey(phonePrimary);
+        this.emailKey = PatientKeys.emailKey(email);
+    }
+
     // --- Getters and Setters ---
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+    public String getClinicId() { return clinicId; }
+    public void setClinicId(String clinicId) { this.clinicId = clinicId; }
+
+    public long getVersion() { return version; }
 
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
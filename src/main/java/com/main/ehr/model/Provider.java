@@ -1,16 +1,26 @@
 package com.main.ehr.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "providers")
-public class Provider extends Auditable{
+@EntityListeners(ClinicStampListener.class)
+@Table(name = "providers", indexes = @Index(name = "idx_provider_clinic", columnList = "clinic_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+public class Provider extends Auditable implements ClinicScoped {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Owning clinic; selects the database shard (set on insert)
+    @Column(name = "clinic_id", length = 32)
+    private String clinicId;
+
     private String title;
     private String firstName;
     private String lastName;
@@ -26,6 +36,14 @@ public class Provider extends Auditable{
     @OneToMany(mappedBy = "provider")
     private List<Appointment> appointments;
 
+    // Rooms the allocator tries first, best first
+    @ManyToMany
+    @JoinTable(name = "provider_room_preferences",
+            joinColumns = @JoinColumn(name = "provider_id"),
+            inverseJoinColumns = @JoinColumn(name = "room_id"))
+    @OrderColumn(name = "preference_rank")
+    private List<Room> preferredRooms = new ArrayList<>();
+
     // --- Constructors ---
     public Provider() {}
 
@@ -44,6 +62,8 @@ public class Provider extends Auditable{
     // --- Getters and Setters ---
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+    public String getClinicId() { return clinicId; }
+    public void setClinicId(String clinicId) { this.clinicId = clinicId; }
 
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
@@ -72,6 +92,9 @@ public class Provider extends Auditable{
     public List<Appointment> getAppointments() { return appointments; }
     public void setAppointments(List<Appointment> appointments) { this.appointments = appointments; }
 
+    public List<Room> getPreferredRooms() { return preferredRooms; }
+    public void setPreferredRooms(List<Room> preferredRooms) { this.preferredRooms = preferredRooms; }
+
     // --- toString ---
     @Override
     public String toString() {
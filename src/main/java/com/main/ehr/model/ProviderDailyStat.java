@@ -0,0 +1,44 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated appointment counts per provider, day, status and type.
+ * Maintained incrementally by DailyScheduleStatsService; status and type
+ * are stored as '' instead of NULL so the unique key can be upserted.
+ */
+@Entity
+@Table(name = "provider_daily_stats",
+        uniqueConstraints = @UniqueConstraint(name = "uk_provider_daily_stats",
+                columnNames = {"provider_id", "stat_date", "status", "appointment_type"}),
+        indexes = @Index(name = "idx_daily_stats_date", columnList = "stat_date"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProviderDailyStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "provider_id", nullable = false)
+    private Long providerId;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "appointment_type", nullable = false)
+    private String appointmentType;
+
+    @Column(name = "appointment_count", nullable = false)
+    private int appointmentCount;
+
+    @Column(name = "booked_minutes", nullable = false)
+    private long bookedMinutes;
+}
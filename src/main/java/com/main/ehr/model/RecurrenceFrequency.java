@@ -0,0 +1,6 @@
+package com.main.ehr.model;
+
+public enum RecurrenceFrequency {
+    DAILY,
+    WEEKLY
+}
@@ -0,0 +1,69 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One reminder message and what happened to it. Written as PENDING before
+ * it is handed to the sender; a run resumed after a crash re-sends the
+ * PENDING ones first. appointmentRef is "a:&lt;id&gt;" for stored appointments
+ * and "s:&lt;seriesId&gt;:&lt;date&gt;" for generated series occurrences.
+ */
+@Entity
+@Table(name = "reminder_deliveries",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reminder_delivery",
+                columnNames = {"run_id", "appointment_ref", "channel"}),
+        indexes = @Index(name = "idx_reminder_delivery_status", columnList = "run_id, status"))
+@Data
+@NoArgsConstructor
+public class ReminderDelivery {
+
+    public enum Channel { SMS, EMAIL }
+
+    public enum Status { PENDING, SENT, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "appointment_ref", nullable = false, length = 40)
+    private String appointmentRef;
+
+    private Long appointmentId;
+    private Long patientId;
+    private LocalDate appointmentDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Channel channel;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    private String subject;
+
+    @Column(length = 2000)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    private int attempts;
+
+    // Message id returned by the sender
+    @Column(length = 100)
+    private String externalId;
+
+    @Column(length = 500)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+}
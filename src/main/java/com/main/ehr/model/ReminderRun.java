@@ -0,0 +1,65 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Reminders for the appointments on one date (NEXT_DAY or NEXT_WEEK ahead
+ * of it). Stored appointments are walked by id, then recurring series by
+ * id; both positions are advanced in the same transaction that queues the
+ * chunk's deliveries, so a run picks up where it stopped. While RUNNING
+ * the run belongs to the node named in owner, which renews heartbeatAt as
+ * it goes.
+ */
+@Entity
+@Table(name = "reminder_runs",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reminder_run_date_kind",
+                columnNames = {"target_date", "kind"}))
+@Data
+@NoArgsConstructor
+public class ReminderRun {
+
+    public enum Kind { NEXT_DAY, NEXT_WEEK }
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "target_date", nullable = false)
+    private LocalDate targetDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    // Checkpoint
+    private long lastAppointmentId;
+    private long lastSeriesId;
+    private boolean appointmentsDone;
+
+    private int chunks;
+    private int queued;
+    private int sent;
+    private int failed;
+    private int skipped;
+
+    // Lease
+    @Column(length = 64)
+    private String owner;
+    private LocalDateTime heartbeatAt;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    @Column(length = 1000)
+    private String error;
+}
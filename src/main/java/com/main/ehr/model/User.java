@@ -3,6 +3,9 @@ package com.main.ehr.model;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.util.HashSet;
+import java.util.Set;
+
 @Entity
 @Table(name = "users")
 @Data
@@ -54,4 +57,10 @@ public class User extends Auditable{
 
     @Column(nullable = false)
     private String role; // e.g., "ADMIN"
+
+    // Clinics this user may select (see ClinicAccess); empty means the default clinic only
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "user_clinics", joinColumns = @JoinColumn(name = "user_id"))
+    @Column(name = "clinic_id", length = 32)
+    private Set<String> clinics = new HashSet<>();
 }
@@ -0,0 +1,87 @@
+package com.main.ehr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * A patient waiting for an earlier appointment. provider null means any
+ * provider; window null means any time of day. While OFFERED the entry
+ * holds the slot it was offered until offerExpiresAt. updatedAt is stamped
+ * on every write so other nodes can pick up changes to their waitlist index.
+ */
+@Entity
+@Table(name = "waitlist_entries", indexes = {
+        @Index(name = "idx_waitlist_status", columnList = "status"),
+        @Index(name = "idx_waitlist_updated", columnList = "updated_at")
+})
+@Data
+@NoArgsConstructor
+public class WaitlistEntry {
+
+    public enum Status { WAITING, OFFERED, BOOKED, REMOVED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "patient_id", nullable = false)
+    private Patient patient;
+
+    @ManyToOne
+    @JoinColumn(name = "provider_id")
+    private Provider provider;
+
+    @Column(nullable = false)
+    private LocalDate earliestDate;
+
+    @Column(nullable = false)
+    private LocalDate latestDate;
+
+    private LocalTime windowStart;
+    private LocalTime windowEnd;
+
+    @Column(nullable = false)
+    private int durationMinutes;
+
+    // Higher goes first; ties by time on the list
+    @Column(nullable = false)
+    private int urgency;
+
+    private String appointmentType;
+    private String reason;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    // Current offer (status OFFERED)
+    private Long offerProviderId;
+    private LocalDate offerDate;
+    private LocalTime offerStart;
+    private LocalTime offerEnd;
+    private LocalDateTime offeredAt;
+    private LocalDateTime offerExpiresAt;
+
+    private Long bookedAppointmentId;
+
+    // The matcher thread and staff actions both update entries
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    @PrePersist
+    @PreUpdate
+    protected void stampUpdated() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
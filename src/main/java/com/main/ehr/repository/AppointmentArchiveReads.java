@@ -0,0 +1,23 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.Appointment;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Range reads of AppointmentRepository that also cover appointments moved
+ * to the archive. The archive is queried only when the range starts before
+ * the archive horizon; archived rows come back as detached, read-only
+ * Appointment objects (ArchivedAppointment.toAppointment).
+ */
+public interface AppointmentArchiveReads {
+
+    List<Appointment> findByProviderIdAndDateBetween(Long providerId, LocalDate start, LocalDate end);
+
+    List<Appointment> findByDateBetween(LocalDate start, LocalDate end);
+
+    // (seriesId, originalDate) of materialized occurrences; those dates are not expanded again
+    List<Object[]> findSeriesOverrides(Collection<Long> seriesIds, LocalDate start, LocalDate end);
+}
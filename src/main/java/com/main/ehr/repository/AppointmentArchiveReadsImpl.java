@@ -0,0 +1,75 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.ArchivedAppointment;
+import com.main.ehr.service.archive.AppointmentArchiveHorizon;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Spring Data picks this up as the implementation of AppointmentArchiveReads
+class AppointmentArchiveReadsImpl implements AppointmentArchiveReads {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ArchivedAppointmentRepository archive;
+    private final AppointmentArchiveHorizon horizon;
+
+    AppointmentArchiveReadsImpl(ArchivedAppointmentRepository archive, AppointmentArchiveHorizon horizon) {
+        this.archive = archive;
+        this.horizon = horizon;
+    }
+
+    @Override
+    public List<Appointment> findByProviderIdAndDateBetween(Long providerId, LocalDate start, LocalDate end) {
+        List<Appointment> out = new ArrayList<>(em.createQuery(
+                        "SELECT a FROM Appointment a " + AppointmentRepository.PROVIDER_RANGE_WHERE, Appointment.class)
+                .setParameter("providerId", providerId)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .getResultList());
+        if (horizon.reaches(start)) {
+            archive.findByProviderIdAndDateBetween(providerId, start, end).stream()
+                    .map(ArchivedAppointment::toAppointment)
+                    .forEach(out::add);
+        }
+        return out;
+    }
+
+    @Override
+    public List<Appointment> findByDateBetween(LocalDate start, LocalDate end) {
+        List<Appointment> out = new ArrayList<>(em.createQuery(
+                        "SELECT a FROM Appointment a WHERE a.date BETWEEN :start AND :end", Appointment.class)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .getResultList());
+        if (horizon.reaches(start)) {
+            archive.findByDateBetween(start, end).stream()
+                    .map(ArchivedAppointment::toAppointment)
+                    .forEach(out::add);
+        }
+        return out;
+    }
+
+    @Override
+    public List<Object[]> findSeriesOverrides(Collection<Long> seriesIds, LocalDate start, LocalDate end) {
+        List<Object[]> out = new ArrayList<>(em.createQuery("""
+                        SELECT a.series.id, a.seriesOriginalDate FROM Appointment a
+                        WHERE a.series.id IN :seriesIds
+                          AND a.seriesOriginalDate BETWEEN :start AND :end
+                        """, Object[].class)
+                .setParameter("seriesIds", seriesIds)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .getResultList());
+        if (horizon.reaches(start)) {
+            out.addAll(archive.findSeriesOverrides(seriesIds, start, end));
+        }
+        return out;
+    }
+}
@@ -2,23 +2,90 @@ package com.main.ehr.repository;
 
 import com.main.ehr.model.Appointment;
 import com.main.ehr.model.Provider;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, AppointmentArchiveReads {
 
     List<Appointment> findByProviderAndDate(Provider provider, LocalDate date);
 
     List<Appointment> findByProviderId(Long providerId);
 
-    List<Appointment> findByDateBetween(LocalDate start, LocalDate end);
-    
-    List<Appointment> findByProviderIdAndDateBetween(Long providerId, LocalDate start, LocalDate end);
-    
-    
+    // findByDateBetween, findByProviderIdAndDateBetween and findSeriesOverrides: AppointmentArchiveReads
 
+    // Provider + date range; shared by findByProviderIdAndDateBetween and the fields= projection
+    String PROVIDER_RANGE_WHERE = "WHERE a.provider.id = :providerId AND a.date BETWEEN :start AND :end";
+
+    // One IN query for a whole batch, with provider + patient joined in
+    @Query("""
+            SELECT a FROM Appointment a
+            LEFT JOIN FETCH a.provider
+            LEFT JOIN FETCH a.patient
+            WHERE a.id IN :ids
+            """)
+    List<Appointment> findAllWithPartiesByIdIn(@Param("ids") Collection<Long> ids);
+
+    Optional<Appointment> findBySeriesIdAndSeriesOriginalDate(Long seriesId, LocalDate originalDate);
+
+    // ---------- Claims: completed appointments without a written claim ----------
+
+    // Distinct primary payers in the period; null for patients with no payer on file
+    @Query("""
+            SELECT DISTINCT i.providerName FROM Appointment a
+            JOIN a.patient p
+            LEFT JOIN p.insurancePrimary i
+            WHERE a.date BETWEEN :start AND :end
+              AND LOWER(a.status) = 'completed'
+              AND NOT EXISTS (SELECT c.id FROM Claim c
+                              WHERE c.appointmentId = a.id AND c.status = com.main.ehr.model.Claim.Status.WRITTEN)
+            """)
+    List<String> findBillablePayers(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    // Next keyset chunk for one payer, with everything a claim needs joined in
+    @Query("""
+            SELECT a FROM Appointment a
+            JOIN FETCH a.patient p
+            LEFT JOIN FETCH p.insurancePrimary i
+            LEFT JOIN FETCH p.insuranceSecondary
+            LEFT JOIN FETCH a.provider
+            WHERE a.date BETWEEN :start AND :end
+              AND LOWER(a.status) = 'completed'
+              AND a.id > :afterId
+              AND ((:payer IS NULL AND (i IS NULL OR i.providerName IS NULL)) OR i.providerName = :payer)
+              AND NOT EXISTS (SELECT c.id FROM Claim c
+                              WHERE c.appointmentId = a.id AND c.status = com.main.ehr.model.Claim.Status.WRITTEN)
+            ORDER BY a.id
+            """)
+    List<Appointment> findBillableChunk(
+            @Param("payer") String payer,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("afterId") long afterId,
+            Pageable page
+    );
+
+    // Next keyset chunk of a day's live appointments, with patient and provider for the reminder text
+    @Query("""
+            SELECT a FROM Appointment a
+            JOIN FETCH a.patient
+            LEFT JOIN FETCH a.provider
+            WHERE a.date = :date
+              AND a.id > :afterId
+              AND (a.status IS NULL OR LOWER(a.status) NOT LIKE 'cancel%')
+            ORDER BY a.id
+            """)
+    List<Appointment> findReminderChunk(
+            @Param("date") LocalDate date,
+            @Param("afterId") long afterId,
+            Pageable page
+    );
 }
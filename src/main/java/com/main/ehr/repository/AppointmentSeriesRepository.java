@@ -0,0 +1,54 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.AppointmentSeries;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AppointmentSeriesRepository extends JpaRepository<AppointmentSeries, Long> {
+
+    // Series whose [startDate, untilDate] overlaps the window
+    @Query("""
+            SELECT DISTINCT s FROM AppointmentSeries s
+            LEFT JOIN FETCH s.excludedDates
+            WHERE s.provider.id = :providerId
+              AND s.startDate <= :end
+              AND (s.untilDate IS NULL OR s.untilDate >= :start)
+            """)
+    List<AppointmentSeries> findActiveForProvider(
+            @Param("providerId") Long providerId,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end
+    );
+
+    @Query("""
+            SELECT DISTINCT s FROM AppointmentSeries s
+            LEFT JOIN FETCH s.excludedDates
+            WHERE s.startDate <= :end
+              AND (s.untilDate IS NULL OR s.untilDate >= :start)
+            """)
+    List<AppointmentSeries> findActiveBetween(
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end
+    );
+
+    // Keyset chunk of series that may have an occurrence on date (excluded dates load lazily, in batches)
+    @Query("""
+            SELECT s FROM AppointmentSeries s
+            WHERE s.startDate <= :date
+              AND (s.untilDate IS NULL OR s.untilDate >= :date)
+              AND s.id > :afterId
+            ORDER BY s.id
+            """)
+    List<AppointmentSeries> findActiveChunk(
+            @Param("date") LocalDate date,
+            @Param("afterId") long afterId,
+            Pageable page
+    );
+}
@@ -0,0 +1,33 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.ArchivedAppointment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedAppointmentRepository extends JpaRepository<ArchivedAppointment, Long> {
+
+    List<ArchivedAppointment> findByProviderIdAndDateBetween(Long providerId, LocalDate start, LocalDate end);
+
+    List<ArchivedAppointment> findByDateBetween(LocalDate start, LocalDate end);
+
+    @Query("""
+            SELECT a.series.id, a.seriesOriginalDate FROM ArchivedAppointment a
+            WHERE a.series.id IN :seriesIds
+              AND a.seriesOriginalDate BETWEEN :start AND :end
+            """)
+    List<Object[]> findSeriesOverrides(
+            @Param("seriesIds") Collection<Long> seriesIds,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end
+    );
+
+    @Query("SELECT MAX(a.date) FROM ArchivedAppointment a")
+    LocalDate findLatestDate();
+}
@@ -0,0 +1,13 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.ClaimBatchCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ClaimBatchCheckpointRepository extends JpaRepository<ClaimBatchCheckpoint, Long> {
+
+    List<ClaimBatchCheckpoint> findByBatchIdOrderById(Long batchId);
+}
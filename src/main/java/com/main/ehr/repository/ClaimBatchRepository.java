@@ -0,0 +1,17 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.ClaimBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ClaimBatchRepository extends JpaRepository<ClaimBatch, Long> {
+
+    boolean existsByStatus(ClaimBatch.Status status);
+
+    List<ClaimBatch> findByStatus(ClaimBatch.Status status);
+
+    List<ClaimBatch> findTop20ByOrderByIdDesc();
+}
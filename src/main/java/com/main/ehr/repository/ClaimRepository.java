@@ -0,0 +1,15 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.Claim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ClaimRepository extends JpaRepository<Claim, Long> {
+
+    long countByBatchIdAndStatus(Long batchId, Claim.Status status);
+
+    List<Claim> findByBatchIdAndStatusOrderById(Long batchId, Claim.Status status);
+}
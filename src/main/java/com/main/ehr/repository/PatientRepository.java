@@ -3,6 +3,7 @@ package com.main.ehr.repository;
 import com.main.ehr.model.Patient;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -14,8 +15,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
 
-	@Query("""
-			SELECT p FROM Patient p
+	// Search filters, shared with the fields= projection (SparseQueryRepository)
+	String SEARCH_WHERE = """
 			WHERE
 			  (:firstName IS NULL OR LOWER(p.firstName) LIKE LOWER(CONCAT(:firstName, '%')))
 			  AND (:lastName IS NULL OR LOWER(p.lastName) LIKE LOWER(CONCAT(:lastName, '%')))
@@ -25,7 +26,9 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
 			  AND (:city IS NULL OR LOWER(p.city) LIKE LOWER(CONCAT('%', :city, '%')))
 			  AND (:state IS NULL OR LOWER(p.state) LIKE LOWER(CONCAT('%', :state, '%')))
 			  AND (:zip IS NULL OR LOWER(p.zip) LIKE LOWER(CONCAT('%', :zip, '%')))
-			""")
+			""";
+
+	@Query("SELECT p FROM Patient p " + SEARCH_WHERE)
 			Page<Patient> searchPatients(
 			    @Param("firstName") String firstName,
 			    @Param("lastName") String lastName,
@@ -38,7 +41,11 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
 			    Pageable pageable
 			);
 
+	// One blocking key's bucket (duplicate check on create); each runs on its own key index
+	List<Patient> findByNameKeyOrderById(String nameKey, Pageable pageable);
 
+	List<Patient> findByPhoneKeyOrderById(String phoneKey, Pageable pageable);
 
+	List<Patient> findByEmailKeyOrderById(String emailKey, Pageable pageable);
 
 }
@@ -0,0 +1,27 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.ProviderDailyStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ProviderDailyStatRepository extends JpaRepository<ProviderDailyStat, Long> {
+
+    @Query("""
+            SELECT s FROM ProviderDailyStat s
+            WHERE s.statDate BETWEEN :start AND :end
+              AND (:providerId IS NULL OR s.providerId = :providerId)
+              AND s.appointmentCount <> 0
+            ORDER BY s.providerId, s.statDate
+            """)
+    List<ProviderDailyStat> findRange(
+            @Param("providerId") Long providerId,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end
+    );
+}
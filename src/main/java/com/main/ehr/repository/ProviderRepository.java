@@ -1,6 +1,8 @@
 package com.main.ehr.repository;
 
 import com.main.ehr.model.Provider;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
@@ -10,14 +12,20 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface ProviderRepository extends JpaRepository<Provider, Long> {
 
-	@Query("""
-			SELECT p FROM Provider p
+	// Search filters, shared with the fields= projection (SparseQueryRepository)
+	String SEARCH_WHERE = """
 			WHERE (:firstName IS NULL OR LOWER(p.firstName) LIKE LOWER(CONCAT(:firstName, '%')))
 			AND (:lastName IS NULL OR LOWER(p.lastName) LIKE LOWER(CONCAT(:lastName, '%')))
 			AND (:specialty IS NULL OR LOWER(p.specialty) LIKE LOWER(CONCAT(:specialty, '%')))
 			AND (:inPracticeOnly IS NULL OR p.inPractice = :inPracticeOnly)
 			AND (:activeOnly IS NULL OR p.active = :activeOnly)
-			""")
+			""";
+
+	@Query("SELECT p FROM Provider p " + SEARCH_WHERE)
+	@QueryHints({
+			@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+			@QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = "provider-queries")
+	})
 			Page<Provider> searchProviders(
 			    @Param("firstName") String firstName,
 			    @Param("lastName") String lastName,
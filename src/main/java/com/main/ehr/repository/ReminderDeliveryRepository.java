@@ -0,0 +1,17 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.ReminderDelivery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReminderDeliveryRepository extends JpaRepository<ReminderDelivery, Long> {
+
+    List<ReminderDelivery> findByRunIdAndStatusAndIdGreaterThanOrderById(
+            Long runId, ReminderDelivery.Status status, Long afterId, Pageable page);
+
+    List<ReminderDelivery> findTop200ByRunIdAndStatusOrderById(Long runId, ReminderDelivery.Status status);
+}
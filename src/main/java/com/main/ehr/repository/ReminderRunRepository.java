@@ -0,0 +1,19 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.ReminderRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReminderRunRepository extends JpaRepository<ReminderRun, Long> {
+
+    Optional<ReminderRun> findByTargetDateAndKind(LocalDate targetDate, ReminderRun.Kind kind);
+
+    List<ReminderRun> findByStatus(ReminderRun.Status status);
+
+    List<ReminderRun> findTop20ByOrderByIdDesc();
+}
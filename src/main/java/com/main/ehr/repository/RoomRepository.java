@@ -0,0 +1,13 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.Room;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RoomRepository extends JpaRepository<Room, Long> {
+
+    List<Room> findAllByOrderByIdAsc();
+}
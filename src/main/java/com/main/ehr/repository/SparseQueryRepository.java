@@ -0,0 +1,88 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.mapper.SparseFields;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Runs a search with only the columns a fields= selection needs:
+ * "SELECT &lt;selected columns&gt; FROM &lt;entity&gt; &lt;left joins&gt; &lt;where&gt;".
+ * The where clauses are the same JPQL the entity repositories use (shared
+ * as constants there), so filters behave exactly like the full queries.
+ */
+@Repository
+public class SparseQueryRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public Page<Map<String, Object>> page(SparseFields fields, String where, Map<String, ?> params, Pageable pageable) {
+        return page(fields, fields.catalog().entity(), where, params, pageable);
+    }
+
+    /** Same, against another entity with the catalog's attribute names (e.g. ArchivedAppointment). */
+    public Page<Map<String, Object>> page(SparseFields fields, String entity, String where,
+                                          Map<String, ?> params, Pageable pageable) {
+        SparseFields.Catalog c = fields.catalog();
+        String from = entity + " " + c.alias();
+
+        TypedQuery<Object> query = em.createQuery(
+                "SELECT " + fields.selectClause() + " FROM " + from + " " + fields.joinClause()
+                        + " " + where + orderBy(c, pageable.getSort()), Object.class);
+        params.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Map<String, Object>> rows = query.getResultList().stream().map(fields::toJson).toList();
+
+        if (pageable.isUnpaged() || (pageable.getOffset() == 0 && rows.size() < pageable.getPageSize())) {
+            return new PageImpl<>(rows, pageable, rows.size());
+        }
+        TypedQuery<Long> count = em.createQuery(
+                "SELECT COUNT(" + c.alias() + ") FROM " + from + " " + where, Long.class);
+        params.forEach(count::setParameter);
+        return new PageImpl<>(rows, pageable, count.getSingleResult());
+    }
+
+    public List<Map<String, Object>> list(SparseFields fields, String where, Map<String, ?> params, Sort sort) {
+        return list(fields, fields.catalog().entity(), where, params, sort);
+    }
+
+    public List<Map<String, Object>> list(SparseFields fields, String entity, String where,
+                                          Map<String, ?> params, Sort sort) {
+        return page(fields, entity, where, params, Pageable.unpaged(sort)).getContent();
+    }
+
+    public Optional<Map<String, Object>> findById(SparseFields fields, Long id) {
+        return findById(fields, fields.catalog().entity(), id);
+    }
+
+    public Optional<Map<String, Object>> findById(SparseFields fields, String entity, Long id) {
+        String where = "WHERE " + fields.catalog().alias() + ".id = :id";
+        return list(fields, entity, where, Map.of("id", id), Sort.unsorted()).stream().findFirst();
+    }
+
+    // ---------- helpers ----------
+
+    // Sort keys are root-entity attributes, as with the repositories' Pageable queries
+    private static String orderBy(SparseFields.Catalog c, Sort sort) {
+        if (sort.isUnsorted()) return "";
+        StringJoiner out = new StringJoiner(", ", " ORDER BY ", "");
+        for (Sort.Order o : sort) {
+            if (!o.getProperty().matches("[A-Za-z][A-Za-z0-9_.]*")) {
+                throw new IllegalArgumentException("Invalid sort property '" + o.getProperty() + "'");
+            }
+            out.add(c.alias() + "." + o.getProperty() + (o.isDescending() ? " DESC" : " ASC"));
+        }
+        return out.toString();
+    }
+}
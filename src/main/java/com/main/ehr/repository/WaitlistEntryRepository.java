@@ -0,0 +1,38 @@
+package com.main.ehr.repository;
+
+import com.main.ehr.model.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    List<WaitlistEntry> findByStatus(WaitlistEntry.Status status);
+
+    List<WaitlistEntry> findByStatusInOrderByIdAsc(Collection<WaitlistEntry.Status> statuses);
+
+    // Entries written since a refresh watermark, whatever their status now
+    List<WaitlistEntry> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+
+    List<WaitlistEntry> findByStatusAndOfferExpiresAtBefore(WaitlistEntry.Status status, LocalDateTime time);
+
+    // An unexpired offer holds its time like a booking
+    @Query("""
+            SELECT COUNT(w) > 0 FROM WaitlistEntry w
+            WHERE w.status = com.main.ehr.model.WaitlistEntry.Status.OFFERED
+              AND w.offerProviderId = :providerId AND w.offerDate = :date
+              AND w.offerStart < :end AND :start < w.offerEnd
+              AND w.offerExpiresAt > :now
+            """)
+    boolean existsOpenOfferOverlapping(@Param("providerId") Long providerId, @Param("date") LocalDate date,
+                                       @Param("start") LocalTime start, @Param("end") LocalTime end,
+                                       @Param("now") LocalDateTime now);
+}
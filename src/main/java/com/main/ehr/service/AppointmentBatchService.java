@@ -0,0 +1,313 @@
+package com.main.ehr.service;
+
+import com.main.ehr.dto.AppointmentBatchRequest;
+import com.main.ehr.dto.AppointmentBatchRequest.Operation;
+import com.main.ehr.dto.AppointmentBatchResult;
+import com.main.ehr.dto.AppointmentRequest;
+import com.main.ehr.event.AppointmentChangedEvent;
+import com.main.ehr.event.AppointmentSnapshot;
+import com.main.ehr.mapper.AppointmentMapper;
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.Patient;
+import com.main.ehr.model.Provider;
+import com.main.ehr.repository.AppointmentRepository;
+import com.main.ehr.repository.PatientRepository;
+import com.main.ehr.repository.ProviderRepository;
+import com.main.ehr.service.BookingLockService.ProviderDay;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a mixed list of appointment creates/updates/deletes in one
+ * transaction. All referenced appointments, providers and patients are
+ * loaded up front with one IN query each; the writes are flushed together
+ * so Hibernate can group them into JDBC batches (hibernate.jdbc.batch_size).
+ * The transaction runs under BookingLockService holding every provider-day
+ * the batch touches; an item whose appointment moved after those keys were
+ * read fails instead of writing outside its locks. Items are applied in
+ * order: one whose slot clashes with the stored schedule (as changed by the
+ * items before it) or with an earlier item of the batch fails.
+ */
+@Service
+public class AppointmentBatchService {
+
+    public static final int MAX_OPERATIONS = 500;
+
+    private final AppointmentRepository appointmentRepository;
+    private final ProviderRepository providerRepository;
+    private final PatientRepository patientRepository;
+    private final AppointmentSeriesService seriesService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookingLockService bookingLocks;
+    private final ScheduleService scheduleService;
+
+    public AppointmentBatchService(AppointmentRepository appointmentRepository,
+                                   ProviderRepository providerRepository,
+                                   PatientRepository patientRepository,
+                                   AppointmentSeriesService seriesService,
+                                   ApplicationEventPublisher eventPublisher,
+                                   BookingLockService bookingLocks,
+                                   ScheduleService scheduleService) {
+        this.appointmentRepository = appointmentRepository;
+        this.providerRepository = providerRepository;
+        this.patientRepository = patientRepository;
+        this.seriesService = seriesService;
+        this.eventPublisher = eventPublisher;
+        this.bookingLocks = bookingLocks;
+        this.scheduleService = scheduleService;
+    }
+
+    public List<AppointmentBatchResult> apply(AppointmentBatchRequest request) {
+        List<Operation> ops = request.operations() == null ? List.of() : request.operations();
+        Set<ProviderDay> held = providerDays(ops);
+        return bookingLocks.inProviderDays(held, status -> apply(request, ops, held, status));
+    }
+
+    private List<AppointmentBatchResult> apply(AppointmentBatchRequest request, List<Operation> ops,
+                                               Set<ProviderDay> held, TransactionStatus status) {
+
+        // ---------- Resolve everything referenced, one query per table ----------
+        Set<Long> appointmentIds = new HashSet<>();
+        Set<Long> providerIds = new HashSet<>();
+        Set<Long> patientIds = new HashSet<>();
+
+        for (Operation op : ops) {
+            if (op == null) continue;
+            if (op.id() != null) appointmentIds.add(op.id());
+            AppointmentRequest data = op.appointment();
+            if (data != null) {
+                if (data.providerId() != null) providerIds.add(data.providerId());
+                if (data.patientId() != null) patientIds.add(data.patientId());
+            }
+        }
+
+        Map<Long, Appointment> appointments = appointmentIds.isEmpty() ? Map.of()
+                : index(appointmentRepository.findAllWithPartiesByIdIn(appointmentIds), Appointment::getId);
+        Map<Long, Provider> providers = providerIds.isEmpty() ? Map.of()
+                : index(providerRepository.findAllById(providerIds), Provider::getId);
+        Map<Long, Patient> patients = patientIds.isEmpty() ? Map.of()
+                : index(patientRepository.findAllById(patientIds), Patient::getId);
+
+        // ---------- Validate + stage in memory ----------
+        List<AppointmentBatchResult> results = new ArrayList<>(ops.size());
+        List<Appointment> toCreate = new ArrayList<>();
+        List<Integer> createIndexes = new ArrayList<>();
+        List<Appointment> toDelete = new ArrayList<>();
+        Set<Long> touched = new HashSet<>();
+        List<AppointmentChangedEvent> updates = new ArrayList<>();
+        // Earlier accepted items: stored ones they moved or removed, and where they now stand
+        Set<Long> replaced = new HashSet<>();
+        List<Appointment> staged = new ArrayList<>();
+
+        for (int i = 0; i < ops.size(); i++) {
+            Operation op = ops.get(i);
+            String kind = op == null || op.op() == null ? "" : op.op().toLowerCase();
+            String ref = op == null ? null : op.clientRef();
+            Long id = op == null ? null : op.id();
+
+            try {
+                if (id != null && !touched.add(id)) {
+                    throw new IllegalArgumentException("Appointment appears more than once in batch");
+                }
+
+                switch (kind) {
+                    case "create" -> {
+                        Appointment a = new Appointment();
+                        applyCreate(a, op.appointment(), providers, patients);
+                        checkFree(a, null, replaced, staged);
+                        staged.add(a);
+                        toCreate.add(a);
+                        createIndexes.add(i);
+                        results.add(null); // filled in after insert, once the id is known
+                    }
+                    case "update" -> {
+                        Appointment a = require(appointments, id);
+                        checkLocked(a, op.appointment(), held);
+                        AppointmentSnapshot before = AppointmentSnapshot.of(a);
+                        checkFree(preview(a, op.appointment(), providers), before, replaced, staged);
+                        applyUpdate(a, op.appointment(), providers, patients);
+                        replaced.add(id);
+                        staged.add(a);
+                        updates.add(AppointmentChangedEvent.updated(before, AppointmentSnapshot.of(a)));
+                        results.add(AppointmentBatchResult.ok(i, ref, kind, id));
+                    }
+                    case "delete" -> {
+                        Appointment a = require(appointments, id);
+                        checkLocked(a, null, held);
+                        if (op.appointment() != null) checkVersion(a, op.appointment());
+                        replaced.add(id);
+                        toDelete.add(a);
+                        results.add(AppointmentBatchResult.ok(i, ref, kind, id));
+                    }
+                    default -> throw new IllegalArgumentException("Unknown op '" + kind + "'");
+                }
+            } catch (RuntimeException e) {
+                results.add(AppointmentBatchResult.failed(i, ref, kind, id, e.getMessage()));
+            }
+        }
+
+        boolean anyFailed = results.stream().anyMatch(r -> r != null && !r.success());
+        if (request.allOrNothing() && anyFailed) {
+            // Roll back so the in-memory updates on managed entities are never flushed
+            status.setRollbackOnly();
+            for (int i = 0; i < results.size(); i++) {
+                AppointmentBatchResult r = results.get(i);
+                if (r == null || r.success()) {
+                    Operation op = ops.get(i);
+                    results.set(i, AppointmentBatchResult.failed(i, op.clientRef(), op.op(), op.id(), "Not applied"));
+                }
+            }
+            return results;
+        }
+
+        // ---------- Write ----------
+        appointmentRepository.saveAll(toCreate);
+        toDelete.forEach(seriesService::onAppointmentDeleted);
+        appointmentRepository.deleteAll(toDelete);
+        appointmentRepository.flush();
+
+        toCreate.forEach(a -> eventPublisher.publishEvent(AppointmentChangedEvent.created(AppointmentSnapshot.of(a))));
+        updates.forEach(eventPublisher::publishEvent);
+        toDelete.forEach(a -> eventPublisher.publishEvent(AppointmentChangedEvent.deleted(AppointmentSnapshot.of(a))));
+
+        for (int k = 0; k < toCreate.size(); k++) {
+            int index = createIndexes.get(k);
+            results.set(index, AppointmentBatchResult.ok(index, ops.get(index).clientRef(), "create", toCreate.get(k).getId()));
+        }
+        return results;
+    }
+
+    // ---------- helpers ----------
+
+    // Current provider-day of every referenced appointment plus where creates/updates land
+    private Set<ProviderDay> providerDays(List<Operation> ops) {
+        Set<Long> ids = new HashSet<>();
+        for (Operation op : ops) {
+            if (op != null && op.id() != null) ids.add(op.id());
+        }
+        Map<Long, Appointment> current = ids.isEmpty() ? Map.of()
+                : index(appointmentRepository.findAllWithPartiesByIdIn(ids), Appointment::getId);
+
+        Set<ProviderDay> keys = new HashSet<>();
+        for (Operation op : ops) {
+            if (op == null) continue;
+            ProviderDay existing = op.id() != null && current.containsKey(op.id())
+                    ? ProviderDay.of(current.get(op.id())) : new ProviderDay(null, null);
+            keys.add(existing);
+
+            AppointmentRequest data = op.appointment();
+            if (data != null) {
+                LocalDate date = existing.date();
+                try {
+                    if (data.date() != null) date = LocalDate.parse(data.date());
+                } catch (DateTimeParseException ignored) {
+                    // reported per item during validation
+                }
+                keys.add(new ProviderDay(data.providerId() != null ? data.providerId() : existing.providerId(), date));
+            }
+        }
+        return keys;
+    }
+
+    // The lock keys came from a read taken before the locks were held. An appointment moved
+    // since then (or moving somewhere not locked) is not covered, so the item fails instead
+    private static void checkLocked(Appointment a, AppointmentRequest req, Set<ProviderDay> held) {
+        ProviderDay current = ProviderDay.of(a);
+        ProviderDay target = req == null ? current : new ProviderDay(
+                req.providerId() != null ? req.providerId() : current.providerId(),
+                req.date() != null ? LocalDate.parse(req.date()) : current.date());
+        if (!held.contains(current) || !held.contains(target)) {
+            throw new IllegalArgumentException("Appointment was moved by someone else; retry the batch");
+        }
+    }
+
+    // Stored and series clashes, minus what earlier items changed, plus those items' new slots
+    private void checkFree(Appointment a, AppointmentSnapshot before, Set<Long> replaced, List<Appointment> staged) {
+        if (!ScheduleService.occupies(a) || (before != null && ScheduleService.sameSlot(before, a))) return;
+        Long providerId = a.getProvider().getId();
+
+        List<Appointment> clash = new ArrayList<>(scheduleService.findOverlapping(
+                providerId, a.getDate(), a.getTimeStart(), a.getTimeEnd(), a.getId()));
+        clash.removeIf(c -> c.getId() != null && replaced.contains(c.getId()));
+        for (Appointment s : staged) {
+            if (s.getId() != null && s.getId().equals(a.getId())) continue;
+            if (Objects.equals(s.getProvider().getId(), providerId) && Objects.equals(s.getDate(), a.getDate())
+                    && ScheduleService.overlaps(s, a.getTimeStart(), a.getTimeEnd())) {
+                clash.add(s);
+            }
+        }
+        if (!clash.isEmpty()) throw new IllegalArgumentException(ScheduleService.clashMessage(clash.get(0)));
+    }
+
+    // Where an update would put the appointment, without touching the managed entity
+    private static Appointment preview(Appointment a, AppointmentRequest req, Map<Long, Provider> providers) {
+        if (req == null) throw new IllegalArgumentException("Missing appointment fields");
+        checkVersion(a, req);
+        Appointment p = new Appointment();
+        p.setId(a.getId());
+        p.setProvider(req.providerId() != null ? require(providers, req.providerId(), "Provider") : a.getProvider());
+        p.setDate(a.getDate());
+        p.setTimeStart(a.getTimeStart());
+        p.setTimeEnd(a.getTimeEnd());
+        p.setStatus(a.getStatus());
+        AppointmentMapper.applyPartial(p, req);
+        return p;
+    }
+
+    private static void checkVersion(Appointment a, AppointmentRequest req) {
+        if (req.version() != null && req.version() != a.getVersion()) {
+            throw new IllegalArgumentException("Appointment was changed by someone else (version "
+                    + a.getVersion() + ", expected " + req.version() + ")");
+        }
+    }
+
+    private static void applyCreate(Appointment a, AppointmentRequest req,
+                                    Map<Long, Provider> providers, Map<Long, Patient> patients) {
+        if (req == null || req.providerId() == null || req.patientId() == null) {
+            throw new IllegalArgumentException("Missing patient or provider ID");
+        }
+        if (req.date() == null || req.timeStart() == null || req.timeEnd() == null) {
+            throw new IllegalArgumentException("Missing date or time");
+        }
+        AppointmentMapper.applyRequest(a, req, require(providers, req.providerId(), "Provider"),
+                require(patients, req.patientId(), "Patient"));
+    }
+
+    private static void applyUpdate(Appointment a, AppointmentRequest req,
+                                     Map<Long, Provider> providers, Map<Long, Patient> patients) {
+        if (req == null) throw new IllegalArgumentException("Missing appointment fields");
+        checkVersion(a, req);
+
+        // Resolve + parse everything before touching the managed entity, so a
+        // rejected item never leaves half-applied changes behind to be flushed
+        Provider provider = req.providerId() != null ? require(providers, req.providerId(), "Provider") : null;
+        Patient patient = req.patientId() != null ? require(patients, req.patientId(), "Patient") : null;
+        AppointmentMapper.applyPartial(new Appointment(), req);
+
+        if (provider != null) a.setProvider(provider);
+        if (patient != null) a.setPatient(patient);
+        AppointmentMapper.applyPartial(a, req);
+    }
+
+    private static Appointment require(Map<Long, Appointment> appointments, Long id) {
+        if (id == null) throw new IllegalArgumentException("Missing appointment id");
+        return require(appointments, id, "Appointment");
+    }
+
+    private static <T> T require(Map<Long, T> found, Long id, String label) {
+        T value = found.get(id);
+        if (value == null) throw new IllegalArgumentException(label + " not found");
+        return value;
+    }
+
+    private static <T> Map<Long, T> index(List<T> rows, Function<T, Long> id) {
+        return rows.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+}
@@ -0,0 +1,268 @@
+package com.main.ehr.service;
+
+import com.main.ehr.dto.AppointmentSeriesRequest;
+import com.main.ehr.event.AppointmentChangedEvent;
+import com.main.ehr.event.AppointmentSnapshot;
+import com.main.ehr.model.*;
+import com.main.ehr.repository.AppointmentRepository;
+import com.main.ehr.repository.AppointmentSeriesRepository;
+import com.main.ehr.repository.PatientRepository;
+import com.main.ehr.repository.ProviderRepository;
+import com.main.ehr.service.BookingLockService.ProviderDay;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+@Service
+public class AppointmentSeriesService {
+
+    private final AppointmentSeriesRepository seriesRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ProviderRepository providerRepository;
+    private final PatientRepository patientRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookingLockService bookingLocks;
+    private final TransactionTemplate tx;
+    private final int conflictCheckDays;
+
+    public AppointmentSeriesService(AppointmentSeriesRepository seriesRepository,
+                                    AppointmentRepository appointmentRepository,
+                                    ProviderRepository providerRepository,
+                                    PatientRepository patientRepository,
+                                    ApplicationEventPublisher eventPublisher,
+                                    BookingLockService bookingLocks,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${ehr.series.conflict-check-days:180}") int conflictCheckDays) {
+        this.seriesRepository = seriesRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.providerRepository = providerRepository;
+        this.patientRepository = patientRepository;
+        this.eventPublisher = eventPublisher;
+        this.bookingLocks = bookingLocks;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.conflictCheckDays = Math.max(1, conflictCheckDays);
+    }
+
+    // ============================
+    // Expansion
+    // ============================
+
+    /**
+     * Generates the occurrences of the given series inside [from, to] as
+     * transient (never persisted) Appointment objects. Excluded dates and
+     * dates that were materialized into real rows are skipped; the real
+     * rows are returned by the normal appointment range query.
+     */
+    @Transactional(readOnly = true)
+    public List<Appointment> expand(List<AppointmentSeries> series, LocalDate from, LocalDate to) {
+        if (series.isEmpty()) return List.of();
+
+        Map<Long, AppointmentSeries> byId = new HashMap<>();
+        series.forEach(s -> byId.put(s.getId(), s));
+
+        Set<String> overridden = new HashSet<>();
+        for (Object[] row : appointmentRepository.findSeriesOverrides(byId.keySet(), from, to)) {
+            overridden.add(row[0] + "|" + row[1]);
+        }
+
+        List<Appointment> out = new ArrayList<>();
+        for (AppointmentSeries s : series) {
+            for (LocalDate d : RecurrenceExpander.occurrences(s, from, to)) {
+                if (s.getExcludedDates().contains(d)) continue;
+                if (overridden.contains(s.getId() + "|" + d)) continue;
+                out.add(occurrence(s, d));
+            }
+        }
+        return out;
+    }
+
+    // ============================
+    // Series lifecycle
+    // ============================
+
+    /**
+     * Creates the series unless one of its occurrences in the first
+     * conflict-check-days clashes with the provider's stored appointments or
+     * other series (IllegalStateException). The check and the insert run
+     * under the booking locks of those provider-days.
+     */
+    public AppointmentSeries create(AppointmentSeriesRequest req) {
+        if (req.providerId() == null || req.patientId() == null) {
+            throw new IllegalArgumentException("Missing patient or provider ID");
+        }
+        if (req.startDate() == null || req.timeStart() == null || req.timeEnd() == null) {
+            throw new IllegalArgumentException("Missing start date or time");
+        }
+
+        AppointmentSeries s = new AppointmentSeries();
+        s.setProvider(providerRepository.findById(req.providerId())
+                .orElseThrow(() -> new IllegalArgumentException("Provider not found")));
+        s.setPatient(patientRepository.findById(req.patientId())
+                .orElseThrow(() -> new IllegalArgumentException("Patient not found")));
+
+        s.setAppointmentType(req.appointmentType());
+        s.setReason(req.reason());
+        s.setStatus(req.status());
+        s.setTimeStart(LocalTime.parse(req.timeStart()));
+        s.setTimeEnd(LocalTime.parse(req.timeEnd()));
+        s.setDurationMinutes(req.duration() != null ? req.duration() : 15);
+
+        s.setFrequency(req.frequency() == null
+                ? RecurrenceFrequency.WEEKLY
+                : RecurrenceFrequency.valueOf(req.frequency().toUpperCase()));
+        s.setInterval(req.interval() != null && req.interval() > 0 ? req.interval() : 1);
+
+        if (req.daysOfWeek() != null && !req.daysOfWeek().isEmpty()) {
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            req.daysOfWeek().forEach(d -> days.add(DayOfWeek.valueOf(d.toUpperCase())));
+            s.setDaysOfWeek(days);
+        }
+
+        s.setStartDate(LocalDate.parse(req.startDate()));
+        if (req.untilDate() != null) {
+            s.setUntilDate(LocalDate.parse(req.untilDate()));
+        } else if (req.occurrences() != null) {
+            // Store the count as an end date so expansion never has to count from the start
+            s.setUntilDate(RecurrenceExpander.nthOccurrence(s, req.occurrences()));
+        }
+
+        if (s.getUntilDate() != null && s.getUntilDate().isBefore(s.getStartDate())) {
+            throw new IllegalArgumentException("Series ends before it starts");
+        }
+
+        LocalDate from = s.getStartDate();
+        LocalDate to = from.plusDays(conflictCheckDays - 1);
+        if (s.getUntilDate() != null && s.getUntilDate().isBefore(to)) to = s.getUntilDate();
+        List<LocalDate> dates = RecurrenceExpander.occurrences(s, from, to);
+        LocalDate end = to;
+
+        List<ProviderDay> keys = dates.stream().map(d -> new ProviderDay(s.getProvider().getId(), d)).toList();
+        // Occurrences are not rows and take no room, so the dates' rooms stay free
+        return bookingLocks.inProviderDays(keys, false, status -> {
+            requireFree(s, dates, from, end);
+            return seriesRepository.save(s);
+        });
+    }
+
+    private void requireFree(AppointmentSeries s, List<LocalDate> dates, LocalDate from, LocalDate to) {
+        if (dates.isEmpty()) return;
+        Long providerId = s.getProvider().getId();
+
+        Map<LocalDate, List<Appointment>> booked = new HashMap<>();
+        List<Appointment> existing = new ArrayList<>(appointmentRepository.findByProviderIdAndDateBetween(providerId, from, to));
+        existing.addAll(expand(seriesRepository.findActiveForProvider(providerId, from, to), from, to));
+        existing.forEach(a -> booked.computeIfAbsent(a.getDate(), d -> new ArrayList<>()).add(a));
+
+        for (LocalDate d : dates) {
+            Appointment occ = occurrence(s, d);
+            if (!ScheduleService.occupies(occ)) return;
+            for (Appointment a : booked.getOrDefault(d, List.of())) {
+                if (ScheduleService.overlaps(a, occ.getTimeStart(), occ.getTimeEnd())) {
+                    throw new IllegalStateException(ScheduleService.clashMessage(a));
+                }
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public AppointmentSeries get(Long id) {
+        return seriesRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Series not found"));
+    }
+
+    /**
+     * Turns one generated occurrence into a real Appointment row so it can be
+     * edited, moved or cancelled like any other appointment. Idempotent.
+     * Inserted under the provider-day's booking lock, like any other new
+     * appointment row (room auto-assign relies on it).
+     */
+    public Appointment materialize(Long seriesId, LocalDate date) {
+        AppointmentSeries series = get(seriesId);
+        ProviderDay key = new ProviderDay(series.getProvider() != null ? series.getProvider().getId() : null, date);
+        try {
+            return bookingLocks.inProviderDays(List.of(key), status -> insertOccurrence(seriesId, date));
+        } catch (DataIntegrityViolationException e) {
+            // uk_appt_series_original: a concurrent request materialized it first
+            return tx.execute(status -> appointmentRepository.findBySeriesIdAndSeriesOriginalDate(seriesId, date))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private Appointment insertOccurrence(Long seriesId, LocalDate date) {
+        Optional<Appointment> existing = appointmentRepository.findBySeriesIdAndSeriesOriginalDate(seriesId, date);
+        if (existing.isPresent()) return existing.get();
+
+        AppointmentSeries s = get(seriesId);
+        if (s.getExcludedDates().contains(date)
+                || !RecurrenceExpander.occurrences(s, date, date).contains(date)) {
+            throw new IllegalArgumentException("Series has no occurrence on " + date);
+        }
+        Appointment saved = appointmentRepository.saveAndFlush(occurrence(s, date));
+        eventPublisher.publishEvent(AppointmentChangedEvent.created(AppointmentSnapshot.of(saved)));
+        return saved;
+    }
+
+    @Transactional
+    public void cancelOccurrence(Long seriesId, LocalDate date) {
+        AppointmentSeries s = get(seriesId);
+        s.getExcludedDates().add(date);
+        appointmentRepository.findBySeriesIdAndSeriesOriginalDate(seriesId, date)
+                .ifPresent(a -> {
+                    appointmentRepository.delete(a);
+                    eventPublisher.publishEvent(AppointmentChangedEvent.deleted(AppointmentSnapshot.of(a)));
+                });
+    }
+
+    /**
+     * Stops the series after lastDate. Materialized occurrences after that
+     * date are real appointments and are left alone.
+     */
+    @Transactional
+    public AppointmentSeries end(Long seriesId, LocalDate lastDate) {
+        AppointmentSeries s = get(seriesId);
+        if (lastDate.isBefore(s.getStartDate())) {
+            throw new IllegalArgumentException("Series would end before it starts");
+        }
+        if (s.getUntilDate() == null || lastDate.isBefore(s.getUntilDate())) {
+            s.setUntilDate(lastDate);
+        }
+        return s;
+    }
+
+    /**
+     * Keeps a deleted materialized occurrence from being generated again.
+     * Must run in the same transaction as the delete.
+     */
+    public void onAppointmentDeleted(Appointment a) {
+        if (a.getSeries() != null && a.getSeriesOriginalDate() != null) {
+            a.getSeries().getExcludedDates().add(a.getSeriesOriginalDate());
+        }
+    }
+
+    // ---------- helpers ----------
+
+    private static Appointment occurrence(AppointmentSeries s, LocalDate date) {
+        Appointment a = new Appointment();
+        a.setProvider(s.getProvider());
+        a.setPatient(s.getPatient());
+        a.setDate(date);
+        a.setTimeStart(s.getTimeStart());
+        a.setTimeEnd(s.getTimeEnd());
+        a.setDurationMinutes(s.getDurationMinutes());
+        a.setAppointmentType(s.getAppointmentType());
+        a.setStatus(s.getStatus());
+        a.setReason(s.getReason());
+        a.setSeries(s);
+        a.setSeriesOriginalDate(date);
+        return a;
+    }
+}
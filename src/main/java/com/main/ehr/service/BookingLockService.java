@@ -0,0 +1,178 @@
+package com.main.ehr.service;
+
+import com.main.ehr.model.Appointment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes appointment writes per provider-day.
+ *
+ * In-process, each provider-day key gets its own lock, created on first use
+ * and dropped once nobody holds or waits for it, so bookings for different
+ * providers never contend (fixed hash stripes would let unrelated keys
+ * collide). Inside the transaction the matching booking_locks rows are
+ * upserted, which holds a row lock until commit and covers other nodes.
+ * Keys are always taken in sorted order, so multi-key writes (a move from
+ * one provider-day to another, a batch) cannot deadlock each other.
+ *
+ * With room auto-assign on, a write also holds the rooms of each date it
+ * touches (booking_locks row with provider_id ROOMS): placement reads every
+ * provider's rooms that day, so two providers booking the same date would
+ * otherwise both pick the same free room. Room-days are taken after all
+ * provider-days, again in sorted order.
+ *
+ * The transaction runs inside the locks, so the next writer sees committed
+ * data.
+ */
+@Service
+public class BookingLockService {
+
+    public record ProviderDay(Long providerId, LocalDate date) implements Comparable<ProviderDay> {
+        public static ProviderDay of(Appointment a) {
+            return new ProviderDay(a.getProvider() != null ? a.getProvider().getId() : null, a.getDate());
+        }
+
+        @Override
+        public int compareTo(ProviderDay o) {
+            int c = Long.compare(providerId, o.providerId);
+            return c != 0 ? c : date.compareTo(o.date);
+        }
+    }
+
+    // booking_locks.provider_id of a date's rooms; no provider has id 0
+    static final long ROOMS = 0L;
+
+    private static final class KeyLock {
+        final ReentrantLock lock = new ReentrantLock();
+        int users;
+    }
+
+    // Keys are ProviderDay, or LocalDate for a date's rooms
+    private final ConcurrentHashMap<Object, KeyLock> locks = new ConcurrentHashMap<>();
+    private final TransactionTemplate tx;
+    private final JdbcTemplate jdbc;
+    private final Duration waitTimeout;
+    private final boolean dbLock;
+    private final boolean roomDays;
+
+    public BookingLockService(PlatformTransactionManager transactionManager,
+                              JdbcTemplate jdbc,
+                              @Value("${ehr.booking.lock-timeout:5s}") Duration waitTimeout,
+                              @Value("${ehr.booking.db-lock:true}") boolean dbLock,
+                              @Value("${ehr.rooms.auto-assign:true}") boolean roomDays) {
+        this.tx = new TransactionTemplate(transactionManager);
+        this.jdbc = jdbc;
+        this.waitTimeout = waitTimeout;
+        this.dbLock = dbLock;
+        this.roomDays = roomDays;
+    }
+
+    /**
+     * Runs work in a new transaction while holding every given provider-day
+     * and, with room auto-assign on, the rooms of their dates. Keys with a
+     * null date are ignored, as are provider-days with a null provider.
+     *
+     * @throws IllegalStateException if a lock is not available within lock-timeout
+     */
+    public <T> T inProviderDays(Collection<ProviderDay> keys, TransactionCallback<T> work) {
+        return inProviderDays(keys, roomDays, work);
+    }
+
+    /** As above; withRooms false for writes that place no appointment row in a room. */
+    public <T> T inProviderDays(Collection<ProviderDay> keys, boolean withRooms, TransactionCallback<T> work) {
+        List<ProviderDay> sorted = keys.stream()
+                .filter(k -> k != null && k.providerId() != null && k.date() != null)
+                .distinct()
+                .sorted()
+                .toList();
+        // A row without a provider still takes a room
+        List<LocalDate> dates = withRooms
+                ? keys.stream().filter(k -> k != null && k.date() != null).map(ProviderDay::date).distinct().sorted().toList()
+                : List.of();
+        return locked(sorted, dates, work);
+    }
+
+    /** Runs work in a new transaction while holding the rooms of date (whole-day room planning). */
+    public <T> T inRoomDay(LocalDate date, TransactionCallback<T> work) {
+        return locked(List.of(), List.of(date), work);
+    }
+
+    public int heldKeys() {
+        return locks.size();
+    }
+
+    // ---------- helpers ----------
+
+    private <T> T locked(List<ProviderDay> providerDays, List<LocalDate> dates, TransactionCallback<T> work) {
+        List<Object> held = new ArrayList<>(providerDays.size() + dates.size());
+        try {
+            for (ProviderDay k : providerDays) {
+                acquire(k);
+                held.add(k);
+            }
+            for (LocalDate d : dates) {
+                acquire(d);
+                held.add(d);
+            }
+            return tx.execute(status -> {
+                if (dbLock) {
+                    providerDays.forEach(k -> lockRow(k.providerId(), k.date()));
+                    dates.forEach(d -> lockRow(ROOMS, d));
+                }
+                return work.doInTransaction(status);
+            });
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) release(held.get(i));
+        }
+    }
+
+    private void acquire(Object k) {
+        KeyLock kl = locks.compute(k, (key, v) -> {
+            KeyLock l = v != null ? v : new KeyLock();
+            l.users++;
+            return l;
+        });
+        boolean ok = false;
+        try {
+            ok = kl.lock.tryLock(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!ok) unregister(k);
+        }
+        if (!ok) {
+            throw new IllegalStateException(k instanceof ProviderDay pd
+                    ? "Schedule for provider " + pd.providerId() + " on " + pd.date() + " is busy, please retry"
+                    : "Rooms on " + k + " are busy, please retry");
+        }
+    }
+
+    private void release(Object k) {
+        locks.get(k).lock.unlock();
+        unregister(k);
+    }
+
+    private void unregister(Object k) {
+        locks.computeIfPresent(k, (key, l) -> --l.users == 0 ? null : l);
+    }
+
+    // Insert-or-touch takes an exclusive row lock held until commit
+    private void lockRow(long providerId, LocalDate date) {
+        jdbc.update("""
+                INSERT INTO booking_locks (provider_id, lock_date, locked_at) VALUES (?, ?, ?)
+                ON DUPLICATE KEY UPDATE locked_at = VALUES(locked_at)
+                """, providerId, date, LocalDateTime.now());
+    }
+}
@@ -1,5 +1,6 @@
 package com.main.ehr.service;
 
+import com.main.ehr.config.datasource.ClinicAccess;
 import com.main.ehr.model.User;
 import com.main.ehr.repository.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -8,6 +9,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -23,10 +25,14 @@ public class CustomUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        authorities.add(new SimpleGrantedAuthority(user.getRole()));
+        // Allowed clinics travel with the login, so the clinic filter needs no lookup per request
+        user.getClinics().forEach(c -> authorities.add(new SimpleGrantedAuthority(ClinicAccess.AUTHORITY_PREFIX + c)));
         return new org.springframework.security.core.userdetails.User(
                 user.getUsername(),
                 user.getPassword(),
-                List.of(new SimpleGrantedAuthority(user.getRole()))
+                authorities
         );
     }
 }
@@ -0,0 +1,205 @@
+package com.main.ehr.service;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.event.AppointmentChangedEvent;
+import com.main.ehr.event.AppointmentSnapshot;
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.ProviderDailyStat;
+import com.main.ehr.repository.AppointmentSeriesRepository;
+import com.main.ehr.repository.ProviderDailyStatRepository;
+import com.main.ehr.service.archive.AppointmentArchiveHorizon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Keeps provider_daily_stats in step with the appointments table.
+ *
+ * Every appointment write publishes an AppointmentChangedEvent inside its
+ * transaction; this listener moves one count (and its minutes) out of the
+ * old bucket and into the new one with an upsert, so the summary commits
+ * or rolls back together with the appointment. rebuild() recomputes a date
+ * range from scratch for backfill or repair, from appointments_archive too
+ * when the range reaches it (archiving moves rows without events, so the
+ * counts of archived days stay as they were).
+ */
+@Service
+public class DailyScheduleStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(DailyScheduleStatsService.class);
+
+    private static final String UPSERT = """
+            INSERT INTO provider_daily_stats
+                (provider_id, stat_date, status, appointment_type, appointment_count, booked_minutes)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                appointment_count = appointment_count + VALUES(appointment_count),
+                booked_minutes = booked_minutes + VALUES(booked_minutes)
+            """;
+
+    private static final String DELETE_RANGE =
+            "DELETE FROM provider_daily_stats WHERE stat_date BETWEEN ? AND ?";
+
+    // %s: RANGE_ROWS of appointments, or of both tables joined by UNION ALL
+    private static final String REBUILD_RANGE = """
+            INSERT INTO provider_daily_stats
+                (provider_id, stat_date, status, appointment_type, appointment_count, booked_minutes)
+            SELECT provider_id, date, COALESCE(status, ''), COALESCE(appointment_type, ''),
+                   COUNT(*),
+                   SUM(CASE WHEN time_start IS NOT NULL AND time_end > time_start
+                            THEN TIMESTAMPDIFF(MINUTE, time_start, time_end)
+                            ELSE GREATEST(duration_minutes, 0) END)
+            FROM (%s) a
+            GROUP BY provider_id, date, COALESCE(status, ''), COALESCE(appointment_type, '')
+            """;
+
+    private static final String RANGE_ROWS = """
+            SELECT provider_id, date, status, appointment_type, time_start, time_end, duration_minutes
+            FROM %s
+            WHERE date BETWEEN ? AND ? AND provider_id IS NOT NULL""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProviderDailyStatRepository statRepository;
+    private final AppointmentSeriesRepository seriesRepository;
+    private final AppointmentSeriesService seriesService;
+    private final AppointmentArchiveHorizon archiveHorizon;
+    private final ShardDirectory shardDirectory;
+    private final TransactionTemplate tx;
+    private final int rebuildDays;
+
+    public DailyScheduleStatsService(JdbcTemplate jdbcTemplate,
+                                     ProviderDailyStatRepository statRepository,
+                                     AppointmentSeriesRepository seriesRepository,
+                                     AppointmentSeriesService seriesService,
+                                     AppointmentArchiveHorizon archiveHorizon,
+                                     ShardDirectory shardDirectory,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${ehr.reports.rebuild-days:35}") int rebuildDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statRepository = statRepository;
+        this.seriesRepository = seriesRepository;
+        this.seriesService = seriesService;
+        this.archiveHorizon = archiveHorizon;
+        this.shardDirectory = shardDirectory;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.rebuildDays = rebuildDays;
+    }
+
+    // ============================
+    // Incremental maintenance
+    // ============================
+
+    @EventListener
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        AppointmentSnapshot before = event.before();
+        AppointmentSnapshot after = event.after();
+
+        if (before != null && after != null && sameBucket(before, after)) return;
+
+        if (before != null) add(before, -1);
+        if (after != null) add(after, 1);
+    }
+
+    private void add(AppointmentSnapshot a, int sign) {
+        if (a.providerId() == null || a.date() == null) return;
+        jdbcTemplate.update(UPSERT,
+                a.providerId(), a.date(), nz(a.status()), nz(a.appointmentType()),
+                sign, (long) sign * a.bookedMinutes());
+    }
+
+    private static boolean sameBucket(AppointmentSnapshot x, AppointmentSnapshot y) {
+        return Objects.equals(x.providerId(), y.providerId())
+                && Objects.equals(x.date(), y.date())
+                && Objects.equals(nz(x.status()), nz(y.status()))
+                && Objects.equals(nz(x.appointmentType()), nz(y.appointmentType()))
+                && x.bookedMinutes() == y.bookedMinutes();
+    }
+
+    // ============================
+    // Backfill / repair
+    // ============================
+
+    // Delete and re-insert in one transaction (also when called from scheduledRebuild on this
+    // instance): readers never see the range empty, and concurrent upserts wait on its row locks
+    public int rebuild(LocalDate start, LocalDate end) {
+        boolean archived = archiveHorizon.reaches(start);
+        String sql = REBUILD_RANGE.formatted(archived
+                ? RANGE_ROWS.formatted("appointments") + " UNION ALL " + RANGE_ROWS.formatted("appointments_archive")
+                : RANGE_ROWS.formatted("appointments"));
+        Object[] args = archived ? new Object[]{start, end, start, end} : new Object[]{start, end};
+        return tx.execute(status -> {
+            int removed = jdbcTemplate.update(DELETE_RANGE, start, end);
+            int inserted = jdbcTemplate.update(sql, args);
+            log.info("Rebuilt provider_daily_stats {}..{}: {} rows removed, {} inserted", start, end, removed, inserted);
+            return inserted;
+        });
+    }
+
+    // Nightly repair of the recent window on every shard; disabled unless ehr.reports.rebuild-cron is set
+    @Scheduled(cron = "${ehr.reports.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        LocalDate today = LocalDate.now();
+        for (String shard : shardDirectory.shards()) {
+            try {
+                ClinicContext.callOnShard(shard, () -> rebuild(today.minusDays(rebuildDays), today.plusDays(rebuildDays)));
+            } catch (RuntimeException e) {
+                log.error("Rebuilding provider_daily_stats on shard {} failed", shard, e);
+            }
+        }
+    }
+
+    // ============================
+    // Reads
+    // ============================
+
+    /**
+     * Stored aggregates for the range plus the contribution of recurring
+     * series, whose occurrences are not rows and are expanded on the fly.
+     */
+    @Transactional(readOnly = true)
+    public List<ProviderDailyStat> findRange(Long providerId, LocalDate start, LocalDate end) {
+        Map<String, ProviderDailyStat> merged = new LinkedHashMap<>();
+        for (ProviderDailyStat s : statRepository.findRange(providerId, start, end)) {
+            merged.put(key(s.getProviderId(), s.getStatDate(), s.getStatus(), s.getAppointmentType()),
+                    new ProviderDailyStat(null, s.getProviderId(), s.getStatDate(), s.getStatus(),
+                            s.getAppointmentType(), s.getAppointmentCount(), s.getBookedMinutes()));
+        }
+
+        var series = providerId != null
+                ? seriesRepository.findActiveForProvider(providerId, start, end)
+                : seriesRepository.findActiveBetween(start, end);
+
+        for (Appointment occ : seriesService.expand(series, start, end)) {
+            AppointmentSnapshot a = AppointmentSnapshot.of(occ);
+            ProviderDailyStat s = merged.computeIfAbsent(
+                    key(a.providerId(), a.date(), nz(a.status()), nz(a.appointmentType())),
+                    k -> new ProviderDailyStat(null, a.providerId(), a.date(), nz(a.status()),
+                            nz(a.appointmentType()), 0, 0));
+            s.setAppointmentCount(s.getAppointmentCount() + 1);
+            s.setBookedMinutes(s.getBookedMinutes() + a.bookedMinutes());
+        }
+
+        List<ProviderDailyStat> out = new ArrayList<>(merged.values());
+        out.sort(Comparator.comparing(ProviderDailyStat::getProviderId).thenComparing(ProviderDailyStat::getStatDate));
+        return out;
+    }
+
+    private static String key(Long providerId, LocalDate date, String status, String type) {
+        return providerId + "|" + date + "|" + status + "|" + type;
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+}
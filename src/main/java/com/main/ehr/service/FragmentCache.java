@@ -0,0 +1,68 @@
+package com.main.ehr.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds pre-rendered fragment templates. The view fragments carry no
+ * per-request data, so each one is rendered once (plain + gzip) and
+ * served from memory afterwards.
+ */
+@Service
+public class FragmentCache {
+
+    public record RenderedFragment(byte[] body, byte[] gzipBody, String etag) {}
+
+    private final ITemplateEngine templateEngine;
+    private final boolean cacheEnabled;
+    private final Map<String, RenderedFragment> rendered = new ConcurrentHashMap<>();
+
+    public FragmentCache(ITemplateEngine templateEngine,
+                         @Value("${spring.thymeleaf.cache:true}") boolean cacheEnabled) {
+        this.templateEngine = templateEngine;
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    /**
+     * Returns the "content" fragment of the given template, rendering it on
+     * first use. With spring.thymeleaf.cache=false (template editing) every
+     * call re-renders.
+     */
+    public RenderedFragment get(String template) {
+        if (!cacheEnabled) return render(template);
+        return rendered.computeIfAbsent(template, this::render);
+    }
+
+    public void evictAll() {
+        rendered.clear();
+    }
+
+    private RenderedFragment render(String template) {
+        String html = templateEngine.process(template, Set.of("content"), new Context());
+        byte[] body = html.getBytes(StandardCharsets.UTF_8);
+        String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        return new RenderedFragment(body, gzip(body), etag);
+    }
+
+    private static byte[] gzip(byte[] raw) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(raw.length / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+            out.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buf.toByteArray();
+    }
+}
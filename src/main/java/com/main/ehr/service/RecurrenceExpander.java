@@ -0,0 +1,95 @@
+package com.main.ehr.service;
+
+import com.main.ehr.model.AppointmentSeries;
+import com.main.ehr.model.RecurrenceFrequency;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pure date arithmetic for recurrence rules. Expansion jumps straight to the
+ * first occurrence inside the requested window, so the cost is proportional
+ * to the occurrences returned, not to how long the series has been running.
+ */
+public final class RecurrenceExpander {
+
+    private RecurrenceExpander() {}
+
+    /**
+     * Occurrence dates of the rule within [from, to], inclusive. Excluded
+     * dates and overrides are not applied here.
+     */
+    public static List<LocalDate> occurrences(AppointmentSeries s, LocalDate from, LocalDate to) {
+        LocalDate lo = from.isBefore(s.getStartDate()) ? s.getStartDate() : from;
+        LocalDate hi = s.getUntilDate() != null && s.getUntilDate().isBefore(to) ? s.getUntilDate() : to;
+
+        List<LocalDate> out = new ArrayList<>();
+        if (lo.isAfter(hi)) return out;
+
+        int interval = Math.max(1, s.getInterval());
+
+        if (s.getFrequency() == RecurrenceFrequency.DAILY) {
+            long offset = ChronoUnit.DAYS.between(s.getStartDate(), lo);
+            long k = (offset + interval - 1) / interval;
+            for (LocalDate d = s.getStartDate().plusDays(k * interval); !d.isAfter(hi); d = d.plusDays(interval)) {
+                out.add(d);
+            }
+            return out;
+        }
+
+        // WEEKLY: walk only the weeks that fall in the window, every `interval` weeks from the anchor week
+        int mask = effectiveMask(s);
+        LocalDate anchorWeek = weekStart(s.getStartDate());
+        long w = ChronoUnit.WEEKS.between(anchorWeek, weekStart(lo));
+        if (w % interval != 0) w += interval - (w % interval);
+
+        for (LocalDate week = anchorWeek.plusWeeks(w); !week.isAfter(hi); week = week.plusWeeks(interval)) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if ((mask & AppointmentSeries.bit(day)) == 0) continue;
+                LocalDate d = week.plusDays(day.getValue() - 1L);
+                if (!d.isBefore(lo) && !d.isAfter(hi)) out.add(d);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Date of the n-th occurrence (1-based) counted from the series start.
+     * Used once when a series is created with an occurrence count.
+     */
+    public static LocalDate nthOccurrence(AppointmentSeries s, int n) {
+        if (n < 1) throw new IllegalArgumentException("Occurrence count must be at least 1");
+        int interval = Math.max(1, s.getInterval());
+
+        if (s.getFrequency() == RecurrenceFrequency.DAILY) {
+            return s.getStartDate().plusDays((long) (n - 1) * interval);
+        }
+
+        int mask = effectiveMask(s);
+        int seen = 0;
+        for (LocalDate week = weekStart(s.getStartDate()); ; week = week.plusWeeks(interval)) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if ((mask & AppointmentSeries.bit(day)) == 0) continue;
+                LocalDate d = week.plusDays(day.getValue() - 1L);
+                if (d.isBefore(s.getStartDate())) continue;
+                if (++seen == n) return d;
+            }
+        }
+    }
+
+    // ---------- helpers ----------
+
+    // A weekly rule with no days selected repeats on the start date's weekday
+    private static int effectiveMask(AppointmentSeries s) {
+        int mask = s.getDaysOfWeekMask();
+        return mask != 0 ? mask : AppointmentSeries.bit(s.getStartDate().getDayOfWeek());
+    }
+
+    private static LocalDate weekStart(LocalDate d) {
+        return d.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
@@ -0,0 +1,114 @@
+package com.main.ehr.service;
+
+import com.main.ehr.event.AppointmentSnapshot;
+import com.main.ehr.model.Appointment;
+import com.main.ehr.repository.AppointmentRepository;
+import com.main.ehr.repository.AppointmentSeriesRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Read side of the schedule: stored appointments plus recurring-series
+ * occurrences generated for the requested window only.
+ */
+@Service
+public class ScheduleService {
+
+    private static final Comparator<Appointment> BY_START =
+            Comparator.comparing(Appointment::getDate)
+                    .thenComparing(Appointment::getTimeStart, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentSeriesRepository seriesRepository;
+    private final AppointmentSeriesService seriesService;
+
+    public ScheduleService(AppointmentRepository appointmentRepository,
+                           AppointmentSeriesRepository seriesRepository,
+                           AppointmentSeriesService seriesService) {
+        this.appointmentRepository = appointmentRepository;
+        this.seriesRepository = seriesRepository;
+        this.seriesService = seriesService;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Appointment> findProviderSchedule(Long providerId, LocalDate start, LocalDate end) {
+        List<Appointment> out = new ArrayList<>(appointmentRepository.findByProviderIdAndDateBetween(providerId, start, end));
+        out.addAll(findSeriesOccurrences(providerId, start, end));
+        out.sort(BY_START);
+        return out;
+    }
+
+    // Generated occurrences only, for callers that read the stored rows themselves
+    @Transactional(readOnly = true)
+    public List<Appointment> findSeriesOccurrences(Long providerId, LocalDate start, LocalDate end) {
+        List<Appointment> out = new ArrayList<>(
+                seriesService.expand(seriesRepository.findActiveForProvider(providerId, start, end), start, end));
+        out.sort(BY_START);
+        return out;
+    }
+
+    /**
+     * Appointments (stored or generated) for the provider that overlap the
+     * given slot. Cancelled entries and excludeId never count as conflicts.
+     */
+    @Transactional(readOnly = true)
+    public List<Appointment> findOverlapping(Long providerId, LocalDate date,
+                                             LocalTime timeStart, LocalTime timeEnd, Long excludeId) {
+        return findProviderSchedule(providerId, date, date).stream()
+                .filter(a -> excludeId == null || !Objects.equals(a.getId(), excludeId))
+                .filter(a -> overlaps(a, timeStart, timeEnd))
+                .toList();
+    }
+
+    /**
+     * Fails with IllegalStateException when a would take time the provider
+     * already has booked. before is the state a is changing from (null for a
+     * new appointment); an edit that keeps its slot is not re-checked. Run
+     * under the provider-day booking lock so the answer still holds at commit.
+     */
+    @Transactional(readOnly = true)
+    public void requireFree(Appointment a, AppointmentSnapshot before) {
+        if (!occupies(a) || (before != null && sameSlot(before, a))) return;
+        List<Appointment> clash = findOverlapping(a.getProvider().getId(), a.getDate(),
+                a.getTimeStart(), a.getTimeEnd(), a.getId());
+        if (!clash.isEmpty()) throw new IllegalStateException(clashMessage(clash.get(0)));
+    }
+
+    // Whether a takes the provider's time at all
+    public static boolean occupies(Appointment a) {
+        return !isCancelled(a) && a.getProvider() != null && a.getDate() != null
+                && a.getTimeStart() != null && a.getTimeEnd() != null;
+    }
+
+    public static boolean overlaps(Appointment a, LocalTime timeStart, LocalTime timeEnd) {
+        return occupies(a) && a.getTimeStart().isBefore(timeEnd) && timeStart.isBefore(a.getTimeEnd());
+    }
+
+    public static boolean sameSlot(AppointmentSnapshot before, Appointment a) {
+        return Objects.equals(before.providerId(), a.getProvider() != null ? a.getProvider().getId() : null)
+                && Objects.equals(before.date(), a.getDate())
+                && Objects.equals(before.timeStart(), a.getTimeStart())
+                && Objects.equals(before.timeEnd(), a.getTimeEnd())
+                && cancelled(before.status()) == isCancelled(a);
+    }
+
+    public static String clashMessage(Appointment other) {
+        return "Provider already has an appointment from " + other.getTimeStart() + " to "
+                + other.getTimeEnd() + " on " + other.getDate();
+    }
+
+    public static boolean isCancelled(Appointment a) {
+        return cancelled(a.getStatus());
+    }
+
+    private static boolean cancelled(String status) {
+        return status != null && status.toLowerCase().startsWith("cancel");
+    }
+}
@@ -0,0 +1,479 @@
+package com.main.ehr.service.analytics;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.event.AppointmentChangedEvent;
+import com.main.ehr.event.AppointmentSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Analytics mode: keeps a columnar in-memory copy of the appointments table
+ * (AppointmentColumns) and answers utilization, no-show and lead-time
+ * questions with parallel scans, so the reports never run GROUP BYs over
+ * years of rows on the OLTP database.
+ *
+ * The first refresh streams the whole table, then appointments_archive, in
+ * id-ordered pages; later refreshes only re-read rows whose updated_at
+ * moved past the watermark (archiving moves rows without changing them).
+ * Deletes leave no row to re-read, so committed deletes are queued from
+ * AppointmentChangedEvent and applied on the next refresh; deletes made by
+ * other nodes are picked up by the periodic full reload.
+ *
+ * Each shard has its own copy (ids repeat across shards); queries read the
+ * copy of the caller's shard.
+ */
+@Service
+@ConditionalOnProperty(name = "ehr.analytics.enabled", havingValue = "true")
+public class AppointmentAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentAnalyticsService.class);
+
+    // Lead times longer than this land in the last histogram bin
+    public static final int MAX_LEAD_DAYS = 365;
+
+    private static final String COLUMNS = """
+            SELECT id, provider_id, date, time_start, time_end, duration_minutes,
+                   appointment_type, status, created_at
+            """;
+    private static final String SELECT_ROWS = COLUMNS + " FROM appointments";
+
+    private static final String PAGE = SELECT_ROWS + " WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String ARCHIVE_PAGE = COLUMNS + " FROM appointments_archive WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String CHANGED_SINCE = SELECT_ROWS + " WHERE updated_at >= ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardDirectory shardDirectory;
+    private final ForkJoinPool pool;
+    private final int pageSize;
+    private final Duration overlap;
+    private final int providerDayMinutes;
+
+    private final Map<String, ShardCopy> copies = new LinkedHashMap<>();
+
+    public AppointmentAnalyticsService(JdbcTemplate jdbcTemplate,
+                                       ShardDirectory shardDirectory,
+                                       @Value("${ehr.analytics.parallelism:0}") int parallelism,
+                                       @Value("${ehr.analytics.page-size:10000}") int pageSize,
+                                       @Value("${ehr.analytics.refresh-overlap:2m}") Duration overlap,
+                                       @Value("${ehr.analytics.provider-day-minutes:480}") int providerDayMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardDirectory = shardDirectory;
+        shardDirectory.shards().forEach(shard -> copies.put(shard, new ShardCopy()));
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.pageSize = pageSize;
+        this.overlap = overlap;
+        this.providerDayMinutes = providerDayMinutes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // ============================
+    // Loading / refresh
+    // ============================
+
+    @Scheduled(fixedDelayString = "${ehr.analytics.refresh-interval:PT60S}", initialDelayString = "${ehr.analytics.initial-delay:PT5S}")
+    public void refresh() {
+        forEachShard((shard, copy) -> {
+            if (copy.watermark == null) {
+                reload(shard, copy);
+            } else {
+                refreshChanged(shard, copy);
+            }
+        });
+    }
+
+    // Full reload also drops tombstones and catches deletes made by other nodes
+    @Scheduled(cron = "${ehr.analytics.full-reload-cron:-}")
+    public void reload() {
+        forEachShard(this::reload);
+    }
+
+    // One shard's failure leaves its copy as it was and does not hold up the others
+    private void forEachShard(java.util.function.BiConsumer<String, ShardCopy> work) {
+        copies.forEach((shard, copy) -> {
+            try {
+                ClinicContext.callOnShard(shard, () -> {
+                    work.accept(shard, copy);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.error("Analytics refresh of shard {} failed", shard, e);
+            }
+        });
+    }
+
+    private void reload(String shard, ShardCopy copy) {
+        copy.lock.lock();
+        try {
+            long t0 = System.nanoTime();
+            LocalDateTime startedAt = LocalDateTime.now();
+            AppointmentColumns.Builder b = new AppointmentColumns.Builder(Math.max(copy.columns.size(), pageSize));
+
+            // A row archived between the two scans is read twice; upsert keeps one
+            loadPages(PAGE, b);
+            loadPages(ARCHIVE_PAGE, b);
+
+            copy.columns = b.build();
+            copy.watermark = startedAt;
+            finished(shard, copy, t0, "full load", b.size());
+        } finally {
+            copy.lock.unlock();
+        }
+    }
+
+    private void loadPages(String sql, AppointmentColumns.Builder b) {
+        long lastId = 0;
+        while (true) {
+            List<Row> page = jdbcTemplate.query(sql, (rs, n) -> row(rs), lastId, pageSize);
+            page.forEach(r -> r.applyTo(b));
+            if (page.size() < pageSize) break;
+            lastId = page.get(page.size() - 1).id;
+        }
+    }
+
+    private void refreshChanged(String shard, ShardCopy copy) {
+        copy.lock.lock();
+        try {
+            long t0 = System.nanoTime();
+            LocalDateTime startedAt = LocalDateTime.now();
+
+            // Re-read a little before the watermark: a row stamped just before
+            // the last refresh may have committed just after it
+            List<Row> changed = jdbcTemplate.query(CHANGED_SINCE, (rs, n) -> row(rs),
+                    Timestamp.valueOf(copy.watermark.minus(overlap)));
+            List<Long> deletes = new ArrayList<>(copy.pendingDeletes);
+
+            if (!changed.isEmpty() || !deletes.isEmpty()) {
+                AppointmentColumns.Builder b = copy.columns.toBuilder(changed.size());
+                changed.forEach(r -> r.applyTo(b));
+                deletes.forEach(b::delete);
+                copy.columns = b.build();
+                deletes.forEach(copy.pendingDeletes::remove);
+            }
+
+            copy.watermark = startedAt;
+            finished(shard, copy, t0, "refresh (" + changed.size() + " changed, " + deletes.size() + " deleted)",
+                    copy.columns.size());
+        } finally {
+            copy.lock.unlock();
+        }
+    }
+
+    // Runs on the committing thread, so the current shard is the one the delete hit
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (event.type() == AppointmentChangedEvent.Type.DELETED) {
+            copy().pendingDeletes.add(event.appointmentId());
+        }
+    }
+
+    private void finished(String shard, ShardCopy copy, long t0, String what, int rows) {
+        copy.lastRefreshMillis = (System.nanoTime() - t0) / 1_000_000;
+        copy.lastRefreshAt = Instant.now();
+        log.debug("Analytics {} of shard {}: {} rows in {} ms", what, shard, rows, copy.lastRefreshMillis);
+    }
+
+    public Map<String, Object> status() {
+        String shard = shardDirectory.currentShard();
+        ShardCopy copy = copy();
+        AppointmentColumns c = copy.columns;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("shard", shard);
+        m.put("loaded", copy.watermark != null);
+        m.put("rows", c.size());
+        m.put("providers", c.providerCount());
+        m.put("estimatedBytes", c.estimatedBytes());
+        m.put("watermark", copy.watermark);
+        m.put("lastRefreshAt", copy.lastRefreshAt);
+        m.put("lastRefreshMillis", copy.lastRefreshMillis);
+        m.put("pendingDeletes", copy.pendingDeletes.size());
+        m.put("parallelism", pool.getParallelism());
+        return m;
+    }
+
+    private ShardCopy copy() {
+        return copies.get(shardDirectory.currentShard());
+    }
+
+    // One shard's columnar copy and its refresh state
+    private static final class ShardCopy {
+        final ReentrantLock lock = new ReentrantLock();
+        final Set<Long> pendingDeletes = ConcurrentHashMap.newKeySet();
+        volatile AppointmentColumns columns = AppointmentColumns.empty();
+        volatile LocalDateTime watermark;
+        volatile Instant lastRefreshAt;
+        volatile long lastRefreshMillis;
+    }
+
+    // ============================
+    // Queries
+    // ============================
+
+    public record ProviderUtilization(Long providerId, int appointments, long bookedMinutes,
+                                      int workingDays, long capacityMinutes, double utilization) {}
+
+    public record NoShowRate(String appointmentType, int attended, int noShows, double noShowRate) {}
+
+    public record LeadTimeDistribution(int count, double meanDays, int p50Days, int p90Days, int p99Days,
+                                       Map<String, Integer> buckets) {}
+
+    /**
+     * Booked (non-cancelled) minutes per provider over the days on which the
+     * provider had at least one booking, against provider-day-minutes per day.
+     */
+    public List<ProviderUtilization> utilization(LocalDate start, LocalDate end, Long providerId) {
+        AppointmentColumns c = copy().columns;
+        Filter f = Filter.of(c, start, end, providerId, null);
+        if (f == null) return List.of();
+
+        boolean[] cancelled = classify(c.statusNames, AppointmentAnalyticsService::isCancelledStatus);
+        int providers = c.providerCount();
+        int span = (int) (f.lastDay - f.firstDay + 1);
+
+        ProviderTotals totals = pool.invoke(new ColumnScan<>((from, to) -> {
+            ProviderTotals acc = new ProviderTotals(providers);
+            for (int i = from; i < to; i++) {
+                if (!f.matches(c, i) || cancelled[c.statuses[i]]) continue;
+                int p = c.providers[i];
+                acc.appointments[p]++;
+                acc.minutes[p] += c.minutes[i];
+                acc.days(p, span).set(c.days[i] - f.firstDay);
+            }
+            return acc;
+        }, ProviderTotals::merge, 0, c.size));
+
+        List<ProviderUtilization> out = new ArrayList<>();
+        for (int p = 0; p < providers; p++) {
+            if (totals.appointments[p] == 0 || c.providerIds.get(p) == null) continue;
+            int days = totals.days[p].cardinality();
+            long capacity = (long) days * providerDayMinutes;
+            out.add(new ProviderUtilization(c.providerIds.get(p), totals.appointments[p], totals.minutes[p],
+                    days, capacity, capacity == 0 ? 0.0 : (double) totals.minutes[p] / capacity));
+        }
+        out.sort(Comparator.comparing(ProviderUtilization::providerId));
+        return out;
+    }
+
+    /**
+     * No-show rate per appointment type among past, non-cancelled
+     * appointments (future ones have no outcome yet).
+     */
+    public List<NoShowRate> noShowRates(LocalDate start, LocalDate end, Long providerId) {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        AppointmentColumns c = copy().columns;
+        Filter f = Filter.of(c, start, end.isAfter(yesterday) ? yesterday : end, providerId, null);
+        if (f == null) return List.of();
+
+        boolean[] cancelled = classify(c.statusNames, AppointmentAnalyticsService::isCancelledStatus);
+        boolean[] noShow = classify(c.statusNames, AppointmentAnalyticsService::isNoShowStatus);
+        int typeCount = c.typeNames.size();
+
+        int[][] counts = pool.invoke(new ColumnScan<>((from, to) -> {
+            int[][] acc = new int[2][typeCount];  // [0] = outcome known, [1] = no-shows
+            for (int i = from; i < to; i++) {
+                if (!f.matches(c, i) || cancelled[c.statuses[i]]) continue;
+                acc[0][c.types[i]]++;
+                if (noShow[c.statuses[i]]) acc[1][c.types[i]]++;
+            }
+            return acc;
+        }, (a, b) -> {
+            for (int t = 0; t < typeCount; t++) {
+                a[0][t] += b[0][t];
+                a[1][t] += b[1][t];
+            }
+            return a;
+        }, 0, c.size));
+
+        List<NoShowRate> out = new ArrayList<>();
+        for (int t = 0; t < typeCount; t++) {
+            int total = counts[0][t];
+            if (total == 0) continue;
+            int missed = counts[1][t];
+            out.add(new NoShowRate(label(c.typeNames.get(t)), total - missed, missed, (double) missed / total));
+        }
+        out.sort(Comparator.comparing(NoShowRate::noShowRate).reversed());
+        return out;
+    }
+
+    /** Days between booking and appointment date for appointments in range. */
+    public LeadTimeDistribution leadTimes(LocalDate start, LocalDate end, Long providerId, String appointmentType) {
+        AppointmentColumns c = copy().columns;
+        Filter f = Filter.of(c, start, end, providerId, appointmentType);
+        if (f == null) return summarize(new long[MAX_LEAD_DAYS + 1]);
+
+        long[] histogram = pool.invoke(new ColumnScan<>((from, to) -> {
+            long[] acc = new long[MAX_LEAD_DAYS + 1];
+            for (int i = from; i < to; i++) {
+                if (!f.matches(c, i) || c.leadDays[i] == AppointmentColumns.UNKNOWN_LEAD) continue;
+                acc[Math.min(c.leadDays[i], MAX_LEAD_DAYS)]++;
+            }
+            return acc;
+        }, (a, b) -> {
+            for (int d = 0; d < a.length; d++) a[d] += b[d];
+            return a;
+        }, 0, c.size));
+
+        return summarize(histogram);
+    }
+
+    // ---------- helpers ----------
+
+    private static LeadTimeDistribution summarize(long[] histogram) {
+        long count = 0, sum = 0;
+        for (int d = 0; d < histogram.length; d++) {
+            count += histogram[d];
+            sum += histogram[d] * d;
+        }
+
+        Map<String, Integer> buckets = new LinkedHashMap<>();
+        int[][] ranges = {{0, 0}, {1, 1}, {2, 3}, {4, 7}, {8, 14}, {15, 30}, {31, 60}, {61, 90}, {91, MAX_LEAD_DAYS}};
+        for (int[] r : ranges) {
+            long n = 0;
+            for (int d = r[0]; d <= r[1]; d++) n += histogram[d];
+            String name = r[0] == r[1] ? String.valueOf(r[0]) : r[1] == MAX_LEAD_DAYS ? r[0] + "+" : r[0] + "-" + r[1];
+            buckets.put(name, (int) n);
+        }
+
+        return new LeadTimeDistribution((int) count, count == 0 ? 0.0 : (double) sum / count,
+                percentile(histogram, count, 0.50), percentile(histogram, count, 0.90),
+                percentile(histogram, count, 0.99), buckets);
+    }
+
+    private static int percentile(long[] histogram, long count, double q) {
+        if (count == 0) return 0;
+        long target = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int d = 0; d < histogram.length; d++) {
+            seen += histogram[d];
+            if (seen >= target) return d;
+        }
+        return histogram.length - 1;
+    }
+
+    private static boolean[] classify(List<String> names, java.util.function.Predicate<String> test) {
+        boolean[] out = new boolean[names.size()];
+        for (int i = 0; i < out.length; i++) out[i] = test.test(names.get(i));
+        return out;
+    }
+
+    static boolean isCancelledStatus(String status) {
+        return status.toLowerCase().startsWith("cancel");
+    }
+
+    // "No-show", "No Show", "noshow"
+    static boolean isNoShowStatus(String status) {
+        return status.toLowerCase().replaceAll("[^a-z]", "").equals("noshow");
+    }
+
+    private static String label(String value) {
+        return value.isEmpty() ? "unspecified" : value;
+    }
+
+    private static Row row(ResultSet rs) throws SQLException {
+        LocalDate date = rs.getObject("date", LocalDate.class);
+        LocalDateTime createdAt = rs.getObject("created_at", LocalDateTime.class);
+
+        int lead = AppointmentColumns.UNKNOWN_LEAD;
+        if (date != null && createdAt != null) {
+            long days = ChronoUnit.DAYS.between(createdAt.toLocalDate(), date);
+            // Back-dated entries (typed in after the visit) have no meaningful lead time
+            if (days >= 0) lead = (int) Math.min(days, Integer.MAX_VALUE);
+        }
+
+        long provider = rs.getLong("provider_id");
+        return new Row(
+                rs.getLong("id"),
+                date,
+                rs.wasNull() ? null : provider,
+                rs.getString("status"),
+                rs.getString("appointment_type"),
+                AppointmentSnapshot.bookedMinutes(rs.getObject("time_start", LocalTime.class),
+                        rs.getObject("time_end", LocalTime.class), rs.getInt("duration_minutes")),
+                lead
+        );
+    }
+
+    private record Row(long id, LocalDate date, Long providerId, String status, String type,
+                       int minutes, int lead) {
+        void applyTo(AppointmentColumns.Builder b) {
+            if (date == null) {
+                b.delete(id);
+            } else {
+                b.upsert(id, date.toEpochDay(), providerId, status, type, minutes, lead);
+            }
+        }
+    }
+
+    // Query filters resolved to column codes once, before the scan
+    private record Filter(int firstDay, int lastDay, int provider, int type) {
+
+        static Filter of(AppointmentColumns c, LocalDate start, LocalDate end, Long providerId, String type) {
+            if (end.isBefore(start)) return null;
+            int provider = -1, typeCode = -1;
+            if (providerId != null) {
+                provider = c.providerIds.indexOf(providerId);
+                if (provider < 0) return null;
+            }
+            if (type != null) {
+                typeCode = c.typeNames.indexOf(type.trim());
+                if (typeCode < 0) return null;
+            }
+            return new Filter((int) start.toEpochDay(), (int) end.toEpochDay(), provider, typeCode);
+        }
+
+        boolean matches(AppointmentColumns c, int i) {
+            int day = c.days[i];
+            return day >= firstDay && day <= lastDay
+                    && (provider < 0 || c.providers[i] == provider)
+                    && (type < 0 || c.types[i] == type);
+        }
+    }
+
+    private static final class ProviderTotals {
+        final int[] appointments;
+        final long[] minutes;
+        final BitSet[] days;
+
+        ProviderTotals(int providers) {
+            appointments = new int[providers];
+            minutes = new long[providers];
+            days = new BitSet[providers];
+        }
+
+        BitSet days(int provider, int span) {
+            if (days[provider] == null) days[provider] = new BitSet(span);
+            return days[provider];
+        }
+
+        static ProviderTotals merge(ProviderTotals a, ProviderTotals b) {
+            for (int p = 0; p < a.appointments.length; p++) {
+                a.appointments[p] += b.appointments[p];
+                a.minutes[p] += b.minutes[p];
+                if (b.days[p] != null) a.days(p, 0).or(b.days[p]);
+            }
+            return a;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.main.ehr.service.analytics;
+
+import java.util.*;
+
+/**
+ * Immutable column-oriented copy of the appointments table for analytics.
+ *
+ * One primitive array per field, rows kept sorted by id. Provider, status
+ * and type are dictionary-encoded; rows deleted since the last full load
+ * keep their slot with day = DELETED, which falls outside every date range.
+ * Changes are applied to a copy via toBuilder() and swapped in whole, so
+ * running scans never see a half-applied refresh.
+ */
+public final class AppointmentColumns {
+
+    public static final int DELETED = Integer.MIN_VALUE;
+    public static final int UNKNOWN_LEAD = -1;
+
+    final int size;
+    final long[] ids;
+    final int[] days;          // LocalDate.toEpochDay()
+    final int[] leadDays;      // booking -> appointment date, UNKNOWN_LEAD if not recorded
+    final short[] minutes;
+    final int[] providers;     // code into providerIds
+    final short[] statuses;    // code into statusNames
+    final short[] types;       // code into typeNames
+
+    final List<Long> providerIds;    // may contain null (appointments without a provider)
+    final List<String> statusNames;
+    final List<String> typeNames;
+
+    private AppointmentColumns(Builder b) {
+        this.size = b.size;
+        this.ids = b.ids;
+        this.days = b.days;
+        this.leadDays = b.leadDays;
+        this.minutes = b.minutes;
+        this.providers = b.providers;
+        this.statuses = b.statuses;
+        this.types = b.types;
+        this.providerIds = Collections.unmodifiableList(new ArrayList<>(b.providerIds.values));
+        this.statusNames = Collections.unmodifiableList(new ArrayList<>(b.statusNames.values));
+        this.typeNames = Collections.unmodifiableList(new ArrayList<>(b.typeNames.values));
+    }
+
+    public static AppointmentColumns empty() {
+        return new Builder(0).build();
+    }
+
+    public int size() { return size; }
+
+    public int providerCount() { return providerIds.size(); }
+
+    // Compact footprint of the column arrays, for the status endpoint
+    public long estimatedBytes() {
+        return (long) ids.length * (8 + 4 + 4 + 2 + 4 + 2 + 2);
+    }
+
+    /** Copy of this snapshot that can take upserts/deletes. */
+    public Builder toBuilder(int extraCapacity) {
+        Builder b = new Builder(size + extraCapacity);
+        System.arraycopy(ids, 0, b.ids, 0, size);
+        System.arraycopy(days, 0, b.days, 0, size);
+        System.arraycopy(leadDays, 0, b.leadDays, 0, size);
+        System.arraycopy(minutes, 0, b.minutes, 0, size);
+        System.arraycopy(providers, 0, b.providers, 0, size);
+        System.arraycopy(statuses, 0, b.statuses, 0, size);
+        System.arraycopy(types, 0, b.types, 0, size);
+        b.size = size;
+        providerIds.forEach(b.providerIds::code);
+        statusNames.forEach(b.statusNames::code);
+        typeNames.forEach(b.typeNames::code);
+        return b;
+    }
+
+    // ============================
+    // Builder
+    // ============================
+
+    public static final class Builder {
+
+        private int size;
+        private long[] ids;
+        private int[] days;
+        private int[] leadDays;
+        private short[] minutes;
+        private int[] providers;
+        private short[] statuses;
+        private short[] types;
+
+        private final Dictionary<Long> providerIds = new Dictionary<>();
+        private final Dictionary<String> statusNames = new Dictionary<>();
+        private final Dictionary<String> typeNames = new Dictionary<>();
+
+        public Builder(int capacity) {
+            allocate(Math.max(16, capacity));
+        }
+
+        public int size() { return size; }
+
+        /**
+         * Inserts or replaces the row with this id. Rows normally arrive in
+         * ascending id order (full load) or are newer than everything loaded
+         * (refresh), so this is an append; late-committed rows with a lower id
+         * are shifted into place.
+         */
+        public void upsert(long id, long epochDay, Long providerId, String status, String type,
+                           int bookedMinutes, int lead) {
+            int row = size > 0 && ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (row < 0) {
+                row = -(row + 1);
+                insertAt(row);
+                ids[row] = id;
+            }
+            days[row] = (int) epochDay;
+            leadDays[row] = lead;
+            minutes[row] = (short) Math.min(Short.MAX_VALUE, Math.max(0, bookedMinutes));
+            providers[row] = providerIds.code(providerId);
+            statuses[row] = shortCode(statusNames.code(status == null ? "" : status.trim()));
+            types[row] = shortCode(typeNames.code(type == null ? "" : type.trim()));
+        }
+
+        public void delete(long id) {
+            int row = Arrays.binarySearch(ids, 0, size, id);
+            if (row >= 0) days[row] = DELETED;
+        }
+
+        public AppointmentColumns build() {
+            return new AppointmentColumns(this);
+        }
+
+        private static short shortCode(int code) {
+            if (code > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct status/type values for analytics columns");
+            }
+            return (short) code;
+        }
+
+        private void insertAt(int row) {
+            if (size == ids.length) grow();
+            int tail = size - row;
+            if (tail > 0) {
+                System.arraycopy(ids, row, ids, row + 1, tail);
+                System.arraycopy(days, row, days, row + 1, tail);
+                System.arraycopy(leadDays, row, leadDays, row + 1, tail);
+                System.arraycopy(minutes, row, minutes, row + 1, tail);
+                System.arraycopy(providers, row, providers, row + 1, tail);
+                System.arraycopy(statuses, row, statuses, row + 1, tail);
+                System.arraycopy(types, row, types, row + 1, tail);
+            }
+            size++;
+        }
+
+        private void grow() {
+            int capacity = ids.length + (ids.length >> 1) + 16;
+            ids = Arrays.copyOf(ids, capacity);
+            days = Arrays.copyOf(days, capacity);
+            leadDays = Arrays.copyOf(leadDays, capacity);
+            minutes = Arrays.copyOf(minutes, capacity);
+            providers = Arrays.copyOf(providers, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+
+        private void allocate(int capacity) {
+            ids = new long[capacity];
+            days = new int[capacity];
+            leadDays = new int[capacity];
+            minutes = new short[capacity];
+            providers = new int[capacity];
+            statuses = new short[capacity];
+            types = new short[capacity];
+        }
+    }
+
+    // Append-only value <-> code mapping
+    private static final class Dictionary<T> {
+        final List<T> values = new ArrayList<>();
+        final Map<T, Integer> codes = new HashMap<>();
+
+        int code(T value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.main.ehr.service.analytics;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Fork-join scan over a row range: splits until a range is small enough,
+ * scans each piece into its own accumulator, then merges pairwise.
+ * Accumulators are never shared between threads, so leaves need no locking.
+ */
+final class ColumnScan<A> extends RecursiveTask<A> {
+
+    static final int LEAF_ROWS = 32_768;
+
+    @FunctionalInterface
+    interface Leaf<A> {
+        A scan(int from, int to);
+    }
+
+    private final Leaf<A> leaf;
+    private final BinaryOperator<A> merge;
+    private final int from;
+    private final int to;
+
+    ColumnScan(Leaf<A> leaf, BinaryOperator<A> merge, int from, int to) {
+        this.leaf = leaf;
+        this.merge = merge;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected A compute() {
+        if (to - from <= LEAF_ROWS) {
+            return leaf.scan(from, to);
+        }
+        int mid = (from + to) >>> 1;
+        ColumnScan<A> left = new ColumnScan<>(leaf, merge, from, mid);
+        left.fork();
+        A right = new ColumnScan<>(leaf, merge, mid, to).compute();
+        return merge.apply(left.join(), right);
+    }
+}
@@ -0,0 +1,55 @@
+package com.main.ehr.service.archive;
+
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.repository.ArchivedAppointmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Where the hot appointments table ends. Appointments dated before
+ * cutoff() are moved to the archive; a read reaches the archive when its
+ * range starts before the cutoff or before the newest archived date (rows
+ * archived under a shorter horizon stay there when the horizon grows).
+ */
+@Component
+public class AppointmentArchiveHorizon {
+
+    private final Period horizon;
+    private final ArchivedAppointmentRepository archive;
+    private final ShardDirectory shardDirectory;
+
+    // Newest archived date per shard; loaded on first use, raised by each run
+    private final Map<String, Optional<LocalDate>> archivedThrough = new ConcurrentHashMap<>();
+
+    public AppointmentArchiveHorizon(@Value("${ehr.appointments.archive.horizon:2y}") Period horizon,
+                                     ArchivedAppointmentRepository archive,
+                                     ShardDirectory shardDirectory) {
+        this.horizon = horizon;
+        this.archive = archive;
+        this.shardDirectory = shardDirectory;
+    }
+
+    public LocalDate cutoff() {
+        return LocalDate.now().minus(horizon);
+    }
+
+    /** Whether a range starting at start may include archived appointments (current shard). */
+    public boolean reaches(LocalDate start) {
+        if (start == null || start.isBefore(cutoff())) return true;
+        LocalDate through = archivedThrough
+                .computeIfAbsent(shardDirectory.currentShard(), s -> Optional.ofNullable(archive.findLatestDate()))
+                .orElse(null);
+        return through != null && !start.isAfter(through);
+    }
+
+    void archived(String shard, LocalDate through) {
+        archivedThrough.merge(shard, Optional.of(through),
+                (old, now) -> old.isPresent() && old.get().isAfter(through) ? old : now);
+    }
+}
@@ -0,0 +1,155 @@
+package com.main.ehr.service.archive;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves appointments dated before the archive horizon from the hot
+ * appointments table to appointments_archive, so the hot table and its
+ * indexes only hold the recent past and the future.
+ *
+ * Each shard is processed in id-ordered chunks; a chunk is copied and
+ * deleted in one transaction, so a row is always in exactly one of the two
+ * tables and an interrupted run simply continues with the next one.
+ * Reads that reach past the horizon go through AppointmentArchiveReads.
+ */
+@Service
+public class AppointmentArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentArchiveService.class);
+
+    private static final String COLUMNS = "id, date, duration_minutes, series_original_date, time_end, time_start, "
+            + "created_at, notes_id, patient_id, provider_id, room_id, series_id, updated_at, version, "
+            + "clinic_id, appointment_type, created_by, reason, status, updated_by";
+
+    public record ShardResult(String shard, int moved, String error) {}
+
+    public record RunStatus(LocalDateTime startedAt, LocalDateTime finishedAt, LocalDate cutoff,
+                            List<ShardResult> shards) {}
+
+    private final AppointmentArchiveHorizon horizon;
+    private final ShardDirectory shardDirectory;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+    private final ExecutorService worker;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile RunStatus lastRun;
+
+    public AppointmentArchiveService(AppointmentArchiveHorizon horizon,
+                                     ShardDirectory shardDirectory,
+                                     JdbcTemplate jdbc,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${ehr.appointments.archive.chunk-size:1000}") int chunkSize) {
+        this.horizon = horizon;
+        this.shardDirectory = shardDirectory;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "appointment-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    @Scheduled(cron = "${ehr.appointments.archive.cron:-}")
+    public void nightly() {
+        start();
+    }
+
+    /** Starts a run in the background; false when one is already running. */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) return false;
+        try {
+            worker.execute(() -> {
+                try {
+                    run();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("running", running.get());
+        out.put("cutoff", horizon.cutoff());
+        out.put("lastRun", lastRun);
+        return out;
+    }
+
+    // ============================
+    // Run
+    // ============================
+
+    private void run() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDate cutoff = horizon.cutoff();
+        List<ShardResult> results = new ArrayList<>();
+
+        for (String shard : shardDirectory.shards()) {
+            int[] moved = {0};
+            String error = null;
+            try {
+                ClinicContext.callOnShard(shard, () -> {
+                    int n;
+                    while ((n = moveChunk(cutoff)) > 0) moved[0] += n;
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.error("Archiving appointments before {} on shard {} failed", cutoff, shard, e);
+                error = String.valueOf(e.getMessage());
+            }
+            if (moved[0] > 0) horizon.archived(shard, cutoff.minusDays(1));
+            log.info("Archived {} appointments before {} on shard {}", moved[0], cutoff, shard);
+            results.add(new ShardResult(shard, moved[0], error));
+        }
+        lastRun = new RunStatus(startedAt, LocalDateTime.now(), cutoff, results);
+    }
+
+    private int moveChunk(LocalDate cutoff) {
+        Integer moved = tx.execute(s -> {
+            List<Long> ids = jdbc.queryForList(
+                    "SELECT id FROM appointments WHERE date < ? ORDER BY id LIMIT ?",
+                    Long.class, cutoff, chunkSize);
+            if (ids.isEmpty()) return 0;
+
+            String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+            List<Object> args = new ArrayList<>(ids.size() + 1);
+            args.add(Timestamp.valueOf(LocalDateTime.now()));
+            args.addAll(ids);
+            jdbc.update("INSERT INTO appointments_archive (" + COLUMNS + ", archived_at) SELECT " + COLUMNS
+                    + ", ? FROM appointments WHERE id IN (" + in + ")", args.toArray());
+            return jdbc.update("DELETE FROM appointments WHERE id IN (" + in + ")", ids.toArray());
+        });
+        return moved != null ? moved : 0;
+    }
+}
@@ -0,0 +1,355 @@
+package com.main.ehr.service.claims;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.model.*;
+import com.main.ehr.repository.AppointmentRepository;
+import com.main.ehr.repository.ClaimBatchCheckpointRepository;
+import com.main.ehr.repository.ClaimBatchRepository;
+import com.main.ehr.repository.ClaimRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Month-end claims generation.
+ *
+ * A batch covers completed appointments in a service-date period that have
+ * no written claim yet. Work is split by primary payer and the payers run in
+ * parallel on a small pool. Each payer streams its appointments in keyset
+ * chunks (patient, insurance and provider fetched in the same query),
+ * validates them, writes the valid ones to a chunk file and records every
+ * claim plus the payer's checkpoint in one transaction. Only one chunk is
+ * ever in memory per payer, and a failed or interrupted batch resumes after
+ * its last committed chunk.
+ *
+ * A batch lives on the shard of the user who started it; its workers and
+ * the final tally are pinned to that shard.
+ */
+@Service
+public class ClaimBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClaimBatchService.class);
+
+    // Shown in place of a payer name for patients without insurance on file
+    public static final String NO_PAYER = "NO-PAYER";
+
+    private final ClaimBatchRepository batchRepository;
+    private final ClaimBatchCheckpointRepository checkpointRepository;
+    private final ClaimRepository claimRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ClaimFileWriter fileWriter;
+    private final TransactionTemplate tx;
+    private final ShardDirectory shardDirectory;
+    private final Path outputDir;
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+    // Batches with workers running in this JVM, as shard:id (ids repeat across shards)
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+    public ClaimBatchService(ClaimBatchRepository batchRepository,
+                             ClaimBatchCheckpointRepository checkpointRepository,
+                             ClaimRepository claimRepository,
+                             AppointmentRepository appointmentRepository,
+                             ClaimFileWriter fileWriter,
+                             TransactionTemplate tx,
+                             ShardDirectory shardDirectory,
+                             @Value("${ehr.claims.output-dir:claims}") String outputDir,
+                             @Value("${ehr.claims.chunk-size:500}") int chunkSize,
+                             @Value("${ehr.claims.parallelism:4}") int parallelism) {
+        this.batchRepository = batchRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.claimRepository = claimRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.fileWriter = fileWriter;
+        this.tx = tx;
+        this.shardDirectory = shardDirectory;
+        this.outputDir = Path.of(outputDir);
+        this.chunkSize = chunkSize;
+
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "claims-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // A batch still RUNNING at startup lost its workers with the last JVM
+    @EventListener(ApplicationReadyEvent.class)
+    public void failOrphanedBatches() {
+        for (String shard : shardDirectory.shards()) {
+            ClinicContext.callOnShard(shard, () -> {
+                for (ClaimBatch b : batchRepository.findByStatus(ClaimBatch.Status.RUNNING)) {
+                    b.setStatus(ClaimBatch.Status.FAILED);
+                    b.setError("Interrupted by shutdown; resume to continue");
+                    batchRepository.save(b);
+                }
+                return null;
+            });
+        }
+    }
+
+    // ============================
+    // Start / resume
+    // ============================
+
+    public synchronized ClaimBatch start(LocalDate periodStart, LocalDate periodEnd) {
+        if (periodEnd.isBefore(periodStart)) {
+            throw new IllegalArgumentException("Period ends before it starts");
+        }
+        if (batchRepository.existsByStatus(ClaimBatch.Status.RUNNING)) {
+            throw new IllegalStateException("A claims batch is already running");
+        }
+
+        ClaimBatch batch = new ClaimBatch();
+        batch.setPeriodStart(periodStart);
+        batch.setPeriodEnd(periodEnd);
+        batch.setStatus(ClaimBatch.Status.RUNNING);
+        batch.setStartedAt(LocalDateTime.now());
+        batch = batchRepository.save(batch);
+
+        launch(shardDirectory.currentShard(), batch);
+        return batch;
+    }
+
+    public synchronized ClaimBatch resume(Long batchId) {
+        ClaimBatch batch = get(batchId);
+        if (batch.getStatus() == ClaimBatch.Status.COMPLETED) {
+            throw new IllegalArgumentException("Batch already completed");
+        }
+        String shard = shardDirectory.currentShard();
+        if (active.contains(shard + ":" + batchId)) {
+            throw new IllegalStateException("Batch is still running");
+        }
+        if (batchRepository.existsByStatus(ClaimBatch.Status.RUNNING)) {
+            throw new IllegalStateException("A claims batch is already running");
+        }
+
+        batch.setStatus(ClaimBatch.Status.RUNNING);
+        batch.setError(null);
+        batch.setFinishedAt(null);
+        batch = batchRepository.save(batch);
+
+        launch(shard, batch);
+        return batch;
+    }
+
+    public ClaimBatch get(Long batchId) {
+        return batchRepository.findById(batchId)
+                .orElseThrow(() -> new NoSuchElementException("Claim batch not found"));
+    }
+
+    public List<ClaimBatchCheckpoint> checkpoints(Long batchId) {
+        return checkpointRepository.findByBatchIdOrderById(batchId);
+    }
+
+    // ============================
+    // Workers
+    // ============================
+
+    // Every step runs pinned to the batch's shard: pool threads carry no clinic
+    private void launch(String shard, ClaimBatch batch) {
+        Long batchId = batch.getId();
+        active.add(shard + ":" + batchId);
+
+        List<ClaimBatchCheckpoint> pending;
+        try {
+            pending = ClinicContext.callOnShard(shard, () -> tx.execute(s -> prepareCheckpoints(batch)));
+        } catch (RuntimeException e) {
+            finish(shard, batchId, e);
+            throw e;
+        }
+
+        CompletableFuture<?>[] payers = pending.stream()
+                .map(cp -> CompletableFuture.runAsync(() -> runPayer(shard, batch, cp.getId()), executor))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(payers).whenComplete((ok, error) -> finish(shard, batchId, error));
+    }
+
+    // One checkpoint per payer with billable work; existing ones are kept on resume
+    private List<ClaimBatchCheckpoint> prepareCheckpoints(ClaimBatch batch) {
+        Map<String, ClaimBatchCheckpoint> byPayer = new LinkedHashMap<>();
+        for (ClaimBatchCheckpoint cp : checkpointRepository.findByBatchIdOrderById(batch.getId())) {
+            byPayer.put(key(cp.getPayerName()), cp);
+        }
+        for (String payer : appointmentRepository.findBillablePayers(batch.getPeriodStart(), batch.getPeriodEnd())) {
+            byPayer.computeIfAbsent(key(payer),
+                    k -> checkpointRepository.save(new ClaimBatchCheckpoint(batch.getId(), payer)));
+        }
+        return byPayer.values().stream().filter(cp -> !cp.isDone()).toList();
+    }
+
+    private void runPayer(String shard, ClaimBatch batch, Long checkpointId) {
+        Boolean more;
+        do {
+            more = ClinicContext.callOnShard(shard, () -> tx.execute(s -> processChunk(shard, batch, checkpointId)));
+        } while (Boolean.TRUE.equals(more));
+    }
+
+    // Returns true while there may be more rows for this payer
+    private boolean processChunk(String shard, ClaimBatch batch, Long checkpointId) {
+        ClaimBatchCheckpoint cp = checkpointRepository.findById(checkpointId).orElseThrow();
+
+        List<Appointment> rows = appointmentRepository.findBillableChunk(cp.getPayerName(),
+                batch.getPeriodStart(), batch.getPeriodEnd(), cp.getLastAppointmentId(),
+                PageRequest.of(0, chunkSize));
+        if (rows.isEmpty()) {
+            cp.setDone(true);
+            return false;
+        }
+
+        List<Appointment> valid = new ArrayList<>();
+        List<Claim> claims = new ArrayList<>(rows.size());
+        for (Appointment a : rows) {
+            List<String> problems = validate(a);
+            Claim c = claim(batch.getId(), cp.getPayerName(), a);
+            if (problems.isEmpty()) {
+                valid.add(a);
+                c.setStatus(Claim.Status.WRITTEN);
+            } else {
+                c.setStatus(Claim.Status.REJECTED);
+                c.setRejectReason(String.join("; ", problems));
+            }
+            claims.add(c);
+        }
+
+        if (!valid.isEmpty()) {
+            int chunk = cp.getChunksWritten() + 1;
+            Path file = batchDir(shard, batch.getId())
+                    .resolve(String.format("%s-%d-%05d.837", slug(cp.getPayerName()), cp.getId(), chunk));
+            try {
+                fileWriter.write(file, cp.getId() * 100_000L + chunk, label(cp.getPayerName()), valid);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Writing " + file + " failed", e);
+            }
+            String name = outputDir.relativize(file).toString();
+            claims.stream().filter(c -> c.getStatus() == Claim.Status.WRITTEN).forEach(c -> c.setFileName(name));
+            cp.setChunksWritten(chunk);
+        }
+
+        claimRepository.saveAll(claims);
+        cp.setLastAppointmentId(rows.get(rows.size() - 1).getId());
+        cp.setClaimsWritten(cp.getClaimsWritten() + valid.size());
+        cp.setClaimsRejected(cp.getClaimsRejected() + rows.size() - valid.size());
+
+        if (rows.size() < chunkSize) {
+            cp.setDone(true);
+            return false;
+        }
+        return true;
+    }
+
+    private void finish(String shard, Long batchId, Throwable error) {
+        try {
+            ClinicContext.callOnShard(shard, () -> tally(batchId, error));
+        } finally {
+            active.remove(shard + ":" + batchId);
+        }
+    }
+
+    private ClaimBatch tally(Long batchId, Throwable error) {
+        ClaimBatch b = get(batchId);
+        b.setClaimsWritten((int) claimRepository.countByBatchIdAndStatus(batchId, Claim.Status.WRITTEN));
+        b.setClaimsRejected((int) claimRepository.countByBatchIdAndStatus(batchId, Claim.Status.REJECTED));
+        b.setFinishedAt(LocalDateTime.now());
+        if (error == null) {
+            b.setStatus(ClaimBatch.Status.COMPLETED);
+        } else {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            log.error("Claims batch {} failed", batchId, cause);
+            b.setStatus(ClaimBatch.Status.FAILED);
+            b.setError(String.valueOf(cause.getMessage()));
+        }
+        return batchRepository.save(b);
+    }
+
+    // Batch ids repeat across shards, so other shards write under their own directory
+    private Path batchDir(String shard, Long batchId) {
+        Path root = ShardDirectory.PRIMARY.equals(shard) ? outputDir : outputDir.resolve(shard);
+        return root.resolve("batch-" + batchId);
+    }
+
+    // ============================
+    // Validation
+    // ============================
+
+    static List<String> validate(Appointment a) {
+        List<String> problems = new ArrayList<>();
+        Patient p = a.getPatient();
+        Insurance ins = p.getInsurancePrimary();
+        Provider provider = a.getProvider();
+
+        if (ins == null || blank(ins.getProviderName())) problems.add("No primary insurance on file");
+        else if (blank(ins.getPolicyNumber())) problems.add("Missing policy number");
+
+        if (blank(p.getFirstName()) || blank(p.getLastName())) problems.add("Missing patient name");
+        if (p.getDob() == null) problems.add("Missing date of birth");
+        if (blank(p.getAddressLine1()) || blank(p.getCity()) || blank(p.getState())) problems.add("Incomplete address");
+        if (p.getZip() == null || !p.getZip().replace("-", "").matches("\\d{5}(\\d{4})?")) problems.add("Invalid ZIP code");
+
+        if (provider == null || blank(provider.getLastName())) problems.add("Missing rendering provider");
+        if (a.getDate() == null) problems.add("Missing date of service");
+        return problems;
+    }
+
+    // ---------- helpers ----------
+
+    static String claimNumber(Appointment a) {
+        return "A" + a.getId();
+    }
+
+    private static Claim claim(Long batchId, String payer, Appointment a) {
+        Claim c = new Claim();
+        c.setBatchId(batchId);
+        c.setAppointmentId(a.getId());
+        c.setPatientId(a.getPatient().getId());
+        c.setProviderId(a.getProvider() != null ? a.getProvider().getId() : null);
+        c.setPayerName(payer);
+        c.setServiceDate(a.getDate());
+        c.setClaimNumber(claimNumber(a));
+        return c;
+    }
+
+    private static String key(String payer) {
+        return payer == null ? "" : payer;
+    }
+
+    private static String label(String payer) {
+        return payer == null ? NO_PAYER : payer;
+    }
+
+    private static String slug(String payer) {
+        String s = label(payer).toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("(^-|-$)", "");
+        return s.isEmpty() ? "payer" : s;
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+}
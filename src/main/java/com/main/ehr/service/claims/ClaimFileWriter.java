@@ -0,0 +1,153 @@
+package com.main.ehr.service.claims;
+
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.Insurance;
+import com.main.ehr.model.Patient;
+import com.main.ehr.model.Provider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes one chunk of claims as an X12 837P-style interchange
+ * (ISA/GS/ST envelope, one subscriber + CLM group per appointment).
+ *
+ * There is no fee schedule or procedure coding in this application yet, so
+ * CLM02 is 0 and no SV1 service lines are emitted; the clearinghouse side
+ * fills those in. Files are written to a temp name and moved into place, so
+ * a re-run of the same chunk after a crash simply replaces the file.
+ */
+@Component
+public class ClaimFileWriter {
+
+    private static final DateTimeFormatter YYMMDD = DateTimeFormatter.ofPattern("yyMMdd");
+    private static final DateTimeFormatter CCYYMMDD = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter HHMM = DateTimeFormatter.ofPattern("HHmm");
+
+    private final String senderId;
+    private final String senderName;
+    private final String receiverId;
+
+    public ClaimFileWriter(@Value("${ehr.claims.sender-id:EHRCLINIC}") String senderId,
+                           @Value("${ehr.claims.sender-name:EHR CLINIC}") String senderName,
+                           @Value("${ehr.claims.receiver-id:CLEARINGHOUSE}") String receiverId) {
+        this.senderId = senderId;
+        this.senderName = senderName;
+        this.receiverId = receiverId;
+    }
+
+    public void write(Path file, long controlNumber, String payerName, List<Appointment> claims) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        LocalDateTime now = LocalDateTime.now();
+        String ctrl = String.format("%09d", controlNumber % 1_000_000_000L);
+
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.US_ASCII)) {
+            Segments s = new Segments(w);
+
+            w.write("ISA*00*          *00*          *ZZ*" + pad(senderId) + "*ZZ*" + pad(receiverId)
+                    + "*" + now.format(YYMMDD) + "*" + now.format(HHMM) + "*^*00501*" + ctrl + "*0*P*:~\n");
+            w.write("GS*HC*" + el(senderId) + "*" + el(receiverId) + "*" + now.format(CCYYMMDD)
+                    + "*" + now.format(HHMM) + "*" + controlNumber + "*X*005010X222A1~\n");
+
+            s.add("ST", "837", "0001", "005010X222A1");
+            s.add("BHT", "0019", "00", ctrl, now.format(CCYYMMDD), now.format(HHMM), "CH");
+            s.add("NM1", "41", "2", senderName, "", "", "", "", "46", senderId);
+            s.add("NM1", "40", "2", payerName, "", "", "", "", "46", receiverId);
+
+            int hl = 0;
+            for (Appointment a : claims) {
+                Patient p = a.getPatient();
+                Insurance primary = p.getInsurancePrimary();
+                Insurance secondary = p.getInsuranceSecondary();
+                Provider provider = a.getProvider();
+
+                s.add("HL", String.valueOf(++hl), "", "22", "0");
+                s.add("SBR", "P", "18", primary.getGroupNumber(), "", "", "", "", "", "CI");
+                s.add("NM1", "IL", "1", p.getLastName(), p.getFirstName(), p.getMiddleName(), "", "", "MI", primary.getPolicyNumber());
+                if (p.getAddressLine2() != null && !p.getAddressLine2().isBlank()) {
+                    s.add("N3", p.getAddressLine1(), p.getAddressLine2());
+                } else {
+                    s.add("N3", p.getAddressLine1());
+                }
+                s.add("N4", p.getCity(), p.getState(), p.getZip());
+                s.add("DMG", "D8", p.getDob().format(CCYYMMDD), gender(p.getGender()));
+                s.add("NM1", "PR", "2", primary.getProviderName(), "", "", "", "", "PI", primary.getProviderName());
+
+                s.add("CLM", ClaimBatchService.claimNumber(a), "0", "", "", new Composite("11", "B", "1"), "Y", "A", "Y", "Y");
+                s.add("DTP", "472", "D8", a.getDate().format(CCYYMMDD));
+                s.add("NM1", "82", "1", provider.getLastName(), provider.getFirstName());
+
+                if (secondary != null && secondary.getPolicyNumber() != null) {
+                    s.add("SBR", "S", "18", secondary.getGroupNumber(), "", "", "", "", "", "CI");
+                    s.add("NM1", "IL", "1", p.getLastName(), p.getFirstName(), "", "", "", "MI", secondary.getPolicyNumber());
+                    s.add("NM1", "PR", "2", secondary.getProviderName(), "", "", "", "", "PI", secondary.getProviderName());
+                }
+            }
+
+            s.add("SE", String.valueOf(s.count + 1), "0001");
+            w.write("GE*1*" + controlNumber + "~\n");
+            w.write("IEA*1*" + ctrl + "~\n");
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---------- helpers ----------
+
+    // Counts ST..SE segments for SE01
+    private static final class Segments {
+        private final BufferedWriter w;
+        private int count;
+
+        Segments(BufferedWriter w) {
+            this.w = w;
+        }
+
+        void add(String id, Object... elements) throws IOException {
+            StringBuilder sb = new StringBuilder(id);
+            int last = elements.length;
+            while (last > 0 && (elements[last - 1] == null || "".equals(elements[last - 1]))) last--;
+            for (int i = 0; i < last; i++) {
+                Object e = elements[i];
+                sb.append('*').append(e instanceof Composite c ? c.render() : el((String) e));
+            }
+            w.write(sb.append("~\n").toString());
+            count++;
+        }
+    }
+
+    // Element made of ':'-separated components, e.g. CLM05 place of service
+    private record Composite(String... parts) {
+        String render() {
+            return String.join(":", Arrays.stream(parts).map(ClaimFileWriter::el).toList());
+        }
+    }
+
+    // Element values may not contain the separators
+    private static String el(String value) {
+        return value == null ? "" : value.replaceAll("[*~:^]", " ").trim().toUpperCase();
+    }
+
+    private static String pad(String value) {
+        String v = el(value);
+        return v.length() >= 15 ? v.substring(0, 15) : String.format("%-15s", v);
+    }
+
+    private static String gender(String g) {
+        if (g == null || g.isBlank()) return "U";
+        char c = Character.toUpperCase(g.trim().charAt(0));
+        return c == 'M' || c == 'F' ? String.valueOf(c) : "U";
+    }
+}
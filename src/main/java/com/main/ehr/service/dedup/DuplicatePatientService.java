@@ -0,0 +1,390 @@
+package com.main.ehr.service.dedup;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.model.Patient;
+import com.main.ehr.repository.PatientRepository;
+import com.main.ehr.util.PatientKeys;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Duplicate-patient detection.
+ *
+ * Records are only compared when they share a blocking key (see
+ * PatientKeys), so a check on create is one indexed lookup per key plus a
+ * handful of fuzzy comparisons, and the full sweep scores small buckets
+ * instead of all n² pairs. Keys of rows saved before the key columns
+ * existed are filled in by PatientKeysMigration; the sweep repeats that for
+ * rows written around the application, then streams each key column's shared
+ * buckets in key order (a server-side cursor, see useCursorFetch on the
+ * datasource URL) and scores them on a fixed pool, with at most a few
+ * buckets queued per thread. Buckets larger than max-bucket (a clinic phone
+ * number, a placeholder email) are skipped, by the check on create too.
+ *
+ * A pair that shares several keys is scored only in the bucket of the first
+ * key column it shares (in KEY_COLUMNS order) whose bucket is not skipped,
+ * so the sweep holds no per-pair state.
+ *
+ * Each shard is swept on its own (patients on different shards are never
+ * compared); status and results are those of the caller's shard.
+ */
+@Service
+public class DuplicatePatientService {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicatePatientService.class);
+
+    private static final String[] KEY_COLUMNS = {"name_key", "phone_key", "email_key"};
+    private static final int MAX_WARNINGS = 5;
+    private static final int QUEUED_BUCKETS_PER_THREAD = 4;
+
+    private final PatientRepository patientRepository;
+    private final JdbcTemplate jdbc;
+    private final ShardDirectory shardDirectory;
+    private final ExecutorService executor;
+    private final ExecutorService sweepRunner;
+    private final int threads;
+    private final double threshold;
+    private final int maxBucket;
+    private final int pageSize;
+
+    // Last sweep per shard
+    private final Map<String, Sweep> lastSweeps = new ConcurrentHashMap<>();
+
+    public DuplicatePatientService(PatientRepository patientRepository,
+                                   JdbcTemplate jdbc,
+                                   ShardDirectory shardDirectory,
+                                   @Value("${ehr.dedup.threshold:0.85}") double threshold,
+                                   @Value("${ehr.dedup.max-bucket:200}") int maxBucket,
+                                   @Value("${ehr.dedup.page-size:5000}") int pageSize,
+                                   @Value("${ehr.dedup.parallelism:0}") int parallelism) {
+        this.patientRepository = patientRepository;
+        this.jdbc = jdbc;
+        this.shardDirectory = shardDirectory;
+        this.threshold = threshold;
+        this.maxBucket = Math.max(2, maxBucket);
+        this.pageSize = Math.max(100, pageSize);
+
+        this.threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "dedup-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.sweepRunner = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "dedup-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweepRunner.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    public record Match(Long id, String name, String dob, double score, List<String> reasons) {}
+
+    public record Pair(long leftId, String leftName, long rightId, String rightName,
+                       double score, List<String> reasons) {}
+
+    // ============================
+    // Check on create / for one record
+    // ============================
+
+    /** Existing patients that look like the given (possibly unsaved) record, best first. */
+    public List<Match> findPossibleDuplicates(Patient p) {
+        PatientMatcher.Record probe = PatientMatcher.Record.of(p);
+        String nameKey = PatientKeys.nameKey(p.getLastName(), p.getDob());
+        String phoneKey = PatientKeys.phoneKey(p.getPhonePrimary());
+        String emailKey = PatientKeys.emailKey(p.getEmail());
+        if (nameKey == null && phoneKey == null && emailKey == null) return List.of();
+
+        Map<Long, Patient> candidates = new LinkedHashMap<>();
+        addBucket(candidates, nameKey, patientRepository::findByNameKeyOrderById);
+        addBucket(candidates, phoneKey, patientRepository::findByPhoneKeyOrderById);
+        addBucket(candidates, emailKey, patientRepository::findByEmailKeyOrderById);
+
+        List<Match> out = new ArrayList<>();
+        for (Patient c : candidates.values()) {
+            if (c.getId().equals(p.getId())) continue;
+            PatientMatcher.Score s = PatientMatcher.score(probe, PatientMatcher.Record.of(c));
+            if (s.score() >= threshold) {
+                out.add(new Match(c.getId(), c.getFirstName() + " " + c.getLastName(),
+                        String.valueOf(c.getDob()), s.score(), s.reasons()));
+            }
+        }
+        out.sort(Comparator.comparingDouble(Match::score).reversed());
+        return out.size() > MAX_WARNINGS ? out.subList(0, MAX_WARNINGS) : out;
+    }
+
+    // Reads one row past max-bucket to tell an oversized bucket, which is skipped like in the sweep
+    private void addBucket(Map<Long, Patient> candidates, String key,
+                           BiFunction<String, Pageable, List<Patient>> bucketQuery) {
+        if (key == null) return;
+        List<Patient> bucket = bucketQuery.apply(key, PageRequest.of(0, maxBucket + 1));
+        if (bucket.size() > maxBucket) return;
+        bucket.forEach(c -> candidates.putIfAbsent(c.getId(), c));
+    }
+
+    // ============================
+    // Full-table sweep
+    // ============================
+
+    @Scheduled(cron = "${ehr.dedup.sweep-cron:-}")
+    public void scheduledSweep() {
+        for (String shard : shardDirectory.shards()) {
+            try {
+                ClinicContext.callOnShard(shard, this::startSweep);
+            } catch (IllegalStateException e) {
+                log.info("Skipping scheduled duplicate sweep on shard {}: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    // Sweeps run one at a time on sweepRunner, each pinned to the shard it was started for
+    public synchronized Map<String, Object> startSweep() {
+        String shard = shardDirectory.currentShard();
+        Sweep last = lastSweeps.get(shard);
+        if (last != null && last.finishedAt == null) {
+            throw new IllegalStateException("A duplicate sweep is already running");
+        }
+        Sweep sweep = new Sweep();
+        lastSweeps.put(shard, sweep);
+        sweepRunner.submit(() -> ClinicContext.callOnShard(shard, () -> {
+            runSweep(sweep);
+            return null;
+        }));
+        return sweep.status();
+    }
+
+    public Map<String, Object> sweepStatus() {
+        Sweep s = lastSweeps.get(shardDirectory.currentShard());
+        return s == null ? Map.of("status", "NEVER_RUN") : s.status();
+    }
+
+    /** Pairs from the last completed sweep at or above minScore, best first. */
+    public List<Pair> sweepResults(double minScore, int limit) {
+        Sweep s = lastSweeps.get(shardDirectory.currentShard());
+        if (s == null || s.results == null) return List.of();
+        return s.results.stream()
+                .filter(p -> p.score() >= minScore)
+                .limit(Math.max(0, limit))
+                .toList();
+    }
+
+    private void runSweep(Sweep sweep) {
+        try {
+            sweep.keysBackfilled = backfillKeys(jdbc, pageSize);
+
+            List<Set<String>> oversized = new ArrayList<>();
+            for (String column : KEY_COLUMNS) oversized.add(oversizedKeys(column));
+
+            Queue<Pair> found = new ConcurrentLinkedQueue<>();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            // Backpressure: the reader blocks once this many buckets are queued or being scored
+            int inFlight = threads * QUEUED_BUCKETS_PER_THREAD;
+            Semaphore slots = new Semaphore(inFlight);
+
+            for (int c = 0; c < KEY_COLUMNS.length; c++) {
+                int column = c;
+                streamBuckets(column, bucket -> {
+                    if (failure.get() != null) throw new IllegalStateException("Bucket scoring failed", failure.get());
+                    slots.acquireUninterruptibly();
+                    sweep.buckets.incrementAndGet();
+                    executor.execute(() -> {
+                        try {
+                            scoreBucket(column, bucket, oversized, found, sweep);
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                });
+            }
+            slots.acquire(inFlight);
+            if (failure.get() != null) throw new IllegalStateException("Bucket scoring failed", failure.get());
+
+            List<Pair> results = new ArrayList<>(found);
+            results.sort(Comparator.comparingDouble(Pair::score).reversed()
+                    .thenComparingLong(Pair::leftId).thenComparingLong(Pair::rightId));
+            sweep.results = results;
+            sweep.status = "COMPLETED";
+            log.info("Duplicate sweep: {} buckets, {} comparisons, {} pairs >= {}",
+                    sweep.buckets.get(), sweep.comparisons.get(), results.size(), threshold);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sweep.status = "FAILED";
+            sweep.error = "Interrupted";
+        } catch (Exception e) {
+            log.error("Duplicate sweep failed", e);
+            sweep.status = "FAILED";
+            sweep.error = String.valueOf(e.getMessage());
+        } finally {
+            sweep.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    /** Keys for rows that have none (saved before the key columns existed); keyset-paged JDBC batch updates. */
+    public static long backfillKeys(JdbcTemplate jdbc, int pageSize) {
+        long total = 0, afterId = 0;
+        while (true) {
+            List<Object[]> rows = jdbc.query("""
+                    SELECT id, last_name, dob, phone_primary, email FROM patients
+                    WHERE id > ? AND name_key IS NULL AND phone_key IS NULL AND email_key IS NULL
+                    ORDER BY id LIMIT ?
+                    """,
+                    (rs, i) -> {
+                        Date dob = rs.getDate("dob");
+                        return new Object[]{
+                                PatientKeys.nameKey(rs.getString("last_name"), dob == null ? null : dob.toLocalDate()),
+                                PatientKeys.phoneKey(rs.getString("phone_primary")),
+                                PatientKeys.emailKey(rs.getString("email")),
+                                rs.getLong("id")};
+                    },
+                    afterId, pageSize);
+            if (rows.isEmpty()) return total;
+
+            afterId = (Long) rows.get(rows.size() - 1)[3];
+            List<Object[]> keyed = rows.stream().filter(r -> r[0] != null || r[1] != null || r[2] != null).toList();
+            if (!keyed.isEmpty()) {
+                jdbc.batchUpdate("UPDATE patients SET name_key = ?, phone_key = ?, email_key = ? WHERE id = ?", keyed);
+                total += keyed.size();
+            }
+        }
+    }
+
+    // Keys of a column whose buckets are too big to score; few, by construction
+    private Set<String> oversizedKeys(String column) {
+        return new HashSet<>(jdbc.queryForList(
+                "SELECT %1$s FROM patients WHERE %1$s IS NOT NULL GROUP BY %1$s HAVING COUNT(*) > ?"
+                        .formatted(column), String.class, maxBucket));
+    }
+
+    // Streams rows of buckets with 2..maxBucket members, ordered by key, one bucket at a time
+    private void streamBuckets(int column, Consumer<List<Row>> sink) {
+        String sql = """
+                SELECT p.id, p.first_name, p.last_name, p.dob, p.phone_primary, p.email,
+                       p.address_line1, p.zip, p.name_key, p.phone_key, p.email_key
+                FROM patients p
+                JOIN (SELECT %1$s AS k FROM patients WHERE %1$s IS NOT NULL
+                      GROUP BY %1$s HAVING COUNT(*) BETWEEN 2 AND ?) b ON b.k = p.%1$s
+                ORDER BY p.%1$s, p.id
+                """.formatted(KEY_COLUMNS[column]);
+
+        var grouper = new RowCallbackHandler() {
+            String currentKey;
+            List<Row> bucket = new ArrayList<>();
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                Row row = row(rs);
+                String k = row.keys()[column];
+                if (!k.equals(currentKey)) flush();
+                currentKey = k;
+                bucket.add(row);
+            }
+
+            void flush() {
+                if (!bucket.isEmpty()) sink.accept(bucket);
+                bucket = new ArrayList<>();
+            }
+        };
+        jdbc.query(con -> {
+            // Forward-only, and with useCursorFetch=true the driver reads pageSize rows at a time
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setInt(1, maxBucket);
+            ps.setFetchSize(pageSize);
+            return ps;
+        }, grouper);
+        grouper.flush();
+    }
+
+    private void scoreBucket(int column, List<Row> bucket, List<Set<String>> oversized,
+                             Queue<Pair> found, Sweep sweep) {
+        for (int i = 0; i < bucket.size(); i++) {
+            Row a = bucket.get(i);
+            for (int j = i + 1; j < bucket.size(); j++) {
+                Row b = bucket.get(j);
+                if (scoredEarlier(column, a, b, oversized)) continue;
+                sweep.comparisons.incrementAndGet();
+                PatientMatcher.Score s = PatientMatcher.score(a.record(), b.record());
+                if (s.score() >= threshold) {
+                    found.add(new Pair(a.record().id(), a.record().label(), b.record().id(), b.record().label(),
+                            s.score(), s.reasons()));
+                }
+            }
+        }
+    }
+
+    // True when the pair also shares an earlier key column whose bucket the sweep scores
+    private static boolean scoredEarlier(int column, Row a, Row b, List<Set<String>> oversized) {
+        for (int c = 0; c < column; c++) {
+            String k = a.keys()[c];
+            if (k != null && k.equals(b.keys()[c]) && !oversized.get(c).contains(k)) return true;
+        }
+        return false;
+    }
+
+    private record Row(PatientMatcher.Record record, String[] keys) {}
+
+    private static Row row(ResultSet rs) throws SQLException {
+        Date dob = rs.getDate("dob");
+        LocalDate d = dob == null ? null : dob.toLocalDate();
+        PatientMatcher.Record r = PatientMatcher.Record.of(rs.getLong("id"), rs.getString("first_name"),
+                rs.getString("last_name"), d, rs.getString("phone_primary"), rs.getString("email"),
+                rs.getString("address_line1"), rs.getString("zip"));
+        String[] keys = new String[KEY_COLUMNS.length];
+        for (int c = 0; c < KEY_COLUMNS.length; c++) keys[c] = rs.getString(KEY_COLUMNS[c]);
+        return new Row(r, keys);
+    }
+
+    private static final class Sweep {
+        final LocalDateTime startedAt = LocalDateTime.now();
+        volatile LocalDateTime finishedAt;
+        volatile String status = "RUNNING";
+        volatile String error;
+        volatile long keysBackfilled;
+        final AtomicLong buckets = new AtomicLong();
+        final AtomicLong comparisons = new AtomicLong();
+        volatile List<Pair> results;
+
+        Map<String, Object> status() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("status", status);
+            m.put("startedAt", startedAt);
+            m.put("finishedAt", finishedAt);
+            m.put("keysBackfilled", keysBackfilled);
+            m.put("buckets", buckets.get());
+            m.put("comparisons", comparisons.get());
+            m.put("pairs", results == null ? null : results.size());
+            if (error != null) m.put("error", error);
+            return m;
+        }
+    }
+}
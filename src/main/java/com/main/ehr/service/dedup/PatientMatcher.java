@@ -0,0 +1,177 @@
+package com.main.ehr.service.dedup;
+
+import com.main.ehr.model.Patient;
+import com.main.ehr.util.PatientKeys;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fuzzy similarity between two patient records, 0..1.
+ *
+ * Each field present on both sides contributes a weighted similarity
+ * (Jaro-Winkler for names and street address, exact for DOB, phone and
+ * email), normalized by the weights that were actually comparable. Pairs
+ * whose first names clearly differ are damped, since same surname + DOB +
+ * address is usually twins rather than one person entered twice.
+ */
+public final class PatientMatcher {
+
+    private static final double W_FIRST = 0.15;
+    private static final double W_LAST = 0.20;
+    private static final double W_DOB = 0.25;
+    private static final double W_PHONE = 0.15;
+    private static final double W_EMAIL = 0.10;
+    private static final double W_ADDRESS = 0.15;
+
+    private static final double FIRST_NAME_MISMATCH = 0.80;
+    private static final double FIRST_NAME_DAMPING = 0.85;
+
+    private PatientMatcher() {}
+
+    /** The fields the matcher looks at, already normalized. */
+    public record Record(long id, String label, String firstName, String lastName, LocalDate dob,
+                         String phoneKey, String emailKey, String address, String zip) {
+
+        public static Record of(Patient p) {
+            return of(p.getId() == null ? 0 : p.getId(), p.getFirstName(), p.getLastName(), p.getDob(),
+                    p.getPhonePrimary(), p.getEmail(), p.getAddressLine1(), p.getZip());
+        }
+
+        public static Record of(long id, String first, String last, LocalDate dob,
+                                String phone, String email, String address, String zip) {
+            String label = ((first == null ? "" : first.trim()) + " " + (last == null ? "" : last.trim())).trim();
+            return new Record(id, label, name(first), name(last), dob,
+                    PatientKeys.phoneKey(phone), PatientKeys.emailKey(email),
+                    normalizeAddress(address), zip5(zip));
+        }
+    }
+
+    public record Score(double score, List<String> reasons) {}
+
+    public static Score score(Record a, Record b) {
+        double total = 0, weights = 0;
+        List<String> reasons = new ArrayList<>(4);
+
+        double first = -1;
+        if (a.firstName != null && b.firstName != null) {
+            first = jaroWinkler(a.firstName, b.firstName);
+            total += W_FIRST * first;
+            weights += W_FIRST;
+        }
+        if (a.lastName != null && b.lastName != null) {
+            double last = jaroWinkler(a.lastName, b.lastName);
+            total += W_LAST * last;
+            weights += W_LAST;
+            if (first >= 0.9 && last >= 0.9) reasons.add("name");
+        }
+        if (a.dob != null && b.dob != null) {
+            double dob = dobSimilarity(a.dob, b.dob);
+            total += W_DOB * dob;
+            weights += W_DOB;
+            if (dob == 1) reasons.add("dob");
+        }
+        if (a.phoneKey != null && b.phoneKey != null) {
+            boolean same = a.phoneKey.equals(b.phoneKey);
+            total += same ? W_PHONE : 0;
+            weights += W_PHONE;
+            if (same) reasons.add("phone");
+        }
+        if (a.emailKey != null && b.emailKey != null) {
+            boolean same = a.emailKey.equals(b.emailKey);
+            total += same ? W_EMAIL : 0;
+            weights += W_EMAIL;
+            if (same) reasons.add("email");
+        }
+        if (a.address != null && b.address != null) {
+            double addr = jaroWinkler(a.address, b.address);
+            if (a.zip != null && b.zip != null && !a.zip.equals(b.zip)) addr *= 0.5;
+            total += W_ADDRESS * addr;
+            weights += W_ADDRESS;
+            if (addr >= 0.9) reasons.add("address");
+        }
+
+        if (weights == 0) return new Score(0, reasons);
+        double score = total / weights;
+        if (first >= 0 && first < FIRST_NAME_MISMATCH) score *= FIRST_NAME_DAMPING;
+        return new Score(Math.round(score * 1000) / 1000.0, reasons);
+    }
+
+    // ---------- helpers ----------
+
+    // Exact = 1; day and month swapped (a common keying error) = 0.6
+    private static double dobSimilarity(LocalDate a, LocalDate b) {
+        if (a.equals(b)) return 1;
+        if (a.getYear() == b.getYear() && a.getMonthValue() == b.getDayOfMonth()
+                && a.getDayOfMonth() == b.getMonthValue()) return 0.6;
+        return 0;
+    }
+
+    static double jaroWinkler(String s, String t) {
+        if (s.equals(t)) return 1;
+        int sl = s.length(), tl = t.length();
+        if (sl == 0 || tl == 0) return 0;
+
+        int range = Math.max(0, Math.max(sl, tl) / 2 - 1);
+        boolean[] sm = new boolean[sl];
+        boolean[] tm = new boolean[tl];
+
+        int matches = 0;
+        for (int i = 0; i < sl; i++) {
+            int from = Math.max(0, i - range), to = Math.min(tl, i + range + 1);
+            for (int j = from; j < to; j++) {
+                if (!tm[j] && s.charAt(i) == t.charAt(j)) {
+                    sm[i] = tm[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) return 0;
+
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < sl; i++) {
+            if (!sm[i]) continue;
+            while (!tm[j]) j++;
+            if (s.charAt(i) != t.charAt(j)) transpositions++;
+            j++;
+        }
+
+        double m = matches;
+        double jaro = (m / sl + m / tl + (m - transpositions / 2.0) / m) / 3;
+
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(sl, tl)) && s.charAt(prefix) == t.charAt(prefix)) prefix++;
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+
+    private static String name(String s) {
+        if (s == null) return null;
+        String n = s.toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+        return n.isEmpty() ? null : n;
+    }
+
+    private static String normalizeAddress(String s) {
+        if (s == null) return null;
+        String a = (" " + s.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9 ]", " ") + " ")
+                .replaceAll("\\s+", " ")
+                .replace(" street ", " st ")
+                .replace(" avenue ", " ave ")
+                .replace(" road ", " rd ")
+                .replace(" drive ", " dr ")
+                .replace(" boulevard ", " blvd ")
+                .replace(" lane ", " ln ")
+                .replace(" apartment ", " apt ")
+                .replace(" suite ", " ste ")
+                .trim();
+        return a.isEmpty() ? null : a;
+    }
+
+    private static String zip5(String s) {
+        if (s == null) return null;
+        String z = s.replaceAll("\\D", "");
+        return z.length() >= 5 ? z.substring(0, 5) : null;
+    }
+}
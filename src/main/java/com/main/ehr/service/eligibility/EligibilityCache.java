@@ -0,0 +1,54 @@
+package com.main.ehr.service.eligibility;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Eligibility answers keyed by payer + policy. Successful answers live for
+ * ttl; errors only for errorTtl so a flaky gateway is retried soon without
+ * being hit on every modal open.
+ */
+public class EligibilityCache {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private record Entry(EligibilityResult result, long expiresAt) {}
+
+    private final long ttlNanos;
+    private final long errorTtlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public EligibilityCache(Duration ttl, Duration errorTtl) {
+        this.ttlNanos = ttl.toNanos();
+        this.errorTtlNanos = errorTtl.toNanos();
+    }
+
+    public EligibilityResult get(String key) {
+        Entry e = entries.get(key);
+        if (e == null) return null;
+        if (System.nanoTime() - e.expiresAt < 0) return e.result;
+        entries.remove(key, e);
+        return null;
+    }
+
+    public void put(String key, EligibilityResult result) {
+        long ttl = result.isError() ? errorTtlNanos : ttlNanos;
+        if (ttl <= 0) return;
+        entries.put(key, new Entry(result, System.nanoTime() + ttl));
+        if (entries.size() > PURGE_THRESHOLD) purgeExpired();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        entries.entrySet().removeIf(e -> now - e.getValue().expiresAt >= 0);
+    }
+}
@@ -0,0 +1,13 @@
+package com.main.ehr.service.eligibility;
+
+import java.time.Duration;
+
+/**
+ * Payer/clearinghouse eligibility lookup (X12 270/271 or a payer API).
+ * Implementations are called concurrently and must give up after timeout;
+ * a failed lookup may throw, the caller records it as an ERROR result.
+ */
+public interface EligibilityGateway {
+
+    EligibilityResult check(EligibilityRequest request, Duration timeout);
+}
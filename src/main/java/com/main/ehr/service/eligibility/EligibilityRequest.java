@@ -0,0 +1,27 @@
+package com.main.ehr.service.eligibility;
+
+import com.main.ehr.model.Insurance;
+import com.main.ehr.model.Patient;
+
+import java.time.LocalDate;
+
+public record EligibilityRequest(
+        String payerName,
+        String policyNumber,
+        String groupNumber,
+        String subscriberFirstName,
+        String subscriberLastName,
+        LocalDate subscriberDob,
+        LocalDate serviceDate
+) {
+    public static EligibilityRequest of(Patient p, Insurance i, LocalDate serviceDate) {
+        return new EligibilityRequest(i.getProviderName(), i.getPolicyNumber(), i.getGroupNumber(),
+                p.getFirstName(), p.getLastName(), p.getDob(), serviceDate);
+    }
+
+    // Policies are checked once per payer + policy number, however many visits share them
+    public String key() {
+        return (payerName == null ? "" : payerName.trim().toUpperCase()) + "|"
+                + policyNumber.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,22 @@
+package com.main.ehr.service.eligibility;
+
+import java.time.LocalDateTime;
+
+public record EligibilityResult(
+        String payerName,
+        String policyNumber,
+        Status status,
+        String planName,
+        String message,
+        LocalDateTime checkedAt
+) {
+    public enum Status { ACTIVE, INACTIVE, UNKNOWN, ERROR }
+
+    public static EligibilityResult error(EligibilityRequest req, String message) {
+        return new EligibilityResult(req.payerName(), req.policyNumber(), Status.ERROR, null, message, LocalDateTime.now());
+    }
+
+    public boolean isError() {
+        return status == Status.ERROR;
+    }
+}
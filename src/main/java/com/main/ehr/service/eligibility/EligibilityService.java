@@ -0,0 +1,251 @@
+package com.main.ehr.service.eligibility;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.Insurance;
+import com.main.ehr.model.Patient;
+import com.main.ehr.repository.AppointmentRepository;
+import com.main.ehr.repository.AppointmentSeriesRepository;
+import com.main.ehr.repository.PatientRepository;
+import com.main.ehr.service.AppointmentSeriesService;
+import com.main.ehr.service.ScheduleService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies coverage ahead of the clinic day.
+ *
+ * checkDay() collects every policy behind the day's appointments (stored and
+ * recurring), drops duplicates and policies already in the cache, and sends
+ * the rest to the EligibilityGateway on a bounded pool, paced by a simple
+ * rate limit and with a per-call timeout. The appointment modal then reads
+ * from the cache instead of calling the payer at check-in.
+ */
+@Service
+public class EligibilityService {
+
+    private static final Logger log = LoggerFactory.getLogger(EligibilityService.class);
+
+    private final EligibilityGateway gateway;
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentSeriesRepository seriesRepository;
+    private final AppointmentSeriesService seriesService;
+    private final PatientRepository patientRepository;
+    private final ShardDirectory shardDirectory;
+    private final TransactionTemplate readOnlyTx;
+    private final EligibilityCache cache;
+    private final ExecutorService executor;
+    private final Duration timeout;
+    private final long minIntervalNanos;
+
+    private final Object rateLock = new Object();
+    private long nextCallAt = System.nanoTime();
+
+    public EligibilityService(EligibilityGateway gateway,
+                              AppointmentRepository appointmentRepository,
+                              AppointmentSeriesRepository seriesRepository,
+                              AppointmentSeriesService seriesService,
+                              PatientRepository patientRepository,
+                              ShardDirectory shardDirectory,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${ehr.eligibility.ttl:24h}") Duration ttl,
+                              @Value("${ehr.eligibility.error-ttl:5m}") Duration errorTtl,
+                              @Value("${ehr.eligibility.max-concurrent:8}") int maxConcurrent,
+                              @Value("${ehr.eligibility.rate-per-second:20}") double ratePerSecond,
+                              @Value("${ehr.eligibility.timeout:5s}") Duration timeout) {
+        this.gateway = gateway;
+        this.appointmentRepository = appointmentRepository;
+        this.seriesRepository = seriesRepository;
+        this.seriesService = seriesService;
+        this.patientRepository = patientRepository;
+        this.shardDirectory = shardDirectory;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.cache = new EligibilityCache(ttl, errorTtl);
+        this.timeout = timeout;
+        this.minIntervalNanos = ratePerSecond > 0 ? (long) (1_000_000_000L / ratePerSecond) : 0;
+
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrent), r -> {
+            Thread t = new Thread(r, "eligibility-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public record DaySummary(LocalDate date, int appointments, int policies, int fromCache,
+                             int checked, int failed, int uninsured, List<EligibilityResult> results) {}
+
+    // ============================
+    // Day batch
+    // ============================
+
+    // Evening run for the next clinic day, one shard after the other
+    @Scheduled(cron = "${ehr.eligibility.nightly-cron:-}")
+    public void nightly() {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        for (String shard : shardDirectory.shards()) {
+            try {
+                DaySummary s = ClinicContext.callOnShard(shard, () -> checkDay(tomorrow, false));
+                log.info("Eligibility for {} on shard {}: {} policies, {} from cache, {} checked, {} failed",
+                        s.date(), shard, s.policies(), s.fromCache(), s.checked(), s.failed());
+            } catch (RuntimeException e) {
+                log.error("Eligibility run for {} on shard {} failed", tomorrow, shard, e);
+            }
+        }
+    }
+
+    public DaySummary checkDay(LocalDate date, boolean refresh) {
+        List<Appointment> appointments = appointmentsOn(date);
+
+        Map<String, EligibilityRequest> unique = new LinkedHashMap<>();
+        int uninsured = 0;
+        for (Appointment a : appointments) {
+            List<EligibilityRequest> reqs = requestsFor(a.getPatient(), date);
+            if (reqs.isEmpty()) uninsured++;
+            reqs.forEach(r -> unique.putIfAbsent(r.key(), r));
+        }
+
+        List<EligibilityResult> results = new ArrayList<>(unique.size());
+        Map<String, Future<EligibilityResult>> pending = new LinkedHashMap<>();
+        int fromCache = 0;
+
+        for (Map.Entry<String, EligibilityRequest> e : unique.entrySet()) {
+            EligibilityResult cached = refresh ? null : cache.get(e.getKey());
+            if (cached != null) {
+                results.add(cached);
+                fromCache++;
+            } else {
+                EligibilityRequest req = e.getValue();
+                pending.put(e.getKey(), executor.submit(() -> call(req)));
+            }
+        }
+
+        int failed = 0;
+        for (Map.Entry<String, Future<EligibilityResult>> e : pending.entrySet()) {
+            EligibilityResult r = await(unique.get(e.getKey()), e.getValue());
+            if (r.isError()) failed++;
+            results.add(r);
+        }
+
+        return new DaySummary(date, appointments.size(), unique.size(), fromCache,
+                pending.size(), failed, uninsured, results);
+    }
+
+    // ============================
+    // Single patient (appointment modal)
+    // ============================
+
+    /**
+     * Cached results for the patient's policies; with refresh, policies are
+     * re-checked now. Policies never checked come back as UNKNOWN.
+     */
+    public List<EligibilityResult> forPatient(Long patientId, LocalDate serviceDate, boolean refresh) {
+        Patient p = patientRepository.findById(patientId)
+                .orElseThrow(() -> new NoSuchElementException("Patient not found"));
+
+        List<EligibilityResult> out = new ArrayList<>();
+        for (EligibilityRequest req : requestsFor(p, serviceDate)) {
+            EligibilityResult r = refresh ? null : cache.get(req.key());
+            if (r == null && refresh) {
+                r = await(req, executor.submit(() -> call(req)));
+            }
+            out.add(r != null ? r : new EligibilityResult(req.payerName(), req.policyNumber(),
+                    EligibilityResult.Status.UNKNOWN, null, "Not checked yet", null));
+        }
+        return out;
+    }
+
+    public Map<String, Object> cacheStats() {
+        return Map.of("entries", cache.size());
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    // ---------- helpers ----------
+
+    // Own read-only transaction: the nightly run has no request-scoped session for the series' lazy collections
+    private List<Appointment> appointmentsOn(LocalDate date) {
+        return readOnlyTx.execute(s -> {
+            List<Appointment> out = new ArrayList<>(appointmentRepository.findByDateBetween(date, date));
+            out.addAll(seriesService.expand(seriesRepository.findActiveBetween(date, date), date, date));
+            out.removeIf(a -> ScheduleService.isCancelled(a) || a.getPatient() == null);
+            return out;
+        });
+    }
+
+    private static List<EligibilityRequest> requestsFor(Patient p, LocalDate serviceDate) {
+        List<EligibilityRequest> out = new ArrayList<>(2);
+        for (Insurance i : new Insurance[]{p.getInsurancePrimary(), p.getInsuranceSecondary()}) {
+            if (i != null && i.getPolicyNumber() != null && !i.getPolicyNumber().isBlank()) {
+                out.add(EligibilityRequest.of(p, i, serviceDate));
+            }
+        }
+        return out;
+    }
+
+    private EligibilityResult call(EligibilityRequest req) {
+        try {
+            awaitRateSlot();
+            EligibilityResult r = gateway.check(req, timeout);
+            if (r == null) r = EligibilityResult.error(req, "No response");
+            cache.put(req.key(), r);
+            return r;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EligibilityResult.error(req, "Interrupted");
+        } catch (RuntimeException e) {
+            EligibilityResult r = EligibilityResult.error(req, String.valueOf(e.getMessage()));
+            cache.put(req.key(), r);
+            return r;
+        }
+    }
+
+    // Safety net in case a gateway ignores its timeout
+    private EligibilityResult await(EligibilityRequest req, Future<EligibilityResult> f) {
+        try {
+            return f.get(timeout.toMillis() * 4, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            return EligibilityResult.error(req, "Timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EligibilityResult.error(req, "Interrupted");
+        } catch (ExecutionException e) {
+            return EligibilityResult.error(req, String.valueOf(e.getCause().getMessage()));
+        }
+    }
+
+    // Spaces calls at least minIntervalNanos apart across all workers
+    private void awaitRateSlot() throws InterruptedException {
+        if (minIntervalNanos == 0) return;
+        long wait;
+        synchronized (rateLock) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextCallAt);
+            nextCallAt = slot + minIntervalNanos;
+            wait = slot - now;
+        }
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+}
@@ -0,0 +1,53 @@
+package com.main.ehr.service.eligibility;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Development gateway: answers after a configurable delay instead of calling
+ * a payer. Policy numbers starting with "X" come back INACTIVE, "T" never
+ * answers in time; everything else is ACTIVE.
+ */
+@Component
+@ConditionalOnProperty(name = "ehr.eligibility.gateway", havingValue = "stub", matchIfMissing = true)
+public class StubEligibilityGateway implements EligibilityGateway {
+
+    private final Duration latency;
+    private final Duration jitter;
+
+    public StubEligibilityGateway(@Value("${ehr.eligibility.stub.latency:200ms}") Duration latency,
+                                  @Value("${ehr.eligibility.stub.jitter:100ms}") Duration jitter) {
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public EligibilityResult check(EligibilityRequest req, Duration timeout) {
+        String policy = req.policyNumber().trim().toUpperCase();
+
+        long delay = latency.toMillis() + (jitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1));
+        if (policy.startsWith("T")) delay = Long.MAX_VALUE;
+
+        try {
+            Thread.sleep(Math.min(delay, timeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EligibilityResult.error(req, "Interrupted");
+        }
+        if (delay > timeout.toMillis()) {
+            return EligibilityResult.error(req, "Timed out after " + timeout.toMillis() + " ms");
+        }
+
+        boolean active = !policy.startsWith("X");
+        return new EligibilityResult(req.payerName(), req.policyNumber(),
+                active ? EligibilityResult.Status.ACTIVE : EligibilityResult.Status.INACTIVE,
+                active ? req.payerName() + " PPO" : null,
+                active ? "Coverage active" : "Coverage terminated",
+                LocalDateTime.now());
+    }
+}
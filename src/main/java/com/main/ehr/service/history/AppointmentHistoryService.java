@@ -0,0 +1,344 @@
+package com.main.ehr.service.history;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.main.ehr.event.AppointmentChangedEvent;
+import com.main.ehr.event.AppointmentSnapshot;
+import com.main.ehr.model.AppointmentHistoryEntry.Kind;
+import com.main.ehr.service.archive.AppointmentArchiveHorizon;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Records every appointment change in appointment_history and rebuilds an
+ * appointment (or a provider's day) as it was at any moment.
+ *
+ * The listener runs first among the AppointmentChangedEvent listeners, inside
+ * the writing transaction, so history commits or rolls back with the change
+ * and follow-up changes made by other listeners (room moves) come after it.
+ * Updates store only the changed fields; every snapshot-every updates a full
+ * SNAPSHOT row is added, so a rebuild reads one full-state row and fewer
+ * than snapshot-every deltas however long the history is.
+ *
+ * Appointments last changed before history was recorded get a SNAPSHOT of
+ * their previous state on their first recorded change, dated from the row's
+ * updated_at. Recurring occurrences that were never materialized have no row
+ * and no history. Rows moved to appointments_archive are read from there.
+ */
+@Service
+public class AppointmentHistoryService {
+
+    private static final TypeReference<LinkedHashMap<String, Object>> STATE = new TypeReference<>() {};
+
+    private static final String INSERT = """
+            INSERT INTO appointment_history
+                (appointment_id, kind, changed_at, changed_by, provider_id, appt_date, depth, data)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String COLUMNS = "id, appointment_id, kind, changed_at, changed_by, depth, data";
+
+    // %s: appointments or appointments_archive
+    private static final String LIVE_ROW = """
+            SELECT provider_id, patient_id, room_id, series_id, date, time_start, time_end,
+                   duration_minutes, appointment_type, status, reason, created_at, updated_at
+            FROM %s WHERE id = ?
+            """;
+
+    private static final String UNCHANGED_ON_DAY = """
+            SELECT a.id FROM %s a
+            WHERE a.provider_id = ? AND a.date = ?
+              AND NOT EXISTS (SELECT 1 FROM appointment_history h WHERE h.appointment_id = a.id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final AppointmentArchiveHorizon archiveHorizon;
+    private final int snapshotEvery;
+
+    public AppointmentHistoryService(JdbcTemplate jdbcTemplate,
+                                     ObjectMapper objectMapper,
+                                     AppointmentArchiveHorizon archiveHorizon,
+                                     @Value("${ehr.history.snapshot-every:50}") int snapshotEvery) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.archiveHorizon = archiveHorizon;
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+    }
+
+    public record Entry(Long id, Long appointmentId, Kind kind, LocalDateTime changedAt,
+                        String changedBy, int depth, Map<String, Object> data) {}
+
+    public enum Presence { EXISTS, DELETED, NOT_CREATED, UNKNOWN }
+
+    /**
+     * State of one appointment at a moment. UNKNOWN means the moment lies
+     * before the first recorded change of an appointment that already existed.
+     */
+    public record AsOf(Long appointmentId, LocalDateTime at, Presence presence,
+                       Map<String, Object> state, LocalDateTime lastChangedAt, int deltasReplayed) {}
+
+    // ============================
+    // Recording
+    // ============================
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        Long id = event.appointmentId();
+        LocalDateTime now = LocalDateTime.now();
+        String by = currentUser();
+
+        switch (event.type()) {
+            case CREATED -> insert(id, Kind.CREATED, now, by, event.after(), 0, state(event.after()));
+            case DELETED -> insert(id, Kind.DELETED, now, by, event.before(), 0, state(event.before()));
+            case UPDATED -> {
+                Map<String, Object> delta = diff(state(event.before()), state(event.after()));
+                if (delta.isEmpty()) return;
+
+                Integer depth = lastDepth(id);
+                if (depth == null) {
+                    insert(id, Kind.SNAPSHOT, lastModified(id, now), null, event.before(), 0, state(event.before()));
+                    depth = 0;
+                }
+                insert(id, Kind.UPDATED, now, by, event.after(), depth + 1, delta);
+                if (depth + 1 >= snapshotEvery) {
+                    insert(id, Kind.SNAPSHOT, now, by, event.after(), 0, state(event.after()));
+                }
+            }
+        }
+    }
+
+    // ============================
+    // Reads
+    // ============================
+
+    @Transactional(readOnly = true)
+    public List<Entry> history(Long appointmentId) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM appointment_history WHERE appointment_id = ? ORDER BY id",
+                entryMapper(), appointmentId);
+    }
+
+    @Transactional(readOnly = true)
+    public AsOf asOf(Long appointmentId, LocalDateTime at) {
+        return asOf(appointmentId, at, null);
+    }
+
+    // date, when known, is where to look for the row in the archive
+    private AsOf asOf(Long appointmentId, LocalDateTime at, LocalDate date) {
+        // Latest full-state row at or before the moment
+        List<Entry> base = jdbcTemplate.query("""
+                SELECT %s FROM appointment_history
+                WHERE appointment_id = ? AND changed_at <= ? AND kind <> 'UPDATED'
+                ORDER BY changed_at DESC, id DESC LIMIT 1
+                """.formatted(COLUMNS), entryMapper(), appointmentId, Timestamp.valueOf(at));
+
+        if (base.isEmpty()) return withoutBase(appointmentId, at, date);
+
+        Entry b = base.get(0);
+        Map<String, Object> state = new LinkedHashMap<>(b.data());
+        LocalDateTime last = b.changedAt();
+        boolean deleted = b.kind() == Kind.DELETED;
+        int replayed = 0;
+
+        if (!deleted) {
+            List<Entry> deltas = jdbcTemplate.query("""
+                    SELECT %s FROM appointment_history
+                    WHERE appointment_id = ? AND changed_at <= ? AND id > ?
+                    ORDER BY id
+                    """.formatted(COLUMNS), entryMapper(), appointmentId, Timestamp.valueOf(at), b.id());
+            for (Entry d : deltas) {
+                if (d.kind() == Kind.DELETED) {
+                    deleted = true;
+                } else {
+                    state.putAll(d.data());
+                }
+                last = d.changedAt();
+                replayed++;
+            }
+        }
+        return new AsOf(appointmentId, at, deleted ? Presence.DELETED : Presence.EXISTS, state, last, replayed);
+    }
+
+    /** The provider's appointments on that date as they stood at the moment, in start-time order. */
+    @Transactional(readOnly = true)
+    public List<AsOf> providerDayAsOf(Long providerId, LocalDate date, LocalDateTime at) {
+        Set<Long> candidates = new LinkedHashSet<>(jdbcTemplate.queryForList("""
+                SELECT DISTINCT appointment_id FROM appointment_history
+                WHERE provider_id = ? AND appt_date = ? AND changed_at <= ?
+                """, Long.class, providerId, date, Timestamp.valueOf(at)));
+        // Unchanged since history started: only the live (or archived) row knows them
+        candidates.addAll(jdbcTemplate.queryForList(UNCHANGED_ON_DAY.formatted("appointments"),
+                Long.class, providerId, date));
+        if (archiveHorizon.reaches(date)) {
+            candidates.addAll(jdbcTemplate.queryForList(UNCHANGED_ON_DAY.formatted("appointments_archive"),
+                    Long.class, providerId, date));
+        }
+
+        List<AsOf> out = new ArrayList<>();
+        for (Long id : candidates) {
+            AsOf a = asOf(id, at, date);
+            if (a.presence() == Presence.EXISTS
+                    && Objects.equals(asLong(a.state().get("providerId")), providerId)
+                    && Objects.equals(a.state().get("date"), date.toString())) {
+                out.add(a);
+            }
+        }
+        out.sort(Comparator.comparing(a -> String.valueOf(a.state().get("timeStart"))));
+        return out;
+    }
+
+    // ---------- helpers ----------
+
+    // No full-state row yet at that moment: decide from later history or the live row
+    private AsOf withoutBase(Long appointmentId, LocalDateTime at, LocalDate date) {
+        List<String> first = jdbcTemplate.queryForList(
+                "SELECT kind FROM appointment_history WHERE appointment_id = ? ORDER BY id LIMIT 1",
+                String.class, appointmentId);
+        if (!first.isEmpty()) {
+            Presence p = Kind.CREATED.name().equals(first.get(0)) ? Presence.NOT_CREATED : Presence.UNKNOWN;
+            return new AsOf(appointmentId, at, p, null, null, 0);
+        }
+
+        List<Map<String, Object>> live = jdbcTemplate.queryForList(LIVE_ROW.formatted("appointments"), appointmentId);
+        if (live.isEmpty() && archiveHorizon.reaches(date)) {
+            live = date != null
+                    ? jdbcTemplate.queryForList(LIVE_ROW.formatted("appointments_archive") + " AND date = ?", appointmentId, date)
+                    : jdbcTemplate.queryForList(LIVE_ROW.formatted("appointments_archive"), appointmentId);
+        }
+        if (live.isEmpty()) return new AsOf(appointmentId, at, Presence.UNKNOWN, null, null, 0);
+
+        Map<String, Object> row = live.get(0);
+        LocalDateTime created = toDateTime(row.get("created_at"));
+        LocalDateTime updated = toDateTime(row.get("updated_at"));
+        if (created != null && created.isAfter(at)) {
+            return new AsOf(appointmentId, at, Presence.NOT_CREATED, null, null, 0);
+        }
+        if (updated != null && updated.isAfter(at)) {
+            return new AsOf(appointmentId, at, Presence.UNKNOWN, null, null, 0);
+        }
+
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("providerId", asLong(row.get("provider_id")));
+        state.put("patientId", asLong(row.get("patient_id")));
+        state.put("roomId", asLong(row.get("room_id")));
+        state.put("seriesId", asLong(row.get("series_id")));
+        state.put("date", str(row.get("date")));
+        state.put("timeStart", str(row.get("time_start")));
+        state.put("timeEnd", str(row.get("time_end")));
+        state.put("durationMinutes", row.get("duration_minutes") == null ? 0 : ((Number) row.get("duration_minutes")).intValue());
+        state.put("appointmentType", row.get("appointment_type"));
+        state.put("status", row.get("status"));
+        state.put("reason", row.get("reason"));
+        return new AsOf(appointmentId, at, Presence.EXISTS, state, updated, 0);
+    }
+
+    private void insert(Long appointmentId, Kind kind, LocalDateTime at, String by,
+                        AppointmentSnapshot keys, int depth, Map<String, Object> data) {
+        jdbcTemplate.update(INSERT, appointmentId, kind.name(), Timestamp.valueOf(at), by,
+                keys.providerId(), keys.date(), depth, toJson(data));
+    }
+
+    private Integer lastDepth(Long appointmentId) {
+        List<Integer> d = jdbcTemplate.queryForList(
+                "SELECT depth FROM appointment_history WHERE appointment_id = ? ORDER BY id DESC LIMIT 1",
+                Integer.class, appointmentId);
+        return d.isEmpty() ? null : d.get(0);
+    }
+
+    // When the state before the first recorded change was last written (pending flushes aside)
+    private LocalDateTime lastModified(Long appointmentId, LocalDateTime fallback) {
+        List<Timestamp> t = jdbcTemplate.queryForList(
+                "SELECT COALESCE(updated_at, created_at) FROM appointments WHERE id = ?",
+                Timestamp.class, appointmentId);
+        return t.isEmpty() || t.get(0) == null ? fallback : t.get(0).toLocalDateTime();
+    }
+
+    // Stored as strings/numbers so a state survives the JSON round trip unchanged
+    static Map<String, Object> state(AppointmentSnapshot s) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("providerId", s.providerId());
+        m.put("patientId", s.patientId());
+        m.put("roomId", s.roomId());
+        m.put("seriesId", s.seriesId());
+        m.put("date", str(s.date()));
+        m.put("timeStart", str(s.timeStart()));
+        m.put("timeEnd", str(s.timeEnd()));
+        m.put("durationMinutes", s.durationMinutes());
+        m.put("appointmentType", s.appointmentType());
+        m.put("status", s.status());
+        m.put("reason", s.reason());
+        return m;
+    }
+
+    static Map<String, Object> diff(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        after.forEach((k, v) -> {
+            if (!Objects.equals(before.get(k), v)) delta.put(k, v);
+        });
+        return delta;
+    }
+
+    private RowMapper<Entry> entryMapper() {
+        return (rs, i) -> new Entry(
+                rs.getLong("id"),
+                rs.getLong("appointment_id"),
+                Kind.valueOf(rs.getString("kind")),
+                rs.getTimestamp("changed_at").toLocalDateTime(),
+                rs.getString("changed_by"),
+                rs.getInt("depth"),
+                fromJson(rs.getString("data")));
+    }
+
+    private String toJson(Map<String, Object> data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize appointment history", e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, STATE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt appointment history row", e);
+        }
+    }
+
+    private static String currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() ? auth.getName() : "system";
+    }
+
+    private static Long asLong(Object v) {
+        return v instanceof Number n ? n.longValue() : null;
+    }
+
+    // Same text as the snapshot's LocalDate/LocalTime, also for java.sql values from the live row
+    private static String str(Object v) {
+        if (v instanceof java.sql.Date d) return d.toLocalDate().toString();
+        if (v instanceof java.sql.Time t) return t.toLocalTime().toString();
+        return v == null ? null : v.toString();
+    }
+
+    private static LocalDateTime toDateTime(Object v) {
+        if (v instanceof Timestamp t) return t.toLocalDateTime();
+        if (v instanceof LocalDateTime l) return l;
+        return null;
+    }
+}
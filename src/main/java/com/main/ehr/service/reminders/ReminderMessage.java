@@ -0,0 +1,16 @@
+package com.main.ehr.service.reminders;
+
+import com.main.ehr.model.ReminderDelivery;
+
+/** A rendered reminder ready for the sender. subject is null for SMS. */
+public record ReminderMessage(
+        Long deliveryId,
+        ReminderDelivery.Channel channel,
+        String recipient,
+        String subject,
+        String body
+) {
+    public static ReminderMessage of(ReminderDelivery d) {
+        return new ReminderMessage(d.getId(), d.getChannel(), d.getRecipient(), d.getSubject(), d.getBody());
+    }
+}
@@ -0,0 +1,76 @@
+package com.main.ehr.service.reminders;
+
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.Provider;
+import com.main.ehr.model.ReminderDelivery.Channel;
+import com.main.ehr.model.ReminderRun;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Renders reminder text from the Thymeleaf TEXT templates in
+ * templates/reminders (sms.txt, email.txt). For e-mail the first line of
+ * the output is the subject. Parsed templates are cached, so rendering is
+ * cheap enough for a whole night's run.
+ */
+@Component
+public class ReminderRenderer {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("EEEE, MMMM d", Locale.US);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
+
+    public record Rendered(String subject, String body) {}
+
+    private final TemplateEngine engine;
+    private final String clinicName;
+    private final String clinicPhone;
+
+    public ReminderRenderer(@Value("${ehr.reminders.clinic-name:EHR Clinic}") String clinicName,
+                            @Value("${ehr.reminders.clinic-phone:}") String clinicPhone) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/reminders/");
+        resolver.setSuffix(".txt");
+        resolver.setTemplateMode(TemplateMode.TEXT);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+
+        this.engine = new SpringTemplateEngine();
+        this.engine.setTemplateResolver(resolver);
+        this.clinicName = clinicName;
+        this.clinicPhone = clinicPhone.isBlank() ? null : clinicPhone;
+    }
+
+    public Rendered render(Channel channel, Appointment a, ReminderRun.Kind kind) {
+        Context ctx = new Context(Locale.US);
+        ctx.setVariable("clinicName", clinicName);
+        ctx.setVariable("clinicPhone", clinicPhone);
+        ctx.setVariable("firstName", a.getPatient().getFirstName());
+        ctx.setVariable("when", kind == ReminderRun.Kind.NEXT_DAY ? "tomorrow" : "next week");
+        ctx.setVariable("date", a.getDate().format(DATE));
+        ctx.setVariable("time", a.getTimeStart() != null ? a.getTimeStart().format(TIME) : "your scheduled time");
+        ctx.setVariable("provider", providerName(a.getProvider()));
+        ctx.setVariable("type", a.getAppointmentType());
+
+        String text = engine.process(channel == Channel.EMAIL ? "email" : "sms", ctx).strip();
+        if (channel != Channel.EMAIL) return new Rendered(null, text);
+
+        int nl = text.indexOf('\n');
+        return nl < 0 ? new Rendered(text, "") : new Rendered(text.substring(0, nl).strip(), text.substring(nl + 1).strip());
+    }
+
+    // ---------- helpers ----------
+
+    private static String providerName(Provider p) {
+        if (p == null || p.getLastName() == null) return null;
+        String title = p.getTitle() != null && !p.getTitle().isBlank() ? p.getTitle() + " " : "";
+        return title + (p.getFirstName() != null ? p.getFirstName() + " " : "") + p.getLastName();
+    }
+}
@@ -0,0 +1,18 @@
+package com.main.ehr.service.reminders;
+
+/**
+ * SMS / e-mail gateway for reminders. Called concurrently from the send
+ * pool. Returns the gateway's message id. Throwing Rejected means the
+ * message can never be delivered (bad number or address) and is not
+ * retried; any other exception is retried up to max-attempts.
+ */
+public interface ReminderSender {
+
+    String send(ReminderMessage message);
+
+    class Rejected extends RuntimeException {
+        public Rejected(String message) {
+            super(message);
+        }
+    }
+}
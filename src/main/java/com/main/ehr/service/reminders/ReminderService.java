@@ -0,0 +1,478 @@
+package com.main.ehr.service.reminders;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.AppointmentSeries;
+import com.main.ehr.model.Patient;
+import com.main.ehr.model.ReminderDelivery;
+import com.main.ehr.model.ReminderDelivery.Channel;
+import com.main.ehr.model.ReminderRun;
+import com.main.ehr.repository.AppointmentRepository;
+import com.main.ehr.repository.AppointmentSeriesRepository;
+import com.main.ehr.repository.ReminderDeliveryRepository;
+import com.main.ehr.repository.ReminderRunRepository;
+import com.main.ehr.service.AppointmentSeriesService;
+import com.main.ehr.service.ScheduleService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Next-day and next-week appointment reminders.
+ *
+ * A run covers one appointment date on one shard. It streams the date's
+ * stored appointments in keyset chunks (patient and provider fetched in the
+ * same query), then the recurring series in chunks of series, rendering an
+ * SMS and/or e-mail per appointment from the patient's phonePrimary and
+ * email. Each chunk's deliveries are written as PENDING together with the
+ * run's checkpoint, then sent on a bounded pool, paced per channel and
+ * retried with backoff, and finally marked SENT or FAILED in one batch.
+ * Only one chunk is in memory at a time; a run interrupted part-way is
+ * re-started by the next trigger, which first re-sends its PENDING
+ * deliveries and then continues after the checkpoint.
+ *
+ * Every node fires the triggers, so a run is claimed with a conditional
+ * UPDATE that only succeeds while nobody holds it: the claiming node
+ * renews the run's heartbeat with every chunk, and the others skip it
+ * until the heartbeat is older than the lease (a node that died mid-run).
+ * A node that finds its run taken over stops without touching it further.
+ */
+@Service
+public class ReminderService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReminderService.class);
+
+    private final ReminderRunRepository runRepository;
+    private final ReminderDeliveryRepository deliveryRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentSeriesRepository seriesRepository;
+    private final AppointmentSeriesService seriesService;
+    private final ReminderRenderer renderer;
+    private final ReminderSender sender;
+    private final ShardDirectory shardDirectory;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration lease;
+    // This JVM's name on the runs it holds
+    private final String owner = UUID.randomUUID().toString();
+    private final Map<Channel, Pacer> pacers = new EnumMap<>(Channel.class);
+    private final ExecutorService sendPool;
+    private final ExecutorService driver;
+
+    public ReminderService(ReminderRunRepository runRepository,
+                           ReminderDeliveryRepository deliveryRepository,
+                           AppointmentRepository appointmentRepository,
+                           AppointmentSeriesRepository seriesRepository,
+                           AppointmentSeriesService seriesService,
+                           ReminderRenderer renderer,
+                           ReminderSender sender,
+                           ShardDirectory shardDirectory,
+                           JdbcTemplate jdbc,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${ehr.reminders.chunk-size:500}") int chunkSize,
+                           @Value("${ehr.reminders.max-concurrent:16}") int maxConcurrent,
+                           @Value("${ehr.reminders.sms-rate-per-second:30}") double smsRate,
+                           @Value("${ehr.reminders.email-rate-per-second:100}") double emailRate,
+                           @Value("${ehr.reminders.max-attempts:3}") int maxAttempts,
+                           @Value("${ehr.reminders.retry-backoff:2s}") Duration retryBackoff,
+                           @Value("${ehr.reminders.lease:5m}") Duration lease) {
+        this.runRepository = runRepository;
+        this.deliveryRepository = deliveryRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.seriesRepository = seriesRepository;
+        this.seriesService = seriesService;
+        this.renderer = renderer;
+        this.sender = sender;
+        this.shardDirectory = shardDirectory;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+        this.lease = lease;
+        this.pacers.put(Channel.SMS, new Pacer(smsRate));
+        this.pacers.put(Channel.EMAIL, new Pacer(emailRate));
+
+        AtomicInteger n = new AtomicInteger();
+        this.sendPool = Executors.newFixedThreadPool(Math.max(1, maxConcurrent), r -> {
+            Thread t = new Thread(r, "reminder-send-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.driver = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "reminder-run");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        driver.shutdownNow();
+        sendPool.shutdownNow();
+    }
+
+    // A run RUNNING past its lease lost its worker with some node's JVM;
+    // fresher ones may belong to a live node and are left alone
+    @EventListener(ApplicationReadyEvent.class)
+    public void failOrphanedRuns() {
+        for (String shard : shardDirectory.shards()) {
+            ClinicContext.callOnShard(shard, () -> jdbc.update("""
+                            UPDATE reminder_runs
+                            SET status = 'FAILED', owner = NULL,
+                                error = 'Interrupted by shutdown; continues on the next run'
+                            WHERE status = 'RUNNING' AND (heartbeat_at IS NULL OR heartbeat_at < ?)""",
+                    Timestamp.valueOf(LocalDateTime.now().minus(lease))));
+        }
+    }
+
+    // ============================
+    // Triggers
+    // ============================
+
+    @Scheduled(cron = "${ehr.reminders.nightly-cron:-}")
+    public void nightly() {
+        LocalDate today = LocalDate.now();
+        start(today.plusDays(1), ReminderRun.Kind.NEXT_DAY);
+        start(today.plusDays(7), ReminderRun.Kind.NEXT_WEEK);
+    }
+
+    /**
+     * Queues a run (or the continuation of an unfinished one) for every
+     * shard. Runs execute one at a time in the background.
+     */
+    public void start(LocalDate date, ReminderRun.Kind kind) {
+        driver.execute(() -> {
+            for (String shard : shardDirectory.shards()) {
+                try {
+                    ClinicContext.callOnShard(shard, () -> {
+                        run(shard, date, kind);
+                        return null;
+                    });
+                } catch (RuntimeException e) {
+                    log.error("Reminders {} {} on shard {} failed", kind, date, shard, e);
+                }
+            }
+        });
+    }
+
+    public Map<String, List<ReminderRun>> recentRuns() {
+        Map<String, List<ReminderRun>> out = new LinkedHashMap<>();
+        for (String shard : shardDirectory.shards()) {
+            out.put(shard, ClinicContext.callOnShard(shard, runRepository::findTop20ByOrderByIdDesc));
+        }
+        return out;
+    }
+
+    public List<ReminderDelivery> failures(String shard, Long runId) {
+        if (!shardDirectory.shards().contains(shard)) throw new IllegalArgumentException("Unknown shard " + shard);
+        return ClinicContext.callOnShard(shard, () -> {
+            if (!runRepository.existsById(runId)) throw new NoSuchElementException("Reminder run not found");
+            return deliveryRepository.findTop200ByRunIdAndStatusOrderById(runId, ReminderDelivery.Status.FAILED);
+        });
+    }
+
+    // ============================
+    // Run
+    // ============================
+
+    private void run(String shard, LocalDate date, ReminderRun.Kind kind) {
+        ReminderRun run = claim(date, kind);
+        if (run.getStatus() == ReminderRun.Status.COMPLETED) {
+            log.info("Reminders {} {} on shard {} already completed", kind, date, shard);
+            return;
+        }
+        if (!owner.equals(run.getOwner())) {
+            log.info("Reminders {} {} on shard {} already running on another node", kind, date, shard);
+            return;
+        }
+        Long runId = run.getId();
+        try {
+            resendPending(runId);
+
+            List<ReminderDelivery> chunk;
+            while ((chunk = tx.execute(s -> queueChunk(runId))) != null) {
+                if (!chunk.isEmpty()) dispatch(runId, chunk);
+            }
+            finish(shard, runId, null);
+        } catch (RuntimeException e) {
+            finish(shard, runId, e);
+            throw e;
+        }
+    }
+
+    /**
+     * The date's run, created or re-opened for this node. It comes back
+     * COMPLETED, or owned by a node whose lease is still live, when there
+     * is nothing for this node to do.
+     */
+    private ReminderRun claim(LocalDate date, ReminderRun.Kind kind) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<ReminderRun> existing = runRepository.findByTargetDateAndKind(date, kind);
+        if (existing.isEmpty()) {
+            try {
+                return tx.execute(s -> {
+                    ReminderRun r = new ReminderRun();
+                    r.setTargetDate(date);
+                    r.setKind(kind);
+                    r.setStatus(ReminderRun.Status.RUNNING);
+                    r.setOwner(owner);
+                    r.setHeartbeatAt(now);
+                    r.setStartedAt(now);
+                    return runRepository.saveAndFlush(r);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Another node created it first; claim it like any other
+                existing = runRepository.findByTargetDateAndKind(date, kind);
+            }
+        }
+
+        Long id = existing.orElseThrow().getId();
+        jdbc.update("""
+                        UPDATE reminder_runs
+                        SET status = 'RUNNING', owner = ?, heartbeat_at = ?, error = NULL, finished_at = NULL,
+                            started_at = COALESCE(started_at, ?)
+                        WHERE id = ?
+                          AND (status = 'FAILED' OR (status = 'RUNNING' AND (heartbeat_at IS NULL OR heartbeat_at < ?)))""",
+                owner, Timestamp.valueOf(now), Timestamp.valueOf(now), id, Timestamp.valueOf(now.minus(lease)));
+        return runRepository.findById(id).orElseThrow();
+    }
+
+    // Extends this node's lease; fails once another node has taken the run over
+    private void renew(Long runId) {
+        int renewed = jdbc.update("UPDATE reminder_runs SET heartbeat_at = ? WHERE id = ? AND owner = ? AND status = 'RUNNING'",
+                Timestamp.valueOf(LocalDateTime.now()), runId, owner);
+        if (renewed == 0) throw new IllegalStateException("Reminder run " + runId + " was taken over by another node");
+    }
+
+    // Deliveries written by a run that stopped before sending them
+    private void resendPending(Long runId) {
+        long after = 0;
+        List<ReminderDelivery> pending;
+        while (!(pending = deliveryRepository.findByRunIdAndStatusAndIdGreaterThanOrderById(
+                runId, ReminderDelivery.Status.PENDING, after, PageRequest.of(0, chunkSize))).isEmpty()) {
+            dispatch(runId, pending);
+            after = pending.get(pending.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Next chunk of deliveries, written as PENDING with the advanced
+     * checkpoint. Empty when the chunk had nobody to remind; null when the
+     * date is exhausted.
+     */
+    private List<ReminderDelivery> queueChunk(Long runId) {
+        renew(runId);
+        ReminderRun run = runRepository.findById(runId).orElseThrow();
+        PageRequest page = PageRequest.of(0, chunkSize);
+
+        List<Appointment> appointments;
+        if (!run.isAppointmentsDone()) {
+            appointments = appointmentRepository.findReminderChunk(run.getTargetDate(), run.getLastAppointmentId(), page);
+            if (appointments.isEmpty()) {
+                run.setAppointmentsDone(true);
+                return List.of();
+            }
+            run.setLastAppointmentId(appointments.get(appointments.size() - 1).getId());
+        } else {
+            List<AppointmentSeries> series = seriesRepository.findActiveChunk(run.getTargetDate(), run.getLastSeriesId(), page);
+            if (series.isEmpty()) return null;
+            run.setLastSeriesId(series.get(series.size() - 1).getId());
+            appointments = new ArrayList<>(seriesService.expand(series, run.getTargetDate(), run.getTargetDate()));
+            appointments.removeIf(ScheduleService::isCancelled);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ReminderDelivery> out = new ArrayList<>();
+        int skipped = 0;
+        for (Appointment a : appointments) {
+            Patient p = a.getPatient();
+            if (p == null) {
+                skipped++;
+                continue;
+            }
+            int before = out.size();
+            if (!blank(p.getPhonePrimary())) out.add(delivery(run, a, Channel.SMS, p.getPhonePrimary().trim(), now));
+            if (!blank(p.getEmail()) && p.getEmail().contains("@")) out.add(delivery(run, a, Channel.EMAIL, p.getEmail().trim(), now));
+            if (out.size() == before) skipped++;
+        }
+
+        run.setChunks(run.getChunks() + 1);
+        run.setQueued(run.getQueued() + out.size());
+        run.setSkipped(run.getSkipped() + skipped);
+        return deliveryRepository.saveAll(out);
+    }
+
+    private ReminderDelivery delivery(ReminderRun run, Appointment a, Channel channel, String recipient, LocalDateTime now) {
+        ReminderRenderer.Rendered text = renderer.render(channel, a, run.getKind());
+
+        ReminderDelivery d = new ReminderDelivery();
+        d.setRunId(run.getId());
+        d.setAppointmentRef(a.getId() != null ? "a:" + a.getId()
+                : "s:" + a.getSeries().getId() + ":" + a.getSeriesOriginalDate());
+        d.setAppointmentId(a.getId());
+        d.setPatientId(a.getPatient().getId());
+        d.setAppointmentDate(a.getDate());
+        d.setChannel(channel);
+        d.setRecipient(recipient);
+        d.setSubject(text.subject());
+        d.setBody(text.body());
+        d.setStatus(ReminderDelivery.Status.PENDING);
+        d.setCreatedAt(now);
+        return d;
+    }
+
+    // Only while this node still holds the run
+    private void finish(String shard, Long runId, Throwable error) {
+        int finished = jdbc.update("""
+                        UPDATE reminder_runs
+                        SET status = ?, error = ?, finished_at = ?, owner = NULL
+                        WHERE id = ? AND owner = ? AND status = 'RUNNING'""",
+                (error == null ? ReminderRun.Status.COMPLETED : ReminderRun.Status.FAILED).name(),
+                error == null ? null : truncate(String.valueOf(error.getMessage()), 1000),
+                Timestamp.valueOf(LocalDateTime.now()), runId, owner);
+        if (finished == 0) {
+            log.warn("Reminder run {} on shard {} was taken over by another node", runId, shard);
+            return;
+        }
+        ReminderRun run = runRepository.findById(runId).orElseThrow();
+        log.info("Reminders {} {} on shard {}: {}, {} queued, {} sent, {} failed, {} without contact",
+                run.getKind(), run.getTargetDate(), shard, run.getStatus(),
+                run.getQueued(), run.getSent(), run.getFailed(), run.getSkipped());
+    }
+
+    // ============================
+    // Sending
+    // ============================
+
+    private record Outcome(Long id, ReminderDelivery.Status status, int attempts, String externalId,
+                           String error, LocalDateTime sentAt) {}
+
+    // Sends one chunk on the pool, then records every outcome in one transaction
+    private void dispatch(Long runId, List<ReminderDelivery> chunk) {
+        List<Future<Outcome>> futures = new ArrayList<>(chunk.size());
+        for (ReminderDelivery d : chunk) {
+            ReminderMessage m = ReminderMessage.of(d);
+            futures.add(sendPool.submit(() -> deliver(m, d.getAttempts())));
+        }
+
+        List<Outcome> outcomes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < futures.size(); i++) {
+            ReminderDelivery d = chunk.get(i);
+            try {
+                outcomes.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while sending reminders");
+            } catch (ExecutionException e) {
+                outcomes.add(new Outcome(d.getId(), ReminderDelivery.Status.FAILED, d.getAttempts() + 1, null,
+                        String.valueOf(e.getCause().getMessage()), null));
+            }
+        }
+
+        int sent = (int) outcomes.stream().filter(o -> o.status() == ReminderDelivery.Status.SENT).count();
+        int failed = (int) outcomes.stream().filter(o -> o.status() == ReminderDelivery.Status.FAILED).count();
+        tx.executeWithoutResult(s -> {
+            jdbc.batchUpdate("""
+                            UPDATE reminder_deliveries
+                            SET status = ?, attempts = ?, external_id = ?, last_error = ?, sent_at = ?
+                            WHERE id = ?""",
+                    outcomes, outcomes.size(), (ps, o) -> {
+                        ps.setString(1, o.status().name());
+                        ps.setInt(2, o.attempts());
+                        ps.setString(3, o.externalId());
+                        ps.setString(4, truncate(o.error(), 500));
+                        ps.setTimestamp(5, o.sentAt() != null ? Timestamp.valueOf(o.sentAt()) : null);
+                        ps.setLong(6, o.id());
+                    });
+            jdbc.update("UPDATE reminder_runs SET sent = sent + ?, failed = failed + ? WHERE id = ?", sent, failed, runId);
+        });
+        renew(runId);
+    }
+
+    // Runs on the send pool; retries transient failures with doubling backoff
+    private Outcome deliver(ReminderMessage m, int attempts) {
+        String error = null;
+        long backoff = retryBackoff.toMillis();
+        for (int tries = 0; tries < maxAttempts; tries++) {
+            attempts++;
+            try {
+                pacers.get(m.channel()).await();
+                String externalId = sender.send(m);
+                return new Outcome(m.deliveryId(), ReminderDelivery.Status.SENT, attempts, externalId, null, LocalDateTime.now());
+            } catch (ReminderSender.Rejected e) {
+                return new Outcome(m.deliveryId(), ReminderDelivery.Status.FAILED, attempts, null, e.getMessage(), null);
+            } catch (InterruptedException e) {
+                // Left PENDING; the next run re-sends it
+                Thread.currentThread().interrupt();
+                return new Outcome(m.deliveryId(), ReminderDelivery.Status.PENDING, attempts - 1, null, null, null);
+            } catch (RuntimeException e) {
+                error = String.valueOf(e.getMessage());
+            }
+            if (tries + 1 < maxAttempts) {
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff *= 2;
+            }
+        }
+        return new Outcome(m.deliveryId(), ReminderDelivery.Status.FAILED, attempts, null, error, null);
+    }
+
+    // ---------- helpers ----------
+
+    // Spaces sends on one channel at least 1/rate apart across all workers
+    private static final class Pacer {
+        private final long intervalNanos;
+        private long nextAt = System.nanoTime();
+
+        Pacer(double ratePerSecond) {
+            this.intervalNanos = ratePerSecond > 0 ? (long) (1_000_000_000L / ratePerSecond) : 0;
+        }
+
+        void await() throws InterruptedException {
+            if (intervalNanos == 0) return;
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextAt);
+                nextAt = slot + intervalNanos;
+                wait = slot - now;
+            }
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private static String truncate(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+}
@@ -0,0 +1,52 @@
+package com.main.ehr.service.reminders;
+
+import com.main.ehr.model.ReminderDelivery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Development sender: logs instead of sending, after a configurable delay.
+ * Recipients containing "invalid" are rejected, and failure-rate of the
+ * other sends fail transiently so retries can be exercised.
+ */
+@Component
+@ConditionalOnProperty(name = "ehr.reminders.sender", havingValue = "stub", matchIfMissing = true)
+public class StubReminderSender implements ReminderSender {
+
+    private static final Logger log = LoggerFactory.getLogger(StubReminderSender.class);
+
+    private final Duration latency;
+    private final double failureRate;
+
+    public StubReminderSender(@Value("${ehr.reminders.stub.latency:50ms}") Duration latency,
+                              @Value("${ehr.reminders.stub.failure-rate:0}") double failureRate) {
+        this.latency = latency;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public String send(ReminderMessage m) {
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted");
+        }
+        if (m.recipient().toLowerCase().contains("invalid")) {
+            throw new Rejected("Undeliverable " + m.channel().name().toLowerCase() + " recipient");
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("Gateway unavailable");
+        }
+        log.debug("Reminder {} to {}: {}", m.channel(), m.recipient(),
+                m.channel() == ReminderDelivery.Channel.EMAIL ? m.subject() : m.body());
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,160 @@
+package com.main.ehr.service.rooms;
+
+import java.util.*;
+
+/**
+ * Interval-partitioning room allocator for one clinic day.
+ *
+ * Appointments are intervals in minutes of the day. Existing assignments are
+ * kept first (the earlier-booked appointment wins a double-booked room),
+ * then everything else is placed in start order: a provider's preferred
+ * rooms in rank order, then the room the provider was last in, then the
+ * best-fit free room (the one whose previous booking ended latest). Each
+ * room keeps a TreeMap of its bookings, so a free check is two log-time
+ * lookups and a whole day is O(n log n + n·rooms·log n).
+ *
+ * Pure and stateless apart from the per-call Occupancy; the service layer
+ * decides what to load and how to apply the result.
+ */
+public final class RoomAllocator {
+
+    private RoomAllocator() {}
+
+    public record Slot(long appointmentId, Long providerId, int start, int end, Long currentRoomId) {
+        // Zero-length bookings still hold the room for a minute
+        int effectiveEnd() {
+            return Math.max(end, start + 1);
+        }
+    }
+
+    public record Placement(long appointmentId, Long roomId, Long previousRoomId) {
+        public boolean changed() {
+            return !Objects.equals(roomId, previousRoomId);
+        }
+    }
+
+    public record Result(List<Placement> placements, List<Long> unplaced) {}
+
+    // ============================
+    // Whole day
+    // ============================
+
+    public static Result assignDay(List<Slot> slots, List<Long> roomIds, Map<Long, List<Long>> preferences) {
+        Occupancy occ = new Occupancy(roomIds);
+        List<Placement> placements = new ArrayList<>(slots.size());
+        List<Long> unplaced = new ArrayList<>();
+
+        // Pass 1: keep what is already assigned, earliest booking first
+        List<Slot> byId = new ArrayList<>(slots);
+        byId.sort(Comparator.comparingLong(Slot::appointmentId));
+        List<Slot> toPlace = new ArrayList<>();
+        for (Slot s : byId) {
+            if (s.currentRoomId() != null && occ.isFree(s.currentRoomId(), s.start(), s.effectiveEnd())) {
+                occ.book(s.currentRoomId(), s);
+                placements.add(new Placement(s.appointmentId(), s.currentRoomId(), s.currentRoomId()));
+            } else {
+                toPlace.add(s);
+            }
+        }
+
+        // Pass 2: place the rest in start order
+        toPlace.sort(Comparator.comparingInt(Slot::start).thenComparingInt(Slot::end)
+                .thenComparingLong(Slot::appointmentId));
+        for (Slot s : toPlace) {
+            Long room = choose(occ, s, preferences.getOrDefault(s.providerId(), List.of()));
+            if (room == null) {
+                unplaced.add(s.appointmentId());
+                placements.add(new Placement(s.appointmentId(), null, s.currentRoomId()));
+            } else {
+                occ.book(room, s);
+                placements.add(new Placement(s.appointmentId(), room, s.currentRoomId()));
+            }
+        }
+        return new Result(placements, unplaced);
+    }
+
+    // ============================
+    // One appointment against the rest of the day (incremental)
+    // ============================
+
+    /** Room for slot given everyone else's current rooms; null when every room is taken. */
+    public static Long placeOne(Slot slot, List<Slot> others, List<Long> roomIds, List<Long> preferredRooms) {
+        Occupancy occ = new Occupancy(roomIds);
+        for (Slot o : others) {
+            if (o.currentRoomId() != null && occ.isFree(o.currentRoomId(), o.start(), o.effectiveEnd())) {
+                occ.book(o.currentRoomId(), o);
+            }
+        }
+        if (slot.currentRoomId() != null && occ.isFree(slot.currentRoomId(), slot.start(), slot.effectiveEnd())) {
+            return slot.currentRoomId();
+        }
+        return choose(occ, slot, preferredRooms);
+    }
+
+    // ---------- helpers ----------
+
+    private static Long choose(Occupancy occ, Slot s, List<Long> preferred) {
+        int start = s.start(), end = s.effectiveEnd();
+
+        for (Long room : preferred) {
+            if (occ.isFree(room, start, end)) return room;
+        }
+
+        Long last = occ.providerRoomBefore(s.providerId(), start);
+        if (last != null && occ.isFree(last, start, end)) return last;
+
+        // Best fit: the free room whose previous booking ended closest to this start
+        Long best = null;
+        int bestEnd = Integer.MIN_VALUE;
+        for (Long room : occ.rooms()) {
+            if (!occ.isFree(room, start, end)) continue;
+            int prevEnd = occ.lastEndBefore(room, start);
+            if (prevEnd > bestEnd) {
+                best = room;
+                bestEnd = prevEnd;
+            }
+        }
+        return best;
+    }
+
+    private static final class Occupancy {
+        private final Map<Long, TreeMap<Integer, Slot>> byRoom = new LinkedHashMap<>();
+        private final Map<Long, TreeMap<Integer, Long>> providerRooms = new HashMap<>();
+
+        Occupancy(List<Long> roomIds) {
+            for (Long id : roomIds) byRoom.put(id, new TreeMap<>());
+        }
+
+        Set<Long> rooms() {
+            return byRoom.keySet();
+        }
+
+        boolean isFree(Long room, int start, int end) {
+            TreeMap<Integer, Slot> booked = byRoom.get(room);
+            if (booked == null) return false;
+            Map.Entry<Integer, Slot> before = booked.floorEntry(start);
+            if (before != null && before.getValue().effectiveEnd() > start) return false;
+            Map.Entry<Integer, Slot> after = booked.ceilingEntry(start);
+            return after == null || after.getKey() >= end;
+        }
+
+        void book(Long room, Slot s) {
+            byRoom.get(room).put(s.start(), s);
+            if (s.providerId() != null) {
+                providerRooms.computeIfAbsent(s.providerId(), k -> new TreeMap<>()).put(s.start(), room);
+            }
+        }
+
+        int lastEndBefore(Long room, int start) {
+            Map.Entry<Integer, Slot> e = byRoom.get(room).floorEntry(start);
+            return e == null ? -1 : e.getValue().effectiveEnd();
+        }
+
+        Long providerRoomBefore(Long providerId, int start) {
+            TreeMap<Integer, Long> rooms = providerRooms.get(providerId);
+            if (rooms == null) return null;
+            Map.Entry<Integer, Long> e = rooms.floorEntry(start);
+            return e == null ? null : e.getValue();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.main.ehr.service.rooms;
+
+import com.main.ehr.event.AppointmentChangedEvent;
+import com.main.ehr.event.AppointmentSnapshot;
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.Provider;
+import com.main.ehr.model.Room;
+import com.main.ehr.repository.AppointmentRepository;
+import com.main.ehr.repository.ProviderRepository;
+import com.main.ehr.repository.RoomRepository;
+import com.main.ehr.service.BookingLockService;
+import com.main.ehr.service.ScheduleService;
+import com.main.ehr.service.archive.AppointmentArchiveHorizon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns rooms to stored appointments (see RoomAllocator).
+ *
+ * assignDay() re-plans a whole day, keeping existing rooms where they do not
+ * clash. With auto-assign on, every create/update that touches the time,
+ * date or provider (or has no room yet) re-places just that appointment
+ * inside the writing transaction. Recurring occurrences that were never
+ * materialized have no row and so no room until they are edited.
+ *
+ * Rooms are shared by all providers, so placement is serialized per date:
+ * appointment writers hold the rooms of their dates from the start of their
+ * transaction (BookingLockService), and assignDay takes the same lock. A
+ * placement therefore reads every room taken by committed writes of other
+ * providers on that date, on this node or another.
+ *
+ * Room changes publish AppointmentChangedEvent like any other update, so
+ * they show up in the appointment history.
+ */
+@Service
+public class RoomAssignmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomAssignmentService.class);
+
+    private final AppointmentRepository appointmentRepository;
+    private final ProviderRepository providerRepository;
+    private final RoomRepository roomRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AppointmentArchiveHorizon archiveHorizon;
+    private final BookingLockService bookingLocks;
+    private final boolean autoAssign;
+
+    public RoomAssignmentService(AppointmentRepository appointmentRepository,
+                                 ProviderRepository providerRepository,
+                                 RoomRepository roomRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 AppointmentArchiveHorizon archiveHorizon,
+                                 BookingLockService bookingLocks,
+                                 @Value("${ehr.rooms.auto-assign:true}") boolean autoAssign) {
+        this.appointmentRepository = appointmentRepository;
+        this.providerRepository = providerRepository;
+        this.roomRepository = roomRepository;
+        this.eventPublisher = eventPublisher;
+        this.archiveHorizon = archiveHorizon;
+        this.bookingLocks = bookingLocks;
+        this.autoAssign = autoAssign;
+    }
+
+    public record DaySummary(LocalDate date, int appointments, int rooms, int kept, int moved,
+                             int assigned, List<Long> unplaced, long elapsedMicros) {}
+
+    // ============================
+    // Whole day
+    // ============================
+
+    public DaySummary assignDay(LocalDate date) {
+        // Archived rows come back detached and read-only; there is nothing to re-plan
+        if (archiveHorizon.reaches(date)) {
+            throw new IllegalArgumentException("Appointments on " + date + " are archived and read-only");
+        }
+        return bookingLocks.inRoomDay(date, status -> planDay(date));
+    }
+
+    private DaySummary planDay(LocalDate date) {
+        List<Appointment> day = roomable(appointmentRepository.findByDateBetween(date, date));
+        Map<Long, Room> rooms = roomsById();
+
+        long t0 = System.nanoTime();
+        RoomAllocator.Result result = RoomAllocator.assignDay(
+                day.stream().map(RoomAssignmentService::slot).toList(),
+                List.copyOf(rooms.keySet()),
+                preferences(day));
+        long micros = (System.nanoTime() - t0) / 1000;
+
+        Map<Long, Appointment> byId = day.stream().collect(Collectors.toMap(Appointment::getId, a -> a));
+        int kept = 0, moved = 0, assigned = 0;
+        for (RoomAllocator.Placement p : result.placements()) {
+            if (!p.changed()) {
+                if (p.roomId() != null) kept++;
+                continue;
+            }
+            if (p.roomId() != null) {
+                if (p.previousRoomId() == null) assigned++;
+                else moved++;
+            }
+            moveTo(byId.get(p.appointmentId()), p.roomId() == null ? null : rooms.get(p.roomId()));
+        }
+
+        if (!result.unplaced().isEmpty()) {
+            log.warn("No free room on {} for appointments {}", date, result.unplaced());
+        }
+        return new DaySummary(date, day.size(), rooms.size(), kept, moved, assigned, result.unplaced(), micros);
+    }
+
+    /** Per room, the day's appointments in time order; key null holds those without a room. */
+    @Transactional(readOnly = true)
+    public Map<String, List<Map<String, Object>>> daySheet(LocalDate date) {
+        Map<String, List<Map<String, Object>>> out = new LinkedHashMap<>();
+        for (Room r : roomRepository.findAllByOrderByIdAsc()) out.put(r.getName(), new ArrayList<>());
+
+        List<Appointment> day = new ArrayList<>(roomable(appointmentRepository.findByDateBetween(date, date)));
+        day.sort(Comparator.comparing(Appointment::getTimeStart));
+        for (Appointment a : day) {
+            String key = a.getRoom() != null ? a.getRoom().getName() : "(unassigned)";
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", a.getId());
+            m.put("start", a.getTimeStart().toString());
+            m.put("end", a.getTimeEnd().toString());
+            m.put("providerId", a.getProvider() != null ? a.getProvider().getId() : null);
+            out.computeIfAbsent(key, k -> new ArrayList<>()).add(m);
+        }
+        return out;
+    }
+
+    @Transactional
+    public List<Long> setPreferences(Long providerId, List<Long> roomIds) {
+        Provider p = providerRepository.findById(providerId)
+                .orElseThrow(() -> new NoSuchElementException("Provider not found"));
+        Map<Long, Room> rooms = roomsById();
+        List<Room> preferred = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(roomIds)) {
+            Room r = rooms.get(id);
+            if (r == null) throw new IllegalArgumentException("Unknown room " + id);
+            preferred.add(r);
+        }
+        p.getPreferredRooms().clear();
+        p.getPreferredRooms().addAll(preferred);
+        return preferred.stream().map(Room::getId).toList();
+    }
+
+    // ============================
+    // Incremental: re-place only the appointment that changed
+    // ============================
+
+    @EventListener
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (!autoAssign || event.type() == AppointmentChangedEvent.Type.DELETED) return;
+
+        AppointmentSnapshot after = event.after();
+        if (after.isCancelled() || after.timeStart() == null || after.timeEnd() == null) return;
+        if (!affectsRoom(event.before(), after)) return;
+
+        appointmentRepository.findById(after.id()).ifPresent(this::placeOne);
+    }
+
+    // Runs in the writer's transaction, which holds the rooms of a's date
+    private void placeOne(Appointment a) {
+        Map<Long, Room> rooms = roomsById();
+        if (rooms.isEmpty()) return;
+
+        List<RoomAllocator.Slot> others = roomable(appointmentRepository.findByDateBetween(a.getDate(), a.getDate()))
+                .stream()
+                .filter(o -> !o.getId().equals(a.getId()))
+                .map(RoomAssignmentService::slot)
+                .toList();
+
+        List<Long> preferred = a.getProvider() == null ? List.of()
+                : a.getProvider().getPreferredRooms().stream().map(Room::getId).toList();
+
+        Long room = RoomAllocator.placeOne(slot(a), others, List.copyOf(rooms.keySet()), preferred);
+        if (!Objects.equals(room, a.getRoom() != null ? a.getRoom().getId() : null)) {
+            moveTo(a, room == null ? null : rooms.get(room));
+        }
+        if (room == null) {
+            log.warn("No free room for appointment {} on {}", a.getId(), a.getDate());
+        }
+    }
+
+    // ---------- helpers ----------
+
+    private void moveTo(Appointment a, Room room) {
+        AppointmentSnapshot before = AppointmentSnapshot.of(a);
+        a.setRoom(room);
+        eventPublisher.publishEvent(AppointmentChangedEvent.updated(before, AppointmentSnapshot.of(a)));
+    }
+
+    private static boolean affectsRoom(AppointmentSnapshot before, AppointmentSnapshot after) {
+        if (before == null || after.roomId() == null) return true;
+        return !Objects.equals(before.date(), after.date())
+                || !Objects.equals(before.timeStart(), after.timeStart())
+                || !Objects.equals(before.timeEnd(), after.timeEnd())
+                || !Objects.equals(before.providerId(), after.providerId())
+                || before.isCancelled() != after.isCancelled();
+    }
+
+    private static List<Appointment> roomable(List<Appointment> appointments) {
+        return appointments.stream()
+                .filter(a -> !ScheduleService.isCancelled(a))
+                .filter(a -> a.getTimeStart() != null && a.getTimeEnd() != null)
+                .toList();
+    }
+
+    private static RoomAllocator.Slot slot(Appointment a) {
+        return new RoomAllocator.Slot(
+                a.getId(),
+                a.getProvider() != null ? a.getProvider().getId() : null,
+                a.getTimeStart().toSecondOfDay() / 60,
+                a.getTimeEnd().toSecondOfDay() / 60,
+                a.getRoom() != null ? a.getRoom().getId() : null);
+    }
+
+    private Map<Long, Room> roomsById() {
+        Map<Long, Room> rooms = new LinkedHashMap<>();
+        for (Room r : roomRepository.findAllByOrderByIdAsc()) rooms.put(r.getId(), r);
+        return rooms;
+    }
+
+    private Map<Long, List<Long>> preferences(List<Appointment> day) {
+        Map<Long, List<Long>> prefs = new HashMap<>();
+        for (Appointment a : day) {
+            Provider p = a.getProvider();
+            if (p != null && !prefs.containsKey(p.getId())) {
+                prefs.put(p.getId(), p.getPreferredRooms().stream().map(Room::getId).toList());
+            }
+        }
+        return prefs;
+    }
+}
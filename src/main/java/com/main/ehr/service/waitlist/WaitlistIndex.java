@@ -0,0 +1,135 @@
+package com.main.ehr.service.waitlist;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Waiting patients bucketed by (provider, day), each bucket ordered best
+ * first: urgency, then time on the list. An entry sits in one bucket per
+ * day of its date range (capped at the horizon); entries for any provider
+ * go to the (null, day) buckets. A freed slot therefore only looks at the
+ * two buckets for its provider and day, walking them in priority order
+ * until enough candidates fit the slot's time.
+ *
+ * Pure in-memory structure; WaitlistService keeps it in step with the
+ * database.
+ */
+public class WaitlistIndex {
+
+    public record Candidate(Long id, Long patientId, Long providerId, LocalDate earliest, LocalDate latest,
+                            LocalTime windowStart, LocalTime windowEnd, int durationMinutes,
+                            int urgency, LocalDateTime createdAt) {
+
+        // Starting at the slot start, the visit must fit both the slot and the patient's window
+        boolean fits(Slot s) {
+            LocalTime end = s.start().plusMinutes(durationMinutes);
+            if (end.isBefore(s.start()) || end.isAfter(s.end())) return false;
+            if (windowStart != null && s.start().isBefore(windowStart)) return false;
+            return windowEnd == null || !end.isAfter(windowEnd);
+        }
+    }
+
+    public record Slot(Long providerId, LocalDate date, LocalTime start, LocalTime end) {
+        public int minutes() {
+            return (int) Duration.between(start, end).toMinutes();
+        }
+    }
+
+    private record Bucket(Long providerId, LocalDate date) {}
+
+    static final Comparator<Candidate> PRIORITY = Comparator
+            .comparingInt(Candidate::urgency).reversed()
+            .thenComparing(Candidate::createdAt)
+            .thenComparing(Candidate::id);
+
+    private final int horizonDays;
+    private final Map<Bucket, NavigableSet<Candidate>> buckets = new ConcurrentHashMap<>();
+    private final Map<Long, Candidate> active = new ConcurrentHashMap<>();
+
+    public WaitlistIndex(int horizonDays) {
+        this.horizonDays = horizonDays;
+    }
+
+    public void add(Candidate c) {
+        remove(c.id());
+        active.put(c.id(), c);
+        for (LocalDate d : days(c)) {
+            buckets.computeIfAbsent(new Bucket(c.providerId(), d), k -> new ConcurrentSkipListSet<>(PRIORITY)).add(c);
+        }
+    }
+
+    public boolean remove(Long id) {
+        Candidate c = active.remove(id);
+        if (c == null) return false;
+        for (LocalDate d : days(c)) {
+            Bucket key = new Bucket(c.providerId(), d);
+            NavigableSet<Candidate> set = buckets.get(key);
+            if (set == null) continue;
+            set.remove(c);
+            if (set.isEmpty()) buckets.remove(key, set);
+        }
+        return true;
+    }
+
+    public void clear() {
+        buckets.clear();
+        active.clear();
+    }
+
+    public int size() {
+        return active.size();
+    }
+
+    public int bucketCount() {
+        return buckets.size();
+    }
+
+    /** Up to limit candidates that fit the slot, best first. */
+    public List<Candidate> match(Slot slot, int limit) {
+        Iterator<Candidate> own = iterator(new Bucket(slot.providerId(), slot.date()));
+        Iterator<Candidate> any = iterator(new Bucket(null, slot.date()));
+
+        List<Candidate> out = new ArrayList<>(limit);
+        Candidate a = next(own, slot), b = next(any, slot);
+        while (out.size() < limit && (a != null || b != null)) {
+            if (b == null || (a != null && PRIORITY.compare(a, b) <= 0)) {
+                out.add(a);
+                a = next(own, slot);
+            } else {
+                out.add(b);
+                b = next(any, slot);
+            }
+        }
+        return out;
+    }
+
+    // ---------- helpers ----------
+
+    private Iterator<Candidate> iterator(Bucket key) {
+        NavigableSet<Candidate> set = buckets.get(key);
+        return set == null ? Collections.emptyIterator() : set.iterator();
+    }
+
+    private static Candidate next(Iterator<Candidate> it, Slot slot) {
+        while (it.hasNext()) {
+            Candidate c = it.next();
+            if (c.fits(slot)) return c;
+        }
+        return null;
+    }
+
+    // Days still ahead within the horizon; computed from today, so the index is rebuilt daily
+    private List<LocalDate> days(Candidate c) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = c.earliest().isBefore(today) ? today : c.earliest();
+        LocalDate to = c.latest().isAfter(today.plusDays(horizonDays)) ? today.plusDays(horizonDays) : c.latest();
+        List<LocalDate> out = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) out.add(d);
+        return out;
+    }
+}
@@ -0,0 +1,537 @@
+package com.main.ehr.service.waitlist;
+
+import com.main.ehr.config.datasource.ClinicContext;
+import com.main.ehr.config.datasource.ShardDirectory;
+import com.main.ehr.dto.WaitlistRequest;
+import com.main.ehr.event.AppointmentChangedEvent;
+import com.main.ehr.event.AppointmentSnapshot;
+import com.main.ehr.model.Appointment;
+import com.main.ehr.model.WaitlistEntry;
+import com.main.ehr.model.WaitlistEntry.Status;
+import com.main.ehr.repository.AppointmentRepository;
+import com.main.ehr.repository.PatientRepository;
+import com.main.ehr.repository.ProviderRepository;
+import com.main.ehr.repository.WaitlistEntryRepository;
+import com.main.ehr.service.BookingLockService;
+import com.main.ehr.service.BookingLockService.ProviderDay;
+import com.main.ehr.service.ScheduleService;
+import com.main.ehr.service.waitlist.WaitlistIndex.Candidate;
+import com.main.ehr.service.waitlist.WaitlistIndex.Slot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Fills freed slots from the waitlist.
+ *
+ * After an appointment is cancelled, deleted or moved, its old slot is
+ * queued to a single matcher thread, which asks the WaitlistIndex for the
+ * best waiting patients on that provider and day and offers the slot to the
+ * first one it still fits (re-checked against the schedule). The offer holds
+ * for offer-ttl; accept books it, decline or expiry hand the slot to the
+ * next candidate. An open offer holds its time: a freed slot that overlaps
+ * one is not offered again, and offers are written under the provider-day
+ * booking lock, so two matchers (or two nodes) cannot offer the same time.
+ * A batch of cancellations (a provider calling out sick) simply queues up
+ * behind the matcher thread, each match touching only two index buckets.
+ *
+ * Every node keeps one index per shard, loaded at startup and rebuilt after
+ * midnight. In between, each node re-reads every few seconds the entries
+ * written since its last refresh (updatedAt, with a small overlap). Entries
+ * added, offered, released or removed on other nodes thus reach its
+ * matcher too. An entry that went stale in between is caught by the
+ * re-check under the lock.
+ */
+@Service
+public class WaitlistService {
+
+    private static final Logger log = LoggerFactory.getLogger(WaitlistService.class);
+
+    private enum Outcome { OFFERED, STALE, SLOT_TAKEN }
+
+    private record Offer(Long entryId, Long providerId, LocalDate date, LocalTime start, LocalTime end,
+                         List<Long> alternates) {}
+
+    private final WaitlistEntryRepository waitlistRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final PatientRepository patientRepository;
+    private final ProviderRepository providerRepository;
+    private final ScheduleService scheduleService;
+    private final BookingLockService bookingLocks;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardDirectory shardDirectory;
+    private final TransactionTemplate tx;
+    private final Map<String, ShardIndex> indexes = new LinkedHashMap<>();
+    private final Duration offerTtl;
+    private final Duration refreshOverlap;
+    private final int alternates;
+    private final ExecutorService matcher;
+
+    private final AtomicLong slotsFreed = new AtomicLong();
+    private final AtomicLong offersMade = new AtomicLong();
+    private final AtomicLong slotsUnfilled = new AtomicLong();
+    private final AtomicLong matchCount = new AtomicLong();
+    private final AtomicLong matchMicrosTotal = new AtomicLong();
+    private final AtomicLong matchMicrosMax = new AtomicLong();
+    private volatile long matchMicrosLast;
+
+    public WaitlistService(WaitlistEntryRepository waitlistRepository,
+                           AppointmentRepository appointmentRepository,
+                           PatientRepository patientRepository,
+                           ProviderRepository providerRepository,
+                           ScheduleService scheduleService,
+                           BookingLockService bookingLocks,
+                           ApplicationEventPublisher eventPublisher,
+                           ShardDirectory shardDirectory,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${ehr.waitlist.offer-ttl:2h}") Duration offerTtl,
+                           @Value("${ehr.waitlist.horizon-days:60}") int horizonDays,
+                           @Value("${ehr.waitlist.alternates:3}") int alternates,
+                           @Value("${ehr.waitlist.refresh-overlap:1m}") Duration refreshOverlap) {
+        this.waitlistRepository = waitlistRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.patientRepository = patientRepository;
+        this.providerRepository = providerRepository;
+        this.scheduleService = scheduleService;
+        this.bookingLocks = bookingLocks;
+        this.eventPublisher = eventPublisher;
+        this.shardDirectory = shardDirectory;
+        this.tx = new TransactionTemplate(transactionManager);
+        shardDirectory.shards().forEach(shard -> indexes.put(shard, new ShardIndex(new WaitlistIndex(horizonDays))));
+        this.offerTtl = offerTtl;
+        this.refreshOverlap = refreshOverlap;
+        this.alternates = Math.max(0, alternates);
+        this.matcher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "waitlist-matcher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        matcher.shutdownNow();
+    }
+
+    // ============================
+    // Index
+    // ============================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        matcher.execute(() -> forEachShard("loading the index", this::reindex));
+    }
+
+    // Bucket days are counted from today, so the index is rebuilt after midnight
+    @Scheduled(cron = "${ehr.waitlist.reindex-cron:0 5 0 * * *}")
+    public void rebuild() {
+        matcher.execute(() -> forEachShard("rebuilding the index", this::reindex));
+    }
+
+    // On the matcher thread, so a refresh never runs in the middle of a match
+    @Scheduled(fixedDelayString = "${ehr.waitlist.refresh-interval:PT10S}",
+            initialDelayString = "${ehr.waitlist.refresh-interval:PT10S}")
+    public void refresh() {
+        matcher.execute(() -> forEachShard("refreshing the index", this::refreshChanged));
+    }
+
+    private void reindex(String shard, ShardIndex si) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<Candidate> waiting = tx.execute(s -> waitlistRepository.findByStatus(Status.WAITING).stream()
+                .map(WaitlistService::candidate)
+                .toList());
+        si.index.clear();
+        waiting.forEach(si.index::add);
+        si.watermark = startedAt;
+        log.info("Waitlist index of shard {}: {} waiting entries in {} buckets",
+                shard, si.index.size(), si.index.bucketCount());
+    }
+
+    private void refreshChanged(String shard, ShardIndex si) {
+        if (si.watermark == null) {
+            reindex(shard, si);
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        // Re-read a little before the watermark: an entry stamped just before
+        // the last refresh may have committed just after it
+        tx.executeWithoutResult(s -> {
+            for (WaitlistEntry e : waitlistRepository.findByUpdatedAtGreaterThanEqual(
+                    si.watermark.minus(refreshOverlap))) {
+                if (e.getStatus() == Status.WAITING) {
+                    si.index.add(candidate(e));
+                } else {
+                    si.index.remove(e.getId());
+                }
+            }
+        });
+        si.watermark = startedAt;
+    }
+
+    // ============================
+    // Entries
+    // ============================
+
+    public WaitlistEntry add(WaitlistRequest req) {
+        if (req.patientId() == null) throw new IllegalArgumentException("patientId is required");
+        LocalDate earliest = req.earliestDate() != null ? LocalDate.parse(req.earliestDate()) : LocalDate.now();
+        LocalDate latest = req.latestDate() != null ? LocalDate.parse(req.latestDate()) : earliest.plusDays(30);
+        LocalTime windowStart = req.windowStart() != null ? LocalTime.parse(req.windowStart()) : null;
+        LocalTime windowEnd = req.windowEnd() != null ? LocalTime.parse(req.windowEnd()) : null;
+        int duration = req.durationMinutes() != null ? req.durationMinutes() : 15;
+
+        if (latest.isBefore(earliest)) throw new IllegalArgumentException("latestDate is before earliestDate");
+        if (windowStart != null && windowEnd != null && !windowEnd.isAfter(windowStart)) {
+            throw new IllegalArgumentException("windowEnd must be after windowStart");
+        }
+        if (duration <= 0) throw new IllegalArgumentException("durationMinutes must be positive");
+
+        WaitlistEntry saved = tx.execute(s -> {
+            WaitlistEntry e = new WaitlistEntry();
+            e.setPatient(patientRepository.findById(req.patientId())
+                    .orElseThrow(() -> new NoSuchElementException("Patient not found")));
+            if (req.providerId() != null) {
+                e.setProvider(providerRepository.findById(req.providerId())
+                        .orElseThrow(() -> new NoSuchElementException("Provider not found")));
+            }
+            e.setEarliestDate(earliest);
+            e.setLatestDate(latest);
+            e.setWindowStart(windowStart);
+            e.setWindowEnd(windowEnd);
+            e.setDurationMinutes(duration);
+            e.setUrgency(req.urgency() != null ? req.urgency() : 0);
+            e.setAppointmentType(req.appointmentType());
+            e.setReason(req.reason());
+            e.setStatus(Status.WAITING);
+            e.setCreatedAt(LocalDateTime.now());
+            return waitlistRepository.save(e);
+        });
+
+        index().add(candidate(saved));
+        return saved;
+    }
+
+    public void remove(Long id) {
+        tx.executeWithoutResult(s -> {
+            WaitlistEntry e = find(id);
+            if (e.getStatus() == Status.BOOKED) throw new IllegalStateException("Entry is already booked");
+            e.setStatus(Status.REMOVED);
+            clearOffer(e);
+        });
+        index().remove(id);
+    }
+
+    public List<WaitlistEntry> active() {
+        return tx.execute(s -> waitlistRepository.findByStatusInOrderByIdAsc(List.of(Status.WAITING, Status.OFFERED)));
+    }
+
+    // ============================
+    // Freed slots
+    // ============================
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        Slot slot = freedSlot(event);
+        if (slot == null) return;
+
+        // Runs on the committing thread, so the current shard is the one the slot was freed on
+        String shard = shardDirectory.currentShard();
+        slotsFreed.incrementAndGet();
+        long queuedAt = System.nanoTime();
+        matcher.execute(() -> onShard(shard, index -> offerSlot(index, slot, queuedAt)));
+    }
+
+    // The slot an appointment occupied, if this change gave it up
+    static Slot freedSlot(AppointmentChangedEvent event) {
+        AppointmentSnapshot before = event.before();
+        if (before == null || before.isCancelled()) return null;
+        if (before.providerId() == null || before.date() == null
+                || before.timeStart() == null || before.timeEnd() == null) return null;
+        if (before.date().isBefore(LocalDate.now())) return null;
+
+        AppointmentSnapshot after = event.after();
+        boolean freed = switch (event.type()) {
+            case DELETED -> true;
+            case UPDATED -> after.isCancelled()
+                    || !Objects.equals(before.providerId(), after.providerId())
+                    || !Objects.equals(before.date(), after.date())
+                    || !Objects.equals(before.timeStart(), after.timeStart())
+                    || !Objects.equals(before.timeEnd(), after.timeEnd());
+            case CREATED -> false;
+        };
+        return freed ? new Slot(before.providerId(), before.date(), before.timeStart(), before.timeEnd()) : null;
+    }
+
+    // Runs on the matcher thread only, pinned to the index's shard
+    private void offerSlot(WaitlistIndex index, Slot slot, long queuedAt) {
+        try {
+            Offer offer = null;
+            List<Candidate> ranked;
+            do {
+                ranked = index.match(slot, alternates + 1);
+                for (int i = 0; i < ranked.size() && offer == null; i++) {
+                    Candidate c = ranked.get(i);
+                    index.remove(c.id());
+                    Outcome o = tryOffer(c, slot);
+                    if (o == Outcome.SLOT_TAKEN) {
+                        // Rebooked or offered by someone else in the meantime
+                        index.add(c);
+                        return;
+                    }
+                    if (o == Outcome.OFFERED) {
+                        List<Long> next = ranked.subList(i + 1, ranked.size()).stream().map(Candidate::id).toList();
+                        offer = new Offer(c.id(), slot.providerId(), slot.date(), slot.start(),
+                                slot.start().plusMinutes(c.durationMinutes()), next);
+                    }
+                }
+            } while (offer == null && !ranked.isEmpty());
+
+            if (offer == null) {
+                slotsUnfilled.incrementAndGet();
+                return;
+            }
+            offersMade.incrementAndGet();
+            long micros = (System.nanoTime() - queuedAt) / 1000;
+            recordLatency(micros);
+            log.info("Waitlist: offered provider {} {} {}-{} to entry {} in {} us (next: {})",
+                    offer.providerId(), offer.date(), offer.start(), offer.end(), offer.entryId(), micros,
+                    offer.alternates());
+        } catch (RuntimeException e) {
+            log.warn("Waitlist: matching provider {} {} {} failed", slot.providerId(), slot.date(), slot.start(), e);
+        }
+    }
+
+    private Outcome tryOffer(Candidate c, Slot slot) {
+        LocalTime end = slot.start().plusMinutes(c.durationMinutes());
+        try {
+            return bookingLocks.inProviderDays(List.of(new ProviderDay(slot.providerId(), slot.date())), false, s -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (!scheduleService.findOverlapping(slot.providerId(), slot.date(), slot.start(), end, null).isEmpty()
+                        || waitlistRepository.existsOpenOfferOverlapping(slot.providerId(), slot.date(),
+                                slot.start(), end, now)) {
+                    return Outcome.SLOT_TAKEN;
+                }
+                WaitlistEntry e = waitlistRepository.findById(c.id()).orElse(null);
+                if (e == null || e.getStatus() != Status.WAITING) return Outcome.STALE;
+
+                e.setStatus(Status.OFFERED);
+                e.setOfferProviderId(slot.providerId());
+                e.setOfferDate(slot.date());
+                e.setOfferStart(slot.start());
+                e.setOfferEnd(end);
+                e.setOfferedAt(now);
+                e.setOfferExpiresAt(now.plus(offerTtl));
+                return Outcome.OFFERED;
+            });
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Removed or changed by staff while we were matching
+            return Outcome.STALE;
+        } catch (IllegalStateException e) {
+            // Provider-day lock timed out: a booking is in progress there, so treat the slot as taken
+            return Outcome.SLOT_TAKEN;
+        }
+    }
+
+    // ============================
+    // Offer responses
+    // ============================
+
+    /**
+     * Books the offered slot. If it has been taken meanwhile the entry goes
+     * back on the waitlist and IllegalStateException is thrown.
+     */
+    public Appointment accept(Long id) {
+        WaitlistEntry offered = tx.execute(s -> find(id));
+        if (offered.getStatus() != Status.OFFERED) throw new IllegalStateException("Entry has no open offer");
+        if (offered.getOfferExpiresAt().isBefore(LocalDateTime.now())) throw new IllegalStateException("Offer has expired");
+
+        Appointment booked = bookingLocks.inProviderDays(
+                List.of(new ProviderDay(offered.getOfferProviderId(), offered.getOfferDate())), status -> {
+                    WaitlistEntry e = find(id);
+                    if (e.getStatus() != Status.OFFERED) throw new IllegalStateException("Entry has no open offer");
+
+                    if (!scheduleService.findOverlapping(e.getOfferProviderId(), e.getOfferDate(),
+                            e.getOfferStart(), e.getOfferEnd(), null).isEmpty()) {
+                        e.setStatus(Status.WAITING);
+                        clearOffer(e);
+                        return null;
+                    }
+
+                    Appointment a = new Appointment();
+                    a.setProvider(providerRepository.findById(e.getOfferProviderId())
+                            .orElseThrow(() -> new NoSuchElementException("Provider not found")));
+                    a.setPatient(e.getPatient());
+                    a.setDate(e.getOfferDate());
+                    a.setTimeStart(e.getOfferStart());
+                    a.setTimeEnd(e.getOfferEnd());
+                    a.setDurationMinutes(e.getDurationMinutes());
+                    a.setAppointmentType(e.getAppointmentType());
+                    a.setStatus("Scheduled");
+                    a.setReason(e.getReason());
+                    appointmentRepository.save(a);
+                    eventPublisher.publishEvent(AppointmentChangedEvent.created(AppointmentSnapshot.of(a)));
+
+                    e.setStatus(Status.BOOKED);
+                    e.setBookedAppointmentId(a.getId());
+                    return a;
+                });
+
+        if (booked == null) {
+            index().add(candidate(offered));
+            throw new IllegalStateException("The offered slot has been taken; the patient is back on the waitlist");
+        }
+        return booked;
+    }
+
+    public void decline(Long id) {
+        release(id, false);
+    }
+
+    @Scheduled(cron = "${ehr.waitlist.expiry-cron:0 * * * * *}")
+    public void expireOffers() {
+        forEachShard("expiring offers", (shard, si) -> expireOffersOnShard());
+    }
+
+    private void expireOffersOnShard() {
+        List<Long> expired = tx.execute(s -> waitlistRepository
+                .findByStatusAndOfferExpiresAtBefore(Status.OFFERED, LocalDateTime.now()).stream()
+                .map(WaitlistEntry::getId)
+                .toList());
+        for (Long id : expired) {
+            try {
+                release(id, true);
+            } catch (RuntimeException e) {
+                log.warn("Waitlist: expiring offer {} failed: {}", id, e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) log.info("Waitlist: {} offers expired", expired.size());
+    }
+
+    // Puts the entry back to WAITING; its slot goes to the next candidate before it rejoins the index
+    private void release(Long id, boolean expiredOnly) {
+        record Released(Slot slot, Candidate candidate) {}
+
+        Released r = tx.execute(s -> {
+            WaitlistEntry e = find(id);
+            if (e.getStatus() != Status.OFFERED) throw new IllegalStateException("Entry has no open offer");
+            if (expiredOnly && e.getOfferExpiresAt().isAfter(LocalDateTime.now())) return null;
+
+            Slot slot = new Slot(e.getOfferProviderId(), e.getOfferDate(), e.getOfferStart(), e.getOfferEnd());
+            e.setStatus(Status.WAITING);
+            clearOffer(e);
+            return new Released(slot, candidate(e));
+        });
+        if (r == null) return;
+
+        String shard = shardDirectory.currentShard();
+        long queuedAt = System.nanoTime();
+        matcher.execute(() -> onShard(shard, index -> {
+            // A refresh may have put the entry back already; it stays out until its slot is offered
+            index.remove(r.candidate().id());
+            offerSlot(index, r.slot(), queuedAt);
+            index.add(r.candidate());
+        }));
+    }
+
+    public Map<String, Object> stats() {
+        long matches = matchCount.get();
+        WaitlistIndex index = index();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("shard", shardDirectory.currentShard());
+        out.put("waiting", index.size());
+        out.put("buckets", index.bucketCount());
+        out.put("slotsFreed", slotsFreed.get());
+        out.put("offersMade", offersMade.get());
+        out.put("slotsUnfilled", slotsUnfilled.get());
+        out.put("matchMicrosLast", matchMicrosLast);
+        out.put("matchMicrosAvg", matches == 0 ? 0 : matchMicrosTotal.get() / matches);
+        out.put("matchMicrosMax", matchMicrosMax.get());
+        return out;
+    }
+
+    // ---------- helpers ----------
+
+    private WaitlistIndex index() {
+        return indexes.get(shardDirectory.currentShard()).index;
+    }
+
+    private void onShard(String shard, Consumer<WaitlistIndex> work) {
+        ClinicContext.callOnShard(shard, () -> {
+            work.accept(indexes.get(shard).index);
+            return null;
+        });
+    }
+
+    // One shard's failure leaves its index as it was and does not hold up the others
+    private void forEachShard(String task, BiConsumer<String, ShardIndex> work) {
+        indexes.forEach((shard, si) -> {
+            try {
+                onShard(shard, index -> work.accept(shard, si));
+            } catch (RuntimeException e) {
+                log.warn("Waitlist: {} on shard {} failed: {}", task, shard, e.getMessage());
+            }
+        });
+    }
+
+    private WaitlistEntry find(Long id) {
+        return waitlistRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Waitlist entry not found"));
+    }
+
+    private static void clearOffer(WaitlistEntry e) {
+        e.setOfferProviderId(null);
+        e.setOfferDate(null);
+        e.setOfferStart(null);
+        e.setOfferEnd(null);
+        e.setOfferedAt(null);
+        e.setOfferExpiresAt(null);
+    }
+
+    private static Candidate candidate(WaitlistEntry e) {
+        return new Candidate(e.getId(), e.getPatient().getId(),
+                e.getProvider() != null ? e.getProvider().getId() : null,
+                e.getEarliestDate(), e.getLatestDate(), e.getWindowStart(), e.getWindowEnd(),
+                e.getDurationMinutes(), e.getUrgency(), e.getCreatedAt());
+    }
+
+    // Time from the commit that freed the slot to the committed offer
+    private void recordLatency(long micros) {
+        matchCount.incrementAndGet();
+        matchMicrosTotal.addAndGet(micros);
+        matchMicrosMax.accumulateAndGet(micros, Math::max);
+        matchMicrosLast = micros;
+    }
+
+    // One shard's index and the time its last load or refresh started
+    private static final class ShardIndex {
+        final WaitlistIndex index;
+        volatile LocalDateTime watermark;
+
+        ShardIndex(WaitlistIndex index) {
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.main.ehr.util;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Blocking keys for duplicate-patient detection. Two records are only ever
+ * compared when they share at least one key, so these are deliberately
+ * coarse: Soundex(last name) + DOB, the last 10 phone digits, and the
+ * lower-cased email.
+ */
+public final class PatientKeys {
+
+    private PatientKeys() {}
+
+    public static String nameKey(String lastName, LocalDate dob) {
+        String sx = soundex(lastName);
+        return sx == null || dob == null ? null : sx + dob;
+    }
+
+    public static String phoneKey(String phone) {
+        if (phone == null) return null;
+        String digits = phone.replaceAll("\\D", "");
+        if (digits.length() < 7) return null;
+        return digits.length() > 10 ? digits.substring(digits.length() - 10) : digits;
+    }
+
+    public static String emailKey(String email) {
+        if (email == null) return null;
+        String e = email.trim().toLowerCase(Locale.ROOT);
+        return e.indexOf('@') > 0 ? e : null;
+    }
+
+    // American Soundex: first letter + three digits, e.g. Robert/Rupert -> R163
+    public static String soundex(String s) {
+        if (s == null) return null;
+        String letters = s.toUpperCase(Locale.ROOT).replaceAll("[^A-Z]", "");
+        if (letters.isEmpty()) return null;
+
+        StringBuilder out = new StringBuilder(4).append(letters.charAt(0));
+        char prev = code(letters.charAt(0));
+        for (int i = 1; i < letters.length() && out.length() < 4; i++) {
+            char c = letters.charAt(i);
+            char d = code(c);
+            if (d != '0' && d != prev) out.append(d);
+            // H and W do not separate letters with the same code; vowels do
+            if (c != 'H' && c != 'W') prev = d;
+        }
+        while (out.length() < 4) out.append('0');
+        return out.toString();
+    }
+
+    private static char code(char c) {
+        return switch (c) {
+            case 'B', 'F', 'P', 'V' -> '1';
+            case 'C', 'G', 'J', 'K', 'Q', 'S', 'X', 'Z' -> '2';
+            case 'D', 'T' -> '3';
+            case 'L' -> '4';
+            case 'M', 'N' -> '5';
+            case 'R' -> '6';
+            default -> '0';
+        };
+    }
+}
@@ -0,0 +1,10 @@
+-- Last write to a waitlist entry. Each node refreshes its in-memory index
+-- from the entries written since its last refresh.
+alter table waitlist_entries
+   add column updated_at datetime(6);
+
+update waitlist_entries
+   set updated_at = created_at;
+
+create index idx_waitlist_updated
+   on waitlist_entries (updated_at);
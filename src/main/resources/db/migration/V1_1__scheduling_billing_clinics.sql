@@ -0,0 +1,219 @@
+-- Tables and columns the entities gained while ddl-auto=update still
+-- managed the schema: recurring series, booking locks, claims batches,
+-- shared HTTP sessions, daily stats, room preferences, optimistic-lock
+-- versions, clinic ids and duplicate-patient keys. Databases baselined at
+-- V1 were never updated by the newer code, so they get them here.
+
+create table appointment_series (
+    days_of_week_mask integer not null,
+    duration_minutes integer not null,
+    interval_count integer not null,
+    start_date date not null,
+    time_end time(6),
+    time_start time(6),
+    until_date date,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    patient_id bigint,
+    provider_id bigint,
+    updated_at datetime(6),
+    appointment_type varchar(255),
+    created_by varchar(255),
+    reason varchar(255),
+    status varchar(255),
+    updated_by varchar(255),
+    frequency enum ('DAILY','WEEKLY') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table appointment_series_exdates (
+    excluded_date date,
+    series_id bigint not null
+) engine=InnoDB;
+
+create table booking_locks (
+    lock_date date not null,
+    id bigint not null auto_increment,
+    locked_at datetime(6) not null,
+    provider_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table claim_batch_checkpoints (
+    chunks_written integer not null,
+    claims_rejected integer not null,
+    claims_written integer not null,
+    done bit not null,
+    batch_id bigint not null,
+    id bigint not null auto_increment,
+    last_appointment_id bigint not null,
+    payer_name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table claim_batches (
+    claims_rejected integer not null,
+    claims_written integer not null,
+    period_end date not null,
+    period_start date not null,
+    finished_at datetime(6),
+    id bigint not null auto_increment,
+    started_at datetime(6),
+    error varchar(1000),
+    status enum ('COMPLETED','FAILED','RUNNING') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table claims (
+    service_date date,
+    appointment_id bigint not null,
+    batch_id bigint not null,
+    id bigint not null auto_increment,
+    patient_id bigint,
+    provider_id bigint,
+    claim_number varchar(32),
+    reject_reason varchar(500),
+    file_name varchar(255),
+    payer_name varchar(255),
+    status enum ('REJECTED','WRITTEN') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table http_sessions (
+    max_inactive_seconds integer not null,
+    creation_time bigint not null,
+    expiry_time bigint not null,
+    last_access_time bigint not null,
+    id varchar(64) not null,
+    attributes mediumblob not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table provider_daily_stats (
+    appointment_count integer not null,
+    stat_date date not null,
+    booked_minutes bigint not null,
+    id bigint not null auto_increment,
+    provider_id bigint not null,
+    appointment_type varchar(255) not null,
+    status varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table provider_room_preferences (
+    preference_rank integer not null,
+    provider_id bigint not null,
+    room_id bigint not null,
+    primary key (preference_rank, provider_id)
+) engine=InnoDB;
+
+alter table appointments
+   add column series_original_date date;
+
+alter table appointments
+   add column series_id bigint;
+
+alter table appointments
+   add column version bigint default 0 not null;
+
+alter table appointments
+   add column clinic_id varchar(32);
+
+alter table patients
+   add column version bigint default 0 not null;
+
+alter table patients
+   add column phone_key varchar(10);
+
+alter table patients
+   add column name_key varchar(20);
+
+alter table patients
+   add column email_key varchar(255);
+
+alter table patients
+   add column clinic_id varchar(32);
+
+alter table providers
+   add column clinic_id varchar(32);
+
+create index idx_series_provider_range
+   on appointment_series (provider_id, start_date, until_date);
+
+create index idx_appt_clinic
+   on appointments (clinic_id);
+
+create index idx_appt_provider_date
+   on appointments (provider_id, date);
+
+create index idx_appt_series_original
+   on appointments (series_id, series_original_date);
+
+create index idx_appt_updated_at
+   on appointments (updated_at);
+
+alter table booking_locks
+   add constraint uk_booking_locks unique (provider_id, lock_date);
+
+alter table claim_batch_checkpoints
+   add constraint uk_claim_checkpoint_payer unique (batch_id, payer_name);
+
+create index idx_claim_appointment_status
+   on claims (appointment_id, status);
+
+alter table claims
+   add constraint uk_claim_batch_appointment unique (batch_id, appointment_id);
+
+create index idx_http_sessions_expiry
+   on http_sessions (expiry_time);
+
+create index idx_patient_clinic
+   on patients (clinic_id);
+
+create index idx_patient_name_key
+   on patients (name_key);
+
+create index idx_patient_phone_key
+   on patients (phone_key);
+
+create index idx_patient_email_key
+   on patients (email_key);
+
+create index idx_daily_stats_date
+   on provider_daily_stats (stat_date);
+
+alter table provider_daily_stats
+   add constraint uk_provider_daily_stats unique (provider_id, stat_date, status, appointment_type);
+
+create index idx_provider_clinic
+   on providers (clinic_id);
+
+alter table appointment_series
+   add constraint FKg17t6svb5ph3hk21fbs1y3dab
+   foreign key (patient_id)
+   references patients (id);
+
+alter table appointment_series
+   add constraint FK73xttd9e489pygpi0l66y5tqx
+   foreign key (provider_id)
+   references providers (id);
+
+alter table appointment_series_exdates
+   add constraint FKrb6h3t5qxinx94fduqn0vkbjo
+   foreign key (series_id)
+   references appointment_series (id);
+
+alter table appointments
+   add constraint FKmebtwh864a7lnpn1qd7iwvfxy
+   foreign key (series_id)
+   references appointment_series (id);
+
+alter table provider_room_preferences
+   add constraint FKo4o8msvh8sq1rr5nmxq11ff3s
+   foreign key (room_id)
+   references rooms (id);
+
+alter table provider_room_preferences
+   add constraint FKptw58uyo35eacjms4vfiow0kj
+   foreign key (provider_id)
+   references providers (id);
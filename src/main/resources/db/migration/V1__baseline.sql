@@ -0,0 +1,222 @@
+-- Baseline: the schema as Hibernate's ddl-auto=update left it before
+-- migrations took over, i.e. the original entities. Existing databases are
+-- baselined at this version (spring.flyway.baseline-on-migrate) instead of
+-- running it; everything added since starts at V1_1.
+
+create table appointments (
+    date date,
+    duration_minutes integer not null,
+    time_end time(6),
+    time_start time(6),
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    notes_id bigint,
+    patient_id bigint,
+    provider_id bigint,
+    room_id bigint,
+    updated_at datetime(6),
+    appointment_type varchar(255),
+    created_by varchar(255),
+    reason varchar(255),
+    status varchar(255),
+    updated_by varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table documents (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    patient_id bigint,
+    updated_at datetime(6),
+    uploaded_at datetime(6),
+    uploaded_by_id bigint,
+    created_by varchar(255),
+    document_type varchar(255),
+    file_name varchar(255),
+    file_path varchar(255),
+    file_type varchar(255),
+    updated_by varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table insurances (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    address varchar(255),
+    created_by varchar(255),
+    group_number varchar(255),
+    phone varchar(255),
+    policy_number varchar(255),
+    provider_name varchar(255),
+    type varchar(255),
+    updated_by varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table medical_notes (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    patient_id bigint,
+    updated_at datetime(6),
+    content TEXT,
+    created_by varchar(255),
+    type varchar(255),
+    updated_by varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table patients (
+    dob date,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    insurance_primary_id bigint,
+    insurance_secondary_id bigint,
+    updated_at datetime(6),
+    address_line1 varchar(255),
+    address_line2 varchar(255),
+    city varchar(255),
+    created_by varchar(255),
+    email varchar(255),
+    first_name varchar(255),
+    gender varchar(255),
+    last_name varchar(255),
+    middle_name varchar(255),
+    phone_primary varchar(255),
+    phone_secondary varchar(255),
+    state varchar(255),
+    title varchar(255),
+    updated_by varchar(255),
+    zip varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table providers (
+    active bit not null,
+    in_practice bit not null,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    created_by varchar(255),
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    phone varchar(255),
+    specialty varchar(255),
+    title varchar(255),
+    updated_by varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table rooms (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    created_by varchar(255),
+    floor varchar(255),
+    name varchar(255),
+    updated_by varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table staff (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    user_id bigint,
+    created_by varchar(255),
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    phone varchar(255),
+    role varchar(255),
+    updated_by varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table user_audit_log (
+    entity_id bigint,
+    id bigint not null,
+    timestamp datetime(6),
+    action varchar(255),
+    entity_type varchar(255),
+    username varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table user_audit_log_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into user_audit_log_seq values ( 1 );
+
+create table users (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    created_by varchar(255),
+    password varchar(255) not null,
+    role varchar(255) not null,
+    updated_by varchar(255),
+    username varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table appointments
+   add constraint UK5obsxb7syfa4ouwe0asa13o5x unique (notes_id);
+
+alter table staff
+   add constraint UK7qatq4kob2sr6rlp44khhj53g unique (user_id);
+
+alter table users
+   add constraint UKr43af9ap4edm43mmtq01oddj6 unique (username);
+
+alter table appointments
+   add constraint FK5xas8q9njhoe63w52q0und0po
+   foreign key (notes_id)
+   references medical_notes (id);
+
+alter table appointments
+   add constraint FK8exap5wmg8kmb1g1rx3by21yt
+   foreign key (patient_id)
+   references patients (id);
+
+alter table appointments
+   add constraint FK9naom2usk1iqyd8d4lm8aegtk
+   foreign key (provider_id)
+   references providers (id);
+
+alter table appointments
+   add constraint FKbsma6x4pnujct0e6xkycu9864
+   foreign key (room_id)
+   references rooms (id);
+
+alter table documents
+   add constraint FKuvd7wpcrgqmdwlxusy3ceunb
+   foreign key (patient_id)
+   references patients (id);
+
+alter table documents
+   add constraint FKdqs762pkju921ph76i8id14wb
+   foreign key (uploaded_by_id)
+   references staff (id);
+
+alter table medical_notes
+   add constraint FKb7mch31qd04y1ult7tuajeidd
+   foreign key (patient_id)
+   references patients (id);
+
+alter table patients
+   add constraint FKiy2sho8y445bpx37prib1icjs
+   foreign key (insurance_primary_id)
+   references insurances (id);
+
+alter table patients
+   add constraint FKjxlbtaylvkrm0os63eoe6ekre
+   foreign key (insurance_secondary_id)
+   references insurances (id);
+
+alter table staff
+   add constraint FKdlvw23ak3u9v9bomm8g12rtc0
+   foreign key (user_id)
+   references users (id);
@@ -0,0 +1,18 @@
+create table appointment_history (
+    id bigint not null auto_increment,
+    appointment_id bigint not null,
+    kind enum ('CREATED','DELETED','SNAPSHOT','UPDATED') not null,
+    changed_at datetime(6) not null,
+    changed_by varchar(100),
+    provider_id bigint,
+    appt_date date,
+    depth integer not null,
+    data TEXT not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_history_appt_time
+   on appointment_history (appointment_id, changed_at);
+
+create index idx_history_provider_day
+   on appointment_history (provider_id, appt_date, changed_at);
@@ -0,0 +1,37 @@
+create table waitlist_entries (
+    id bigint not null auto_increment,
+    patient_id bigint not null,
+    provider_id bigint,
+    earliest_date date not null,
+    latest_date date not null,
+    window_start time(6),
+    window_end time(6),
+    duration_minutes integer not null,
+    urgency integer not null,
+    appointment_type varchar(255),
+    reason varchar(255),
+    status enum ('BOOKED','OFFERED','REMOVED','WAITING') not null,
+    created_at datetime(6) not null,
+    offer_provider_id bigint,
+    offer_date date,
+    offer_start time(6),
+    offer_end time(6),
+    offered_at datetime(6),
+    offer_expires_at datetime(6),
+    booked_appointment_id bigint,
+    version bigint default 0 not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_waitlist_status
+   on waitlist_entries (status);
+
+alter table waitlist_entries
+   add constraint fk_waitlist_patient
+   foreign key (patient_id)
+   references patients (id);
+
+alter table waitlist_entries
+   add constraint fk_waitlist_provider
+   foreign key (provider_id)
+   references providers (id);
@@ -0,0 +1,47 @@
+create table reminder_runs (
+    id bigint not null auto_increment,
+    target_date date not null,
+    kind enum ('NEXT_DAY','NEXT_WEEK') not null,
+    status enum ('COMPLETED','FAILED','RUNNING') not null,
+    last_appointment_id bigint not null,
+    last_series_id bigint not null,
+    appointments_done bit not null,
+    chunks integer not null,
+    queued integer not null,
+    sent integer not null,
+    failed integer not null,
+    skipped integer not null,
+    started_at datetime(6),
+    finished_at datetime(6),
+    error varchar(1000),
+    primary key (id)
+) engine=InnoDB;
+
+alter table reminder_runs
+   add constraint uk_reminder_run_date_kind unique (target_date, kind);
+
+create table reminder_deliveries (
+    id bigint not null auto_increment,
+    run_id bigint not null,
+    appointment_ref varchar(40) not null,
+    appointment_id bigint,
+    patient_id bigint,
+    appointment_date date,
+    channel enum ('EMAIL','SMS') not null,
+    recipient varchar(255) not null,
+    subject varchar(255),
+    body varchar(2000),
+    status enum ('FAILED','PENDING','SENT') not null,
+    attempts integer not null,
+    external_id varchar(100),
+    last_error varchar(500),
+    created_at datetime(6),
+    sent_at datetime(6),
+    primary key (id)
+) engine=InnoDB;
+
+alter table reminder_deliveries
+   add constraint uk_reminder_delivery unique (run_id, appointment_ref, channel);
+
+create index idx_reminder_delivery_status
+   on reminder_deliveries (run_id, status);
@@ -0,0 +1,60 @@
+-- One partition per year, rows compressed. No foreign keys: MySQL does not
+-- partition tables that have them, and the partition column must be in the key.
+create table appointments_archive (
+    id bigint not null,
+    date date not null,
+    duration_minutes integer not null,
+    series_original_date date,
+    time_end time(6),
+    time_start time(6),
+    created_at datetime(6),
+    notes_id bigint,
+    patient_id bigint,
+    provider_id bigint,
+    room_id bigint,
+    series_id bigint,
+    updated_at datetime(6),
+    version bigint default 0 not null,
+    clinic_id varchar(32),
+    appointment_type varchar(255),
+    created_by varchar(255),
+    reason varchar(255),
+    status varchar(255),
+    updated_by varchar(255),
+    archived_at datetime(6) not null,
+    primary key (id, date)
+) engine=InnoDB row_format=compressed key_block_size=8
+partition by range columns (date) (
+    partition p2019 values less than ('2020-01-01'),
+    partition p2020 values less than ('2021-01-01'),
+    partition p2021 values less than ('2022-01-01'),
+    partition p2022 values less than ('2023-01-01'),
+    partition p2023 values less than ('2024-01-01'),
+    partition p2024 values less than ('2025-01-01'),
+    partition p2025 values less than ('2026-01-01'),
+    partition p2026 values less than ('2027-01-01'),
+    partition p2027 values less than ('2028-01-01'),
+    partition p2028 values less than ('2029-01-01'),
+    partition p2029 values less than ('2030-01-01'),
+    partition p2030 values less than ('2031-01-01'),
+    partition p2031 values less than ('2032-01-01'),
+    partition p2032 values less than ('2033-01-01'),
+    partition p2033 values less than ('2034-01-01'),
+    partition p2034 values less than ('2035-01-01'),
+    partition p2035 values less than ('2036-01-01'),
+    partition p2036 values less than ('2037-01-01'),
+    partition p2037 values less than ('2038-01-01'),
+    partition p2038 values less than ('2039-01-01'),
+    partition p2039 values less than ('2040-01-01'),
+    partition p2040 values less than ('2041-01-01'),
+    partition pmax values less than (MAXVALUE)
+);
+
+create index idx_appt_archive_provider_date
+   on appointments_archive (provider_id, date);
+
+create index idx_appt_archive_date
+   on appointments_archive (date);
+
+create index idx_appt_archive_series_original
+   on appointments_archive (series_id, series_original_date);
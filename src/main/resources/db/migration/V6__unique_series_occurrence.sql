@@ -0,0 +1,17 @@
+-- At most one materialized row per series occurrence. Rows that already
+-- duplicate an occurrence keep their data but become standalone appointments.
+update appointments
+   set series_id = null, series_original_date = null
+ where id in (select id from (
+        select a.id
+          from appointments a
+          join appointments b
+            on b.series_id = a.series_id
+           and b.series_original_date = a.series_original_date
+           and b.id < a.id) dup);
+
+-- Created before the old index is dropped: the series_id foreign key needs one
+create unique index uk_appt_series_original
+   on appointments (series_id, series_original_date);
+
+drop index idx_appt_series_original on appointments;
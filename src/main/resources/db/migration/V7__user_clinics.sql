@@ -0,0 +1,12 @@
+-- Clinics a user may work in (ClinicContextFilter). Users without rows get
+-- the default clinic only; ROLE_ADMIN may use every clinic.
+create table user_clinics (
+    user_id bigint not null,
+    clinic_id varchar(32) not null,
+    primary key (user_id, clinic_id)
+) engine=InnoDB;
+
+alter table user_clinics
+   add constraint fk_user_clinics_user
+   foreign key (user_id)
+   references users (id);
@@ -0,0 +1,7 @@
+-- The node working a reminder run and when it last checked in. Another node
+-- may only take a RUNNING run over once its heartbeat is older than the lease.
+alter table reminder_runs
+   add column owner varchar(64);
+
+alter table reminder_runs
+   add column heartbeat_at datetime(6);
@@ -175,6 +175,17 @@ window.AppointmentModal = (() => {
     }
 
 
+    // =======================================================
+    // INSURANCE ELIGIBILITY (cached nightly; "Check now" re-verifies)
+    // =======================================================
+    loadEligibility(pn?.dataset?.patientId || data.patientId, data.date);
+
+    document.getElementById("check-eligibility")?.addEventListener("click", () => {
+      const patientId = pn?.dataset?.patientId || window.CurrentAppointmentData.getAll().patientId;
+      loadEligibility(patientId, form.querySelector("#date")?.value, true);
+    });
+
+
     // =======================================================
     // AUTO-SYNC timeStart ↔ timeEnd ↔ duration
     // =======================================================
@@ -333,6 +344,11 @@ window.AppointmentModal = (() => {
       });
 
       const json = await res.json().catch(() => ({}));
+      if (res.status === 409) {
+        // Someone else saved this appointment first (or the schedule is busy)
+        alert(json.error || "This appointment was changed by someone else. Reload and try again.");
+        return;
+      }
       if (!res.ok || !json.success) {
         alert(`Save failed (${res.status})`);
         return;
@@ -369,12 +385,18 @@ window.AppointmentModal = (() => {
       if (!id) { alert("No appointment to delete."); return; }
       if (!confirm("Are you sure?")) return;
 
-      const res = await fetch(`/api/schedule/${id}`, {
+      const version = window.CurrentAppointmentData.get("version");
+      const query = version != null ? `?version=${version}` : "";
+      const res = await fetch(`/api/schedule/${id}${query}`, {
         method: "DELETE",
         headers: { Accept: "application/json", ...getCsrfHeaders() },
       });
 
       const json = await res.json().catch(() => ({}));
+      if (res.status === 409) {
+        alert(json.error || "This appointment was changed by someone else. Reload and try again.");
+        return;
+      }
       if (!res.ok || !json.success) {
         alert("Delete failed.");
         return;
@@ -423,7 +445,7 @@ window.AppointmentModal = (() => {
 
       const [first, last] = query.split(/\s+/, 2);
 
-      const res = await fetch(`/api/patients/search?firstName=${first || ""}&lastName=${last || ""}&size=6`);
+      const res = await fetch(`/api/patients/search?firstName=${first || ""}&lastName=${last || ""}&size=6&fields=id,firstName,lastName`);
       const data = await res.json();
       const list = data.patients || [];
 
@@ -450,6 +472,7 @@ window.AppointmentModal = (() => {
       input.dataset.patientId = item.dataset.id;
 
       hideDD();
+      loadEligibility(item.dataset.id, root.querySelector("#date")?.value);
     });
 
     // ---- Enter/Tab logic ----
@@ -474,6 +497,7 @@ window.AppointmentModal = (() => {
 
         window.CurrentAppointmentData.updateField("patient", p);
         window.CurrentAppointmentData.updateField("patientId", p.id);
+        loadEligibility(p.id, root.querySelector("#date")?.value);
         return;
       }
 
@@ -511,7 +535,7 @@ window.AppointmentModal = (() => {
 
       const [first, last] = query.split(/\s+/, 2);
 
-      const res = await fetch(`/api/providers/search?firstName=${first || ""}&lastName=${last || ""}&inPracticeOnly=true&size=12`);
+      const res = await fetch(`/api/providers/search?firstName=${first || ""}&lastName=${last || ""}&inPracticeOnly=true&size=12&fields=id,displayName,specialty`);
       const data = await res.json();
       const list = data.providers || [];
 
@@ -598,6 +622,33 @@ window.AppointmentModal = (() => {
   }
 
 
+  // =======================================================
+  // ELIGIBILITY PANEL
+  // Shows cached coverage per policy; refresh asks the payer now
+  // =======================================================
+  async function loadEligibility(patientId, date, refresh = false) {
+    const box = document.getElementById("eligibility-status");
+    if (!box) return;
+    if (!patientId) { box.textContent = "—"; return; }
+
+    box.textContent = refresh ? "Checking…" : "Loading…";
+    try {
+      const params = new URLSearchParams({ refresh: String(refresh) });
+      if (date) params.set("date", date);
+      const res = await fetch(`/api/eligibility/patient/${patientId}?${params}`);
+      if (!res.ok) throw new Error(res.status);
+      const results = await res.json();
+
+      box.textContent = results.length
+        ? results.map((r) => `${r.payerName ?? "Payer"} ${r.policyNumber}: ${r.status}${r.message ? ` (${r.message})` : ""}`).join(" · ")
+        : "No insurance on file";
+    } catch (err) {
+      console.warn("⚠️ Eligibility lookup failed:", err);
+      box.textContent = "Unavailable";
+    }
+  }
+
+
   // =======================================================
   // EXPORT PUBLIC API
   // =======================================================
@@ -106,6 +106,24 @@ function initSchedulerCalendar(providerId = null) {
     return `${pad2(Math.floor(total / 60) % 24)}:${pad2(total % 60)}`;
   };
 
+  // Recurring-series occurrences are generated on the server and arrive with
+  // ids like "s12-2026-10-20" (no row behind them yet). Before editing one,
+  // materialize it into a real appointment and adopt the returned id.
+  const ensureAppointmentId = async (event) => {
+    const { seriesId, occurrenceDate } = event.extendedProps || {};
+    if (!seriesId || !String(event.id).startsWith("s")) return event.id;
+
+    const res = await fetch(
+      `/api/schedule/series/${seriesId}/occurrences/${occurrenceDate}`,
+      { method: "POST" }
+    );
+    if (!res.ok) throw new Error(`HTTP ${res.status}`);
+
+    const { id } = await res.json();
+    event.setProp("id", String(id));
+    return String(id);
+  };
+
   // ==========================================================================
   // Provider Filter Suggestion Dropdown (Scheduler top bar)
   //   - Inline search by first/last name
@@ -303,7 +321,8 @@ function initSchedulerCalendar(providerId = null) {
       if (calendarEl.dataset.lastEvent === apptId) {
         delete calendarEl.dataset.lastEvent;
 
-        const res = await fetch(`/api/schedule/appointment/${apptId}`);
+        const realId = await ensureAppointmentId(info.event);
+        const res = await fetch(`/api/schedule/appointment/${realId}`);
         const appt = await res.json();
 
         const startISO =
@@ -337,7 +356,7 @@ function initSchedulerCalendar(providerId = null) {
     eventDrop: async (info) => {
       try {
         const event = info.event;
-        const id = event.id;
+        const id = await ensureAppointmentId(event);
 
         const [date, timeStartRaw] = event.startStr.split("T");
         const [, timeEndRaw] = event.endStr.split("T");
@@ -345,7 +364,9 @@ function initSchedulerCalendar(providerId = null) {
         const timeStart = timeStartRaw.slice(0, 5);
         const timeEnd = timeEndRaw.slice(0, 5);
 
-        const payload = { date, timeStart, timeEnd };
+        // Version from the feed; a stale one gets 409 instead of overwriting
+        const { version } = event.extendedProps || {};
+        const payload = { date, timeStart, timeEnd, version };
 
         const res = await fetch(`/api/schedule/${id}`, {
           method: "PUT",
@@ -353,8 +374,17 @@ function initSchedulerCalendar(providerId = null) {
           body: JSON.stringify(payload),
         });
 
+        if (res.status === 409) {
+          alert("This appointment was changed by someone else. The calendar will reload.");
+          info.revert();
+          calendar.refetchEvents();
+          return;
+        }
         if (!res.ok) throw new Error(`HTTP ${res.status}`);
 
+        const json = await res.json().catch(() => ({}));
+        if (json.version != null) event.setExtendedProp("version", json.version);
+
         // Update local persistent model
         window.CurrentAppointmentData.updateField("date", date);
         window.CurrentAppointmentData.updateField("timeStart", timeStart);
@@ -373,7 +403,7 @@ function initSchedulerCalendar(providerId = null) {
     eventResize: async (info) => {
       try {
         const event = info.event;
-        const id = event.id;
+        const id = await ensureAppointmentId(event);
 
         const [date, timeStartRaw] = event.startStr.split("T");
         const [, timeEndRaw] = event.endStr.split("T");
@@ -381,7 +411,9 @@ function initSchedulerCalendar(providerId = null) {
         const timeStart = timeStartRaw.slice(0, 5);
         const timeEnd = timeEndRaw.slice(0, 5);
 
-        const payload = { date, timeStart, timeEnd };
+        // Version from the feed; a stale one gets 409 instead of overwriting
+        const { version } = event.extendedProps || {};
+        const payload = { date, timeStart, timeEnd, version };
 
         const res = await fetch(`/api/schedule/${id}`, {
           method: "PUT",
@@ -389,8 +421,17 @@ function initSchedulerCalendar(providerId = null) {
           body: JSON.stringify(payload),
         });
 
+        if (res.status === 409) {
+          alert("This appointment was changed by someone else. The calendar will reload.");
+          info.revert();
+          calendar.refetchEvents();
+          return;
+        }
         if (!res.ok) throw new Error(`HTTP ${res.status}`);
 
+        const json = await res.json().catch(() => ({}));
+        if (json.version != null) event.setExtendedProp("version", json.version);
+
         window.CurrentAppointmentData.updateField("date", date);
         window.CurrentAppointmentData.updateField("timeStart", timeStart);
         window.CurrentAppointmentData.updateField("timeEnd", timeEnd);
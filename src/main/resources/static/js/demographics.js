@@ -21,6 +21,8 @@ window.Demographics = {
   mode: "new",                 // "new" or "edit"
   currentPatientId: null,      // ID if editing
   returnTo: null,              // reserved for future use
+  loaded: null,                // form values as loaded, for PATCH diffs
+  version: null,               // patient version as loaded
 
   // ----------------------------------------------------
   // init() — runs ONCE when demographics fragment loads
@@ -92,6 +94,8 @@ window.Demographics = {
       header.textContent = "New Patient";
       form.reset();
       form.removeAttribute("data-patient-id");
+      this.loaded = null;
+      this.version = null;
       return;
     }
 
@@ -134,6 +138,10 @@ window.Demographics = {
       setVal("demo-state", p.state);
       setVal("demo-zip", p.zip);
 
+      // Snapshot what the form shows now; save() sends only the differences
+      this.loaded = this.readForm();
+      this.version = p.version ?? null;
+
       // Mark form in edit mode
       form.dataset.patientId = p.id;
       this.mode = "edit";
@@ -146,24 +154,12 @@ window.Demographics = {
   },
 
   // ----------------------------------------------------
-  // save() — Create or update patient
-  //
-  // Special behavior:
-  //   🔥 If an appointment is active, we DO NOT stay here.
-  //      Instead we return the new/edited patient to
-  //      the appointment modal (via setPendingReturn).
+  // readForm() — Current form values (blank → null)
   // ----------------------------------------------------
-  async save() {
-    const form = document.getElementById("demographics-form");
-    if (!form) return;
-
-    const existingId = form.dataset.patientId
-      ? Number(form.dataset.patientId)
-      : null;
-
+  readForm() {
     const getVal = (id) => document.getElementById(id)?.value?.trim() || null;
 
-    const payload = {
+    return {
       title: getVal("demo-title"),
       gender: getVal("demo-gender"),
       firstName: getVal("demo-firstName"),
@@ -179,6 +175,25 @@ window.Demographics = {
       state: getVal("demo-state"),
       zip: getVal("demo-zip"),
     };
+  },
+
+  // ----------------------------------------------------
+  // save() — Create or update patient
+  //
+  // Special behavior:
+  //   🔥 If an appointment is active, we DO NOT stay here.
+  //      Instead we return the new/edited patient to
+  //      the appointment modal (via setPendingReturn).
+  // ----------------------------------------------------
+  async save() {
+    const form = document.getElementById("demographics-form");
+    if (!form) return;
+
+    const existingId = form.dataset.patientId
+      ? Number(form.dataset.patientId)
+      : null;
+
+    const payload = this.readForm();
 
     // basic validation
     if (!payload.firstName || !payload.lastName || !payload.dob) {
@@ -186,28 +201,54 @@ window.Demographics = {
       return;
     }
 
+    // Edits PATCH only the changed fields (plus the version they were based on)
+    let body = payload;
+    if (existingId && this.loaded) {
+      body = Object.fromEntries(
+        Object.entries(payload).filter(([k, v]) => v !== this.loaded[k])
+      );
+      if (this.version != null) body.version = this.version;
+    }
+
     const url = existingId ? `/api/patients/${existingId}` : "/api/patients";
-    const method = existingId ? "PUT" : "POST";
+    const method = existingId ? (this.loaded ? "PATCH" : "PUT") : "POST";
 
     try {
-      console.log("[Demographics] save() ->", method, url, payload);
+      console.log("[Demographics] save() ->", method, url, body);
 
       const res = await fetch(url, {
         method,
         headers: { "Content-Type": "application/json" },
-        body: JSON.stringify(payload),
+        body: JSON.stringify(body),
       });
 
       const json = await res.json().catch(() => ({}));
+      if (res.status === 409) {
+        alert(json.error || "This patient was changed by someone else. Reload and try again.");
+        return;
+      }
       if (!res.ok) {
         console.error("[Demographics] save failed:", res.status, json);
         alert("Could not save patient.");
         return;
       }
 
-      const saved = json.patient || json;
+      // PATCH answers with just {id, version}; the form has the rest
+      const saved = { ...payload, ...(json.patient || json) };
       console.log("[Demographics] saved patient:", saved);
 
+      this.loaded = payload;
+      this.version = saved.version ?? null;
+
+      // Server saved the record but thinks it may already exist
+      const dups = json.possibleDuplicates || [];
+      if (dups.length) {
+        const list = dups
+          .map((d) => `  #${d.id} ${d.name} (DOB ${d.dob}) — ${Math.round(d.score * 100)}% match`)
+          .join("\n");
+        alert(`Saved, but this patient may already exist:\n${list}\n\nPlease review before booking.`);
+      }
+
       // ==========================================================
       // 🔥🔥🔥 ALWAYS normalize into EDIT MODE
       // ==========================================================
@@ -90,6 +90,11 @@ class SearchTable {
     this.tableBody.innerHTML = `<tr><td colspan="${this.columns.length}" class="p-2 text-gray-500">Loading...</td></tr>`;
     try {
       const res = await fetch(`${this.endpoint}?${this.buildParams().toString()}`);
+      if (res.status === 429) {
+        const wait = res.headers.get("Retry-After") || "a few";
+        this.tableBody.innerHTML = `<tr><td colspan="${this.columns.length}" class="p-2 text-red-600">Server busy, try again in ${wait} seconds.</td></tr>`;
+        return;
+      }
       const data = await res.json();
       const list = this.extractList(data);
       this.totalPages = data.totalPages ?? 1;